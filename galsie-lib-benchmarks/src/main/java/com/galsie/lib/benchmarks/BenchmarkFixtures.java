@@ -0,0 +1,48 @@
+package com.galsie.lib.benchmarks;
+
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.asn1.object.MatterASN1ObjectIdentifier;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
+import com.galsie.lib.certificates.certificate.builder.AnyManagedCertificateBuilder;
+import com.galsie.lib.certificates.csr.CertificateSigningRequestBuilder;
+import com.galsie.lib.certificates.csr.SomeCSRHolder;
+import com.galsie.lib.certificates.keypair.algo.ECDSA;
+
+import java.util.Date;
+
+/**
+ * The objects the suites measure against, made once per trial
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static void registerProviders() throws Exception {
+        for (SecurityProvider securityProvider : SecurityProvider.values()) {
+            securityProvider.registerProvider();
+        }
+    }
+
+    /**
+     * @return A self-signed Matter root certificate authority
+     */
+    static SomeX509v3CertificateManager newRCAC() throws Exception {
+        return AnyManagedCertificateBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done()
+                .applyMatterConstraints()
+                .setValidFrom(new Date())
+                .setRCACIdRDN(0xCACACACA00000001L)
+                .setSerialNumber("benchmark-rcac")
+                .buildAsSelfSigned();
+    }
+
+    /**
+     * @return The CSR of a Matter node
+     */
+    static SomeCSRHolder newNodeCSR(long nodeId) throws Exception {
+        return CertificateSigningRequestBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done()
+                .subjectDN().addMatterIdRDN(MatterASN1ObjectIdentifier.MATTER_NODE_ID, nodeId)
+                .addMatterIdRDN(MatterASN1ObjectIdentifier.MATTER_FABRIC_ID, 0xFAB000000000001DL).done()
+                .build().getCsrHolder();
+    }
+}
@@ -0,0 +1,73 @@
+package com.galsie.lib.benchmarks;
+
+import com.galsie.lib.certificates.csr.CSRVerifierCache;
+import com.galsie.lib.certificates.csr.SomeCSRHolder;
+import com.galsie.lib.certificates.csr.SomeCSRManager;
+import com.galsie.lib.certificates.csr.CertificateSigningRequestBuilder;
+import com.galsie.lib.certificates.asn1.object.MatterASN1ObjectIdentifier;
+import com.galsie.lib.certificates.keypair.algo.ECDSA;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSR building (keypair generation included) and signature verification
+ * - verify goes through the shared {@link CSRVerifierCache}, verifyUncached through a cache that is cleared every call, which is the cost without the cache
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CSRBenchmarks {
+
+    private SomeCSRHolder csrHolder;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchmarkFixtures.registerProviders();
+        csrHolder = BenchmarkFixtures.newNodeCSR(1);
+    }
+
+    @State(Scope.Thread)
+    public static class UncachedVerifier {
+        final CSRVerifierCache verifierCache = new CSRVerifierCache(1);
+    }
+
+    @Benchmark
+    public SomeCSRManager build() throws Exception {
+        return CertificateSigningRequestBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done()
+                .subjectDN().addMatterIdRDN(MatterASN1ObjectIdentifier.MATTER_NODE_ID, 1).done()
+                .build();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public SomeCSRManager buildAllThreads() throws Exception {
+        return this.build();
+    }
+
+    @Benchmark
+    public boolean verify() throws Exception {
+        return csrHolder.isSignatureValid();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean verifyAllThreads() throws Exception {
+        return csrHolder.isSignatureValid();
+    }
+
+    @Benchmark
+    public boolean verifyUncached(UncachedVerifier uncachedVerifier) throws Exception {
+        uncachedVerifier.verifierCache.clear();
+        return csrHolder.isSignatureValid(uncachedVerifier.verifierCache);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean verifyUncachedAllThreads(UncachedVerifier uncachedVerifier) throws Exception {
+        return this.verifyUncached(uncachedVerifier);
+    }
+}
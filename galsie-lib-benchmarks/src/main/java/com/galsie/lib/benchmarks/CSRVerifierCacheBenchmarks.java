@@ -0,0 +1,51 @@
+package com.galsie.lib.benchmarks;
+
+import com.galsie.lib.certificates.csr.CSRVerifierCache;
+import com.galsie.lib.certificates.csr.SomeCSRHolder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CSRVerifierCache} under a mix of requesters
+ * - Every call verifies the CSR of one of requesterCount keys, picked at random
+ * - With fewer requesters than the cache capacity every lookup hits, with more the cache keeps evicting
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CSRVerifierCacheBenchmarks {
+
+    private static final int CACHE_CAPACITY = 64;
+
+    @Param({"16", "256"})
+    private int requesterCount;
+
+    private SomeCSRHolder[] csrHolders;
+    private CSRVerifierCache verifierCache;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchmarkFixtures.registerProviders();
+        csrHolders = new SomeCSRHolder[requesterCount];
+        for (int i = 0; i < requesterCount; i++) {
+            csrHolders[i] = BenchmarkFixtures.newNodeCSR(i + 1);
+        }
+        verifierCache = new CSRVerifierCache(CACHE_CAPACITY);
+    }
+
+    @Benchmark
+    public boolean verify() throws Exception {
+        return csrHolders[ThreadLocalRandom.current().nextInt(requesterCount)].isSignatureValid(verifierCache);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean verifyAllThreads() throws Exception {
+        return this.verify();
+    }
+}
@@ -0,0 +1,48 @@
+package com.galsie.lib.benchmarks;
+
+import com.galsie.lib.certificates.asn1.object.MatterASN1ObjectIdentifier;
+import com.galsie.lib.certificates.dn.DistinguishedNameBuilder;
+import com.galsie.lib.certificates.dn.RDNIndex;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the DN of a Matter node, and indexing it
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DistinguishedNameBenchmarks {
+
+    private X500Name nodeName;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        nodeName = this.buildNodeDN();
+    }
+
+    @Benchmark
+    public X500Name buildNodeDN() throws Exception {
+        return new DistinguishedNameBuilder(5)
+                .addMatterIdRDN(MatterASN1ObjectIdentifier.MATTER_NODE_ID, 0xDEDEDEDE00000001L)
+                .addMatterIdRDN(MatterASN1ObjectIdentifier.MATTER_FABRIC_ID, 0xFAB000000000001DL)
+                .addNOCCATRDN(0xABCD0001)
+                .build();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public X500Name buildNodeDNAllThreads() throws Exception {
+        return this.buildNodeDN();
+    }
+
+    @Benchmark
+    public long indexNodeDN() {
+        return RDNIndex.of(nodeName).getNodeId();
+    }
+}
@@ -0,0 +1,84 @@
+package com.galsie.lib.benchmarks;
+
+import com.galsie.lib.certificates.certificate.LazyCertificateView;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.pem.PEMBundleReader;
+import com.galsie.lib.certificates.pem.PEMWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PEM and DER parsing and encoding of a Matter root certificate
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EncodingBenchmarks {
+
+    private byte[] der;
+    private String pem;
+    private byte[] pemBytes;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchmarkFixtures.registerProviders();
+        var certificateHolder = BenchmarkFixtures.newRCAC().getX509CertificateHolder();
+        der = certificateHolder.getDEREncoded();
+        pem = certificateHolder.getPEMEncoded();
+        pemBytes = pem.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public SomeX509v3CertificateHolder parseDER() throws Exception {
+        return SomeX509v3CertificateHolder.fromDERData(der);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public SomeX509v3CertificateHolder parseDERAllThreads() throws Exception {
+        return this.parseDER();
+    }
+
+    @Benchmark
+    public void parseDERLazily(Blackhole blackhole) throws Exception {
+        var view = LazyCertificateView.of(der);
+        blackhole.consume(view.getSerialNumber());
+        blackhole.consume(view.getNotAfter());
+    }
+
+    @Benchmark
+    public SomeX509v3CertificateHolder parsePEM() throws Exception {
+        return SomeX509v3CertificateHolder.fromPEMEncoded(pem);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public SomeX509v3CertificateHolder parsePEMAllThreads() throws Exception {
+        return this.parsePEM();
+    }
+
+    @Benchmark
+    public SomeX509v3CertificateHolder parsePEMBundle() throws Exception {
+        try (var reader = PEMBundleReader.of(ByteBuffer.wrap(pemBytes))) {
+            return reader.certificates().findFirst().orElseThrow();
+        }
+    }
+
+    @Benchmark
+    public String encodePEM() {
+        return PEMWriter.toPEMString("CERTIFICATE", der);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String encodePEMAllThreads() {
+        return this.encodePEM();
+    }
+}
@@ -0,0 +1,86 @@
+package com.galsie.lib.benchmarks;
+
+import com.galsie.lib.datamodel.common.OptionalRequirementType;
+import com.galsie.lib.datamodel.galsie.CategoryTypesList;
+import com.galsie.lib.datamodel.galsie.DeviceTypesList;
+import com.galsie.lib.datamodel.galsie.GalModel;
+import com.galsie.lib.datamodel.galsie.types.CategoryType;
+import com.galsie.lib.datamodel.galsie.types.device.AbstractDeviceType;
+import com.galsie.lib.datamodel.galsie.types.device.BaseDeviceType;
+import com.galsie.lib.datamodel.galsie.types.device.DeviceType;
+import com.galsie.lib.datamodel.matter.types.MTRDeviceType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link GalModel} lookups over a generated model
+ * - categoryCount categories, each root category extended by 9 others
+ * - A device type per category, extending a chain of 3 abstract device types
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GalModelBenchmarks {
+
+    @Param({"100", "1000"})
+    private int categoryCount;
+
+    private GalModel galModel;
+    private CategoryType rootCategory;
+    private DeviceType deviceType;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var categoryTypes = new ArrayList<CategoryType>(categoryCount);
+        CategoryType root = null;
+        for (int i = 0; i < categoryCount; i++) {
+            if (i % 10 == 0) {
+                root = new CategoryType(i, "category-" + i, "Category " + i, true, null);
+                categoryTypes.add(root);
+                continue;
+            }
+            categoryTypes.add(new CategoryType(i, "category-" + i, "Category " + i, false, root));
+        }
+        var abstractDeviceTypes = new ArrayList<AbstractDeviceType>();
+        BaseDeviceType extendsDeviceType = null;
+        for (int i = 0; i < 3; i++) {
+            var abstractDeviceType = new AbstractDeviceType(i, "abstract-" + i, "Abstract " + i, extendsDeviceType, List.of(mtrDeviceType(i)));
+            abstractDeviceTypes.add(abstractDeviceType);
+            extendsDeviceType = abstractDeviceType;
+        }
+        var deviceTypes = new ArrayList<DeviceType>(categoryCount);
+        for (var categoryType : categoryTypes) {
+            deviceTypes.add(new DeviceType(categoryType.getId(), "device-" + categoryType.getId(), "Device " + categoryType.getId(), extendsDeviceType, List.of(mtrDeviceType(100 + categoryType.getId())), categoryType));
+        }
+        galModel = new GalModel(new CategoryTypesList(categoryTypes), List.of(), new DeviceTypesList(new ArrayList<>(abstractDeviceTypes), deviceTypes));
+        rootCategory = categoryTypes.get(categoryCount / 2 / 10 * 10);
+        deviceType = deviceTypes.get(deviceTypes.size() - 1);
+    }
+
+    private static MTRDeviceType mtrDeviceType(long id) {
+        return new MTRDeviceType(id, id, "mtr-device-" + id, "MTR Device " + id, Map.of(OptionalRequirementType.REQUIRED, List.of()));
+    }
+
+    @Benchmark
+    public List<CategoryType> categoriesThatExtend() {
+        return galModel.getCategoryTypesList().getCategoriesThatExtend(rootCategory, false);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public List<CategoryType> categoriesThatExtendAllThreads() {
+        return this.categoriesThatExtend();
+    }
+
+    @Benchmark
+    public List<MTRDeviceType> allPossibleMTRDeviceTypes() {
+        return deviceType.getAllPossibleMTRDeviceTypes();
+    }
+}
@@ -0,0 +1,70 @@
+package com.galsie.lib.benchmarks;
+
+import com.galsie.lib.utils.crypto.coder.Coder;
+import com.galsie.lib.utils.crypto.coder.CodingAlgorithm;
+import com.galsie.lib.utils.crypto.hasher.Hasher;
+import com.galsie.lib.utils.crypto.hasher.HashingAlgorithm;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Hasher#hashValue(String, HashingAlgorithm, CodingAlgorithm)} and {@link Coder}
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HashingBenchmarks {
+
+    @Param({"32", "1024"})
+    private int length;
+
+    private String value;
+    private byte[] data;
+    private String base64;
+    private String base16;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        data = new byte[length];
+        ThreadLocalRandom.current().nextBytes(data);
+        value = Coder.encode(CodingAlgorithm.BASE64, data).substring(0, length);
+        base64 = Coder.encode(CodingAlgorithm.BASE64, data);
+        base16 = Coder.encode(CodingAlgorithm.BASE16, data);
+    }
+
+    @Benchmark
+    public String hashValue() {
+        return Hasher.hashValue(value, HashingAlgorithm.SHA256, CodingAlgorithm.BASE64);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String hashValueAllThreads() {
+        return this.hashValue();
+    }
+
+    @Benchmark
+    public String encodeBase64() {
+        return Coder.encode(CodingAlgorithm.BASE64, data);
+    }
+
+    @Benchmark
+    public byte[] decodeBase64() {
+        return Coder.decode(CodingAlgorithm.BASE64, base64);
+    }
+
+    @Benchmark
+    public String encodeBase16() {
+        return Coder.encode(CodingAlgorithm.BASE16, data);
+    }
+
+    @Benchmark
+    public byte[] decodeBase16() {
+        return Coder.decode(CodingAlgorithm.BASE16, base16);
+    }
+}
@@ -0,0 +1,85 @@
+package com.galsie.lib.benchmarks;
+
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
+import com.galsie.lib.certificates.certificate.builder.AnyManagedCertificateBuilder;
+import com.galsie.lib.certificates.certificate.builder.AnyUnmanagedCertificateBuilder;
+import com.galsie.lib.certificates.certificate.profile.CertificateProfile;
+import com.galsie.lib.certificates.certificate.profile.ProfiledCertificateIssuer;
+import com.galsie.lib.certificates.csr.SomeCSRHolder;
+import com.galsie.lib.certificates.keypair.algo.ECDSA;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Certificate issuance
+ * - selfSigned: a root certificate authority, keypair generation included
+ * - csrSigned: a certificate for a CSR through the builder, the CSR signature verification included
+ * - csrSignedWithProfile: the same through a {@link ProfiledCertificateIssuer}, whose constant work is done once
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IssuanceBenchmarks {
+
+    private SomeX509v3CertificateManager rcac;
+    private SomeCSRHolder csrHolder;
+    private ProfiledCertificateIssuer nocIssuer;
+    private Date validFrom;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchmarkFixtures.registerProviders();
+        rcac = BenchmarkFixtures.newRCAC();
+        csrHolder = BenchmarkFixtures.newNodeCSR(1);
+        nocIssuer = CertificateProfile.matterNOC().issuedBy(rcac);
+        validFrom = new Date();
+    }
+
+    @Benchmark
+    public SomeX509v3CertificateManager selfSigned() throws Exception {
+        return AnyManagedCertificateBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done()
+                .applyMatterConstraints()
+                .applyProfile(CertificateProfile.matterRCAC())
+                .setValidFrom(validFrom)
+                .setRCACIdRDN(0xCACACACA00000002L)
+                .buildAsSelfSigned();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public SomeX509v3CertificateManager selfSignedAllThreads() throws Exception {
+        return this.selfSigned();
+    }
+
+    @Benchmark
+    public SomeX509v3CertificateHolder csrSigned() throws Exception {
+        return AnyUnmanagedCertificateBuilder.start().forCertificateSigningRequest(csrHolder, true)
+                .applyProfile(CertificateProfile.matterNOC())
+                .setValidFrom(validFrom)
+                .buildSignedBy(rcac);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public SomeX509v3CertificateHolder csrSignedAllThreads() throws Exception {
+        return this.csrSigned();
+    }
+
+    @Benchmark
+    public SomeX509v3CertificateHolder csrSignedWithProfile() throws Exception {
+        return nocIssuer.issue(BigInteger.ONE, validFrom, null, csrHolder);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public SomeX509v3CertificateHolder csrSignedWithProfileAllThreads() throws Exception {
+        return this.csrSignedWithProfile();
+    }
+}
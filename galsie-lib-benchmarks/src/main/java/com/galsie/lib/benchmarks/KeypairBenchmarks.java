@@ -0,0 +1,36 @@
+package com.galsie.lib.benchmarks;
+
+import com.galsie.lib.certificates.keypair.KeypairBuilder;
+import com.galsie.lib.certificates.keypair.algo.ECDSA;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keypair generation through {@link KeypairBuilder}, without a keypair pool
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KeypairBenchmarks {
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchmarkFixtures.registerProviders();
+    }
+
+    @Benchmark
+    public KeyPair generateSecp256r1() throws Exception {
+        return KeypairBuilder.builder().setGenerationAlgorithm(ECDSA.SECP_256_R1).build();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public KeyPair generateSecp256r1AllThreads() throws Exception {
+        return KeypairBuilder.builder().setGenerationAlgorithm(ECDSA.SECP_256_R1).build();
+    }
+}
@@ -0,0 +1,28 @@
+package com.galsie.lib.certificates;
+
+/**
+ * The cryptographic operations whose {@link SecurityProvider} is chosen separately, see {@link ProviderSelection}
+ * - A provider can be fast at one and slow at another, eg: SunEC signs P-256 natively but bouncy castle may decode keys faster
+ */
+public enum CryptoOperation {
+
+    /**
+     * Generating keypairs, by {@link com.galsie.lib.certificates.keypair.KeypairBuilder}
+     */
+    KEY_GENERATION,
+
+    /**
+     * Signing certificates and CSRs, through {@link com.galsie.lib.certificates.signer.ContentSignerCache}
+     */
+    SIGNING,
+
+    /**
+     * Verifying certificate and CSR signatures
+     */
+    VERIFICATION,
+
+    /**
+     * Decoding encoded public and private keys, by {@link com.galsie.lib.certificates.keypair.KeyUtils}
+     */
+    KEY_DECODING
+}
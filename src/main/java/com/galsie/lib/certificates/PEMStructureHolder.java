@@ -1,9 +1,59 @@
 package com.galsie.lib.certificates;
 
+import com.galsie.lib.certificates.pem.PEMWriter;
+
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 public interface PEMStructureHolder {
 
     String getBase64DEREncoded() throws IOException;
     String getPEMEncoded() throws IOException;
+
+    /**
+     * @return The RFC 7468 label of the structure, eg: CERTIFICATE
+     */
+    String getPEMLabel();
+
+    /**
+     * The DER encoding of the structure
+     * - Encoded once and kept by the holder, so the returned array is shared: it MUST NOT be modified
+     *
+     * @return The DER encoding
+     */
+    byte[] getDEREncoded() throws IOException;
+
+    /**
+     * Writes the structure as PEM text (64-column lines, see {@link PEMWriter}) straight to a stream, without building Strings
+     */
+    default void writePEM(OutputStream out) throws IOException {
+        PEMWriter.writePEM(this.getPEMLabel(), this.getDEREncoded(), out);
+    }
+
+    /**
+     * Writes the structure as PEM text at the position of a buffer, which is moved past it
+     * - The buffer must have {@link PEMStructureHolder#getPEMLength()} bytes remaining
+     */
+    default void writePEM(ByteBuffer out) throws IOException {
+        PEMWriter.writePEM(this.getPEMLabel(), this.getDEREncoded(), out);
+    }
+
+    default void writeDER(OutputStream out) throws IOException {
+        out.write(this.getDEREncoded());
+    }
+
+    /**
+     * Writes the DER encoding at the position of a buffer, which is moved past it
+     */
+    default void writeDER(ByteBuffer out) throws IOException {
+        out.put(this.getDEREncoded());
+    }
+
+    /**
+     * @return The length of the PEM text written by {@link PEMStructureHolder#writePEM(ByteBuffer)}, in bytes
+     */
+    default int getPEMLength() throws IOException {
+        return PEMWriter.getPEMLength(this.getPEMLabel(), this.getDEREncoded().length);
+    }
 }
@@ -0,0 +1,122 @@
+package com.galsie.lib.certificates;
+
+import com.galsie.lib.utils.functional.ThrowableRunnable;
+
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+
+/**
+ * The micro-benchmark behind {@link ProviderSelection#byBenchmark(java.time.Duration)}
+ * - Every registered provider performs each operation on P-256 (the matter curve) for a warm up, then for the measured duration
+ * - The provider with the most operations per second wins
+ */
+class ProviderBenchmark {
+
+    private static final String CURVE = "secp256r1";
+    private static final String SIGNATURE_ALGORITHM = "SHA256withECDSA";
+
+    private final long durationNanos;
+    private final KeyPair keyPair;
+    private final byte[] payload = new byte[512]; // about the size of a TBS certificate
+    private final byte[] signature;
+
+    ProviderBenchmark(long durationNanos) {
+        this.durationNanos = durationNanos;
+        try {
+            var generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec(CURVE));
+            this.keyPair = generator.generateKeyPair();
+            var signer = Signature.getInstance(SIGNATURE_ALGORITHM);
+            signer.initSign(this.keyPair.getPrivate());
+            signer.update(this.payload);
+            this.signature = signer.sign();
+        } catch (Exception ex) {
+            throw new IllegalStateException("The benchmark keypair could not be generated", ex);
+        }
+    }
+
+    /**
+     * @return The fastest registered provider at the operation, or null if none performs it
+     */
+    SecurityProvider findFastest(CryptoOperation cryptoOperation) {
+        SecurityProvider fastest = null;
+        double fastestRate = 0;
+        for (var securityProvider : SecurityProvider.values()) {
+            if (!securityProvider.isRegistered()) {
+                continue;
+            }
+            double rate;
+            try {
+                var operation = this.prepare(cryptoOperation, securityProvider);
+                this.measure(operation); // warm up
+                rate = this.measure(operation);
+            } catch (Exception ex) {
+                continue; // the provider does not perform the operation
+            }
+            if (rate > fastestRate) {
+                fastest = securityProvider;
+                fastestRate = rate;
+            }
+        }
+        return fastest;
+    }
+
+    private ThrowableRunnable prepare(CryptoOperation cryptoOperation, SecurityProvider securityProvider) throws Exception {
+        var provider = securityProvider.getProvider();
+        switch (cryptoOperation) {
+            case KEY_GENERATION -> {
+                var generator = KeyPairGenerator.getInstance(securityProvider.getKeyAlgorithmName("EC"), provider);
+                generator.initialize(new ECGenParameterSpec(CURVE));
+                return generator::generateKeyPair;
+            }
+            case SIGNING -> {
+                var signer = Signature.getInstance(SIGNATURE_ALGORITHM, provider);
+                signer.initSign(this.keyPair.getPrivate());
+                return () -> {
+                    signer.update(this.payload);
+                    signer.sign();
+                };
+            }
+            case VERIFICATION -> {
+                var verifier = Signature.getInstance(SIGNATURE_ALGORITHM, provider);
+                verifier.initVerify(this.keyPair.getPublic());
+                return () -> {
+                    verifier.update(this.payload);
+                    if (!verifier.verify(this.signature)) {
+                        throw new IllegalStateException("The benchmark signature was not verified");
+                    }
+                };
+            }
+            case KEY_DECODING -> {
+                var keyFactory = KeyFactory.getInstance(securityProvider.getKeyAlgorithmName("EC"), provider);
+                var privateKeySpec = new PKCS8EncodedKeySpec(this.keyPair.getPrivate().getEncoded());
+                var publicKeySpec = new X509EncodedKeySpec(this.keyPair.getPublic().getEncoded());
+                return () -> {
+                    keyFactory.generatePrivate(privateKeySpec);
+                    keyFactory.generatePublic(publicKeySpec);
+                };
+            }
+            default -> throw new IllegalArgumentException("Unknown operation " + cryptoOperation);
+        }
+    }
+
+    /**
+     * @return The operations per second
+     */
+    private double measure(ThrowableRunnable operation) throws Exception {
+        long started = System.nanoTime();
+        long elapsed;
+        long operations = 0;
+        do {
+            operation.run();
+            operations++;
+            elapsed = System.nanoTime() - started;
+        } while (elapsed < this.durationNanos);
+        return operations * 1e9 / elapsed;
+    }
+}
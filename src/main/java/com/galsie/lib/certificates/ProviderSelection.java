@@ -0,0 +1,120 @@
+package com.galsie.lib.certificates;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Which {@link SecurityProvider} performs each {@link CryptoOperation}
+ * - Immutable, start with {@link ProviderSelection#of(SecurityProvider)} and override single operations with {@link ProviderSelection#with(CryptoOperation, SecurityProvider)}
+ * - Or let {@link ProviderSelection#byBenchmark()} pick the fastest registered provider of each operation
+ * - The builders use the process wide selection, {@link ProviderSelection#get()}, which is bouncy castle for everything unless changed with {@link ProviderSelection#set(ProviderSelection)}
+ */
+public class ProviderSelection {
+
+    /**
+     * Bouncy castle for every operation
+     */
+    public static final ProviderSelection DEFAULT = of(SecurityProvider.BOUNCY_CASTLE);
+
+    /**
+     * The time each (operation, provider) is measured for by {@link ProviderSelection#byBenchmark()}, after a warm up of the same length
+     */
+    public static final Duration DEFAULT_BENCHMARK_DURATION = Duration.ofMillis(40);
+
+    /**
+     * The process wide selection, see {@link ProviderSelection#get()}
+     */
+    private static volatile ProviderSelection current = DEFAULT;
+
+    private final EnumMap<CryptoOperation, SecurityProvider> providers;
+
+    private ProviderSelection(EnumMap<CryptoOperation, SecurityProvider> providers) {
+        this.providers = providers;
+    }
+
+    /**
+     * @param securityProvider The provider of every operation
+     */
+    public static ProviderSelection of(SecurityProvider securityProvider) {
+        var providers = new EnumMap<CryptoOperation, SecurityProvider>(CryptoOperation.class);
+        for (var cryptoOperation : CryptoOperation.values()) {
+            providers.put(cryptoOperation, securityProvider);
+        }
+        return new ProviderSelection(providers);
+    }
+
+    /**
+     * @return A copy of this selection, with another provider for the operation
+     */
+    public ProviderSelection with(CryptoOperation cryptoOperation, SecurityProvider securityProvider) {
+        if (securityProvider == null) {
+            throw new IllegalArgumentException("The provider of " + cryptoOperation + " can not be null");
+        }
+        var providers = new EnumMap<>(this.providers);
+        providers.put(cryptoOperation, securityProvider);
+        return new ProviderSelection(providers);
+    }
+
+    public SecurityProvider getProvider(CryptoOperation cryptoOperation) {
+        return this.providers.get(cryptoOperation);
+    }
+
+    /**
+     * Picks the fastest registered provider of each operation with a short micro-benchmark on P-256 keys, see {@link ProviderSelection#byBenchmark(Duration)}
+     */
+    public static ProviderSelection byBenchmark() {
+        return byBenchmark(DEFAULT_BENCHMARK_DURATION);
+    }
+
+    /**
+     * Picks the fastest registered provider of each operation with a micro-benchmark on P-256 keys
+     * - Meant to run once at startup, the result is usually given to {@link ProviderSelection#set(ProviderSelection)}
+     * - Takes about 2 * duration per (operation, registered provider)
+     * - A provider that fails an operation is not picked for it, an operation no provider performs stays with bouncy castle
+     *
+     * @param duration The time each (operation, provider) is measured for, after a warm up of the same length
+     * @return The selection
+     */
+    public static ProviderSelection byBenchmark(Duration duration) {
+        var providers = new EnumMap<>(DEFAULT.providers);
+        var benchmark = new ProviderBenchmark(duration.toNanos());
+        for (var cryptoOperation : CryptoOperation.values()) {
+            var fastest = benchmark.findFastest(cryptoOperation);
+            if (fastest != null) {
+                providers.put(cryptoOperation, fastest);
+            }
+        }
+        return new ProviderSelection(providers);
+    }
+
+    /**
+     * @return The process wide selection, used by the builders
+     */
+    public static ProviderSelection get() {
+        return current;
+    }
+
+    /**
+     * Sets the process wide selection
+     * - Signers, verifiers and keys that were already built with the previous providers are kept, eg: by a {@link com.galsie.lib.certificates.signer.ContentSignerCache}
+     */
+    public static void set(ProviderSelection providerSelection) {
+        if (providerSelection == null) {
+            throw new IllegalArgumentException("The provider selection can not be null, use ProviderSelection.DEFAULT");
+        }
+        current = providerSelection;
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder("ProviderSelection{");
+        for (Map.Entry<CryptoOperation, SecurityProvider> entry : this.providers.entrySet()) {
+            if (builder.length() > "ProviderSelection{".length()) {
+                builder.append(", ");
+            }
+            builder.append(entry.getKey()).append('=').append(entry.getValue().getProviderIdentifier());
+        }
+        return builder.append('}').toString();
+    }
+}
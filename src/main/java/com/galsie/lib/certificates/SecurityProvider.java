@@ -1,10 +1,23 @@
 package com.galsie.lib.certificates;
 
+import com.galsie.lib.certificates.keypair.KeyUtils;
 import com.galsie.lib.utils.functional.ThrowableRunnable;
-import lombok.AllArgsConstructor;
+import com.galsie.lib.utils.lang.Nullable;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.NoSuchProviderException;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.PublicKey;
 import java.security.Security;
+import java.security.interfaces.EdECKey;
+import java.security.interfaces.XECKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Set;
 
 /**
  * The {@link SecurityProvider} defines a list of providers that could be used
@@ -13,17 +26,39 @@ import java.security.Security;
  *
  *
  * This enum defines the different security providers that are currently used, and is referenced by various builders (for certificates) for that sake
+ * - Which provider performs each {@link CryptoOperation} is chosen by the process wide {@link ProviderSelection}, see {@link SecurityProvider#forOperation(CryptoOperation)}
  */
-@AllArgsConstructor
 public enum SecurityProvider {
 
     BOUNCY_CASTLE(BouncyCastleProvider.PROVIDER_NAME, () -> {
           Security.addProvider(new BouncyCastleProvider()); // NOTE: If the provider is already present, it is not added again
+    }),
+
+    /**
+     * The JDK's elliptic curve provider, always registered
+     * - Its P-256 is implemented natively on recent JDKs, and is often faster than bouncy castle's
+     * - It names EC keys 'EC' only, see {@link SecurityProvider#getKeyAlgorithmName(String)}
+     */
+    SUN_EC("SunEC", () -> {
     });
 
 
+    /**
+     * The Edwards and Montgomery key algorithms, whose keys SunEC only accepts as {@link EdECKey} and {@link XECKey}
+     */
+    private static final Set<String> EDWARDS_AND_MONTGOMERY_ALGORITHMS = Set.of("Ed25519", "Ed448", "X25519", "X448");
+
     private final String providerIdentifier;
     private ThrowableRunnable registerAlgorithm;
+    /**
+     * The registered provider, resolved on first use
+     */
+    private volatile Provider provider;
+
+    SecurityProvider(String providerIdentifier, ThrowableRunnable registerAlgorithm) {
+        this.providerIdentifier = providerIdentifier;
+        this.registerAlgorithm = registerAlgorithm;
+    }
 
     public String getProviderIdentifier(){
         return this.providerIdentifier;
@@ -32,4 +67,101 @@ public enum SecurityProvider {
     public void registerProvider() throws Exception {
         this.registerAlgorithm.run();
     }
+
+    /**
+     * @return Whether the provider is registered with {@link Security}
+     */
+    public boolean isRegistered() {
+        return this.provider != null || Security.getProvider(this.providerIdentifier) != null;
+    }
+
+    /**
+     * Gets the registered provider, looked up by name once and then reused
+     *
+     * @throws NoSuchProviderException If the provider is not registered
+     */
+    public Provider getProvider() throws NoSuchProviderException {
+        var provider = this.provider;
+        if (provider == null) {
+            provider = Security.getProvider(this.providerIdentifier);
+            if (provider == null) {
+                throw new NoSuchProviderException("The provider " + this.providerIdentifier + " is not registered");
+            }
+            this.provider = provider;
+        }
+        return provider;
+    }
+
+    /**
+     * Maps a key algorithm name to the name this provider knows it by
+     * - Bouncy castle names EC keys 'ECDSA' and accepts both, SunEC only knows 'EC'
+     *
+     * @param keyAlgorithm The key algorithm, eg: of {@link java.security.Key#getAlgorithm()}
+     * @return The name to look the algorithm up with in this provider
+     */
+    public String getKeyAlgorithmName(String keyAlgorithm) {
+        if (this == SUN_EC && keyAlgorithm.equals("ECDSA")) {
+            return "EC";
+        }
+        return keyAlgorithm;
+    }
+
+    /**
+     * Converts a key of another provider to one this provider accepts
+     * - SunEC refuses the keys bouncy castle names 'ECDSA', and bouncy castle's Edwards and Montgomery keys (which do not implement the JDK key interfaces), they are decoded again from their encoding
+     * - Other keys are returned as they are
+     * - Decoded with the calling thread's cached factory, see {@link KeyUtils#getKeyFactory(SecurityProvider, String)}: verifiers convert on every verification
+     */
+    public PrivateKey toProviderKey(PrivateKey privateKey) throws GeneralSecurityException {
+        var keyAlgorithm = this.getKeyAlgorithmName(privateKey.getAlgorithm());
+        if (!this.needsConversion(privateKey, keyAlgorithm)) {
+            return privateKey;
+        }
+        return KeyUtils.getKeyFactory(this, keyAlgorithm).generatePrivate(new PKCS8EncodedKeySpec(privateKey.getEncoded()));
+    }
+
+    /**
+     * Converts a key of another provider to one this provider accepts, see {@link SecurityProvider#toProviderKey(PrivateKey)}
+     */
+    public PublicKey toProviderKey(PublicKey publicKey) throws GeneralSecurityException {
+        var keyAlgorithm = this.getKeyAlgorithmName(publicKey.getAlgorithm());
+        if (!this.needsConversion(publicKey, keyAlgorithm)) {
+            return publicKey;
+        }
+        return KeyUtils.getKeyFactory(this, keyAlgorithm).generatePublic(new X509EncodedKeySpec(publicKey.getEncoded()));
+    }
+
+    private boolean needsConversion(Key key, String keyAlgorithm) {
+        if (!keyAlgorithm.equals(key.getAlgorithm())) {
+            return true;
+        }
+        if (this == SUN_EC && EDWARDS_AND_MONTGOMERY_ALGORITHMS.contains(keyAlgorithm)) {
+            return !(key instanceof EdECKey || key instanceof XECKey);
+        }
+        return false;
+    }
+
+    /**
+     * @param providerIdentifier The provider name, eg: BC
+     * @return The {@link SecurityProvider} of that name, or null if it is not one of them
+     */
+    @Nullable
+    public static SecurityProvider fromIdentifier(String providerIdentifier) {
+        for (var securityProvider : values()) {
+            if (securityProvider.providerIdentifier.equals(providerIdentifier)) {
+                return securityProvider;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the provider that performs an operation, as chosen by {@link ProviderSelection#get()}
+     *
+     * @param cryptoOperation The operation
+     * @return The selected provider
+     */
+    public static SecurityProvider forOperation(CryptoOperation cryptoOperation) {
+        return ProviderSelection.get().getProvider(cryptoOperation);
+    }
 }
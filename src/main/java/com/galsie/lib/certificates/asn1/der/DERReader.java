@@ -0,0 +1,229 @@
+package com.galsie.lib.certificates.asn1.der;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A forward-only cursor over DER encoded data in a {@link ByteBuffer}
+ * - Reads element headers in place, the content is never copied unless asked for through {@link DERReader#getContent()}
+ * - Used where building a bouncy castle ASN.1 object tree is not worth it, such as transcoding or locating a few fields
+ *
+ * Usage:
+ * - {@link DERReader#next()} reads the header of the element at the current position, and moves to its content
+ * - From there, {@link DERReader#skip()} moves past the element, or reading continues inside it (for constructed elements)
+ */
+public class DERReader {
+
+    private final ByteBuffer buffer;
+    private int position;
+
+    /*
+    The header of the last element read through next()
+     */
+    private int tag = -1;
+    private int elementStart;
+    private int contentStart;
+    private int contentEnd;
+
+    /**
+     * @param buffer The DER data, read from its position up to its limit. The buffer's own position is not modified.
+     */
+    public DERReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.position = buffer.position();
+    }
+
+    /**
+     * Reads the header of the element at the current position
+     * - Only definite lengths are accepted, as required by DER
+     *
+     * @return The element's tag
+     * @throws IOException If the header is malformed or runs past the buffer
+     */
+    public int next() throws IOException {
+        var limit = buffer.limit();
+        if (position >= limit) {
+            throw new IOException("Unexpected end of DER data at " + position);
+        }
+        this.elementStart = position;
+        int tag = buffer.get(position++) & 0xFF;
+        if ((tag & 0x1F) == 0x1F) {
+            throw new IOException("High tag numbers are not supported, at " + elementStart);
+        }
+        if (position >= limit) {
+            throw new IOException("Unexpected end of DER data at " + position);
+        }
+        int length = buffer.get(position++) & 0xFF;
+        if (length > 0x7F) {
+            int lengthOctets = length & 0x7F;
+            if (lengthOctets == 0 || lengthOctets > 4 || position + lengthOctets > limit) {
+                throw new IOException("Unsupported DER length encoding at " + elementStart);
+            }
+            length = 0;
+            for (int i = 0; i < lengthOctets; i++) {
+                length = (length << 8) | (buffer.get(position++) & 0xFF);
+            }
+            if (length < 0) {
+                throw new IOException("DER length overflow at " + elementStart);
+            }
+        }
+        if (position + length > limit || position + length < position) {
+            throw new IOException("DER element at " + elementStart + " runs past the end of the data");
+        }
+        this.tag = tag;
+        this.contentStart = position;
+        this.contentEnd = position + length;
+        return tag;
+    }
+
+    /**
+     * Reads the header of the next element and checks its tag
+     *
+     * @param expectedTag The tag the element must have
+     * @throws IOException If the element has another tag
+     */
+    public DERReader expect(int expectedTag) throws IOException {
+        var tag = this.next();
+        if (tag != expectedTag) {
+            throw new IOException("Expected DER tag 0x" + Integer.toHexString(expectedTag) + " but found 0x" + Integer.toHexString(tag) + " at " + elementStart);
+        }
+        return this;
+    }
+
+    /**
+     * Moves past the element whose header was last read
+     */
+    public DERReader skip() {
+        this.position = contentEnd;
+        return this;
+    }
+
+    /**
+     * Reads the next element and moves past it
+     *
+     * @return The element's tag
+     */
+    public int skipNext() throws IOException {
+        var tag = this.next();
+        this.skip();
+        return tag;
+    }
+
+    /**
+     * @param end An end position, usually the {@link DERReader#getContentEnd()} of an enclosing element
+     * @return true if there are elements left before that end position
+     */
+    public boolean hasNext(int end) {
+        return position < end;
+    }
+
+    public boolean hasNext() {
+        return position < buffer.limit();
+    }
+
+    public int getTag() {
+        return tag;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public DERReader setPosition(int position) {
+        this.position = position;
+        return this;
+    }
+
+    public int getElementStart() {
+        return elementStart;
+    }
+
+    public int getContentStart() {
+        return contentStart;
+    }
+
+    public int getContentEnd() {
+        return contentEnd;
+    }
+
+    public int getContentLength() {
+        return contentEnd - contentStart;
+    }
+
+    /**
+     * @return A view of the whole element (header and content) whose header was last read, no bytes are copied
+     */
+    public ByteBuffer getElementSlice() {
+        return buffer.slice(elementStart, contentEnd - elementStart);
+    }
+
+    /**
+     * @return A view of the content of the element whose header was last read, no bytes are copied
+     */
+    public ByteBuffer getContentSlice() {
+        return buffer.slice(contentStart, contentEnd - contentStart);
+    }
+
+    /**
+     * @return A copy of the content of the element whose header was last read
+     */
+    public byte[] getContent() {
+        var content = new byte[contentEnd - contentStart];
+        buffer.get(contentStart, content);
+        return content;
+    }
+
+    /**
+     * @return The content octet at an index of the element whose header was last read
+     */
+    public int getContentByte(int index) {
+        return buffer.get(contentStart + index) & 0xFF;
+    }
+
+    /**
+     * Compares the content of the element whose header was last read, without copying it
+     *
+     * @param expected The expected content, eg: the content octets of an OBJECT IDENTIFIER
+     * @return true if the content is exactly the expected bytes
+     */
+    public boolean contentEquals(byte[] expected) {
+        if (expected.length != contentEnd - contentStart) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(contentStart + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the content of the element whose header was last read as a non negative INTEGER that fits in a long
+     *
+     * @return The value
+     * @throws IOException If the value is negative or does not fit in a long
+     */
+    public long getContentAsUnsignedLong() throws IOException {
+        var length = contentEnd - contentStart;
+        if (length == 0 || (buffer.get(contentStart) & 0x80) != 0) {
+            throw new IOException("Expected a non negative INTEGER at " + elementStart);
+        }
+        int start = contentStart;
+        if (length > 1 && buffer.get(start) == 0) { // leading zero that keeps the value positive
+            start++;
+        }
+        if (contentEnd - start > 8) {
+            throw new IOException("INTEGER at " + elementStart + " does not fit in 64 bits");
+        }
+        long value = 0;
+        for (int i = start; i < contentEnd; i++) {
+            value = (value << 8) | (buffer.get(i) & 0xFF);
+        }
+        return value;
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+}
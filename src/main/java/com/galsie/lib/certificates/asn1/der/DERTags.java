@@ -0,0 +1,36 @@
+package com.galsie.lib.certificates.asn1.der;
+
+/**
+ * The DER identifier octets used by the X.509 structures this library reads and writes directly
+ * - Only single octet identifiers are listed, X.509 does not use high tag numbers
+ */
+public class DERTags {
+    public static final int BOOLEAN = 0x01;
+    public static final int INTEGER = 0x02;
+    public static final int BIT_STRING = 0x03;
+    public static final int OCTET_STRING = 0x04;
+    public static final int NULL = 0x05;
+    public static final int OBJECT_IDENTIFIER = 0x06;
+    public static final int ENUMERATED = 0x0A;
+    public static final int UTF8_STRING = 0x0C;
+    public static final int PRINTABLE_STRING = 0x13;
+    public static final int IA5_STRING = 0x16;
+    public static final int UTC_TIME = 0x17;
+    public static final int GENERALIZED_TIME = 0x18;
+    public static final int SEQUENCE = 0x30;
+    public static final int SET = 0x31;
+
+    /**
+     * A context-specific, constructed tag, eg: [0] in 'version [0] EXPLICIT Version'
+     */
+    public static int contextConstructed(int tagNumber) {
+        return 0xA0 | tagNumber;
+    }
+
+    /**
+     * A context-specific, primitive tag, eg: [0] in 'keyIdentifier [0] IMPLICIT KeyIdentifier'
+     */
+    public static int contextPrimitive(int tagNumber) {
+        return 0x80 | tagNumber;
+    }
+}
@@ -0,0 +1,376 @@
+package com.galsie.lib.certificates.asn1.der;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Writes DER encoded data into a growable byte array
+ * - Constructed elements are opened with {@link DERWriter#begin(int)} and closed with {@link DERWriter#end()}, their length is patched in when closed
+ * - Used where building a bouncy castle ASN.1 object tree just to encode it is not worth it
+ */
+public class DERWriter {
+
+    private static final char[] UPPER_HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private byte[] bytes;
+    private int size;
+
+    /**
+     * The start positions of the constructed elements that are still open
+     */
+    private int[] openElements = new int[16];
+    private int depth;
+
+    public DERWriter() {
+        this(512);
+    }
+
+    public DERWriter(int initialCapacity) {
+        this.bytes = new byte[initialCapacity];
+    }
+
+    /**
+     * Opens a constructed element, eg: a SEQUENCE
+     *
+     * @param tag The element's tag
+     */
+    public DERWriter begin(int tag) {
+        if (depth == openElements.length) {
+            openElements = Arrays.copyOf(openElements, depth * 2);
+        }
+        openElements[depth++] = size;
+        ensureCapacity(2);
+        bytes[size++] = (byte) tag;
+        bytes[size++] = 0; // length placeholder, patched in end()
+        return this;
+    }
+
+    /**
+     * Closes the last opened constructed element
+     * - If the content needs a long form length, the content is shifted to make room for it
+     */
+    public DERWriter end() {
+        if (depth == 0) {
+            throw new IllegalStateException("No DER element is open");
+        }
+        int start = openElements[--depth];
+        int contentStart = start + 2;
+        int length = size - contentStart;
+        if (length < 0x80) {
+            bytes[start + 1] = (byte) length;
+            return this;
+        }
+        int extraOctets = lengthOctetCount(length);
+        ensureCapacity(extraOctets);
+        System.arraycopy(bytes, contentStart, bytes, contentStart + extraOctets, length);
+        size += extraOctets;
+        bytes[start + 1] = (byte) (0x80 | extraOctets);
+        for (int i = 0; i < extraOctets; i++) {
+            bytes[start + 2 + i] = (byte) (length >>> (8 * (extraOctets - 1 - i)));
+        }
+        return this;
+    }
+
+    /**
+     * Writes a primitive element
+     *
+     * @param tag The element's tag
+     * @param content The content octets
+     */
+    public DERWriter write(int tag, byte[] content) {
+        return this.write(tag, content, 0, content.length);
+    }
+
+    public DERWriter write(int tag, byte[] content, int offset, int length) {
+        this.writeHeader(tag, length);
+        ensureCapacity(length);
+        System.arraycopy(content, offset, bytes, size, length);
+        size += length;
+        return this;
+    }
+
+    /**
+     * Writes a primitive element whose content is the remaining bytes of the buffer
+     * - The buffer's position is not modified
+     */
+    public DERWriter write(int tag, ByteBuffer content) {
+        var length = content.remaining();
+        this.writeHeader(tag, length);
+        ensureCapacity(length);
+        content.get(content.position(), bytes, size, length);
+        size += length;
+        return this;
+    }
+
+    /**
+     * Writes a primitive element with a single content octet preceding the content, eg: the unused-bits octet of a BIT STRING
+     */
+    public DERWriter write(int tag, int leadingOctet, ByteBuffer content) {
+        var length = content.remaining();
+        this.writeHeader(tag, length + 1);
+        ensureCapacity(length + 1);
+        bytes[size++] = (byte) leadingOctet;
+        content.get(content.position(), bytes, size, length);
+        size += length;
+        return this;
+    }
+
+    /**
+     * Writes already DER encoded element(s) as is
+     */
+    public DERWriter writeEncoded(byte[] encoded) {
+        ensureCapacity(encoded.length);
+        System.arraycopy(encoded, 0, bytes, size, encoded.length);
+        size += encoded.length;
+        return this;
+    }
+
+    /**
+     * Writes already DER encoded element(s) as is, from the remaining bytes of the buffer
+     * - The buffer's position is not modified
+     */
+    public DERWriter writeEncoded(ByteBuffer encoded) {
+        var length = encoded.remaining();
+        ensureCapacity(length);
+        encoded.get(encoded.position(), bytes, size, length);
+        size += length;
+        return this;
+    }
+
+    /**
+     * Writes a range of the bytes of another writer as is, eg: element(s) it encoded once and that are reused
+     *
+     * @param other The writer holding the encoded element(s)
+     * @param offset The start of the range in the other writer
+     * @param length The length of the range
+     */
+    public DERWriter writeEncoded(DERWriter other, int offset, int length) {
+        other.checkRange(offset, length);
+        ensureCapacity(length);
+        System.arraycopy(other.bytes, offset, bytes, size, length);
+        size += length;
+        return this;
+    }
+
+    /**
+     * Writes a constructed element whose content is a range of the bytes of another writer
+     * - Unlike {@link DERWriter#begin(int)}, the length is known up front so the content is copied once and never shifted
+     *
+     * @param tag The element's tag, eg: SEQUENCE
+     * @param content The writer holding the encoded content element(s)
+     * @param offset The start of the range in the other writer
+     * @param length The length of the range
+     */
+    public DERWriter write(int tag, DERWriter content, int offset, int length) {
+        content.checkRange(offset, length);
+        this.writeHeader(tag, length);
+        return this.writeEncoded(content, offset, length);
+    }
+
+    /**
+     * Writes a non negative INTEGER
+     */
+    public DERWriter writeInteger(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Only non negative integers are supported, got " + value);
+        }
+        int octets = 1;
+        while (octets < 8 && (value >>> (8 * octets - 1)) != 0) { // the high bit of the first octet must stay clear
+            octets++;
+        }
+        this.writeHeader(DERTags.INTEGER, octets);
+        ensureCapacity(octets);
+        for (int i = octets - 1; i >= 0; i--) {
+            bytes[size++] = (byte) (value >>> (8 * i));
+        }
+        return this;
+    }
+
+    /**
+     * Writes a non negative INTEGER from its unsigned big-endian magnitude
+     * - Leading zero octets are stripped, and a zero octet is added if the high bit is set, as DER requires
+     */
+    public DERWriter writeUnsignedInteger(byte[] magnitude, int offset, int length) {
+        int start = offset;
+        int end = offset + length;
+        while (start < end - 1 && magnitude[start] == 0) {
+            start++;
+        }
+        boolean needsPadding = start < end && (magnitude[start] & 0x80) != 0;
+        int contentLength = (end - start) + (needsPadding ? 1 : 0);
+        if (contentLength == 0) {
+            return this.writeInteger(0);
+        }
+        this.writeHeader(DERTags.INTEGER, contentLength);
+        ensureCapacity(contentLength);
+        if (needsPadding) {
+            bytes[size++] = 0;
+        }
+        System.arraycopy(magnitude, start, bytes, size, end - start);
+        size += end - start;
+        return this;
+    }
+
+    public DERWriter writeBoolean(boolean value) {
+        this.writeHeader(DERTags.BOOLEAN, 1);
+        ensureCapacity(1);
+        bytes[size++] = (byte) (value ? 0xFF : 0x00);
+        return this;
+    }
+
+    /**
+     * Writes an ASCII string element (PrintableString, UTCTime, ...) from chars that are known to be ASCII
+     */
+    public DERWriter writeAscii(int tag, CharSequence value) {
+        var length = value.length();
+        this.writeHeader(tag, length);
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            bytes[size++] = (byte) value.charAt(i);
+        }
+        return this;
+    }
+
+    /**
+     * Writes an ASCII string element holding the value as fixed-width uppercase hex digits, eg: 00000000000000AB
+     *
+     * @param tag The string tag, eg: UTF8String
+     * @param value The value, considered unsigned
+     * @param digits The number of hex digits, the value is zero padded (or truncated) to it
+     */
+    public DERWriter writeUpperHex(int tag, long value, int digits) {
+        this.writeHeader(tag, digits);
+        ensureCapacity(digits);
+        for (int i = digits - 1; i >= 0; i--) {
+            bytes[size++] = (byte) UPPER_HEX_DIGITS[(int) (value >>> (4 * i)) & 0xF];
+        }
+        return this;
+    }
+
+    /**
+     * Writes a time as RFC 5280 requires: UTCTime until 2049, GeneralizedTime from 2050
+     *
+     * @param unixSeconds The time, in seconds since 1970-01-01T00:00:00Z
+     */
+    public DERWriter writeTime(long unixSeconds) {
+        long days = Math.floorDiv(unixSeconds, 86400);
+        int secondOfDay = Math.floorMod(unixSeconds, 86400);
+        // civil-from-days, see http://howardhinnant.github.io/date_algorithms.html
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthPosition = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * monthPosition + 2) / 5 + 1);
+        int month = (int) (monthPosition < 10 ? monthPosition + 3 : monthPosition - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+
+        boolean utcTime = year >= 1950 && year < 2050;
+        this.writeHeader(utcTime ? DERTags.UTC_TIME : DERTags.GENERALIZED_TIME, utcTime ? 13 : 15);
+        ensureCapacity(15);
+        if (utcTime) {
+            this.writeDigits(year % 100, 2);
+        } else {
+            this.writeDigits(year, 4);
+        }
+        this.writeDigits(month, 2);
+        this.writeDigits(day, 2);
+        this.writeDigits(secondOfDay / 3600, 2);
+        this.writeDigits((secondOfDay / 60) % 60, 2);
+        this.writeDigits(secondOfDay % 60, 2);
+        bytes[size++] = 'Z';
+        return this;
+    }
+
+    /**
+     * @return The number of bytes written so far
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies the written bytes into the buffer, at its position
+     *
+     * @param out The target buffer, its position is moved past the written bytes
+     * @throws java.nio.BufferOverflowException If the buffer does not have enough room
+     */
+    public void writeTo(ByteBuffer out) {
+        this.checkClosed();
+        out.put(bytes, 0, size);
+    }
+
+    /**
+     * Writes the written bytes to a stream, eg: a signer's stream
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        this.checkClosed();
+        out.write(bytes, 0, size);
+    }
+
+    public byte[] toByteArray() {
+        this.checkClosed();
+        return Arrays.copyOf(bytes, size);
+    }
+
+    /**
+     * Clears the writer so that it can be reused, the allocated array is kept
+     */
+    public DERWriter reset() {
+        this.size = 0;
+        this.depth = 0;
+        return this;
+    }
+
+    private void checkClosed() {
+        if (depth != 0) {
+            throw new IllegalStateException(depth + " DER element(s) are still open");
+        }
+    }
+
+    private void checkRange(int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > size) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + (offset + length) + ") is out of the " + size + " written bytes");
+        }
+    }
+
+    private void writeDigits(int value, int count) {
+        for (int divisor = (int) Math.pow(10, count - 1); divisor > 0; divisor /= 10) {
+            bytes[size++] = (byte) ('0' + (value / divisor) % 10);
+        }
+    }
+
+    private void writeHeader(int tag, int length) {
+        ensureCapacity(6);
+        bytes[size++] = (byte) tag;
+        if (length < 0x80) {
+            bytes[size++] = (byte) length;
+            return;
+        }
+        int octets = lengthOctetCount(length);
+        bytes[size++] = (byte) (0x80 | octets);
+        for (int i = octets - 1; i >= 0; i--) {
+            bytes[size++] = (byte) (length >>> (8 * i));
+        }
+    }
+
+    private static int lengthOctetCount(int length) {
+        if (length < 0x100) {
+            return 1;
+        } else if (length < 0x10000) {
+            return 2;
+        } else if (length < 0x1000000) {
+            return 3;
+        }
+        return 4;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.galsie.lib.certificates.bundle;
+
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
+import com.galsie.lib.utils.lang.Nullable;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.security.KeyPair;
+import java.security.PrivateKey;
+
+/**
+ * A certificate read from a PKCS#12 bundle, with its private key when the bundle holds it
+ */
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+@Getter
+public class PKCS12BundleEntry {
+
+    private final SomeX509v3CertificateHolder certificateHolder;
+    /**
+     * The private key, matched to the certificate by their localKeyId attribute, null for a certificate without a key (eg: a root)
+     */
+    @Nullable
+    private final PrivateKey privateKey;
+    @Nullable
+    private final String friendlyName;
+
+    public boolean hasPrivateKey() {
+        return privateKey != null;
+    }
+
+    /**
+     * @throws IllegalStateException If the entry has no private key
+     */
+    public SomeX509v3CertificateManager toCertificateManager() {
+        if (privateKey == null) {
+            throw new IllegalStateException("The entry of " + certificateHolder.getSubject() + " has no private key");
+        }
+        return new SomeX509v3CertificateManager(new KeyPair(certificateHolder.getPublicKey(), privateKey), certificateHolder);
+    }
+}
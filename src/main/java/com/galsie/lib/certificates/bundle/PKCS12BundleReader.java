@@ -0,0 +1,466 @@
+package com.galsie.lib.certificates.bundle;
+
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
+import com.galsie.lib.certificates.keypair.KeyUtils;
+import com.galsie.lib.utils.functional.ThrowableSupplier;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1InputStream;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.ASN1OctetStringParser;
+import org.bouncycastle.asn1.ASN1SequenceParser;
+import org.bouncycastle.asn1.ASN1StreamParser;
+import org.bouncycastle.asn1.ASN1String;
+import org.bouncycastle.asn1.ASN1TaggedObjectParser;
+import org.bouncycastle.asn1.pkcs.ContentInfo;
+import org.bouncycastle.asn1.pkcs.MacData;
+import org.bouncycastle.asn1.pkcs.PKCS12PBEParams;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.operator.InputDecryptorProvider;
+import org.bouncycastle.pkcs.PKCS12SafeBag;
+import org.bouncycastle.pkcs.PKCS12SafeBagFactory;
+import org.bouncycastle.pkcs.PKCS8EncryptedPrivateKeyInfo;
+import org.bouncycastle.pkcs.jcajce.JcePKCS12MacCalculatorBuilderProvider;
+import org.bouncycastle.pkcs.jcajce.JcePKCSPBEInputDecryptorProviderBuilder;
+import org.bouncycastle.util.encoders.Hex;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the certificates and private keys of a password protected PKCS#12 bundle, eg: one written by {@link PKCS12BundleWriter}
+ * - Reading is lazy, the ContentInfos are decrypted and decoded as they are iterated, only the current one is held
+ * - A private key is matched to its certificate by their localKeyId attribute, an entry waits until both were read
+ * - DER and BER (indefinite length) encodings are read
+ *
+ * The MAC of a PKCS#12 bundle comes after its content, and its salt is needed before the content can be hashed,
+ * so the bundle's content is read twice: once to verify the MAC, before anything is returned, then to decode the entries.
+ * - The MacData is found first by walking the headers of the encoding and skipping over the content
+ * - From a file the skips are seeks, so only the headers are read. A supplier's streams are read through, a third time
+ * - It is therefore opened from a file, or from a supplier of streams that each read the bundle from its start
+ *
+ * NOTE: The file is opened again for each read, it must not change in between: the entries would be decoded from a bundle
+ * whose MAC was not the one verified. Copy a bundle that another process may replace before reading it.
+ *
+ * Usage:
+ * - try (var reader = PKCS12BundleReader.open(path, password)) { reader.managers().forEach(...); }
+ *
+ * NOTE: A reader is iterated once, it is not thread safe. Malformed bundles, a wrong password or a MAC mismatch surface as
+ * {@link UncheckedIOException}s while iterating.
+ */
+public class PKCS12BundleReader implements Iterable<PKCS12BundleEntry>, Closeable {
+
+    /**
+     * The most bytes a MacData is read into, it holds a digest, a salt and an iteration count
+     */
+    private static final int MAX_MAC_DATA_SIZE = 1 << 12;
+
+    private final ThrowableSupplier<InputStream> source;
+    /**
+     * Opens the bundle to find its MacData, a stream whose skips are cheap
+     */
+    private final ThrowableSupplier<InputStream> macDataSource;
+    private final char[] password;
+    private InputStream in;
+    private boolean consumed;
+
+    private PKCS12BundleReader(ThrowableSupplier<InputStream> source, ThrowableSupplier<InputStream> macDataSource, char[] password) {
+        this.source = source;
+        this.macDataSource = macDataSource;
+        this.password = password.clone();
+    }
+
+    /**
+     * @param path The bundle, opened once to seek to its MacData, then twice to read it (see the class doc)
+     * @param password The password, copied (and cleared once the reader is closed)
+     */
+    public static PKCS12BundleReader open(Path path, char[] password) {
+        return new PKCS12BundleReader(() -> new BufferedInputStream(Files.newInputStream(path)), () -> Files.newInputStream(path), password);
+    }
+
+    /**
+     * @param source Opens the bundle from its start, called three times (see the class doc), the streams are closed by the reader
+     * @param password The password, copied (and cleared once the reader is closed)
+     */
+    public static PKCS12BundleReader of(ThrowableSupplier<InputStream> source, char[] password) {
+        return new PKCS12BundleReader(source, source, password);
+    }
+
+    /**
+     * Verifies the MAC of the bundle, reading its content once
+     *
+     * @throws IOException If the bundle is malformed, or its MAC does not match (a wrong password or a corrupted bundle)
+     */
+    public void verify() throws IOException {
+        MacData macData;
+        try (var macDataIn = new PushbackInputStream(openSource(macDataSource))) {
+            macData = readMacData(macDataIn);
+        }
+        this.verifyMac(macData);
+    }
+
+    private void verifyMac(MacData macData) throws IOException {
+        var digestAlgorithm = macData.getMac().getAlgorithmId();
+        var macParameters = new PKCS12PBEParams(macData.getSalt(), macData.getIterationCount().intValue());
+        byte[] expected;
+        try (var macIn = openSource(source)) {
+            var macCalculator = new JcePKCS12MacCalculatorBuilderProvider().setProvider(SecurityProvider.BOUNCY_CASTLE.getProvider())
+                    .get(new AlgorithmIdentifier(digestAlgorithm.getAlgorithm(), macParameters))
+                    .build(password);
+            try (var macOut = macCalculator.getOutputStream()) {
+                openAuthenticatedSafe(openPFX(macIn)).transferTo(macOut);
+            }
+            expected = macCalculator.getMac();
+        } catch (IOException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new IOException("Could not compute the MAC of the bundle", ex);
+        }
+        if (!MessageDigest.isEqual(expected, macData.getMac().getDigest())) {
+            throw new IOException("The MAC of the bundle does not match, the password is wrong or the bundle is corrupted");
+        }
+    }
+
+    @Override
+    public Iterator<PKCS12BundleEntry> iterator() {
+        if (consumed) {
+            throw new IllegalStateException("The bundle was already read");
+        }
+        this.consumed = true;
+        try {
+            this.verify();
+            this.in = openSource(source);
+            var authenticatedSafe = new ASN1StreamParser(openAuthenticatedSafe(openPFX(in))).readObject();
+            if (!(authenticatedSafe instanceof ASN1SequenceParser authenticatedSafeSequence)) {
+                throw new IOException("Malformed bundle: the AuthenticatedSafe is not a SEQUENCE");
+            }
+            var decryptorProvider = new JcePKCSPBEInputDecryptorProviderBuilder().setProvider(SecurityProvider.BOUNCY_CASTLE.getProvider()).build(password);
+            return new EntryIterator(authenticatedSafeSequence, decryptorProvider);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (Exception ex) {
+            throw new UncheckedIOException(new IOException(ex));
+        }
+    }
+
+    /**
+     * @return The entries of the bundle, in order, decoded lazily
+     */
+    public Stream<PKCS12BundleEntry> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this.iterator(), Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+    }
+
+    /**
+     * @return The certificates with a private key, as managers, certificates without a key are skipped
+     */
+    public Stream<SomeX509v3CertificateManager> managers() {
+        return this.stream().filter(PKCS12BundleEntry::hasPrivateKey).map(PKCS12BundleEntry::toCertificateManager);
+    }
+
+    /**
+     * @return Every certificate of the bundle, with or without a private key
+     */
+    public Stream<SomeX509v3CertificateHolder> certificates() {
+        return this.stream().map(PKCS12BundleEntry::getCertificateHolder);
+    }
+
+    @Override
+    public void close() throws IOException {
+        Arrays.fill(password, '\0');
+        if (in != null) {
+            in.close();
+        }
+    }
+
+    private static InputStream openSource(ThrowableSupplier<InputStream> source) throws IOException {
+        try {
+            return source.supply();
+        } catch (IOException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new IOException("Could not open the bundle", ex);
+        }
+    }
+
+    private static ASN1SequenceParser openPFX(InputStream in) throws IOException {
+        var pfx = new ASN1StreamParser(in).readObject();
+        if (!(pfx instanceof ASN1SequenceParser pfxSequence)) {
+            throw new IOException("Not a PKCS#12 bundle: the PFX is not a SEQUENCE");
+        }
+        var version = pfxSequence.readObject();
+        if (!(version instanceof ASN1Integer versionInteger) || versionInteger.intValueExact() != 3) {
+            throw new IOException("Not a PKCS#12 bundle: the version is not 3");
+        }
+        return pfxSequence;
+    }
+
+    /**
+     * Reads the MacData of the PFX, skipping over the version and the authSafe without decoding them
+     * - Only the headers of the content are read, whatever they frame is skipped
+     */
+    private static MacData readMacData(PushbackInputStream in) throws IOException {
+        if (in.read() != 0x30) {
+            throw new IOException("Not a PKCS#12 bundle: the PFX is not a SEQUENCE");
+        }
+        readLength(in); // definite or not, the elements are walked
+        if (!skipElement(in) || !skipElement(in)) { // the version and the authSafe
+            throw new IOException("Malformed bundle: the PFX ends early");
+        }
+        int tag = in.read();
+        if (tag != 0x30) { // the end of the stream, or of an indefinite length PFX
+            throw new IOException("The bundle has no MAC");
+        }
+        in.unread(tag);
+        var macData = new ASN1InputStream(in, MAX_MAC_DATA_SIZE).readObject();
+        try {
+            return MacData.getInstance(macData);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Malformed bundle: the MacData could not be decoded", ex);
+        }
+    }
+
+    /**
+     * Skips the next element, including what it frames
+     *
+     * @return False if it was an end-of-contents, which ends the enclosing indefinite length element
+     */
+    private static boolean skipElement(InputStream in) throws IOException {
+        int tag = readByte(in);
+        if ((tag & 0x1F) == 0x1F) { // the tag number continues in the following bytes
+            while ((readByte(in) & 0x80) != 0) {
+            }
+        }
+        long length = readLength(in);
+        if (tag == 0) {
+            if (length != 0) {
+                throw new IOException("Malformed bundle: an end-of-contents has a length");
+            }
+            return false;
+        }
+        if (length >= 0) {
+            in.skipNBytes(length);
+            return true;
+        }
+        if ((tag & 0x20) == 0) {
+            throw new IOException("Malformed bundle: a primitive element has an indefinite length");
+        }
+        while (skipElement(in)) {
+        }
+        return true;
+    }
+
+    /**
+     * @return The length, or -1 for an indefinite length
+     */
+    private static long readLength(InputStream in) throws IOException {
+        int first = readByte(in);
+        if (first < 0x80) {
+            return first;
+        }
+        if (first == 0x80) {
+            return -1;
+        }
+        int byteCount = first & 0x7F;
+        if (byteCount > 7) {
+            throw new IOException("Malformed bundle: a length of " + byteCount + " bytes");
+        }
+        long length = 0;
+        for (int i = 0; i < byteCount; i++) {
+            length = (length << 8) | readByte(in);
+        }
+        return length;
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int value = in.read();
+        if (value < 0) {
+            throw new EOFException("Malformed bundle: it ends early");
+        }
+        return value;
+    }
+
+    /**
+     * Parses the authSafe ContentInfo of the PFX, up to its content
+     *
+     * @return The stream of the content, the encoded AuthenticatedSafe
+     */
+    private static InputStream openAuthenticatedSafe(ASN1SequenceParser pfx) throws IOException {
+        var authSafe = pfx.readObject();
+        if (!(authSafe instanceof ASN1SequenceParser authSafeSequence) || !PKCSObjectIdentifiers.data.equals(authSafeSequence.readObject())) {
+            throw new IOException("Unsupported bundle: the authSafe is not a data ContentInfo (public key integrity is not supported)");
+        }
+        var content = authSafeSequence.readObject();
+        if (!(content instanceof ASN1TaggedObjectParser taggedContent) || !(taggedContent.parseExplicitBaseObject() instanceof ASN1OctetStringParser octets)) {
+            throw new IOException("Malformed bundle: the authSafe content is not an OCTET STRING");
+        }
+        return octets.getOctetStream();
+    }
+
+    /**
+     * Decodes the ContentInfos of the AuthenticatedSafe one at a time, and pairs their certificates and keys
+     */
+    private static class EntryIterator implements Iterator<PKCS12BundleEntry> {
+
+        private final ASN1SequenceParser authenticatedSafe;
+        private final InputDecryptorProvider decryptorProvider;
+        private final ArrayDeque<PKCS12BundleEntry> ready = new ArrayDeque<>();
+        /*
+        The halves waiting for their other half, by hex localKeyId
+         */
+        private final Map<String, PKCS12SafeBag> certificatesWaitingForKey = new HashMap<>();
+        private final Map<String, PrivateKeyBag> keysWaitingForCertificate = new HashMap<>();
+        private boolean endOfBundle;
+
+        private EntryIterator(ASN1SequenceParser authenticatedSafe, InputDecryptorProvider decryptorProvider) {
+            this.authenticatedSafe = authenticatedSafe;
+            this.decryptorProvider = decryptorProvider;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (ready.isEmpty() && !endOfBundle) {
+                    this.readContentInfo();
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            } catch (Exception ex) {
+                throw new UncheckedIOException(new IOException("Could not decode the bundle, the password may be wrong", ex));
+            }
+            return !ready.isEmpty();
+        }
+
+        @Override
+        public PKCS12BundleEntry next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return ready.poll();
+        }
+
+        private void readContentInfo() throws Exception {
+            ASN1Encodable next = authenticatedSafe.readObject();
+            if (next == null) {
+                this.endOfBundle = true;
+                if (!keysWaitingForCertificate.isEmpty()) {
+                    throw new IOException(keysWaitingForCertificate.size() + " private key(s) of the bundle have no certificate");
+                }
+                for (var certificateBag : certificatesWaitingForKey.values()) {
+                    ready.add(new PKCS12BundleEntry(toCertificateHolder(certificateBag), null, friendlyNameOf(certificateBag)));
+                }
+                certificatesWaitingForKey.clear();
+                return;
+            }
+            var contentInfo = ContentInfo.getInstance(next.toASN1Primitive());
+            var safeBagFactory = PKCSObjectIdentifiers.encryptedData.equals(contentInfo.getContentType())
+                    ? new PKCS12SafeBagFactory(contentInfo, decryptorProvider)
+                    : new PKCS12SafeBagFactory(contentInfo);
+            for (var safeBag : safeBagFactory.getSafeBags()) {
+                var type = safeBag.getType();
+                if (PKCSObjectIdentifiers.certBag.equals(type)) {
+                    this.addCertificate(safeBag);
+                } else if (PKCSObjectIdentifiers.pkcs8ShroudedKeyBag.equals(type)) {
+                    var privateKeyInfo = ((PKCS8EncryptedPrivateKeyInfo) safeBag.getBagValue()).decryptPrivateKeyInfo(decryptorProvider);
+                    this.addPrivateKey(new PrivateKeyBag(privateKeyInfo.getEncoded(), safeBag));
+                } else if (PKCSObjectIdentifiers.keyBag.equals(type)) {
+                    this.addPrivateKey(new PrivateKeyBag(((PrivateKeyInfo) safeBag.getBagValue()).getEncoded(), safeBag));
+                }
+                // CRL, secret and nested bags are skipped
+            }
+        }
+
+        private void addCertificate(PKCS12SafeBag certificateBag) throws Exception {
+            var localKeyId = localKeyIdOf(certificateBag);
+            if (localKeyId == null) {
+                ready.add(new PKCS12BundleEntry(toCertificateHolder(certificateBag), null, friendlyNameOf(certificateBag)));
+                return;
+            }
+            var keyBag = keysWaitingForCertificate.remove(localKeyId);
+            if (keyBag == null) {
+                certificatesWaitingForKey.put(localKeyId, certificateBag);
+                return;
+            }
+            ready.add(toEntry(certificateBag, keyBag));
+        }
+
+        private void addPrivateKey(PrivateKeyBag keyBag) throws Exception {
+            var localKeyId = localKeyIdOf(keyBag.safeBag);
+            if (localKeyId == null) {
+                throw new IOException("A private key of the bundle has no localKeyId, it can not be matched to its certificate");
+            }
+            var certificateBag = certificatesWaitingForKey.remove(localKeyId);
+            if (certificateBag == null) {
+                keysWaitingForCertificate.put(localKeyId, keyBag);
+                return;
+            }
+            ready.add(toEntry(certificateBag, keyBag));
+        }
+
+        private static PKCS12BundleEntry toEntry(PKCS12SafeBag certificateBag, PrivateKeyBag keyBag) throws Exception {
+            var certificateHolder = toCertificateHolder(certificateBag);
+            PrivateKey privateKey = KeyUtils.decodePrivateKey(keyBag.encodedPrivateKeyInfo, certificateHolder.getPublicKey().getAlgorithm());
+            return new PKCS12BundleEntry(certificateHolder, privateKey, friendlyNameOf(certificateBag));
+        }
+
+        private static SomeX509v3CertificateHolder toCertificateHolder(PKCS12SafeBag certificateBag) throws IOException {
+            if (!(certificateBag.getBagValue() instanceof X509CertificateHolder certificateHolder)) {
+                throw new IOException("Unsupported certificate bag, it is not an X.509 certificate");
+            }
+            return new SomeX509v3CertificateHolder(certificateHolder);
+        }
+
+        private static String localKeyIdOf(PKCS12SafeBag safeBag) {
+            var value = attributeOf(safeBag, PKCS12SafeBag.localKeyIdAttribute);
+            return value instanceof ASN1OctetString octets ? Hex.toHexString(octets.getOctets()) : null;
+        }
+
+        private static String friendlyNameOf(PKCS12SafeBag safeBag) {
+            var value = attributeOf(safeBag, PKCS12SafeBag.friendlyNameAttribute);
+            return value instanceof ASN1String string ? string.getString() : null;
+        }
+
+        private static ASN1Encodable attributeOf(PKCS12SafeBag safeBag, ASN1ObjectIdentifier type) {
+            var attributes = safeBag.getAttributes();
+            if (attributes == null) {
+                return null;
+            }
+            for (var attribute : attributes) {
+                if (type.equals(attribute.getAttrType()) && attribute.getAttrValues().size() > 0) {
+                    return attribute.getAttrValues().getObjectAt(0);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A decrypted private key, with the bag it came in (for its attributes)
+     */
+    private record PrivateKeyBag(byte[] encodedPrivateKeyInfo, PKCS12SafeBag safeBag) {
+    }
+}
@@ -0,0 +1,226 @@
+package com.galsie.lib.certificates.bundle;
+
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
+import com.galsie.lib.certificates.keypair.EntropySource;
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.BEROctetStringGenerator;
+import org.bouncycastle.asn1.BERSequenceGenerator;
+import org.bouncycastle.asn1.DERBMPString;
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
+import org.bouncycastle.asn1.pkcs.ContentInfo;
+import org.bouncycastle.asn1.pkcs.MacData;
+import org.bouncycastle.asn1.pkcs.PKCS12PBEParams;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.DigestInfo;
+import org.bouncycastle.cms.CMSEncryptedDataGenerator;
+import org.bouncycastle.cms.CMSProcessableByteArray;
+import org.bouncycastle.operator.MacCalculator;
+import org.bouncycastle.operator.OutputEncryptor;
+import org.bouncycastle.pkcs.PKCS12SafeBag;
+import org.bouncycastle.pkcs.PKCS12SafeBagBuilder;
+import org.bouncycastle.pkcs.jcajce.JcaPKCS12SafeBagBuilder;
+import org.bouncycastle.pkcs.jcajce.JcePKCS12MacCalculatorBuilder;
+import org.bouncycastle.pkcs.jcajce.JcePKCSPBEOutputEncryptorBuilder;
+import org.bouncycastle.util.io.TeeOutputStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Writes a password protected PKCS#12 bundle, eg: to back up the ICACs and NOCs of a fabric with their private keys
+ * - Each certificate is written as it is given, in its own encrypted ContentInfo, only one entry is held at a time
+ * - Private keys are written as shrouded key bags, next to their certificate, matched by a localKeyId attribute (the SHA-1 of the certificate)
+ * - Certificates and keys are encrypted with PBES2: PBKDF2 with HMAC-SHA256, and AES-256-CBC, with a new salt per entry
+ * - The bundle's integrity is protected by an HMAC-SHA256 computed as the entries are written, and appended by {@link PKCS12BundleWriter#finish()}
+ * - The structure is BER encoded with indefinite lengths, so nothing has to be measured up front
+ * - {@link PKCS12BundleWriter#close()} does not finish, so that an export that failed half way is left truncated and without a MAC, and is not mistaken for a complete bundle
+ *
+ * Usage:
+ * - try (var writer = PKCS12BundleWriter.of(out, password)) { writer.writeManagers(managers); writer.finish(); }
+ *
+ * NOTE: Writes are small, give it a buffered stream. A writer is not thread safe.
+ * Every entry derives its encryption keys from the password, the iteration count trades the export speed for the resistance to guessing.
+ */
+public class PKCS12BundleWriter implements Closeable {
+
+    public static final int DEFAULT_ITERATION_COUNT = 10_000;
+
+    private static final AlgorithmIdentifier HMAC_SHA256 = new AlgorithmIdentifier(PKCSObjectIdentifiers.id_hmacWithSHA256, DERNull.INSTANCE);
+
+    private final OutputStream out;
+    private final char[] password;
+    private final int iterationCount;
+    private final JcePKCS12MacCalculatorBuilder macCalculatorBuilder;
+    private final MacCalculator macCalculator;
+
+    /*
+    The open structures, from the outermost
+     */
+    private final BERSequenceGenerator pfx;
+    private final BERSequenceGenerator authSafe;
+    private final OutputStream authSafeContent;
+    private final BERSequenceGenerator authenticatedSafe;
+
+    private long entryCount;
+    private boolean finished;
+
+    private PKCS12BundleWriter(OutputStream out, char[] password, int iterationCount) throws Exception {
+        this.out = out;
+        this.password = password.clone();
+        this.iterationCount = iterationCount;
+        var provider = SecurityProvider.BOUNCY_CASTLE.getProvider();
+        this.macCalculatorBuilder = new JcePKCS12MacCalculatorBuilder(NISTObjectIdentifiers.id_sha256).setProvider(provider).setIterationCount(iterationCount);
+        this.macCalculator = macCalculatorBuilder.build(this.password);
+
+        this.pfx = new BERSequenceGenerator(out);
+        pfx.addObject(new ASN1Integer(3)); // version
+        this.authSafe = new BERSequenceGenerator(pfx.getRawOutputStream());
+        authSafe.addObject(PKCSObjectIdentifiers.data);
+        var authSafeOctets = new BEROctetStringGenerator(authSafe.getRawOutputStream(), 0, true);
+        // the MAC covers the content of the octet string: the encoded AuthenticatedSafe
+        this.authSafeContent = new TeeOutputStream(authSafeOctets.getOctetOutputStream(new byte[4096]), macCalculator.getOutputStream());
+        this.authenticatedSafe = new BERSequenceGenerator(authSafeContent);
+    }
+
+    /**
+     * Starts a bundle, writing its header to the stream, with {@link PKCS12BundleWriter#DEFAULT_ITERATION_COUNT}
+     *
+     * @param password The password, copied (and cleared once the bundle is finished or closed)
+     */
+    public static PKCS12BundleWriter of(OutputStream out, char[] password) throws Exception {
+        return of(out, password, DEFAULT_ITERATION_COUNT);
+    }
+
+    /**
+     * Starts a bundle, writing its header to the stream
+     *
+     * @param password The password, copied (and cleared once the bundle is finished or closed)
+     * @param iterationCount The PBKDF2 (and MAC key derivation) iteration count
+     */
+    public static PKCS12BundleWriter of(OutputStream out, char[] password, int iterationCount) throws Exception {
+        if (iterationCount <= 0) {
+            throw new IllegalArgumentException("The iteration count must be positive, got " + iterationCount);
+        }
+        return new PKCS12BundleWriter(out, password, iterationCount);
+    }
+
+    /**
+     * Writes a certificate with its private key
+     */
+    public void write(SomeX509v3CertificateManager certificateManager) throws Exception {
+        var certificateHolder = certificateManager.getX509CertificateHolder();
+        var localKeyId = new DEROctetString(MessageDigest.getInstance("SHA-1").digest(certificateHolder.getDEREncoded()));
+        var friendlyName = new DERBMPString(certificateHolder.getSubject().toString());
+        var certificateBag = new PKCS12SafeBagBuilder(certificateHolder)
+                .addBagAttribute(PKCS12SafeBag.friendlyNameAttribute, friendlyName)
+                .addBagAttribute(PKCS12SafeBag.localKeyIdAttribute, localKeyId)
+                .build();
+        var keyBag = new JcaPKCS12SafeBagBuilder(certificateManager.getPrivateKey(), this.newEncryptor())
+                .addBagAttribute(PKCS12SafeBag.friendlyNameAttribute, friendlyName)
+                .addBagAttribute(PKCS12SafeBag.localKeyIdAttribute, localKeyId)
+                .build();
+        this.writeEncrypted(certificateBag);
+        this.writeContentInfo(new ContentInfo(PKCSObjectIdentifiers.data, new DEROctetString(safeContentsOf(keyBag)))); // the key bag is encrypted itself
+    }
+
+    /**
+     * Writes a certificate without a private key, eg: the root of the fabric
+     */
+    public void write(SomeX509v3CertificateHolder certificateHolder) throws Exception {
+        this.writeEncrypted(new PKCS12SafeBagBuilder(certificateHolder)
+                .addBagAttribute(PKCS12SafeBag.friendlyNameAttribute, new DERBMPString(certificateHolder.getSubject().toString()))
+                .build());
+    }
+
+    public void writeCertificates(Iterator<? extends SomeX509v3CertificateHolder> certificateHolders) throws Exception {
+        while (certificateHolders.hasNext()) {
+            this.write(certificateHolders.next());
+        }
+    }
+
+    public void writeManagers(Iterator<? extends SomeX509v3CertificateManager> certificateManagers) throws Exception {
+        while (certificateManagers.hasNext()) {
+            this.write(certificateManagers.next());
+        }
+    }
+
+    /**
+     * @return The certificates written so far
+     */
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    private void writeEncrypted(PKCS12SafeBag safeBag) throws Exception {
+        var encryptedData = new CMSEncryptedDataGenerator().generate(new CMSProcessableByteArray(safeContentsOf(safeBag)), this.newEncryptor());
+        this.checkNotFinished();
+        authSafeContent.write(encryptedData.toASN1Structure().getEncoded(ASN1Encoding.DER));
+        entryCount++;
+    }
+
+    private void writeContentInfo(ContentInfo contentInfo) throws IOException {
+        this.checkNotFinished();
+        authSafeContent.write(contentInfo.getEncoded(ASN1Encoding.DER));
+    }
+
+    private void checkNotFinished() {
+        if (finished) {
+            throw new IllegalStateException("The bundle was finished");
+        }
+    }
+
+    private OutputEncryptor newEncryptor() throws Exception {
+        return new JcePKCSPBEOutputEncryptorBuilder(NISTObjectIdentifiers.id_aes256_CBC)
+                .setProvider(SecurityProvider.BOUNCY_CASTLE.getProvider())
+                .setPRF(HMAC_SHA256)
+                .setIterationCount(iterationCount)
+                .setRandom(EntropySource.get().asSecureRandom())
+                .build(password);
+    }
+
+    private static byte[] safeContentsOf(PKCS12SafeBag safeBag) throws IOException {
+        return new DERSequence(safeBag.toASN1Structure()).getEncoded(ASN1Encoding.DER); // SafeContents ::= SEQUENCE OF SafeBag
+    }
+
+    /**
+     * Writes the end of the bundle and its MAC, the stream is left open
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        this.finished = true;
+        try {
+            authenticatedSafe.close();
+            authSafeContent.close(); // ends the octet string, and the MAC input
+            authSafe.close();
+            var macParameters = PKCS12PBEParams.getInstance(macCalculator.getAlgorithmIdentifier().getParameters());
+            var digestInfo = new DigestInfo(macCalculatorBuilder.getDigestAlgorithmIdentifier(), macCalculator.getMac());
+            pfx.addObject(new MacData(digestInfo, macParameters.getIV(), macParameters.getIterations().intValue()));
+            pfx.close();
+            out.flush();
+        } finally {
+            Arrays.fill(password, '\0');
+        }
+    }
+
+    /**
+     * Clears the password, and closes the stream, a bundle that was not finished is left truncated
+     */
+    @Override
+    public void close() throws IOException {
+        Arrays.fill(password, '\0');
+        out.close();
+    }
+}
@@ -0,0 +1,162 @@
+package com.galsie.lib.certificates.bundle;
+
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1SequenceParser;
+import org.bouncycastle.asn1.ASN1SetParser;
+import org.bouncycastle.asn1.ASN1StreamParser;
+import org.bouncycastle.asn1.BERTags;
+import org.bouncycastle.asn1.cms.CMSObjectIdentifiers;
+import org.bouncycastle.asn1.cms.ContentInfoParser;
+import org.bouncycastle.asn1.cms.SignedDataParser;
+import org.bouncycastle.asn1.x509.Certificate;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the certificates of a PKCS#7 bundle (a SignedData, usually certs-only as written by {@link PKCS7BundleWriter})
+ * - DER and BER (indefinite length) encodings are read, PEM wrapped bundles are not
+ * - Reading is lazy, a certificate is parsed when it is iterated, only one is held at a time
+ * - CRLs and signers after the certificates are not read
+ *
+ * Usage:
+ * - try (var reader = PKCS7BundleReader.open(path)) { reader.stream().forEach(...); }
+ *
+ * NOTE: A reader is iterated once, it is not thread safe. Malformed bundles surface as {@link UncheckedIOException}s while iterating.
+ */
+public class PKCS7BundleReader implements Iterable<SomeX509v3CertificateHolder>, Closeable {
+
+    private final InputStream in;
+    private boolean consumed;
+
+    private PKCS7BundleReader(InputStream in) {
+        this.in = in;
+    }
+
+    public static PKCS7BundleReader open(Path path) throws IOException {
+        return new PKCS7BundleReader(new BufferedInputStream(Files.newInputStream(path)));
+    }
+
+    /**
+     * Reads a bundle from a stream, the stream is closed with the reader
+     */
+    public static PKCS7BundleReader of(InputStream in) {
+        return new PKCS7BundleReader(in);
+    }
+
+    @Override
+    public Iterator<SomeX509v3CertificateHolder> iterator() {
+        if (consumed) {
+            throw new IllegalStateException("The bundle was already read");
+        }
+        this.consumed = true;
+        try {
+            return new CertificateIterator(openCertificates(in));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * @return The certificates of the bundle, in order, parsed lazily
+     */
+    public Stream<SomeX509v3CertificateHolder> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this.iterator(), Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Parses up to the certificates of the SignedData
+     *
+     * @return The parser of the certificates, null if the SignedData has none
+     */
+    private static ASN1SetParser openCertificates(InputStream in) throws IOException {
+        var contentInfo = new ASN1StreamParser(in).readObject();
+        if (!(contentInfo instanceof ASN1SequenceParser contentInfoSequence)) {
+            throw new IOException("Not a PKCS#7 bundle: the ContentInfo is not a SEQUENCE");
+        }
+        var contentInfoParser = new ContentInfoParser(contentInfoSequence);
+        if (!CMSObjectIdentifiers.signedData.equals(contentInfoParser.getContentType())) {
+            throw new IOException("Not a PKCS#7 bundle: the content is " + contentInfoParser.getContentType() + ", not SignedData");
+        }
+        var signedData = SignedDataParser.getInstance(contentInfoParser.getContent(BERTags.SEQUENCE));
+        signedData.getVersion();
+        drain(signedData.getDigestAlgorithms());
+        var encapContentInfo = signedData.getEncapContentInfo();
+        var encapContent = encapContentInfo.getContent(BERTags.OCTET_STRING);
+        if (encapContent != null) { // not certs-only, the content is skipped
+            encapContent.toASN1Primitive();
+        }
+        return signedData.getCertificates();
+    }
+
+    private static void drain(ASN1SetParser setParser) throws IOException {
+        while (setParser.readObject() != null) {
+            // skipped
+        }
+    }
+
+    private static class CertificateIterator implements Iterator<SomeX509v3CertificateHolder> {
+
+        private final ASN1SetParser certificates;
+        private SomeX509v3CertificateHolder nextCertificate;
+        private boolean endOfCertificates;
+
+        private CertificateIterator(ASN1SetParser certificates) {
+            this.certificates = certificates;
+            this.endOfCertificates = certificates == null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextCertificate == null && !endOfCertificates) {
+                try {
+                    this.nextCertificate = this.fetch();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+            return nextCertificate != null;
+        }
+
+        @Override
+        public SomeX509v3CertificateHolder next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            var certificate = this.nextCertificate;
+            this.nextCertificate = null;
+            return certificate;
+        }
+
+        private SomeX509v3CertificateHolder fetch() throws IOException {
+            while (true) {
+                ASN1Encodable next = certificates.readObject();
+                if (next == null) {
+                    this.endOfCertificates = true;
+                    return null;
+                }
+                if (next instanceof ASN1SequenceParser certificate) {
+                    return new SomeX509v3CertificateHolder(Certificate.getInstance(certificate.toASN1Primitive()));
+                }
+                next.toASN1Primitive(); // other certificate formats (attribute certificates...) are skipped
+            }
+        }
+    }
+}
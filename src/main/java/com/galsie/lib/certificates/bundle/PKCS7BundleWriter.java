@@ -0,0 +1,111 @@
+package com.galsie.lib.certificates.bundle;
+
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.BERSequenceGenerator;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.DERSet;
+import org.bouncycastle.asn1.cms.CMSObjectIdentifiers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * Writes a certs-only PKCS#7 bundle (a degenerate SignedData, RFC 5652 section 5.2: no content, no signers), eg: the certificates of a fabric
+ * - The certificates are written to the stream as they are given, only one certificate is held at a time
+ * - The structure is BER encoded with indefinite lengths, so nothing has to be measured up front
+ * - {@link PKCS7BundleWriter#finish()} writes the end of the structure, the bundle is truncated without it
+ * - {@link PKCS7BundleWriter#close()} does not finish, so that an export that failed half way is not mistaken for a complete bundle
+ *
+ * Usage:
+ * - try (var writer = PKCS7BundleWriter.of(out)) { writer.writeManagers(managers); writer.finish(); }
+ *
+ * NOTE: Writes are small, give it a buffered stream. A writer is not thread safe.
+ */
+public class PKCS7BundleWriter implements Closeable {
+
+    private final OutputStream out;
+    private final BERSequenceGenerator contentInfo;
+    private final BERSequenceGenerator signedData;
+    private final BERSequenceGenerator certificates;
+    private long certificateCount;
+    private boolean finished;
+
+    private PKCS7BundleWriter(OutputStream out) throws IOException {
+        this.out = out;
+        this.contentInfo = new BERSequenceGenerator(out);
+        contentInfo.addObject(CMSObjectIdentifiers.signedData);
+        this.signedData = new BERSequenceGenerator(contentInfo.getRawOutputStream(), 0, true);
+        signedData.addObject(new ASN1Integer(1)); // version
+        signedData.addObject(new DERSet()); // digestAlgorithms
+        signedData.addObject(new DERSequence(CMSObjectIdentifiers.data)); // encapContentInfo, without content
+        this.certificates = new BERSequenceGenerator(signedData.getRawOutputStream(), 0, false); // certificates [0] IMPLICIT SET OF Certificate
+    }
+
+    /**
+     * Starts a bundle, writing its header to the stream
+     */
+    public static PKCS7BundleWriter of(OutputStream out) throws IOException {
+        return new PKCS7BundleWriter(out);
+    }
+
+    public void write(SomeX509v3CertificateHolder certificateHolder) throws IOException {
+        if (finished) {
+            throw new IllegalStateException("The bundle was finished");
+        }
+        certificates.getRawOutputStream().write(certificateHolder.getDEREncoded());
+        certificateCount++;
+    }
+
+    /**
+     * Writes the certificate of a manager, its private key is not part of a PKCS#7 bundle (see {@link PKCS12BundleWriter})
+     */
+    public void write(SomeX509v3CertificateManager certificateManager) throws IOException {
+        this.write(certificateManager.getX509CertificateHolder());
+    }
+
+    public void writeCertificates(Iterator<? extends SomeX509v3CertificateHolder> certificateHolders) throws IOException {
+        while (certificateHolders.hasNext()) {
+            this.write(certificateHolders.next());
+        }
+    }
+
+    public void writeManagers(Iterator<? extends SomeX509v3CertificateManager> certificateManagers) throws IOException {
+        while (certificateManagers.hasNext()) {
+            this.write(certificateManagers.next());
+        }
+    }
+
+    /**
+     * @return The certificates written so far
+     */
+    public long getCertificateCount() {
+        return certificateCount;
+    }
+
+    /**
+     * Writes the end of the bundle, the stream is left open
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        this.finished = true;
+        certificates.close();
+        signedData.addObject(new DERSet()); // signerInfos
+        signedData.close();
+        contentInfo.close();
+        out.flush();
+    }
+
+    /**
+     * Closes the stream, a bundle that was not finished is left truncated
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,120 @@
+package com.galsie.lib.certificates.certificate;
+
+import com.galsie.lib.utils.crypto.hasher.HashingAlgorithm;
+import com.galsie.lib.utils.lang.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads many {@link SomeX509v3CertificateManager}s in parallel, eg: the per-fabric ICAC managers on start up
+ * - Each manager goes through {@link SomeX509v3CertificateManager#fromPrivateKeyAndDERData(byte[], byte[])}: a certificate parse and two key decodes, with per-thread cached KeyFactories
+ * - At most 'parallelism' items run at once, whatever the executor: that many workers are submitted, each taking the next item until none is left
+ * - The signers can be warmed up too, so that the first signature of each manager does not pay for the provider lookup and the key init
+ *
+ * Example:
+ *  var managers = SomeX509v3CertificateManager.bulkLoader()
+ *      .setWarmUpSigners(HashingAlgorithm.SHA256)
+ *      .load(encodedManagers);
+ */
+public class BulkCertificateManagerLoader {
+
+    private Executor executor = ForkJoinPool.commonPool();
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The hashing algorithm of the signers to warm up, null to not warm them up
+     */
+    @Nullable
+    private HashingAlgorithm warmUpSigningHashingAlgorithm;
+
+    BulkCertificateManagerLoader() {
+    }
+
+    /**
+     * Sets the executor the workers run on
+     *
+     * @param executor The executor, or a {@link ForkJoinPool}
+     */
+    public BulkCertificateManagerLoader setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * @param parallelism The maximum number of managers loaded at once, by default the number of cores
+     */
+    public BulkCertificateManagerLoader setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be at least 1, got " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Builds a signer of each manager once loaded, which is then kept by its {@link com.galsie.lib.certificates.signer.ContentSignerPool}
+     *
+     * @param hashingAlgorithm The hashing algorithm the managers will sign with, null to not warm up the signers
+     */
+    public BulkCertificateManagerLoader setWarmUpSigners(@Nullable HashingAlgorithm hashingAlgorithm) {
+        this.warmUpSigningHashingAlgorithm = hashingAlgorithm;
+        return this;
+    }
+
+    /**
+     * Loads the managers, and waits until all are loaded
+     *
+     * @param encodedManagers The encoded managers
+     * @return The managers, in the order of the encoded managers
+     * @throws Exception If any manager could not be loaded, the first failure is thrown with the others suppressed
+     */
+    public List<SomeX509v3CertificateManager> load(List<EncodedCertificateManager> encodedManagers) throws Exception {
+        int count = encodedManagers.size();
+        var managers = new SomeX509v3CertificateManager[count];
+        var failures = new Exception[count];
+        var nextIndex = new AtomicInteger();
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(parallelism, count)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = CompletableFuture.runAsync(() -> {
+                int index;
+                while ((index = nextIndex.getAndIncrement()) < count) {
+                    try {
+                        managers[index] = this.loadOne(encodedManagers.get(index));
+                    } catch (Exception ex) {
+                        failures[index] = ex;
+                    }
+                }
+            }, executor);
+        }
+        CompletableFuture.allOf(workers).join();
+
+        Exception failure = null;
+        for (int index = 0; index < count; index++) {
+            if (failures[index] == null) {
+                continue;
+            }
+            if (failure == null) {
+                failure = new Exception("The certificate manager at " + index + " could not be loaded", failures[index]);
+            } else {
+                failure.addSuppressed(failures[index]);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return Arrays.asList(managers);
+    }
+
+    private SomeX509v3CertificateManager loadOne(EncodedCertificateManager encodedManager) throws Exception {
+        var manager = SomeX509v3CertificateManager.fromPrivateKeyAndDERData(encodedManager.getPrivateKeyData(), encodedManager.getDerData());
+        if (warmUpSigningHashingAlgorithm != null) {
+            manager.getContentSignerPool(warmUpSigningHashingAlgorithm).withSigner((signer) -> signer); // the built signer is returned to the pool
+        }
+        return manager;
+    }
+}
@@ -0,0 +1,23 @@
+package com.galsie.lib.certificates.certificate;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The encoded parts of a {@link SomeX509v3CertificateManager}, as persisted: the private key and the certificate
+ * - Loaded by {@link SomeX509v3CertificateManager#fromPrivateKeyAndDERData(byte[], byte[])}, or in bulk by {@link BulkCertificateManagerLoader}
+ */
+@AllArgsConstructor(staticName = "of")
+@Getter
+public class EncodedCertificateManager {
+
+    /**
+     * The PKCS#8 encoded private key
+     */
+    private final byte[] privateKeyData;
+
+    /**
+     * The DER encoded certificate
+     */
+    private final byte[] derData;
+}
@@ -0,0 +1,289 @@
+package com.galsie.lib.certificates.certificate;
+
+import com.galsie.lib.certificates.asn1.der.DERReader;
+import com.galsie.lib.certificates.asn1.der.DERTags;
+import com.galsie.lib.certificates.csr.SomeCSRHolder;
+import com.galsie.lib.utils.lang.Nullable;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1Primitive;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.asn1.x509.Time;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.security.PublicKey;
+import java.util.Date;
+
+/**
+ * A read-only view over the DER encoding of an X.509 certificate, for loading many certificates to filter them
+ * - Holds a slice of the buffer it was made from (no bytes are copied) and, once a field is asked for, the offsets of the TBS fields
+ * - Nothing is parsed up front, the DER is only checked when a field is first read, so a malformed certificate throws there
+ * - The serial number, issuer and subject can be compared in place, see {@link LazyCertificateView#serialNumberEquals(BigInteger)} and {@link LazyCertificateView#subjectEquals(byte[])}
+ * - {@link LazyCertificateView#toCertificateHolder()} and {@link LazyCertificateView#getPublicKey()} promote the view, and are not cached: keep what they return
+ *
+ * Usage:
+ * - The underlying bytes must not change while the view is in use (eg: a store that is only appended to)
+ * - Safe to share between threads
+ */
+public class LazyCertificateView {
+
+    /*
+    Indices in the offsets array, each holding the start of the element in the DER slice
+     */
+    private static final int SERIAL_NUMBER = 0;
+    private static final int ISSUER = 1;
+    private static final int VALIDITY = 2;
+    private static final int SUBJECT = 3;
+    private static final int SUBJECT_PUBLIC_KEY_INFO = 4;
+    /**
+     * The [3] EXPLICIT Extensions element, -1 if the certificate has no extensions
+     */
+    private static final int EXTENSIONS = 5;
+    private static final int OFFSET_COUNT = 6;
+
+    private final ByteBuffer der;
+    private volatile int[] offsets;
+
+    private LazyCertificateView(ByteBuffer der) {
+        this.der = der;
+    }
+
+    /**
+     * Makes a view over the certificate between the position and the limit of a buffer
+     * - The buffer's position is not modified, the view keeps a read-only slice of it
+     */
+    public static LazyCertificateView of(ByteBuffer der) {
+        return new LazyCertificateView(der.slice().asReadOnlyBuffer());
+    }
+
+    public static LazyCertificateView of(byte[] der) {
+        return of(ByteBuffer.wrap(der));
+    }
+
+    /**
+     * @return A read-only view of the whole DER encoding of the certificate, no bytes are copied
+     */
+    public ByteBuffer getDER() {
+        return der.duplicate();
+    }
+
+    public int getEncodedLength() {
+        return der.remaining();
+    }
+
+    public BigInteger getSerialNumber() throws IOException {
+        var reader = this.readerAt(SERIAL_NUMBER);
+        return new BigInteger(reader.getContent());
+    }
+
+    /**
+     * Compares the serial number in place
+     *
+     * @param serialNumber The expected serial number
+     * @return true if the certificate has that serial number
+     */
+    public boolean serialNumberEquals(BigInteger serialNumber) throws IOException {
+        return this.readerAt(SERIAL_NUMBER).contentEquals(serialNumber.toByteArray());
+    }
+
+    /**
+     * @return A read-only view of the DER encoded issuer Name
+     */
+    public ByteBuffer getIssuerEncoded() throws IOException {
+        return this.readerAt(ISSUER).getElementSlice();
+    }
+
+    public X500Name getIssuer() throws IOException {
+        return X500Name.getInstance(this.toASN1Primitive(this.getIssuerEncoded()));
+    }
+
+    /**
+     * Compares the issuer in place
+     *
+     * @param encodedName The DER encoded Name, eg: from {@link X500Name#getEncoded()}
+     * @return true if the issuer is encoded exactly as that Name
+     */
+    public boolean issuerEquals(byte[] encodedName) throws IOException {
+        return this.getIssuerEncoded().equals(ByteBuffer.wrap(encodedName));
+    }
+
+    /**
+     * @return A read-only view of the DER encoded subject Name
+     */
+    public ByteBuffer getSubjectEncoded() throws IOException {
+        return this.readerAt(SUBJECT).getElementSlice();
+    }
+
+    public X500Name getSubject() throws IOException {
+        return X500Name.getInstance(this.toASN1Primitive(this.getSubjectEncoded()));
+    }
+
+    /**
+     * Compares the subject in place
+     *
+     * @param encodedName The DER encoded Name, eg: from {@link X500Name#getEncoded()}
+     * @return true if the subject is encoded exactly as that Name
+     */
+    public boolean subjectEquals(byte[] encodedName) throws IOException {
+        return this.getSubjectEncoded().equals(ByteBuffer.wrap(encodedName));
+    }
+
+    public Date getNotBefore() throws IOException {
+        var reader = this.readerAt(VALIDITY);
+        reader.next();
+        return this.toDate(reader);
+    }
+
+    public Date getNotAfter() throws IOException {
+        var reader = this.readerAt(VALIDITY);
+        reader.skipNext();
+        reader.next();
+        return this.toDate(reader);
+    }
+
+    /**
+     * @param date The date to check
+     * @return true if the date is within the validity period of the certificate, bounds included
+     */
+    public boolean isValidOn(Date date) throws IOException {
+        return !date.before(this.getNotBefore()) && !date.after(this.getNotAfter());
+    }
+
+    /**
+     * @return A read-only view of the DER encoded SubjectPublicKeyInfo
+     */
+    public ByteBuffer getSubjectPublicKeyInfoEncoded() throws IOException {
+        return this.readerAt(SUBJECT_PUBLIC_KEY_INFO).getElementSlice();
+    }
+
+    public SubjectPublicKeyInfo getSubjectPublicKeyInfo() throws IOException {
+        return SubjectPublicKeyInfo.getInstance(this.toASN1Primitive(this.getSubjectPublicKeyInfoEncoded()));
+    }
+
+    /**
+     * Decodes the public key, which is not cached by the view
+     */
+    public PublicKey getPublicKey() throws IOException {
+        return SomeCSRHolder.getPublicKeyFromSPKI(this.getSubjectPublicKeyInfo());
+    }
+
+    /**
+     * Finds an extension, without parsing the others
+     *
+     * @param oid The extension's OID
+     * @return A read-only view of the extnValue content (the DER encoding of the extension's value), or null if the certificate does not have that extension
+     */
+    @Nullable
+    public ByteBuffer getExtensionValue(ASN1ObjectIdentifier oid) throws IOException {
+        var offsets = this.getOffsets();
+        if (offsets[EXTENSIONS] < 0) {
+            return null;
+        }
+        var oidContent = new DERReader(ByteBuffer.wrap(oid.getEncoded())).expect(DERTags.OBJECT_IDENTIFIER).getContent();
+        var reader = new DERReader(der).setPosition(offsets[EXTENSIONS]);
+        reader.next();
+        reader.expect(DERTags.SEQUENCE);
+        var extensionsEnd = reader.getContentEnd();
+        while (reader.hasNext(extensionsEnd)) {
+            reader.expect(DERTags.SEQUENCE);
+            var extensionEnd = reader.getContentEnd();
+            reader.expect(DERTags.OBJECT_IDENTIFIER);
+            if (!reader.contentEquals(oidContent)) {
+                reader.setPosition(extensionEnd);
+                continue;
+            }
+            reader.skip();
+            if (reader.next() == DERTags.BOOLEAN) { // critical
+                reader.skip();
+                reader.next();
+            }
+            if (reader.getTag() != DERTags.OCTET_STRING) {
+                throw new IOException("Malformed extension at " + reader.getElementStart());
+            }
+            return reader.getContentSlice();
+        }
+        return null;
+    }
+
+    /**
+     * Parses the whole certificate, the bytes are copied
+     */
+    public SomeX509v3CertificateHolder toCertificateHolder() throws IOException {
+        var encoded = new byte[der.remaining()];
+        der.get(0, encoded);
+        return SomeX509v3CertificateHolder.fromDERData(encoded);
+    }
+
+    public void writeDER(OutputStream out) throws IOException {
+        Channels.newChannel(out).write(der.duplicate());
+    }
+
+    /**
+     * Writes the DER encoding at the position of a buffer, which is moved past it
+     */
+    public void writeDER(ByteBuffer out) {
+        out.put(der.duplicate());
+    }
+
+    private DERReader readerAt(int field) throws IOException {
+        var reader = new DERReader(der).setPosition(this.getOffsets()[field]);
+        reader.next();
+        return reader;
+    }
+
+    /**
+     * Locates the TBS fields once, a race only locates them twice
+     */
+    private int[] getOffsets() throws IOException {
+        var offsets = this.offsets;
+        if (offsets != null) {
+            return offsets;
+        }
+        offsets = new int[OFFSET_COUNT];
+        var reader = new DERReader(der);
+        reader.expect(DERTags.SEQUENCE); // Certificate
+        reader.expect(DERTags.SEQUENCE); // TBSCertificate
+        var tbsEnd = reader.getContentEnd();
+        if (reader.next() == DERTags.contextConstructed(0)) { // version
+            reader.skip();
+            reader.next();
+        }
+        if (reader.getTag() != DERTags.INTEGER) {
+            throw new IOException("Expected the serial number at " + reader.getElementStart());
+        }
+        offsets[SERIAL_NUMBER] = reader.getElementStart();
+        reader.skip();
+        reader.expect(DERTags.SEQUENCE).skip(); // signature
+        offsets[ISSUER] = reader.expect(DERTags.SEQUENCE).getElementStart();
+        offsets[VALIDITY] = reader.skip().expect(DERTags.SEQUENCE).getElementStart();
+        offsets[SUBJECT] = reader.skip().expect(DERTags.SEQUENCE).getElementStart();
+        offsets[SUBJECT_PUBLIC_KEY_INFO] = reader.skip().expect(DERTags.SEQUENCE).getElementStart();
+        reader.skip();
+        offsets[EXTENSIONS] = -1;
+        while (reader.hasNext(tbsEnd)) { // [1] issuerUniqueID, [2] subjectUniqueID, [3] extensions
+            if (reader.next() == DERTags.contextConstructed(3)) {
+                offsets[EXTENSIONS] = reader.getElementStart();
+            }
+            reader.skip();
+        }
+        this.offsets = offsets;
+        return offsets;
+    }
+
+    private ASN1Primitive toASN1Primitive(ByteBuffer encoded) throws IOException {
+        var bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+        return ASN1Primitive.fromByteArray(bytes);
+    }
+
+    private Date toDate(DERReader reader) throws IOException {
+        if (reader.getTag() != DERTags.UTC_TIME && reader.getTag() != DERTags.GENERALIZED_TIME) {
+            throw new IOException("Expected a time at " + reader.getElementStart());
+        }
+        return Time.getInstance(this.toASN1Primitive(reader.getElementSlice())).getDate();
+    }
+}
@@ -1,7 +1,16 @@
 package com.galsie.lib.certificates.certificate;
 
 import com.galsie.lib.certificates.PEMStructureHolder;
+import com.galsie.lib.certificates.asn1.object.AbstractASN1ObjectIdentifier;
 import com.galsie.lib.certificates.csr.SomeCSRHolder;
+import com.galsie.lib.certificates.dn.RDNIndex;
+import com.galsie.lib.certificates.exception.MatterTLVCodecException;
+import com.galsie.lib.certificates.jfr.CertificateCodecEvent;
+import com.galsie.lib.certificates.metrics.IssuanceStage;
+import com.galsie.lib.certificates.tlv.MatterCertificateTLVCodec;
+import com.galsie.lib.certificates.pem.PEMBlock;
+import com.galsie.lib.certificates.pem.PEMWriter;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.bouncycastle.asn1.x509.Certificate;
 import org.bouncycastle.cert.X509CertificateHolder;
@@ -10,8 +19,10 @@ import org.bouncycastle.openssl.PEMParser;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
 import java.security.PublicKey;
 import java.util.Base64;
+import java.util.Optional;
 
 /**
  * Holds an X509v3 Certificate
@@ -22,6 +33,20 @@ import java.util.Base64;
 public class SomeX509v3CertificateHolder extends X509CertificateHolder implements PEMStructureHolder {
 
     private PublicKey publicKey;
+    /**
+     * The DER encoding, made once on first use, see {@link SomeX509v3CertificateHolder#getDEREncoded()}
+     * - Like the RDN indexes, not serialized: a deserialized holder builds them again on first use
+     */
+    @Getter(AccessLevel.NONE)
+    private transient volatile byte[] derEncoded;
+    /**
+     * The indexes of the subject's and the issuer's attributes, built once on first use, see {@link RDNIndex}
+     */
+    @Getter(AccessLevel.NONE)
+    private transient volatile RDNIndex subjectRDNs;
+    @Getter(AccessLevel.NONE)
+    private transient volatile RDNIndex issuerRDNs;
+
     public SomeX509v3CertificateHolder(byte[] bytes) throws IOException {
         super(bytes);
         this.publicKey = SomeCSRHolder.getPublicKeyFromSPKI(this.getSubjectPublicKeyInfo());
@@ -38,17 +63,62 @@ public class SomeX509v3CertificateHolder extends X509CertificateHolder implement
 
     }
 
+    public RDNIndex getSubjectRDNs() {
+        var index = this.subjectRDNs;
+        if (index == null) { // a race only indexes twice
+            index = RDNIndex.of(this.getSubject());
+            this.subjectRDNs = index;
+        }
+        return index;
+    }
+
+    public RDNIndex getIssuerRDNs() {
+        var index = this.issuerRDNs;
+        if (index == null) { // a race only indexes twice
+            index = RDNIndex.of(this.getIssuer());
+            this.issuerRDNs = index;
+        }
+        return index;
+    }
+
+    public Optional<String> getSubjectRDNValueFor(AbstractASN1ObjectIdentifier abstractASN1ObjectIdentifier) {
+        return Optional.ofNullable(this.getSubjectRDNs().getString(abstractASN1ObjectIdentifier));
+    }
+
+    public Optional<String> getIssuerRDNValueFor(AbstractASN1ObjectIdentifier abstractASN1ObjectIdentifier) {
+        return Optional.ofNullable(this.getIssuerRDNs().getString(abstractASN1ObjectIdentifier));
+    }
+
     @Override
     public String getBase64DEREncoded() throws IOException {
-        return Base64.getEncoder().encodeToString(this.getEncoded());
+        return Base64.getEncoder().encodeToString(this.getDEREncoded());
     }
 
     @Override
     public String getPEMEncoded() throws IOException {
-        return "-----BEGIN CERTIFICATE-----\n"
-                + this.getBase64DEREncoded()
-                + "\n"
-                + "-----END CERTIFICATE-----";
+        return PEMWriter.toPEMString(this.getPEMLabel(), this.getDEREncoded());
+    }
+
+    @Override
+    public String getPEMLabel() {
+        return PEMBlock.CERTIFICATE_LABEL;
+    }
+
+    @Override
+    public byte[] getDEREncoded() throws IOException {
+        var encoded = this.derEncoded;
+        if (encoded == null) { // a race only encodes twice
+            var event = CertificateCodecEvent.start();
+            try {
+                encoded = this.getEncoded();
+            } catch (IOException ex) {
+                event.failed(IssuanceStage.DER_ENCODE, ex);
+                throw ex;
+            }
+            event.succeeded(IssuanceStage.DER_ENCODE, PEMBlock.CERTIFICATE_LABEL, encoded.length, 0);
+            this.derEncoded = encoded;
+        }
+        return encoded;
     }
 
     public static SomeX509v3CertificateHolder fromBase64EncodedDER(String base64) throws IOException {
@@ -56,12 +126,45 @@ public class SomeX509v3CertificateHolder extends X509CertificateHolder implement
         return fromDERData(data);
     }
     public static SomeX509v3CertificateHolder fromDERData(byte[] data) throws IOException {
-        return new SomeX509v3CertificateHolder(data);
+        var event = CertificateCodecEvent.start();
+        SomeX509v3CertificateHolder certificateHolder;
+        try {
+            certificateHolder = new SomeX509v3CertificateHolder(data);
+        } catch (IOException | RuntimeException ex) {
+            event.failed(IssuanceStage.DER_DECODE, ex);
+            throw ex;
+        }
+        event.succeeded(IssuanceStage.DER_DECODE, PEMBlock.CERTIFICATE_LABEL, data.length, 0);
+        return certificateHolder;
+    }
+
+    /**
+     * Encodes the certificate in the Matter TLV certificate format, see {@link MatterCertificateTLVCodec}
+     */
+    public byte[] getMatterTLVEncoded() throws MatterTLVCodecException, IOException {
+        return MatterCertificateTLVCodec.encode(this);
+    }
+
+    /**
+     * Decodes a certificate from the Matter TLV certificate format, see {@link MatterCertificateTLVCodec}
+     */
+    public static SomeX509v3CertificateHolder fromMatterTLV(ByteBuffer tlv) throws MatterTLVCodecException, IOException {
+        return MatterCertificateTLVCodec.decode(tlv);
     }
 
     public static SomeX509v3CertificateHolder fromPEMEncoded(String pemEncoded) throws Exception {
-        var baseCertHolder = SomeX509v3CertificateHolder.parseCertificateHolderFromPEM(pemEncoded);
-        return new SomeX509v3CertificateHolder(baseCertHolder);
+        var event = CertificateCodecEvent.start();
+        SomeX509v3CertificateHolder certificateHolder;
+        try {
+            var baseCertHolder = SomeX509v3CertificateHolder.parseCertificateHolderFromPEM(pemEncoded);
+            certificateHolder = new SomeX509v3CertificateHolder(baseCertHolder);
+        } catch (Exception ex) {
+            event.failed(IssuanceStage.PEM_DECODE, ex);
+            throw ex;
+        }
+        int derSize = event.shouldCommit() ? certificateHolder.getDEREncoded().length : 0; // only encoded for a recorded event
+        event.succeeded(IssuanceStage.PEM_DECODE, PEMBlock.CERTIFICATE_LABEL, derSize, pemEncoded.length());
+        return certificateHolder;
     }
 
     private static X509CertificateHolder parseCertificateHolderFromPEM(String pemCertificate) throws Exception {
@@ -1,25 +1,35 @@
 package com.galsie.lib.certificates.certificate;
 
+import com.galsie.lib.certificates.CryptoOperation;
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.jfr.CertificateSigningEvent;
+import com.galsie.lib.certificates.keypair.EntropySource;
 import com.galsie.lib.certificates.keypair.KeyUtils;
+import com.galsie.lib.certificates.metrics.IssuanceMetrics;
+import com.galsie.lib.certificates.metrics.IssuanceStage;
+import com.galsie.lib.certificates.signer.ContentSignerCache;
+import com.galsie.lib.certificates.signer.ContentSignerPool;
 import com.galsie.lib.utils.crypto.coder.Coder;
 import com.galsie.lib.utils.crypto.coder.CodingAlgorithm;
 import com.galsie.lib.utils.crypto.hasher.HashingAlgorithm;
-import lombok.AllArgsConstructor;
+import com.galsie.lib.utils.lang.Nullable;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.bouncycastle.cert.X509CertificateHolder;
 import org.bouncycastle.cert.X509v3CertificateBuilder;
-import org.bouncycastle.openssl.PEMException;
-import org.bouncycastle.operator.ContentSigner;
-import org.bouncycastle.operator.OperatorCreationException;
-import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
 
-@AllArgsConstructor
 @NoArgsConstructor
 @Getter
 @Setter
@@ -27,7 +37,33 @@ public class SomeX509v3CertificateManager {
 
     KeyPair keyPair;
     SomeX509v3CertificateHolder x509CertificateHolder;
+    /**
+     * The randomness of this manager's signatures, or null for the process wide {@link EntropySource#get()}
+     */
+    EntropySource entropySource;
+
+    /**
+     * The signers of this manager's private key, built once and reused by {@link SomeX509v3CertificateManager#signCertificate(X509v3CertificateBuilder, HashingAlgorithm)}
+     * - Created on first use, and dropped when the keypair changes
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile ContentSignerCache contentSignerCache;
 
+    public SomeX509v3CertificateManager(KeyPair keyPair, SomeX509v3CertificateHolder x509CertificateHolder) {
+        this.keyPair = keyPair;
+        this.x509CertificateHolder = x509CertificateHolder;
+    }
+
+    public void setKeyPair(KeyPair keyPair) {
+        this.keyPair = keyPair;
+        this.contentSignerCache = null;
+    }
+
+    public void setEntropySource(@Nullable EntropySource entropySource) {
+        this.entropySource = entropySource;
+        this.contentSignerCache = null;
+    }
 
     public PrivateKey getPrivateKey() {
         return keyPair.getPrivate();
@@ -55,11 +91,107 @@ public class SomeX509v3CertificateManager {
     public String getPEMEncoded() throws IOException{
         return this.getX509CertificateHolder().getPEMEncoded();
     }
-    public SomeX509v3CertificateHolder signCertificate(X509v3CertificateBuilder x509v3CertificateBuilder, HashingAlgorithm hashingAlgorithm) throws OperatorCreationException, PEMException {
-        String signingAlgo = hashingAlgorithm.getAlgorithmIdentifier().replaceAll("-","") + "with" + getPublicKey().getAlgorithm();
-        ContentSigner contentSigner = new JcaContentSignerBuilder(signingAlgo).setProvider("BC").build(getPrivateKey()); // signing with the root's private key
-        var x509CertificateHolder = x509v3CertificateBuilder.build(contentSigner);
-        return new SomeX509v3CertificateHolder(x509CertificateHolder);
+
+    public void writePEM(OutputStream out) throws IOException {
+        this.getX509CertificateHolder().writePEM(out);
+    }
+    /**
+     * Signs a certificate with this manager's private key
+     * - The signer is taken from a per-(hashing algorithm, provider) pool, so steady-state signing does not redo the provider lookup and key init
+     * - Safe to call from many threads
+     *
+     * @param x509v3CertificateBuilder The certificate to sign
+     * @param hashingAlgorithm The hashing algorithm of the signature
+     * @return The signed certificate
+     */
+    public SomeX509v3CertificateHolder signCertificate(X509v3CertificateBuilder x509v3CertificateBuilder, HashingAlgorithm hashingAlgorithm) throws Exception {
+        var event = new CertificateSigningEvent();
+        event.begin();
+        var signerPool = this.getContentSignerPool(hashingAlgorithm);
+        var metrics = IssuanceMetrics.get();
+        long started = metrics.startTimer();
+        X509CertificateHolder x509CertificateHolder;
+        try {
+            x509CertificateHolder = signerPool.withSigner(x509v3CertificateBuilder, X509v3CertificateBuilder::build); // signing with the issuer's private key
+        } catch (Exception ex) {
+            metrics.recordError(IssuanceStage.SIGNING, ex);
+            throw ex;
+        }
+        metrics.recordSince(IssuanceStage.SIGNING, started);
+        var certificateHolder = new SomeX509v3CertificateHolder(x509CertificateHolder);
+        event.commitFor(signerPool.getSignatureAlgorithm(), certificateHolder);
+        return certificateHolder;
+    }
+
+    /**
+     * Signs a batch of certificates with this manager's private key, reusing one signer for the whole batch
+     * - Each certificate is recorded like {@link SomeX509v3CertificateManager#signCertificate(X509v3CertificateBuilder, HashingAlgorithm)} records it: a {@link IssuanceStage#SIGNING} latency and a {@link CertificateSigningEvent}
+     * - A certificate that fails does not fail the batch, its signer is dropped and the rest of the batch gets a new one
+     *
+     * @param x509v3CertificateBuilders The certificates to sign
+     * @param hashingAlgorithm The hashing algorithm of the signatures
+     * @param onFailure Receives the failure of a certificate, and its index in the builders
+     * @return The signed certificates, in the order of the builders, null for the ones that failed
+     */
+    public List<SomeX509v3CertificateHolder> signCertificates(List<X509v3CertificateBuilder> x509v3CertificateBuilders, HashingAlgorithm hashingAlgorithm, ObjIntConsumer<Exception> onFailure) {
+        var metrics = IssuanceMetrics.get();
+        var certificateHolders = new ArrayList<SomeX509v3CertificateHolder>(Collections.nCopies(x509v3CertificateBuilders.size(), null));
+        ContentSignerPool signerPool;
+        try {
+            signerPool = this.getContentSignerPool(hashingAlgorithm);
+        } catch (RuntimeException ex) {
+            for (int index = 0; index < x509v3CertificateBuilders.size(); index++) {
+                metrics.recordError(IssuanceStage.SIGNING, ex);
+                onFailure.accept(ex, index);
+            }
+            return certificateHolders;
+        }
+        int[] next = {0};
+        while (next[0] < x509v3CertificateBuilders.size()) {
+            try {
+                signerPool.withSigner(signer -> {
+                    for (; next[0] < x509v3CertificateBuilders.size(); next[0]++) {
+                        var event = new CertificateSigningEvent();
+                        event.begin();
+                        long started = metrics.startTimer();
+                        var certificateHolder = new SomeX509v3CertificateHolder(x509v3CertificateBuilders.get(next[0]).build(signer));
+                        metrics.recordSince(IssuanceStage.SIGNING, started);
+                        event.commitFor(signerPool.getSignatureAlgorithm(), certificateHolder);
+                        certificateHolders.set(next[0], certificateHolder);
+                    }
+                    return null;
+                });
+            } catch (Exception ex) {
+                metrics.recordError(IssuanceStage.SIGNING, ex);
+                onFailure.accept(ex, next[0]++);
+            }
+        }
+        return certificateHolders;
+    }
+
+    /**
+     * Gets the pool of signers {@link SomeX509v3CertificateManager#signCertificate(X509v3CertificateBuilder, HashingAlgorithm)} signs with
+     * - For issuers that sign many certificates with the same algorithm, and resolve the pool once
+     *
+     * @param hashingAlgorithm The hashing algorithm of the signature
+     * @return The {@link ContentSignerPool}
+     */
+    public ContentSignerPool getContentSignerPool(HashingAlgorithm hashingAlgorithm) {
+        return this.getContentSignerCache().getPool(hashingAlgorithm, SecurityProvider.forOperation(CryptoOperation.SIGNING).getProviderIdentifier());
+    }
+
+    private ContentSignerCache getContentSignerCache() {
+        var cache = this.contentSignerCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = this.contentSignerCache;
+                if (cache == null) {
+                    cache = new ContentSignerCache(this.getPrivateKey(), ContentSignerCache.DEFAULT_POOL_CAPACITY, this.entropySource);
+                    this.contentSignerCache = cache;
+                }
+            }
+        }
+        return cache;
     }
 
     /*
@@ -85,4 +217,11 @@ public class SomeX509v3CertificateManager {
         return new SomeX509v3CertificateManager(keypair, certificateHolder);
     }
 
+    /**
+     * Starts a loader of many managers in parallel, see {@link BulkCertificateManagerLoader}
+     */
+    public static BulkCertificateManagerLoader bulkLoader() {
+        return new BulkCertificateManagerLoader();
+    }
+
 }
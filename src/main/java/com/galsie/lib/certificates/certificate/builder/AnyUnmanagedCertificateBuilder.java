@@ -1,5 +1,6 @@
 package com.galsie.lib.certificates.certificate.builder;
 
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
 
 /**
  * Builds certificates that are signed by a {@link com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager}
@@ -10,5 +11,15 @@ public class AnyUnmanagedCertificateBuilder extends UnmanagedCertificateBuilder<
         return new AnyUnmanagedCertificateBuilder();
     }
 
+    /**
+     * Starts a batch issuance, which builds and signs a certificate for many CSRs in parallel
+     *
+     * @param x509V3CertificateManager The issuer signing every certificate of the batch
+     * @return The {@link BatchCertificateIssuer}
+     */
+    public static BatchCertificateIssuer batchSignedBy(SomeX509v3CertificateManager x509V3CertificateManager){
+        return new BatchCertificateIssuer(x509V3CertificateManager);
+    }
+
 
 }
@@ -0,0 +1,194 @@
+package com.galsie.lib.certificates.certificate.builder;
+
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
+import com.galsie.lib.certificates.certificate.profile.CertificateProfile;
+import com.galsie.lib.certificates.certificate.profile.ProfiledCertificateIssuer;
+import com.galsie.lib.certificates.csr.SomeCSRHolder;
+import com.galsie.lib.certificates.serial.SerialNumberAllocator;
+import com.galsie.lib.utils.functional.ThrowableConsumer;
+import com.galsie.lib.utils.functional.ThrowableSupplier;
+import com.galsie.lib.utils.lang.Nullable;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Issues certificates for a batch of CSRs against one issuer, in parallel
+ * - Each CSR goes through the same chain as a single issuance: {@link UnmanagedCertificateBuilder#forCertificateSigningRequest(SomeCSRHolder, boolean)} (which verifies the CSR signature), the template, then {@link UnmanagedCertificateBuilder#buildSignedBy(SomeX509v3CertificateManager)}
+ * - Items run on the configured {@link Executor}, by default the common {@link ForkJoinPool}
+ * - A failing item does not abort the batch, its {@link BatchIssuanceResult} holds the exception instead
+ *
+ * Example:
+ *  AnyUnmanagedCertificateBuilder.batchSignedBy(icac)
+ *      .setTemplate(builder -> builder.setValidFrom(now).setValidTo(expiry))
+ *      .setSerialNumberSupplier(serials::next)
+ *      .issue(csrHolders);
+ */
+public class BatchCertificateIssuer {
+
+    private final SomeX509v3CertificateManager issuer;
+
+    /**
+     * Applied to the builder of every item, after the CSR was set
+     * - Sets the shared parts of the certificates: validity, extensions, hashing algorithm...
+     * - Called concurrently, so it must not mutate shared state
+     */
+    private ThrowableConsumer<AnyUnmanagedCertificateBuilder> template = (builder) -> {};
+
+    /**
+     * Supplies the serial number of each item, if null (and the template does not set it) the serial number is taken from the allocator
+     * - Called concurrently, so it must be thread safe
+     */
+    @Nullable
+    private ThrowableSupplier<byte[]> serialNumberSupplier;
+
+    /**
+     * Allocates the serial numbers when no supplier is set, if null {@link SerialNumberAllocator#getDefault()} is used
+     */
+    @Nullable
+    private SerialNumberAllocator serialNumberAllocator;
+
+    private boolean ignoreRequestedExtensions = true;
+
+    /**
+     * When set, items are issued through a {@link ProfiledCertificateIssuer} bound once for the batch, instead of a builder per item
+     */
+    @Nullable
+    private CertificateProfile profile;
+    private Date validFrom;
+    @Nullable
+    private Date validTo;
+
+    private Executor executor = ForkJoinPool.commonPool();
+
+    BatchCertificateIssuer(SomeX509v3CertificateManager issuer) {
+        this.issuer = issuer;
+    }
+
+    public BatchCertificateIssuer setTemplate(ThrowableConsumer<AnyUnmanagedCertificateBuilder> template) {
+        this.template = template;
+        return this;
+    }
+
+    public BatchCertificateIssuer setSerialNumberSupplier(@Nullable ThrowableSupplier<byte[]> serialNumberSupplier) {
+        this.serialNumberSupplier = serialNumberSupplier;
+        return this;
+    }
+
+    public BatchCertificateIssuer setSerialNumberAllocator(@Nullable SerialNumberAllocator serialNumberAllocator) {
+        this.serialNumberAllocator = serialNumberAllocator;
+        return this;
+    }
+
+    /**
+     * Issues every item with a profile, the constant work (extensions, issuer name and key identifier, signer lookup) is then done once per batch
+     * - The template is not used, the serial numbers come from the supplier or else the allocator
+     * - The CSR signatures are still verified, their requested extensions are ignored
+     *
+     * @param profile The profile, eg: {@link CertificateProfile#matterNOC()}
+     * @param validFrom The 'not-before' of every certificate
+     * @param validTo The 'not-after' of every certificate, null for no well defined expiry
+     */
+    public BatchCertificateIssuer setProfile(CertificateProfile profile, Date validFrom, @Nullable Date validTo) {
+        this.profile = profile;
+        this.validFrom = validFrom;
+        this.validTo = validTo;
+        return this;
+    }
+
+    /**
+     * @param ignoreRequestedExtensions See {@link UnmanagedCertificateBuilder#forCertificateSigningRequest(SomeCSRHolder, boolean)}
+     */
+    public BatchCertificateIssuer setIgnoreRequestedExtensions(boolean ignoreRequestedExtensions) {
+        this.ignoreRequestedExtensions = ignoreRequestedExtensions;
+        return this;
+    }
+
+    /**
+     * Sets the executor the items run on
+     * - Use an executor sized to the number of cores, signing is CPU bound
+     *
+     * @param executor The executor, or a {@link ForkJoinPool}
+     */
+    public BatchCertificateIssuer setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Issues a certificate for each CSR, and waits until the whole batch is done
+     *
+     * @param csrHolders The CSRs
+     * @return One result per CSR, in the iteration order of the collection
+     */
+    public List<BatchIssuanceResult> issue(Collection<SomeCSRHolder> csrHolders) {
+        return this.issueAsync(csrHolders).join();
+    }
+
+    /**
+     * Issues a certificate for each CSR, without waiting
+     *
+     * @param csrHolders The CSRs
+     * @return A future completed with one result per CSR (in the iteration order of the collection) once the whole batch is done, it never completes exceptionally
+     */
+    public CompletableFuture<List<BatchIssuanceResult>> issueAsync(Collection<SomeCSRHolder> csrHolders) {
+        ProfiledCertificateIssuer profiledIssuer;
+        try {
+            profiledIssuer = profile == null ? null : this.bindProfile();
+        } catch (Exception ex) {
+            return CompletableFuture.completedFuture(csrHolders.stream().map((csrHolder) -> BatchIssuanceResult.ofFailure(csrHolder, ex)).toList());
+        }
+        var results = new BatchIssuanceResult[csrHolders.size()];
+        var futures = new ArrayList<CompletableFuture<Void>>(csrHolders.size());
+        int index = 0;
+        for (var csrHolder : csrHolders) {
+            final int itemIndex = index++;
+            try {
+                futures.add(CompletableFuture.runAsync(() -> results[itemIndex] = profiledIssuer == null ? this.issueOne(csrHolder) : this.issueOne(profiledIssuer, csrHolder), executor));
+            } catch (RejectedExecutionException ex) { // eg: a shut down executor, the item fails instead of the whole call
+                results[itemIndex] = BatchIssuanceResult.ofFailure(csrHolder, ex);
+            }
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply((ignored) -> Arrays.asList(results));
+    }
+
+    private ProfiledCertificateIssuer bindProfile() throws Exception {
+        return profile.issuedBy(issuer);
+    }
+
+    private BatchIssuanceResult issueOne(ProfiledCertificateIssuer profiledIssuer, SomeCSRHolder csrHolder) {
+        try {
+            // Supplied serial numbers take the same form as CertificateBuilderCommonImpl#setSerialNumber: trimmed or zero extended to 20 octets, unsigned
+            var serialNumber = serialNumberSupplier == null
+                    ? (serialNumberAllocator == null ? SerialNumberAllocator.getDefault() : serialNumberAllocator).allocate()
+                    : new BigInteger(1, Arrays.copyOf(serialNumberSupplier.supply(), 20));
+            return BatchIssuanceResult.ofSuccess(csrHolder, profiledIssuer.issue(serialNumber, validFrom, validTo, csrHolder));
+        } catch (Exception ex) {
+            return BatchIssuanceResult.ofFailure(csrHolder, ex);
+        }
+    }
+
+    private BatchIssuanceResult issueOne(SomeCSRHolder csrHolder) {
+        try {
+            var builder = AnyUnmanagedCertificateBuilder.start().forCertificateSigningRequest(csrHolder, ignoreRequestedExtensions);
+            if (serialNumberSupplier != null) {
+                builder.setSerialNumber(serialNumberSupplier.supply());
+            } else {
+                builder.setSerialNumberAllocator(serialNumberAllocator);
+            }
+            template.consume(builder);
+            return BatchIssuanceResult.ofSuccess(csrHolder, builder.buildSignedBy(issuer));
+        } catch (Exception ex) {
+            return BatchIssuanceResult.ofFailure(csrHolder, ex);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.galsie.lib.certificates.certificate.builder;
+
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.csr.SomeCSRHolder;
+import com.galsie.lib.utils.lang.Nullable;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The result of issuing a certificate for one CSR of a batch, see {@link BatchCertificateIssuer}
+ * - Holds either the issued certificate, or the exception that failed this item
+ */
+@AllArgsConstructor
+@Getter
+public class BatchIssuanceResult {
+
+    /**
+     * The CSR this result is for
+     */
+    private SomeCSRHolder csrHolder;
+
+    /**
+     * The issued certificate, null if the item failed
+     */
+    @Nullable
+    private SomeX509v3CertificateHolder certificateHolder;
+
+    /**
+     * The exception which failed this item, null if the item succeeded
+     */
+    @Nullable
+    private Exception exception;
+
+    public boolean isSuccess() {
+        return this.exception == null;
+    }
+
+    public static BatchIssuanceResult ofSuccess(SomeCSRHolder csrHolder, SomeX509v3CertificateHolder certificateHolder) {
+        return new BatchIssuanceResult(csrHolder, certificateHolder, null);
+    }
+
+    public static BatchIssuanceResult ofFailure(SomeCSRHolder csrHolder, Exception exception) {
+        return new BatchIssuanceResult(csrHolder, null, exception);
+    }
+}
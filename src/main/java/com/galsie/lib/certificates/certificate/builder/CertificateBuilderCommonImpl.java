@@ -1,26 +1,40 @@
 package com.galsie.lib.certificates.certificate.builder;
 
 import com.galsie.lib.certificates.asn1.object.MatterASN1ObjectIdentifier;
+import com.galsie.lib.certificates.certificate.profile.CertificateProfile;
 import com.galsie.lib.certificates.dn.InternalDNBuilder;
 import com.galsie.lib.certificates.exception.FabricIdNotSupportedException;
 import com.galsie.lib.certificates.exception.MaxSupportedRDNCountExceededException;
 import com.galsie.lib.certificates.extension.CertificateExtensionsBuilder;
+import com.galsie.lib.certificates.jfr.CertificateTBSBuildEvent;
+import com.galsie.lib.certificates.metrics.IssuanceMetrics;
+import com.galsie.lib.certificates.metrics.IssuanceStage;
+import com.galsie.lib.certificates.serial.SerialNumberAllocator;
 import com.galsie.lib.utils.DateUtils;
 import com.galsie.lib.utils.crypto.hasher.HashingAlgorithm;
 import com.galsie.lib.utils.lang.NotNull;
 import com.galsie.lib.utils.lang.Nullable;
 import com.galsie.lib.utils.pair.Pair;
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x509.Extension;
 import org.bouncycastle.cert.X509v3CertificateBuilder;
 import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
 
+import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.security.PublicKey;
 import java.util.Date;
 
 public class CertificateBuilderCommonImpl<T extends CertificateBuilder> implements CertificateBuilder {
 
+    /**
+     * The X.509/RFC 5280 special time value 99991231235959Z, the 'not-after' of a certificate with no well defined expiry
+     * - Shared, it must not be modified
+     */
+    public static final Date NO_WELL_DEFINED_EXPIRY = DateUtils.timezoneFormatted("99991231235959Z", "yyyyMMddHHmmssX");
+
     /**
      * The Subject Name field of an X.509 certificate holds a Distinguished name (DN.
      */
@@ -35,10 +49,17 @@ public class CertificateBuilderCommonImpl<T extends CertificateBuilder> implemen
     /**
      * Corresponds to the 'serial-num' tag of the certificate
      * - Can use serial numbers up to 20 octets in length
+     * - If null, the serial number is taken from the {@link CertificateBuilderCommonImpl#serialNumberAllocator} when building
      */
-    @NotNull
+    @Nullable
     protected byte[] serialNumber; // A 20 octet string
 
+    /**
+     * Allocates the serial number when none was set, if null {@link SerialNumberAllocator#getDefault()} is used
+     */
+    @Nullable
+    protected SerialNumberAllocator serialNumberAllocator;
+
     /**
      * Corresponds to the 'not-before' tag of the certificate
      * - The certificate would not be valid before that time
@@ -54,6 +75,12 @@ public class CertificateBuilderCommonImpl<T extends CertificateBuilder> implemen
     @Nullable
     protected Date validTo;
 
+    /**
+     * The profile whose constant extensions are added before the ones of the {@link CertificateBuilderCommonImpl#extensions()} builder
+     */
+    @Nullable
+    protected CertificateProfile profile;
+
     /**
      * The 'Subject' field of the certificate holds a Distinguished Name
      * - Through this method, you access the Subject Distinguished name Builder
@@ -74,6 +101,19 @@ public class CertificateBuilderCommonImpl<T extends CertificateBuilder> implemen
         return this.extensionsBuilder;
     }
 
+    /**
+     * Applies a profile: its pre-encoded extensions and key identifiers are added to the certificate, and its hashing algorithm is used for signing
+     * - The extensions builder must not add the extensions the profile already holds
+     * - To issue many certificates of a profile from one issuer, prefer {@link CertificateProfile#issuedBy(com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager)}
+     *
+     * @param profile The profile, eg: {@link CertificateProfile#matterRCAC()}
+     */
+    public T applyProfile(CertificateProfile profile) {
+        this.profile = profile;
+        this.signingHashingAlgorithm = profile.getSigningHashingAlgorithm();
+        return (T) this;
+    }
+
     /**
      * Sets the Hashing algorithm for the signing of the certificate
      *
@@ -83,6 +123,10 @@ public class CertificateBuilderCommonImpl<T extends CertificateBuilder> implemen
         this.signingHashingAlgorithm = hashingAlgorithm;
         return (T) this;
     }
+
+    public HashingAlgorithm getSigningHashingAlgorithm() {
+        return this.signingHashingAlgorithm;
+    }
     /**
      * Sets the 'Serial Number' of the Certificate
      * - Must be a maximum of 20 bytes
@@ -116,6 +160,27 @@ public class CertificateBuilderCommonImpl<T extends CertificateBuilder> implemen
         return (T) this.setSerialNumber(serialNumber.getBytes(StandardCharsets.UTF_8));
     }
 
+    /**
+     * Sets the allocator the 'Serial Number' is taken from, when no serial number is set
+     * - Share one allocator between the builders of an issuing node, eg: a {@link com.galsie.lib.certificates.serial.NodePrefixedSerialNumberAllocator}
+     *
+     * @param serialNumberAllocator The allocator, if null {@link SerialNumberAllocator#getDefault()} is used
+     */
+    public T setSerialNumberAllocator(@Nullable SerialNumberAllocator serialNumberAllocator) {
+        this.serialNumberAllocator = serialNumberAllocator;
+        return (T) this;
+    }
+
+    /**
+     * @return The serial number that was set, or else a new one from the allocator
+     */
+    protected BigInteger getSerialNumber() {
+        if (this.serialNumber != null) {
+            return new BigInteger(1, this.serialNumber);
+        }
+        return (this.serialNumberAllocator == null ? SerialNumberAllocator.getDefault() : this.serialNumberAllocator).allocate();
+    }
+
     /**
      * Sets the 'Not Before' field of the certificate, this sets the date from which the certificate is valid from
      *
@@ -138,10 +203,80 @@ public class CertificateBuilderCommonImpl<T extends CertificateBuilder> implemen
     }
 
     protected Date getValidTo(){
-        return this.validTo == null ? DateUtils.timezoneFormatted("99991231235959Z", "yyyyMMddHHmmssX"): this.validTo;
+        return this.validTo == null ? NO_WELL_DEFINED_EXPIRY : this.validTo;
+    }
+
+    /**
+     * Builds the to-be-signed part of the certificate: the subject name, the fields and the extensions
+     *
+     * @param issuerName The issuer's subject name, or null if the certificate is self-signed
+     * @param issuerKey The issuer's public key, for the authority key identifier
+     * @param subjectKey The certificate's public key
+     * @return The certificate builder, ready to be signed
+     */
+    protected X509v3CertificateBuilder buildTBS(@Nullable X500Name issuerName, PublicKey issuerKey, PublicKey subjectKey) throws Exception {
+        var event = new CertificateTBSBuildEvent();
+        event.begin();
+        X500Name subjectName = this.buildSubjectName();
+        BigInteger serialNumber = this.getSerialNumber();
+        X509v3CertificateBuilder certBuilder = new JcaX509v3CertificateBuilder(
+                issuerName == null ? subjectName : issuerName,
+                serialNumber,
+                this.validFrom,
+                this.getValidTo(),
+                subjectName,
+                subjectKey
+        );
+        this.auxAddExtensions(certBuilder, issuerKey, subjectKey);
+        if (event.shouldCommit()) {
+            event.issuerSubjectHash = (issuerName == null ? subjectName : issuerName).hashCode();
+            event.serialNumber = serialNumber.toString(16);
+            event.extensionCount = this.extensions().getExtensions().size() + this.extensions().getDelayedExtensions().size() + this.getProfileExtensionCount();
+            event.profile = this.profile == null ? null : this.profile.getName();
+            event.commit();
+        }
+        return certBuilder;
+    }
+
+    private int getProfileExtensionCount() {
+        if (this.profile == null) {
+            return 0;
+        }
+        return this.profile.getExtensions().size() + (this.profile.isWithSubjectKeyIdentifier() ? 1 : 0) + (this.profile.isWithAuthorityKeyIdentifier() ? 1 : 0);
     }
 
     protected void auxAddExtensions(X509v3CertificateBuilder certBuilder, PublicKey issuerKey, PublicKey subjectKey) throws Exception{
+        var metrics = IssuanceMetrics.get();
+        long started = metrics.startTimer();
+        try {
+            this.doAddExtensions(certBuilder, issuerKey, subjectKey);
+        } catch (Exception ex) {
+            metrics.recordError(IssuanceStage.EXTENSION_ENCODING, ex);
+            throw ex;
+        }
+        metrics.recordSince(IssuanceStage.EXTENSION_ENCODING, started);
+    }
+
+    /**
+     * Builds the subject name from the {@link CertificateBuilderCommonImpl#subjectDN()} builder
+     */
+    protected X500Name buildSubjectName() throws Exception {
+        return this.subjectDNBuilder.build();
+    }
+
+    private void doAddExtensions(X509v3CertificateBuilder certBuilder, PublicKey issuerKey, PublicKey subjectKey) throws Exception{
+        if (this.profile != null) {
+            for (Extension extension : this.profile.getExtensions()) {
+                certBuilder.addExtension(extension);
+            }
+            var extUtils = new JcaX509ExtensionUtils();
+            if (this.profile.isWithSubjectKeyIdentifier()) {
+                certBuilder.addExtension(Extension.subjectKeyIdentifier, false, extUtils.createSubjectKeyIdentifier(subjectKey));
+            }
+            if (this.profile.isWithAuthorityKeyIdentifier()) {
+                certBuilder.addExtension(Extension.authorityKeyIdentifier, false, extUtils.createAuthorityKeyIdentifier(issuerKey));
+            }
+        }
         for (Extension extension : this.extensions().getExtensions()) {
             certBuilder.addExtension(extension);
         }
@@ -150,13 +285,14 @@ public class CertificateBuilderCommonImpl<T extends CertificateBuilder> implemen
             var extensionOID = delayedExtension.getFirst();
             var isCritical = delayedExtension.getSecond();
 
+            // Added to the certificate builder directly, the extensions were already copied over from the extensions builder above
             if (extensionOID.equals(Extension.subjectKeyIdentifier)){
                 var extUtils = new JcaX509ExtensionUtils();
                 var subjectKeyIdentifier = extUtils.createSubjectKeyIdentifier(subjectKey);  // publicKey is the public key for the certificate
-                extensionsBuilder.addExtension(extensionOID, isCritical, subjectKeyIdentifier);
+                certBuilder.addExtension(extensionOID, isCritical, subjectKeyIdentifier);
             }else if (extensionOID.equals(Extension.authorityKeyIdentifier)){
                 JcaX509ExtensionUtils extUtils = new JcaX509ExtensionUtils();
-                extUtils.createAuthorityKeyIdentifier(issuerKey);
+                certBuilder.addExtension(extensionOID, isCritical, extUtils.createAuthorityKeyIdentifier(issuerKey));
             }else{
                 throw new Exception("Not Supported");
             }
@@ -188,7 +324,7 @@ public class CertificateBuilderCommonImpl<T extends CertificateBuilder> implemen
      * @param id A unique identifier (within Galsie) for the RCAC
      */
     public T setRCACIdRDN(Long id) throws MaxSupportedRDNCountExceededException {
-        return (T) this.subjectDN().addRDN(MatterASN1ObjectIdentifier.MATTER_RCAC_ID, String.valueOf(id)).done();
+        return (T) this.subjectDN().addMatterIdRDN(MatterASN1ObjectIdentifier.MATTER_RCAC_ID, id).done();
     }
 
     /**
@@ -213,7 +349,7 @@ public class CertificateBuilderCommonImpl<T extends CertificateBuilder> implemen
         if (fabricId == 0){
             throw new FabricIdNotSupportedException(fabricId);
         }
-        return (T) this.subjectDN().addRDN(MatterASN1ObjectIdentifier.MATTER_FABRIC_ID, Long.toUnsignedString(fabricId)).done();
+        return (T) this.subjectDN().addMatterIdRDN(MatterASN1ObjectIdentifier.MATTER_FABRIC_ID, fabricId).done();
     }
 
 
@@ -233,7 +369,7 @@ public class CertificateBuilderCommonImpl<T extends CertificateBuilder> implemen
      * @param icacId the id of the interemdiate certificate authority certificate
      */
     public T setIcacIdRDN(Long icacId) throws MaxSupportedRDNCountExceededException {
-        return (T) this.subjectDN().addRDN(MatterASN1ObjectIdentifier.MATTER_ICAC_ID, Long.toUnsignedString(icacId)).done();
+        return (T) this.subjectDN().addMatterIdRDN(MatterASN1ObjectIdentifier.MATTER_ICAC_ID, icacId).done();
 
     }
 }
@@ -3,18 +3,13 @@ package com.galsie.lib.certificates.certificate.builder;
 import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
 import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
 import com.galsie.lib.certificates.keypair.InternalKeypairBuilder;
-import com.galsie.lib.utils.crypto.hasher.HashingAlgorithm;
+import com.galsie.lib.certificates.metrics.IssuanceMetrics;
+import com.galsie.lib.certificates.metrics.IssuanceStage;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.cert.CertIOException;
 import org.bouncycastle.cert.X509v3CertificateBuilder;
-import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
-import org.bouncycastle.jce.ECNamedCurveTable;
-import org.bouncycastle.jce.spec.ECNamedCurveParameterSpec;
-import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.OperatorCreationException;
-import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 
-import java.math.BigInteger;
 import java.security.*;
 import java.util.Date;
 
@@ -59,8 +54,10 @@ public abstract class ManagedCertificateBuilder<T extends CertificateBuilder> ex
 
 
     /**
-     * Generates a KeyPair using the ECDSA algorithm with the secp256r1 curve.
-     * - This requirement is based on matters certificate requirements.
+     * Generates the KeyPair through the {@link ManagedCertificateBuilder#keypair()} builder
+     * - Defaults to the ECDSA algorithm with the secp256r1 curve, this requirement is based on matters certificate requirements.
+     * - If a {@link com.galsie.lib.certificates.keypair.KeypairPool} was started for the algorithm, the keypair is taken from the pool
+     * - The built manager signs with the same {@link com.galsie.lib.certificates.keypair.EntropySource} as its keypair was generated with
      *
      * @return The generated keyPair
      * @throws NoSuchAlgorithmException           if the ECDSA algorithm wasn't found for some reason
@@ -68,11 +65,7 @@ public abstract class ManagedCertificateBuilder<T extends CertificateBuilder> ex
      * @throws InvalidAlgorithmParameterException If the Elliptic curve specified 'secp256r1' wasn't found
      */
     protected KeyPair generateKeypair() throws Exception {
-        this.keypairBuilder.build();
-        ECNamedCurveParameterSpec ecSpec = ECNamedCurveTable.getParameterSpec("secp256r1");
-        KeyPairGenerator g = KeyPairGenerator.getInstance("ECDSA", "BC");
-        g.initialize(ecSpec, new SecureRandom());
-        return g.generateKeyPair();
+        return this.keypairBuilder.build();
     }
 
 
@@ -94,48 +87,58 @@ public abstract class ManagedCertificateBuilder<T extends CertificateBuilder> ex
      * @throws OperatorCreationException          If the certificate signing failed
      */
     public SomeX509v3CertificateManager buildAsSelfSigned() throws Exception {
+        var metrics = IssuanceMetrics.get();
+        long started = metrics.startTimer();
+        SomeX509v3CertificateManager certificateManager;
+        try {
+            certificateManager = this.doBuildAsSelfSigned();
+        } catch (Exception ex) {
+            metrics.recordError(IssuanceStage.CERTIFICATE_BUILD, ex);
+            throw ex;
+        }
+        metrics.recordSince(IssuanceStage.CERTIFICATE_BUILD, started);
+        return certificateManager;
+    }
+
+    public SomeX509v3CertificateManager buildSignedBy(SomeX509v3CertificateManager x509V3CertificateManager) throws Exception {
+        var metrics = IssuanceMetrics.get();
+        long started = metrics.startTimer();
+        SomeX509v3CertificateManager certificateManager;
+        try {
+            certificateManager = this.doBuildSignedBy(x509V3CertificateManager);
+        } catch (Exception ex) {
+            metrics.recordError(IssuanceStage.CERTIFICATE_BUILD, ex);
+            throw ex;
+        }
+        metrics.recordSince(IssuanceStage.CERTIFICATE_BUILD, started);
+        return certificateManager;
+    }
+
+    private SomeX509v3CertificateManager doBuildAsSelfSigned() throws Exception {
         KeyPair keyPair = this.generateKeypair();
         PublicKey publicKey = keyPair.getPublic();
-        PrivateKey privateKey = keyPair.getPrivate();
 
-        X500Name subjectName = this.subjectDNBuilder.getDistinguishedNameBuilder().build();
-        X500Name issuerName = subjectName; // Self signed
-        // Build the certificate
-        X509v3CertificateBuilder certBuilder = new JcaX509v3CertificateBuilder(
-                issuerName,
-                new BigInteger(1, this.serialNumber),
-                this.validFrom,
-                this.getValidTo(),
-                subjectName,
-                publicKey
-        );
-        this.auxAddExtensions(certBuilder, publicKey, publicKey);
-
-        String signingAlgo = signingHashingAlgorithm.getAlgorithmIdentifier().replaceAll("-","") + "with" + publicKey.getAlgorithm();
-        ContentSigner signer = new JcaContentSignerBuilder(signingAlgo).setProvider("BC").build(privateKey);
-        SomeX509v3CertificateHolder certificateHolder = new SomeX509v3CertificateHolder(certBuilder.build(signer));
-        return new SomeX509v3CertificateManager(keyPair, certificateHolder);
+        // Build the certificate, self signed: the issuer is the subject
+        X509v3CertificateBuilder certBuilder = this.buildTBS(null, publicKey, publicKey);
+
+        // The manager signs its own certificate, through the same signer cache used when it later issues certificates
+        var certificateManager = new SomeX509v3CertificateManager(keyPair, null);
+        certificateManager.setEntropySource(this.keypairBuilder.getEntropySource());
+        certificateManager.setX509CertificateHolder(certificateManager.signCertificate(certBuilder, this.signingHashingAlgorithm));
+        return certificateManager;
     }
 
-    public SomeX509v3CertificateManager buildSignedBy(SomeX509v3CertificateManager x509V3CertificateManager) throws Exception {
+    private SomeX509v3CertificateManager doBuildSignedBy(SomeX509v3CertificateManager x509V3CertificateManager) throws Exception {
         KeyPair keyPair = this.generateKeypair();
         PublicKey publicKey = keyPair.getPublic();
 
-        X500Name subjectName = this.subjectDNBuilder.getDistinguishedNameBuilder().build();
         X500Name issuerName = x509V3CertificateManager.getX509CertificateHolder().getSubject(); // The isser of this certificate is its signer
         // Build the certificate
-        X509v3CertificateBuilder certBuilder = new JcaX509v3CertificateBuilder(
-                issuerName,
-                new BigInteger(1, this.serialNumber),
-                this.validFrom,
-                this.getValidTo(),
-                subjectName,
-                publicKey
-        );
-
-        this.auxAddExtensions(certBuilder, x509V3CertificateManager.getPublicKey(), publicKey);
-        SomeX509v3CertificateHolder certificateHolder = x509V3CertificateManager.signCertificate(certBuilder, HashingAlgorithm.SHA256);
-        return new SomeX509v3CertificateManager(keyPair, certificateHolder);
+        X509v3CertificateBuilder certBuilder = this.buildTBS(issuerName, x509V3CertificateManager.getPublicKey(), publicKey);
+        SomeX509v3CertificateHolder certificateHolder = x509V3CertificateManager.signCertificate(certBuilder, this.signingHashingAlgorithm);
+        var certificateManager = new SomeX509v3CertificateManager(keyPair, certificateHolder);
+        certificateManager.setEntropySource(this.keypairBuilder.getEntropySource());
+        return certificateManager;
     }
 
 }
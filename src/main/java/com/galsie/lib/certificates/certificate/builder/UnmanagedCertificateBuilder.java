@@ -3,12 +3,12 @@ package com.galsie.lib.certificates.certificate.builder;
 import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
 import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
 import com.galsie.lib.certificates.csr.SomeCSRHolder;
+import com.galsie.lib.certificates.metrics.IssuanceMetrics;
+import com.galsie.lib.certificates.metrics.IssuanceStage;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.cert.X509v3CertificateBuilder;
-import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
 import org.bouncycastle.pkcs.PKCS10CertificationRequest;
 
-import java.math.BigInteger;
 import java.security.PublicKey;
 
 public abstract class UnmanagedCertificateBuilder<T extends CertificateBuilder> extends CertificateBuilderCommonImpl<T>{
@@ -26,8 +26,19 @@ public abstract class UnmanagedCertificateBuilder<T extends CertificateBuilder>
      * @param ignoreRequestedExtensions When true, the requested extensions of a CSR are ignored. When false, an exception is thrown since no system exists for accounting for them yet
      */
     public T forCertificateSigningRequest(SomeCSRHolder someCSRHolder, boolean ignoreRequestedExtensions) throws Exception {
-        this.forCertificateSigningRequest(someCSRHolder.getPkcs10CertificationRequest(), ignoreRequestedExtensions);
-        return (T) this;
+        // The holder already decoded the public key, so it is neither decoded again for the signature nor for the certificate
+        if (!someCSRHolder.isSignatureValid()){
+            throw new Exception("Invalid Signature.");
+        }
+        return this.forVerifiedCertificationRequest(someCSRHolder.getPkcs10CertificationRequest(), someCSRHolder.getPublicKey(), ignoreRequestedExtensions);
+    }
+
+    /**
+     * Same as {@link UnmanagedCertificateBuilder#forCertificateSigningRequest(SomeCSRHolder, boolean)}, for a CSR whose signature the caller already verified
+     * - eg: by {@link com.galsie.lib.certificates.pipeline.CSRPipeline}, which verifies in an earlier stage
+     */
+    public T forVerifiedCertificateSigningRequest(SomeCSRHolder someCSRHolder, boolean ignoreRequestedExtensions) throws Exception {
+        return this.forVerifiedCertificationRequest(someCSRHolder.getPkcs10CertificationRequest(), someCSRHolder.getPublicKey(), ignoreRequestedExtensions);
     }
 
     /**
@@ -40,9 +51,12 @@ public abstract class UnmanagedCertificateBuilder<T extends CertificateBuilder>
         if (!SomeCSRHolder.isSignatureValid(certificationRequest)){
             throw new Exception("Invalid Signature.");
         }
-        var x500Name = certificationRequest.getSubject();
         var publicKey = SomeCSRHolder.getPublicKeyFromSPKI(certificationRequest.getSubjectPublicKeyInfo());
+        return this.forVerifiedCertificationRequest(certificationRequest, publicKey, ignoreRequestedExtensions);
+    }
 
+    private T forVerifiedCertificationRequest(PKCS10CertificationRequest certificationRequest, PublicKey publicKey, boolean ignoreRequestedExtensions) throws Exception {
+        var x500Name = certificationRequest.getSubject();
         this.subjectDN().getDistinguishedNameBuilder().addContentsOfX500Name(x500Name);
         this.publicKey = publicKey;
         if (!ignoreRequestedExtensions) {
@@ -78,21 +92,34 @@ public abstract class UnmanagedCertificateBuilder<T extends CertificateBuilder>
     }
 
     public SomeX509v3CertificateHolder buildSignedBy(SomeX509v3CertificateManager x509V3CertificateManager) throws Exception {
+        var metrics = IssuanceMetrics.get();
+        long started = metrics.startTimer();
+        SomeX509v3CertificateHolder certificateHolder;
+        try {
+            certificateHolder = this.doBuildSignedBy(x509V3CertificateManager);
+        } catch (Exception ex) {
+            metrics.recordError(IssuanceStage.CERTIFICATE_BUILD, ex);
+            throw ex;
+        }
+        metrics.recordSince(IssuanceStage.CERTIFICATE_BUILD, started);
+        return certificateHolder;
+    }
+
+    private SomeX509v3CertificateHolder doBuildSignedBy(SomeX509v3CertificateManager x509V3CertificateManager) throws Exception {
+        return x509V3CertificateManager.signCertificate(this.buildTBSSignedBy(x509V3CertificateManager), this.signingHashingAlgorithm);
+    }
+
+    /**
+     * Builds the certificate to be signed by the manager, without signing it
+     * - For callers that sign many certificates with one signer, see {@link com.galsie.lib.certificates.signer.ContentSignerPool#withSigner}
+     * - Sign it with {@link UnmanagedCertificateBuilder#getSigningHashingAlgorithm()}
+     */
+    public X509v3CertificateBuilder buildTBSSignedBy(SomeX509v3CertificateManager x509V3CertificateManager) throws Exception {
         PublicKey publicKey = this.publicKey;
 
-        X500Name subjectName = this.subjectDNBuilder.getDistinguishedNameBuilder().build();
         X500Name issuerName = x509V3CertificateManager.getX509CertificateHolder().getSubject(); // The isser of this certificate is its signer
         // Build the certificate
-        X509v3CertificateBuilder certBuilder = new JcaX509v3CertificateBuilder(
-                issuerName,
-                new BigInteger(1, this.serialNumber),
-                this.validFrom,
-                this.getValidTo(),
-                subjectName,
-                publicKey
-        );
-        this.auxAddExtensions(certBuilder, x509V3CertificateManager.getPublicKey(), publicKey);
-        return x509V3CertificateManager.signCertificate(certBuilder, this.signingHashingAlgorithm);
+        return this.buildTBS(issuerName, x509V3CertificateManager.getPublicKey(), publicKey);
     }
 
 }
@@ -0,0 +1,220 @@
+package com.galsie.lib.certificates.certificate.profile;
+
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
+import com.galsie.lib.utils.crypto.hasher.HashingAlgorithm;
+import lombok.Getter;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.asn1.x509.KeyUsage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The constant parts of a kind of certificate, encoded once
+ * - Holds the extensions that are the same for every certificate of the kind (basic-constraints, key-usage, extended-key-usage...) as encoded {@link Extension}s
+ * - Holds whether the subject and authority key identifiers are added, those depend on the subject's and the issuer's keys
+ * - Immutable, safe to share between threads and issuances
+ *
+ * Usage:
+ * - {@link CertificateProfile#issuedBy(SomeX509v3CertificateManager)} binds the profile to an issuer, see {@link ProfiledCertificateIssuer}
+ * - Or, for a single certificate, {@link com.galsie.lib.certificates.certificate.builder.CertificateBuilderCommonImpl#applyProfile(CertificateProfile)}
+ *
+ * The Matter profiles follow 6.5.11. Extensions:
+ * - RCAC & ICAC: critical basic-constraints (cA), critical key-usage (keyCertSign, cRLSign), subject and authority key identifiers
+ * - NOC: critical basic-constraints (not cA), critical key-usage (digitalSignature), critical extended-key-usage (clientAuth, serverAuth), subject and authority key identifiers
+ */
+@Getter
+public class CertificateProfile {
+
+    private static final CertificateProfile MATTER_RCAC = matterCertificateAuthority("matter-rcac");
+    private static final CertificateProfile MATTER_ICAC = matterCertificateAuthority("matter-icac");
+    private static final CertificateProfile MATTER_NOC = builder("matter-noc")
+            .setAsEndEntity()
+            .setKeyUsage(KeyUsage.digitalSignature)
+            .setExtendedKeyUsage(KeyPurposeId.id_kp_clientAuth, KeyPurposeId.id_kp_serverAuth)
+            .withSubjectKeyIdentifier()
+            .withAuthorityKeyIdentifier()
+            .build();
+
+    /**
+     * A name for the profile, eg: matter-noc. Only used to tell profiles apart
+     */
+    private final String name;
+    /**
+     * The encoded constant extensions, in the order they are added to the certificate
+     */
+    private final List<Extension> extensions;
+    private final boolean withSubjectKeyIdentifier;
+    private final boolean withAuthorityKeyIdentifier;
+    private final HashingAlgorithm signingHashingAlgorithm;
+
+    private CertificateProfile(Builder builder) {
+        this.name = builder.name;
+        this.extensions = Collections.unmodifiableList(new ArrayList<>(builder.extensions));
+        this.withSubjectKeyIdentifier = builder.withSubjectKeyIdentifier;
+        this.withAuthorityKeyIdentifier = builder.withAuthorityKeyIdentifier;
+        this.signingHashingAlgorithm = builder.signingHashingAlgorithm;
+    }
+
+    /**
+     * @return The profile of a Matter Root Certificate Authority Certificate
+     */
+    public static CertificateProfile matterRCAC() {
+        return MATTER_RCAC;
+    }
+
+    /**
+     * @return The profile of a Matter Intermediate Certificate Authority Certificate
+     */
+    public static CertificateProfile matterICAC() {
+        return MATTER_ICAC;
+    }
+
+    /**
+     * @return The profile of a Matter Node Operational Certificate
+     */
+    public static CertificateProfile matterNOC() {
+        return MATTER_NOC;
+    }
+
+    /**
+     * Starts a custom profile
+     *
+     * @param name A name for the profile
+     */
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * Binds the profile to an issuer, which resolves the issuer's name, authority key identifier and signer once
+     *
+     * @param issuer The issuer of the certificates
+     * @return The {@link ProfiledCertificateIssuer}
+     */
+    public ProfiledCertificateIssuer issuedBy(SomeX509v3CertificateManager issuer) throws Exception {
+        return new ProfiledCertificateIssuer(this, issuer);
+    }
+
+    @Override
+    public String toString() {
+        return "CertificateProfile{" + name + "}";
+    }
+
+    private static CertificateProfile matterCertificateAuthority(String name) {
+        return builder(name)
+                .setAsCertificateAuthority()
+                .setKeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign)
+                .withSubjectKeyIdentifier()
+                .withAuthorityKeyIdentifier()
+                .build();
+    }
+
+    public static class Builder {
+        private final String name;
+        private final List<Extension> extensions = new ArrayList<>();
+        private boolean withSubjectKeyIdentifier;
+        private boolean withAuthorityKeyIdentifier;
+        private HashingAlgorithm signingHashingAlgorithm = HashingAlgorithm.SHA256;
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Adds a constant extension, its value is encoded here once
+         * - Adding an extension twice replaces it
+         *
+         * @param objectIdentifier The Extensions Object Identifier
+         * @param isCritical Whether the Extension is Critical or Not
+         * @param value The value this extension holds
+         */
+        public Builder addExtension(ASN1ObjectIdentifier objectIdentifier, boolean isCritical, ASN1Encodable value) {
+            if (objectIdentifier.equals(Extension.subjectKeyIdentifier) || objectIdentifier.equals(Extension.authorityKeyIdentifier)) {
+                throw new IllegalArgumentException("Key identifiers depend on the keys, use withSubjectKeyIdentifier or withAuthorityKeyIdentifier");
+            }
+            byte[] encoded;
+            try {
+                encoded = value.toASN1Primitive().getEncoded(ASN1Encoding.DER);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("The value of the extension " + objectIdentifier + " could not be encoded", ex);
+            }
+            this.extensions.removeIf((extension) -> extension.getExtnId().equals(objectIdentifier));
+            this.extensions.add(new Extension(objectIdentifier, isCritical, encoded));
+            return this;
+        }
+
+        /**
+         * Sets a critical basic-constraints extension marking the certificate as a Certificate Authority, without a path length constraint
+         */
+        public Builder setAsCertificateAuthority() {
+            return this.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
+        }
+
+        /**
+         * Sets a critical basic-constraints extension marking the certificate as a Certificate Authority
+         *
+         * @param pathLengthConstraint The maximum number of non-self-issued intermediate certificates that may follow this certificate
+         */
+        public Builder setAsCertificateAuthority(int pathLengthConstraint) {
+            return this.addExtension(Extension.basicConstraints, true, new BasicConstraints(pathLengthConstraint));
+        }
+
+        /**
+         * Sets a critical basic-constraints extension marking the certificate as not a Certificate Authority
+         */
+        public Builder setAsEndEntity() {
+            return this.addExtension(Extension.basicConstraints, true, new BasicConstraints(false));
+        }
+
+        /**
+         * Sets a critical key-usage extension
+         *
+         * @param keyUsageId eg: KeyUsage.keyCertSign | KeyUsage.cRLSign
+         */
+        public Builder setKeyUsage(int keyUsageId) {
+            return this.addExtension(Extension.keyUsage, true, new KeyUsage(keyUsageId));
+        }
+
+        /**
+         * Sets a critical extended-key-usage extension
+         */
+        public Builder setExtendedKeyUsage(KeyPurposeId... keyPurposeIds) {
+            return this.addExtension(Extension.extendedKeyUsage, true, new ExtendedKeyUsage(keyPurposeIds));
+        }
+
+        /**
+         * Adds a (non critical) subject key identifier, computed from the subject's public key
+         */
+        public Builder withSubjectKeyIdentifier() {
+            this.withSubjectKeyIdentifier = true;
+            return this;
+        }
+
+        /**
+         * Adds a (non critical) authority key identifier, computed from the issuer's public key once per issuer
+         */
+        public Builder withAuthorityKeyIdentifier() {
+            this.withAuthorityKeyIdentifier = true;
+            return this;
+        }
+
+        public Builder setSigningHashingAlgorithm(HashingAlgorithm signingHashingAlgorithm) {
+            this.signingHashingAlgorithm = signingHashingAlgorithm;
+            return this;
+        }
+
+        public CertificateProfile build() {
+            return new CertificateProfile(this);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.galsie.lib.certificates.certificate.profile;
+
+import com.galsie.lib.certificates.asn1.object.MatterASN1ObjectIdentifier;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
+import com.galsie.lib.certificates.certificate.builder.CertificateBuilderCommonImpl;
+import com.galsie.lib.certificates.csr.SomeCSRHolder;
+import com.galsie.lib.certificates.dn.DistinguishedNameBuilder;
+import com.galsie.lib.certificates.jfr.CertificateSigningEvent;
+import com.galsie.lib.certificates.jfr.CertificateTBSBuildEvent;
+import com.galsie.lib.certificates.metrics.IssuanceMetrics;
+import com.galsie.lib.certificates.metrics.IssuanceStage;
+import com.galsie.lib.certificates.signer.ContentSignerPool;
+import com.galsie.lib.utils.lang.Nullable;
+import lombok.Getter;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+
+import java.math.BigInteger;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.util.Date;
+
+/**
+ * Issues certificates of a {@link CertificateProfile} signed by one issuer
+ * - The issuer's name, the encoded authority key identifier and the issuer's signer pool are resolved once, when made through {@link CertificateProfile#issuedBy(SomeX509v3CertificateManager)}
+ * - Each issuance then only encodes what differs between certificates: the serial number, the validity, the subject and its public key (and subject key identifier)
+ * - Safe to use from many threads
+ *
+ * Note:
+ * - If the issuer's keypair changes, bind the profile again
+ */
+@Getter
+public class ProfiledCertificateIssuer {
+
+    /**
+     * JcaX509ExtensionUtils keeps a digest, so each thread gets its own
+     */
+    private static final ThreadLocal<JcaX509ExtensionUtils> EXTENSION_UTILS = ThreadLocal.withInitial(() -> {
+        try {
+            return new JcaX509ExtensionUtils();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-1 is not available for key identifiers", ex);
+        }
+    });
+
+    private final CertificateProfile profile;
+    private final SomeX509v3CertificateManager issuer;
+    private final X500Name issuerName;
+    @Nullable
+    private final Extension authorityKeyIdentifier;
+    private final ContentSignerPool signerPool;
+
+    ProfiledCertificateIssuer(CertificateProfile profile, SomeX509v3CertificateManager issuer) throws Exception {
+        this.profile = profile;
+        this.issuer = issuer;
+        this.issuerName = issuer.getX509CertificateHolder().getSubject(); // The issuer of a certificate is its signer
+        this.authorityKeyIdentifier = profile.isWithAuthorityKeyIdentifier() ? createAuthorityKeyIdentifier(issuer.getPublicKey()) : null;
+        this.signerPool = issuer.getContentSignerPool(profile.getSigningHashingAlgorithm());
+    }
+
+    /**
+     * Issues a certificate
+     *
+     * @param serialNumber The serial number, positive and at most 20 octets
+     * @param validFrom The 'not-before' of the certificate
+     * @param validTo The 'not-after' of the certificate, if null the certificate has no well defined expiry (99991231235959Z)
+     * @param subject The subject name
+     * @param publicKey The subject's public key
+     * @return The signed certificate
+     */
+    public SomeX509v3CertificateHolder issue(BigInteger serialNumber, Date validFrom, @Nullable Date validTo, X500Name subject, PublicKey publicKey) throws Exception {
+        var metrics = IssuanceMetrics.get();
+        long started = metrics.startTimer();
+        SomeX509v3CertificateHolder certificateHolder;
+        try {
+            certificateHolder = this.doIssue(metrics, serialNumber, validFrom, validTo, subject, publicKey);
+        } catch (Exception ex) {
+            metrics.recordError(IssuanceStage.CERTIFICATE_BUILD, ex);
+            throw ex;
+        }
+        metrics.recordSince(IssuanceStage.CERTIFICATE_BUILD, started);
+        return certificateHolder;
+    }
+
+    private SomeX509v3CertificateHolder doIssue(IssuanceMetrics metrics, BigInteger serialNumber, Date validFrom, @Nullable Date validTo, X500Name subject, PublicKey publicKey) throws Exception {
+        var tbsEvent = new CertificateTBSBuildEvent();
+        tbsEvent.begin();
+        X509v3CertificateBuilder certBuilder = new JcaX509v3CertificateBuilder(
+                issuerName,
+                serialNumber,
+                validFrom,
+                validTo == null ? CertificateBuilderCommonImpl.NO_WELL_DEFINED_EXPIRY : validTo,
+                subject,
+                publicKey
+        );
+        for (Extension extension : profile.getExtensions()) {
+            certBuilder.addExtension(extension);
+        }
+        if (profile.isWithSubjectKeyIdentifier()) {
+            certBuilder.addExtension(createSubjectKeyIdentifier(publicKey));
+        }
+        if (authorityKeyIdentifier != null) {
+            certBuilder.addExtension(authorityKeyIdentifier);
+        }
+        if (tbsEvent.shouldCommit()) {
+            tbsEvent.issuerSubjectHash = issuerName.hashCode();
+            tbsEvent.serialNumber = serialNumber.toString(16);
+            tbsEvent.extensionCount = profile.getExtensions().size() + (profile.isWithSubjectKeyIdentifier() ? 1 : 0) + (authorityKeyIdentifier != null ? 1 : 0);
+            tbsEvent.profile = profile.getName();
+            tbsEvent.commit();
+        }
+        var signingEvent = new CertificateSigningEvent();
+        signingEvent.begin();
+        long started = metrics.startTimer();
+        X509CertificateHolder x509CertificateHolder;
+        try {
+            x509CertificateHolder = signerPool.withSigner(certBuilder, X509v3CertificateBuilder::build);
+        } catch (Exception ex) {
+            metrics.recordError(IssuanceStage.SIGNING, ex);
+            throw ex;
+        }
+        metrics.recordSince(IssuanceStage.SIGNING, started);
+        var certificateHolder = new SomeX509v3CertificateHolder(x509CertificateHolder);
+        signingEvent.commitFor(signerPool.getSignatureAlgorithm(), certificateHolder);
+        return certificateHolder;
+    }
+
+    /**
+     * Issues a certificate for a CSR, with the subject and the public key of the CSR
+     * - The CSR's signature is verified first, its requested extensions are ignored
+     */
+    public SomeX509v3CertificateHolder issue(BigInteger serialNumber, Date validFrom, @Nullable Date validTo, SomeCSRHolder csrHolder) throws Exception {
+        if (!csrHolder.isSignatureValid()) {
+            throw new Exception("Invalid Signature.");
+        }
+        return this.issue(serialNumber, validFrom, validTo, csrHolder.getPkcs10CertificationRequest().getSubject(), csrHolder.getPublicKey());
+    }
+
+    /**
+     * Issues a Matter Node Operational Certificate, whose subject holds the node id, the fabric id and the CASE Authenticated Tags
+     *
+     * @param nodeId The matter-node-id
+     * @param fabricId The matter-fabric-id
+     * @param caseAuthenticatedTags Up to 3 matter-noc-cat
+     */
+    public SomeX509v3CertificateHolder issueNOC(BigInteger serialNumber, Date validFrom, @Nullable Date validTo, long nodeId, long fabricId, PublicKey publicKey, int... caseAuthenticatedTags) throws Exception {
+        var subjectBuilder = new DistinguishedNameBuilder(5)
+                .addMatterIdRDN(MatterASN1ObjectIdentifier.MATTER_NODE_ID, nodeId)
+                .addMatterIdRDN(MatterASN1ObjectIdentifier.MATTER_FABRIC_ID, fabricId);
+        for (int caseAuthenticatedTag : caseAuthenticatedTags) {
+            subjectBuilder.addNOCCATRDN(caseAuthenticatedTag);
+        }
+        return this.issue(serialNumber, validFrom, validTo, subjectBuilder.build(), publicKey);
+    }
+
+    static Extension createSubjectKeyIdentifier(PublicKey publicKey) throws Exception {
+        return new Extension(Extension.subjectKeyIdentifier, false, EXTENSION_UTILS.get().createSubjectKeyIdentifier(publicKey).getEncoded());
+    }
+
+    static Extension createAuthorityKeyIdentifier(PublicKey issuerPublicKey) throws Exception {
+        return new Extension(Extension.authorityKeyIdentifier, false, EXTENSION_UTILS.get().createAuthorityKeyIdentifier(issuerPublicKey).getEncoded());
+    }
+}
@@ -0,0 +1,269 @@
+package com.galsie.lib.certificates.crl;
+
+import com.galsie.lib.certificates.asn1.der.DERTags;
+import com.galsie.lib.certificates.asn1.der.DERWriter;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
+import com.galsie.lib.certificates.signer.ContentSignerPool;
+import com.galsie.lib.utils.crypto.hasher.HashingAlgorithm;
+import com.galsie.lib.utils.lang.Nullable;
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Revokes certificates of one issuer, and issues the full and delta Certificate Revocation Lists (RFC 5280 5.) signed by it
+ * - The revoked serial numbers are kept in a {@link RevokedSerialIndex}, so {@link CRLIssuer#isRevoked(BigInteger)} is a lock free binary search
+ * - Each revocation is DER encoded once, when revoked, and appended to a log of revokedCertificates entries in revocation order
+ * - A full CRL copies the whole log, a delta CRL copies the part of the log appended since the last full CRL: no entry is encoded again
+ * - The issuer's name, its encoded authority key identifier and its signer pool are resolved once
+ * - Safe to use from many threads, revocations and issuances are serialized
+ *
+ * Usage:
+ *  var crlIssuer = CRLIssuer.issuedBy(icac);
+ *  crlIssuer.revoke(noc, new Date(), RevocationReason.CESSATION_OF_OPERATION); // eg: the device was removed from the home
+ *  var fullCRL = crlIssuer.issueCRL(now, nextUpdate);
+ *  ...
+ *  var deltaCRL = crlIssuer.issueDeltaCRL(now, nextUpdate); // the revocations since fullCRL
+ *
+ * Note:
+ * - The state is held in memory: to resume after a restart, revoke the persisted revocations again (with their original dates) and set the last CRL number
+ */
+public class CRLIssuer {
+
+    /**
+     * v2, required as the CRLs have extensions
+     */
+    private static final int VERSION_2 = 1;
+
+    private static final byte[] OID_REASON_CODE = encodedOID(Extension.reasonCode);
+    private static final byte[] OID_CRL_NUMBER = encodedOID(Extension.cRLNumber);
+    private static final byte[] OID_DELTA_CRL_INDICATOR = encodedOID(Extension.deltaCRLIndicator);
+
+    private final SomeX509v3CertificateManager issuer;
+    private final byte[] issuerNameEncoded;
+    private final byte[] authorityKeyIdentifierEncoded;
+    private final ContentSignerPool signerPool;
+    private final RevokedSerialIndex revokedSerialIndex;
+
+    /**
+     * The encoded revokedCertificates entries, in revocation order
+     */
+    private final DERWriter entries = new DERWriter(4096);
+    private int entryCount;
+
+    /**
+     * Reused between issuances, so that large CRLs do not grow new arrays every time
+     */
+    private final DERWriter tbsWriter = new DERWriter(4096);
+    private final DERWriter crlWriter = new DERWriter(4096);
+
+    private long lastCRLNumber;
+
+    /**
+     * The cRLNumber of the last full CRL, -1 until one is issued
+     */
+    private long baseCRLNumber = -1;
+    /**
+     * The end of the entries log, and the entry count, when the last full CRL was issued
+     */
+    private int baseEntriesEnd;
+    private int baseEntryCount;
+
+    private CRLIssuer(SomeX509v3CertificateManager issuer, HashingAlgorithm hashingAlgorithm, int expectedRevocations) throws Exception {
+        this.issuer = issuer;
+        this.issuerNameEncoded = issuer.getX509CertificateHolder().getSubject().getEncoded(ASN1Encoding.DER); // the issuer of a CRL is the signer of the certificates
+        this.authorityKeyIdentifierEncoded = new Extension(Extension.authorityKeyIdentifier, false, new JcaX509ExtensionUtils().createAuthorityKeyIdentifier(issuer.getPublicKey()).getEncoded())
+                .getEncoded(ASN1Encoding.DER);
+        this.signerPool = issuer.getContentSignerPool(hashingAlgorithm);
+        this.revokedSerialIndex = new RevokedSerialIndex(expectedRevocations);
+    }
+
+    /**
+     * @param issuer The issuer of the certificates, it signs the CRLs
+     */
+    public static CRLIssuer issuedBy(SomeX509v3CertificateManager issuer) throws Exception {
+        return issuedBy(issuer, HashingAlgorithm.SHA256, 0);
+    }
+
+    /**
+     * @param issuer The issuer of the certificates, it signs the CRLs
+     * @param hashingAlgorithm The hashing algorithm of the CRL signatures
+     * @param expectedRevocations The expected number of revocations, the index is sized for it up front
+     */
+    public static CRLIssuer issuedBy(SomeX509v3CertificateManager issuer, HashingAlgorithm hashingAlgorithm, int expectedRevocations) throws Exception {
+        return new CRLIssuer(issuer, hashingAlgorithm, expectedRevocations);
+    }
+
+    /**
+     * Revokes a certificate
+     *
+     * @param serialNumber The serial number of the certificate
+     * @param revocationDate The date the certificate was revoked on
+     * @param reason The reason, if null the entry has no reasonCode extension
+     * @return Whether the certificate was revoked, false if it already was
+     */
+    public synchronized boolean revoke(BigInteger serialNumber, Date revocationDate, @Nullable RevocationReason reason) {
+        if (!revokedSerialIndex.add(serialNumber)) {
+            return false;
+        }
+        var serialNumberBytes = serialNumber.toByteArray();
+        entries.begin(DERTags.SEQUENCE)
+                .writeUnsignedInteger(serialNumberBytes, 0, serialNumberBytes.length)
+                .writeTime(Math.floorDiv(revocationDate.getTime(), 1000L));
+        if (reason != null) {
+            entries.begin(DERTags.SEQUENCE).begin(DERTags.SEQUENCE)
+                    .write(DERTags.OBJECT_IDENTIFIER, OID_REASON_CODE)
+                    .begin(DERTags.OCTET_STRING).write(DERTags.ENUMERATED, new byte[]{(byte) reason.getCode()}).end()
+                    .end().end();
+        }
+        entries.end();
+        entryCount++;
+        return true;
+    }
+
+    /**
+     * Revokes a certificate issued by this issuer
+     *
+     * @throws IllegalArgumentException If the certificate was not issued by this issuer
+     * @see CRLIssuer#revoke(BigInteger, Date, RevocationReason)
+     */
+    public boolean revoke(SomeX509v3CertificateHolder certificateHolder, Date revocationDate, @Nullable RevocationReason reason) throws IOException {
+        if (!Arrays.equals(issuerNameEncoded, certificateHolder.getIssuer().getEncoded(ASN1Encoding.DER))) {
+            throw new IllegalArgumentException("The certificate " + certificateHolder.getSerialNumber().toString(16) + " was not issued by " + issuer.getX509CertificateHolder().getSubject());
+        }
+        return this.revoke(certificateHolder.getSerialNumber(), revocationDate, reason);
+    }
+
+    /**
+     * Looks up a serial number, without blocking and without allocating (see {@link RevokedSerialIndex#contains(BigInteger)})
+     */
+    public boolean isRevoked(BigInteger serialNumber) {
+        return revokedSerialIndex.contains(serialNumber);
+    }
+
+    /**
+     * @return The index of the revoked serial numbers, eg: for lookups of encoded serial numbers
+     */
+    public RevokedSerialIndex getRevokedSerialIndex() {
+        return revokedSerialIndex;
+    }
+
+    public synchronized int getRevokedCount() {
+        return entryCount;
+    }
+
+    public synchronized long getLastCRLNumber() {
+        return lastCRLNumber;
+    }
+
+    /**
+     * Sets the cRLNumber of the last issued CRL, the next CRL gets the following number
+     * - For resuming the CRL numbers of an issuer, they must be monotonically increasing
+     */
+    public synchronized CRLIssuer setLastCRLNumber(long lastCRLNumber) {
+        this.lastCRLNumber = lastCRLNumber;
+        return this;
+    }
+
+    /**
+     * Issues a full CRL, listing every revoked certificate, and makes it the base of the following delta CRLs
+     *
+     * @param thisUpdate The issue date of this CRL
+     * @param nextUpdate The date by which the next CRL will be issued, null to omit it
+     * @return The signed CRL
+     */
+    public synchronized IssuedCRL issueCRL(Date thisUpdate, @Nullable Date nextUpdate) throws Exception {
+        long crlNumber = lastCRLNumber + 1;
+        var issuedCRL = this.sign(crlNumber, -1, thisUpdate, nextUpdate, 0, entries.size(), entryCount);
+        this.lastCRLNumber = crlNumber;
+        this.baseCRLNumber = crlNumber;
+        this.baseEntriesEnd = entries.size();
+        this.baseEntryCount = entryCount;
+        return issuedCRL;
+    }
+
+    /**
+     * Issues a delta CRL, listing the certificates revoked since the last full CRL
+     * - Its critical deltaCRLIndicator extension holds the cRLNumber of that full CRL
+     *
+     * @param thisUpdate The issue date of this CRL
+     * @param nextUpdate The date by which the next CRL will be issued, null to omit it
+     * @return The signed CRL
+     * @throws IllegalStateException If no full CRL was issued yet
+     */
+    public synchronized IssuedCRL issueDeltaCRL(Date thisUpdate, @Nullable Date nextUpdate) throws Exception {
+        if (baseCRLNumber < 0) {
+            throw new IllegalStateException("A delta CRL needs a full CRL to apply to, issue one first");
+        }
+        long crlNumber = lastCRLNumber + 1;
+        var issuedCRL = this.sign(crlNumber, baseCRLNumber, thisUpdate, nextUpdate, baseEntriesEnd, entries.size() - baseEntriesEnd, entryCount - baseEntryCount);
+        this.lastCRLNumber = crlNumber;
+        return issuedCRL;
+    }
+
+    private IssuedCRL sign(long crlNumber, long deltaBaseCRLNumber, Date thisUpdate, @Nullable Date nextUpdate, int entriesOffset, int entriesLength, int listedCount) throws Exception {
+        return signerPool.withSigner((signer) -> {
+            var signatureAlgorithmEncoded = signer.getAlgorithmIdentifier().getEncoded(ASN1Encoding.DER);
+
+            tbsWriter.reset().begin(DERTags.SEQUENCE)
+                    .writeInteger(VERSION_2)
+                    .writeEncoded(signatureAlgorithmEncoded)
+                    .writeEncoded(issuerNameEncoded)
+                    .writeTime(Math.floorDiv(thisUpdate.getTime(), 1000L));
+            if (nextUpdate != null) {
+                tbsWriter.writeTime(Math.floorDiv(nextUpdate.getTime(), 1000L));
+            }
+            if (entriesLength > 0) { // an empty revokedCertificates must be omitted
+                tbsWriter.write(DERTags.SEQUENCE, entries, entriesOffset, entriesLength);
+            }
+            tbsWriter.begin(DERTags.contextConstructed(0)).begin(DERTags.SEQUENCE)
+                    .writeEncoded(authorityKeyIdentifierEncoded);
+            tbsWriter.begin(DERTags.SEQUENCE)
+                    .write(DERTags.OBJECT_IDENTIFIER, OID_CRL_NUMBER)
+                    .begin(DERTags.OCTET_STRING).writeInteger(crlNumber).end()
+                    .end();
+            if (deltaBaseCRLNumber >= 0) {
+                tbsWriter.begin(DERTags.SEQUENCE)
+                        .write(DERTags.OBJECT_IDENTIFIER, OID_DELTA_CRL_INDICATOR)
+                        .writeBoolean(true)
+                        .begin(DERTags.OCTET_STRING).writeInteger(deltaBaseCRLNumber).end()
+                        .end();
+            }
+            tbsWriter.end().end() // crlExtensions
+                    .end(); // tbsCertList
+
+            try (var out = signer.getOutputStream()) {
+                tbsWriter.writeTo(out);
+            }
+            var signature = signer.getSignature();
+
+            crlWriter.reset().begin(DERTags.SEQUENCE)
+                    .writeEncoded(tbsWriter, 0, tbsWriter.size())
+                    .writeEncoded(signatureAlgorithmEncoded)
+                    .write(DERTags.BIT_STRING, 0, ByteBuffer.wrap(signature)) // no unused bits
+                    .end();
+            return new IssuedCRL(crlNumber, deltaBaseCRLNumber, thisUpdate, listedCount, crlWriter.toByteArray());
+        });
+    }
+
+    /**
+     * @return The content octets of the OBJECT IDENTIFIER
+     */
+    private static byte[] encodedOID(ASN1ObjectIdentifier oid) {
+        try {
+            var encoded = oid.getEncoded();
+            return Arrays.copyOfRange(encoded, 2, encoded.length); // strip the (short form) header
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.galsie.lib.certificates.crl;
+
+import com.galsie.lib.certificates.pem.PEMBlock;
+import com.galsie.lib.certificates.pem.PEMWriter;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.bouncycastle.cert.X509CRLHolder;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * A signed Certificate Revocation List made by a {@link CRLIssuer}, full or delta
+ * - Holds the DER encoding as signed, it is only decoded on demand
+ */
+@AllArgsConstructor
+@Getter
+public class IssuedCRL {
+
+    /**
+     * The value of the cRLNumber extension
+     */
+    private final long crlNumber;
+
+    /**
+     * The cRLNumber of the full CRL a delta CRL applies to (its deltaCRLIndicator extension), -1 for a full CRL
+     */
+    private final long baseCRLNumber;
+
+    private final Date thisUpdate;
+
+    /**
+     * The number of revoked certificates listed
+     */
+    private final int entryCount;
+
+    private final byte[] derEncoded;
+
+    public boolean isDelta() {
+        return baseCRLNumber >= 0;
+    }
+
+    /**
+     * Decodes the CRL with bouncy castle, eg: to verify its signature
+     */
+    public X509CRLHolder toX509CRLHolder() throws IOException {
+        return new X509CRLHolder(derEncoded);
+    }
+
+    public String getPEMEncoded() throws IOException {
+        return PEMWriter.toPEMString(PEMBlock.CRL_LABEL, derEncoded);
+    }
+}
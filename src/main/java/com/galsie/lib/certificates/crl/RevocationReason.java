@@ -0,0 +1,30 @@
+package com.galsie.lib.certificates.crl;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The RFC 5280 (5.3.1) reason codes of a revoked certificate, written as the reasonCode CRL entry extension
+ * - Removing a device from a home revokes its NOC with {@link RevocationReason#CESSATION_OF_OPERATION}
+ */
+@AllArgsConstructor
+@Getter
+public enum RevocationReason {
+
+    UNSPECIFIED(0),
+    KEY_COMPROMISE(1),
+    CA_COMPROMISE(2),
+    AFFILIATION_CHANGED(3),
+    SUPERSEDED(4),
+    CESSATION_OF_OPERATION(5),
+    CERTIFICATE_HOLD(6),
+    // 7 is not used
+    REMOVE_FROM_CRL(8),
+    PRIVILEGE_WITHDRAWN(9),
+    AA_COMPROMISE(10);
+
+    /**
+     * The value of the CRLReason ENUMERATED
+     */
+    private final int code;
+}
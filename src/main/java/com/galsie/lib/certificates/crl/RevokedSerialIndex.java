@@ -0,0 +1,290 @@
+package com.galsie.lib.certificates.crl;
+
+import com.galsie.lib.certificates.serial.SerialNumberAllocator;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A sorted set of serial numbers, held as primitive longs instead of boxed {@link BigInteger}s
+ * - A serial number (positive, at most {@link SerialNumberAllocator#MAX_SERIAL_NUMBER_OCTETS} octets) is kept as 3 longs: its low 64 bits, its middle 64 bits and its high 32 bits, that is 24 bytes per serial number
+ * - Keys are ordered by their low bits first: the low bits of the allocated serial numbers are random or a counter, so a lookup of a serial number that is not in the set is answered from the low bits alone, without allocating
+ * - Additions go to a small sorted buffer which is merged into the main array once full, so an addition costs O(buffer size) amortized instead of O(size)
+ * - Lookups are binary searches of both arrays, under an optimistic read of a {@link StampedLock}: they do not block nor allocate
+ * - Safe to use from many threads
+ */
+public class RevokedSerialIndex {
+
+    /**
+     * The number of keys the buffer holds before it is merged into the main array
+     */
+    static final int MERGE_THRESHOLD = 1024;
+
+    private static final int KEY_LONGS = 3;
+    private static final BigInteger MAX_SERIAL_NUMBER = BigInteger.ONE.shiftLeft(SerialNumberAllocator.MAX_SERIAL_NUMBER_OCTETS * 8).subtract(BigInteger.ONE);
+
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * The main sorted keys, (low, middle, high) per serial number
+     */
+    private long[] keys;
+    private int count;
+
+    /**
+     * The recently added sorted keys, (low, middle, high) per serial number
+     */
+    private final long[] recentKeys = new long[MERGE_THRESHOLD * KEY_LONGS];
+    private int recentCount;
+
+    public RevokedSerialIndex() {
+        this(MERGE_THRESHOLD);
+    }
+
+    /**
+     * @param expectedSize The expected number of serial numbers, the main array is sized for it up front
+     */
+    public RevokedSerialIndex(int expectedSize) {
+        this.keys = new long[Math.max(expectedSize, MERGE_THRESHOLD) * KEY_LONGS];
+    }
+
+    /**
+     * Adds a serial number
+     *
+     * @param serialNumber The serial number, positive and at most 20 octets
+     * @return Whether the serial number was added, false if it was already in the set
+     * @throws IllegalArgumentException If the serial number is not positive or is longer than 20 octets
+     */
+    public boolean add(BigInteger serialNumber) {
+        if (serialNumber.signum() <= 0 || serialNumber.compareTo(MAX_SERIAL_NUMBER) > 0) {
+            throw new IllegalArgumentException("A serial number must be positive and at most " + SerialNumberAllocator.MAX_SERIAL_NUMBER_OCTETS + " octets, got " + serialNumber.toString(16));
+        }
+        long low = serialNumber.longValue();
+        long middle = 0;
+        long high = 0;
+        if (serialNumber.bitLength() > 64) {
+            var upper = serialNumber.shiftRight(64);
+            middle = upper.longValue();
+            high = upper.shiftRight(64).longValue();
+        }
+        return this.add(low, middle, high);
+    }
+
+    /**
+     * Looks up a serial number
+     * - Allocates only if the serial number is longer than 64 bits and another serial number with the same low 64 bits is in the set
+     *
+     * @param serialNumber The serial number
+     * @return Whether the serial number is in the set
+     */
+    public boolean contains(BigInteger serialNumber) {
+        if (serialNumber.signum() <= 0 || serialNumber.bitLength() > SerialNumberAllocator.MAX_SERIAL_NUMBER_OCTETS * 8) {
+            return false;
+        }
+        long low = serialNumber.longValue();
+        if (serialNumber.bitLength() <= 64) {
+            return this.contains(low, 0, 0);
+        }
+        if (!this.containsLow(low)) {
+            return false;
+        }
+        var upper = serialNumber.shiftRight(64);
+        return this.contains(low, upper.longValue(), upper.shiftRight(64).longValue());
+    }
+
+    /**
+     * Looks up a serial number from its encoded form, without allocating
+     *
+     * @param serialNumber The big-endian serial number, eg: the content octets of its DER INTEGER (a leading zero octet is ignored)
+     * @param offset The start of the serial number in the array
+     * @param length The length of the serial number
+     * @return Whether the serial number is in the set
+     */
+    public boolean contains(byte[] serialNumber, int offset, int length) {
+        int start = offset;
+        int end = offset + length;
+        while (start < end && serialNumber[start] == 0) {
+            start++;
+        }
+        if (end - start > SerialNumberAllocator.MAX_SERIAL_NUMBER_OCTETS) {
+            return false;
+        }
+        long low = 0;
+        long middle = 0;
+        long high = 0;
+        for (int i = start; i < end; i++) {
+            high = (high << 8) | (middle >>> 56);
+            middle = (middle << 8) | (low >>> 56);
+            low = (low << 8) | (serialNumber[i] & 0xFF);
+        }
+        return this.contains(low, middle, high);
+    }
+
+    /**
+     * @return The number of serial numbers in the set
+     */
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int size = count + recentCount;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                size = count + recentCount;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    private boolean add(long low, long middle, long high) {
+        long stamp = lock.writeLock();
+        try {
+            if (search(keys, count, low, middle, high) >= 0) {
+                return false;
+            }
+            int index = search(recentKeys, recentCount, low, middle, high);
+            if (index >= 0) {
+                return false;
+            }
+            int insertion = -(index + 1);
+            System.arraycopy(recentKeys, insertion * KEY_LONGS, recentKeys, (insertion + 1) * KEY_LONGS, (recentCount - insertion) * KEY_LONGS);
+            recentKeys[insertion * KEY_LONGS] = low;
+            recentKeys[insertion * KEY_LONGS + 1] = middle;
+            recentKeys[insertion * KEY_LONGS + 2] = high;
+            recentCount++;
+            if (recentCount == MERGE_THRESHOLD) {
+                this.mergeRecentKeys();
+            }
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Merges the buffer into the main array, from the back so that the main array is only copied when it grows
+     */
+    private void mergeRecentKeys() {
+        int merged = count + recentCount;
+        if (merged * KEY_LONGS > keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(merged, count * 3 / 2) * KEY_LONGS);
+        }
+        int i = count - 1;
+        int j = recentCount - 1;
+        for (int k = merged - 1; j >= 0; k--) {
+            if (i >= 0 && compare(keys, i, recentKeys, j) > 0) {
+                System.arraycopy(keys, i-- * KEY_LONGS, keys, k * KEY_LONGS, KEY_LONGS);
+            } else {
+                System.arraycopy(recentKeys, j-- * KEY_LONGS, keys, k * KEY_LONGS, KEY_LONGS);
+            }
+        }
+        count = merged;
+        recentCount = 0;
+    }
+
+    private boolean contains(long low, long middle, long high) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            boolean found = this.unsafeContains(low, middle, high);
+            if (lock.validate(stamp)) {
+                return found;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return this.unsafeContains(low, middle, high);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return Whether any serial number has these low 64 bits
+     */
+    private boolean containsLow(long low) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            boolean found = this.unsafeContainsLow(low);
+            if (lock.validate(stamp)) {
+                return found;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return this.unsafeContainsLow(low);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Searches without a lock, the result is only meaningful if the stamp is then validated
+     * - The counts are bounded by the array lengths, a torn read may give a wrong answer but never an exception
+     */
+    private boolean unsafeContains(long low, long middle, long high) {
+        var mainKeys = keys;
+        return search(mainKeys, Math.min(count, mainKeys.length / KEY_LONGS), low, middle, high) >= 0
+                || search(recentKeys, Math.min(recentCount, MERGE_THRESHOLD), low, middle, high) >= 0;
+    }
+
+    private boolean unsafeContainsLow(long low) {
+        var mainKeys = keys;
+        int mainCount = Math.min(count, mainKeys.length / KEY_LONGS);
+        int recent = Math.min(recentCount, MERGE_THRESHOLD);
+        return firstKeyHasLow(mainKeys, mainCount, low) || firstKeyHasLow(recentKeys, recent, low);
+    }
+
+    /**
+     * @return Whether the first key whose low bits are >= low has exactly these low bits, (low, 0, 0) being the smallest key with them
+     */
+    private static boolean firstKeyHasLow(long[] keys, int count, long low) {
+        int index = search(keys, count, low, 0, 0);
+        if (index < 0) {
+            index = -(index + 1);
+        }
+        return index < count && keys[index * KEY_LONGS] == low;
+    }
+
+    /**
+     * Binary searches sorted keys
+     *
+     * @return The index of the key, or -(insertion point + 1)
+     */
+    private static int search(long[] keys, int count, long low, long middle, long high) {
+        int from = 0;
+        int to = count - 1;
+        while (from <= to) {
+            int mid = (from + to) >>> 1;
+            int base = mid * KEY_LONGS;
+            int comparison = Long.compareUnsigned(keys[base], low);
+            if (comparison == 0) {
+                comparison = Long.compareUnsigned(keys[base + 1], middle);
+                if (comparison == 0) {
+                    comparison = Long.compareUnsigned(keys[base + 2], high);
+                }
+            }
+            if (comparison < 0) {
+                from = mid + 1;
+            } else if (comparison > 0) {
+                to = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(from + 1);
+    }
+
+    private static int compare(long[] keys, int index, long[] otherKeys, int otherIndex) {
+        int base = index * KEY_LONGS;
+        int otherBase = otherIndex * KEY_LONGS;
+        for (int i = 0; i < KEY_LONGS; i++) {
+            int comparison = Long.compareUnsigned(keys[base + i], otherKeys[otherBase + i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+}
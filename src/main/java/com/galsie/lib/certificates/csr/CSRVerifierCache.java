@@ -0,0 +1,145 @@
+package com.galsie.lib.certificates.csr;
+
+import com.galsie.lib.certificates.CryptoOperation;
+import com.galsie.lib.certificates.SecurityProvider;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.operator.ContentVerifierProvider;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchProviderException;
+import java.security.PublicKey;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded LRU of the {@link ContentVerifierProvider}s used to check CSR signatures, keyed by the encoded SubjectPublicKeyInfo
+ * - Devices retry CSRs with the same key, so in steady state verifying a CSR neither decodes its key nor builds a verifier provider
+ * - A provider only holds the public key, every verification gets its own verifier from it, so a provider is shared between threads
+ * - Providers are built with the provider selected for {@link CryptoOperation#VERIFICATION} when they are cached, changing the selection does not evict them
+ * - Used by {@link SomeCSRHolder#isSignatureValid()}, through {@link CSRVerifierCache#getShared()} unless another cache is given
+ */
+public class CSRVerifierCache {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final CSRVerifierCache SHARED = new CSRVerifierCache(DEFAULT_CAPACITY);
+
+    private final int capacity;
+    private final LinkedHashMap<ByteBuffer, ContentVerifierProvider> providers;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity The number of providers (distinct keys) kept, 0 disables the cache
+     */
+    public CSRVerifierCache(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("The capacity can not be negative");
+        }
+        this.capacity = capacity;
+        this.providers = new LinkedHashMap<>(16, 0.75f, true) { // access order, for LRU
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, ContentVerifierProvider> eldest) {
+                return size() > CSRVerifierCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * @return The cache shared by every {@link SomeCSRHolder}
+     */
+    public static CSRVerifierCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Gets the verifier provider for a key, building it from the already decoded key on a miss
+     *
+     * @param encodedSPKI The DER encoded SubjectPublicKeyInfo, the cache key. Must not be modified afterwards
+     * @param publicKey The decoded key of that SubjectPublicKeyInfo
+     * @return The {@link ContentVerifierProvider}
+     * @throws OperatorCreationException If the provider could not be built for that key
+     */
+    public ContentVerifierProvider get(byte[] encodedSPKI, PublicKey publicKey) throws OperatorCreationException {
+        return this.get(encodedSPKI, () -> {
+            try {
+                var securityProvider = SecurityProvider.forOperation(CryptoOperation.VERIFICATION);
+                return new JcaContentVerifierProviderBuilder().setProvider(securityProvider.getProvider()).build(securityProvider.toProviderKey(publicKey));
+            } catch (GeneralSecurityException ex) {
+                throw new OperatorCreationException(ex.getMessage(), ex);
+            }
+        });
+    }
+
+    /**
+     * Gets the verifier provider for a key, decoding the key only on a miss
+     *
+     * @param encodedSPKI The DER encoded SubjectPublicKeyInfo, the cache key. Must not be modified afterwards
+     * @param subjectPublicKeyInfo The SubjectPublicKeyInfo
+     * @return The {@link ContentVerifierProvider}
+     * @throws OperatorCreationException If the provider could not be built for that key
+     */
+    public ContentVerifierProvider get(byte[] encodedSPKI, SubjectPublicKeyInfo subjectPublicKeyInfo) throws OperatorCreationException {
+        return this.get(encodedSPKI, () -> verifierProviderBuilder().build(subjectPublicKeyInfo));
+    }
+
+    /**
+     * @return A builder of verifier providers backed by the provider selected for {@link CryptoOperation#VERIFICATION}
+     */
+    private static JcaContentVerifierProviderBuilder verifierProviderBuilder() throws OperatorCreationException {
+        try {
+            return new JcaContentVerifierProviderBuilder().setProvider(SecurityProvider.forOperation(CryptoOperation.VERIFICATION).getProvider());
+        } catch (NoSuchProviderException ex) {
+            throw new OperatorCreationException(ex.getMessage(), ex);
+        }
+    }
+
+    private ContentVerifierProvider get(byte[] encodedSPKI, ProviderFactory providerFactory) throws OperatorCreationException {
+        var key = ByteBuffer.wrap(encodedSPKI);
+        ContentVerifierProvider provider;
+        synchronized (providers) {
+            provider = providers.get(key);
+        }
+        if (provider != null) {
+            hits.increment();
+            return provider;
+        }
+        misses.increment();
+        provider = providerFactory.build();
+        if (capacity > 0) {
+            synchronized (providers) {
+                providers.putIfAbsent(key, provider); // a race only builds twice
+            }
+        }
+        return provider;
+    }
+
+    public void clear() {
+        synchronized (providers) {
+            providers.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (providers) {
+            return providers.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private interface ProviderFactory {
+        ContentVerifierProvider build() throws OperatorCreationException;
+    }
+}
@@ -1,10 +1,16 @@
 package com.galsie.lib.certificates.csr;
 
+import com.galsie.lib.certificates.CryptoOperation;
+import com.galsie.lib.certificates.SecurityProvider;
 import com.galsie.lib.certificates.dn.InternalDNBuilder;
 import com.galsie.lib.certificates.keypair.InternalKeypairBuilder;
+import com.galsie.lib.certificates.metrics.IssuanceMetrics;
+import com.galsie.lib.certificates.metrics.IssuanceStage;
+import com.galsie.lib.certificates.signer.ContentSignerCache;
+import com.galsie.lib.certificates.signer.SignatureAlgorithmResolver;
+import com.galsie.lib.utils.crypto.hasher.HashingAlgorithm;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.operator.ContentSigner;
-import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.bouncycastle.pkcs.PKCS10CertificationRequest;
 import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequestBuilder;
 
@@ -45,8 +51,29 @@ public class CertificateSigningRequestBuilder {
     }
 
     public SomeCSRManager build() throws Exception {
+        var metrics = IssuanceMetrics.get();
+        long started = metrics.startTimer();
+        SomeCSRManager csrManager;
+        try {
+            csrManager = this.doBuild();
+        } catch (Exception ex) {
+            metrics.recordError(IssuanceStage.CSR_BUILD, ex);
+            throw ex;
+        }
+        metrics.recordSince(IssuanceStage.CSR_BUILD, started);
+        return csrManager;
+    }
+
+    /**
+     * Builds the subject name from the {@link CertificateSigningRequestBuilder#subjectDN()} builder
+     */
+    protected X500Name buildSubjectName() throws Exception {
+        return this.subjectDNBuilder.build();
+    }
+
+    private SomeCSRManager doBuild() throws Exception {
         // Get the subject name
-        X500Name subjectName = this.subjectDNBuilder.getDistinguishedNameBuilder().build();
+        X500Name subjectName = this.buildSubjectName();
 
         // Generate the keypair
         KeyPair keyPair = keypairBuilder.build();  // Assuming you have a build method in your keypairBuilder
@@ -57,11 +84,21 @@ public class CertificateSigningRequestBuilder {
         JcaPKCS10CertificationRequestBuilder p10Builder = new JcaPKCS10CertificationRequestBuilder(
                 subjectName, publicKey);
 
-        // Signing the CSR using SHA-256 with ECDSA
-        ContentSigner signer = new JcaContentSignerBuilder("SHA256withECDSA").setProvider("BC").build(privateKey);
+        // Signing the CSR using SHA-256 with the keypair's algorithm (eg: ECDSA)
+        String signingAlgo = SignatureAlgorithmResolver.resolve(HashingAlgorithm.SHA256, privateKey);
+        ContentSigner signer = ContentSignerCache.buildSigner(signingAlgo, SecurityProvider.forOperation(CryptoOperation.SIGNING).getProviderIdentifier(), privateKey, keypairBuilder.getEntropySource());
 
         // Build and return the CSR
-        PKCS10CertificationRequest csr = p10Builder.build(signer);
+        var metrics = IssuanceMetrics.get();
+        long started = metrics.startTimer();
+        PKCS10CertificationRequest csr;
+        try {
+            csr = p10Builder.build(signer);
+        } catch (Exception ex) {
+            metrics.recordError(IssuanceStage.SIGNING, ex);
+            throw ex;
+        }
+        metrics.recordSince(IssuanceStage.SIGNING, started);
         return new SomeCSRManager(keyPair, csr);
     }
 
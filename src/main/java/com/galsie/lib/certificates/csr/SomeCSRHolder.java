@@ -1,20 +1,24 @@
 package com.galsie.lib.certificates.csr;
 
 import com.galsie.lib.certificates.PEMStructureHolder;
-import com.galsie.lib.certificates.asn1.codable.ASN1CodableUtils;
 import com.galsie.lib.certificates.asn1.object.AbstractASN1ObjectIdentifier;
+import com.galsie.lib.certificates.dn.RDNIndex;
+import com.galsie.lib.certificates.jfr.CSRVerificationEvent;
+import com.galsie.lib.certificates.jfr.CertificateCodecEvent;
+import com.galsie.lib.certificates.keypair.KeyUtils;
+import com.galsie.lib.certificates.metrics.IssuanceStage;
+import com.galsie.lib.certificates.pem.PEMBlock;
+import com.galsie.lib.certificates.pem.PEMWriter;
+import lombok.AccessLevel;
 import lombok.Getter;
-import org.bouncycastle.asn1.x500.RDN;
+import org.bouncycastle.asn1.ASN1Encoding;
 import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
 import org.bouncycastle.openssl.PEMException;
 import org.bouncycastle.openssl.PEMParser;
-import org.bouncycastle.openssl.jcajce.JcaPEMKeyConverter;
-import org.bouncycastle.operator.ContentVerifierProvider;
+import org.bouncycastle.operator.DefaultAlgorithmNameFinder;
 import org.bouncycastle.operator.OperatorCreationException;
-import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
 import org.bouncycastle.pkcs.PKCS10CertificationRequest;
 import org.bouncycastle.pkcs.PKCSException;
-import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequest;
 
 import java.io.IOException;
 import java.io.StringReader;
@@ -24,51 +28,141 @@ import java.util.Optional;
 
 @Getter
 public class SomeCSRHolder implements PEMStructureHolder {
+    private static final DefaultAlgorithmNameFinder SIGNATURE_ALGORITHM_NAMES = new DefaultAlgorithmNameFinder();
+
     private PKCS10CertificationRequest pkcs10CertificationRequest;
     private PublicKey publicKey;
+    /**
+     * The DER encoding, made once on first use, see {@link SomeCSRHolder#getDEREncoded()}
+     */
+    @Getter(AccessLevel.NONE)
+    private transient volatile byte[] derEncoded;
+    /**
+     * The DER encoding of the SubjectPublicKeyInfo, made once on first use, the key of the {@link CSRVerifierCache}
+     */
+    @Getter(AccessLevel.NONE)
+    private transient volatile byte[] encodedSPKI;
+    @Getter(AccessLevel.NONE)
+    private transient volatile RDNIndex subjectRDNs;
+
     public SomeCSRHolder(PKCS10CertificationRequest pkcs10CertificationRequest) throws PEMException {
         this.pkcs10CertificationRequest = pkcs10CertificationRequest;
         this.publicKey = getPublicKeyFromSPKI(pkcs10CertificationRequest.getSubjectPublicKeyInfo());
     }
 
+    /**
+     * Checks if the signature of this CSR is valid
+     * - Reuses the decoded {@link SomeCSRHolder#getPublicKey()}, and the verifier provider of the {@link CSRVerifierCache#getShared()} cache
+     * @return True if the signature is valid
+     * @throws PKCSException
+     * @throws OperatorCreationException
+     * @throws IOException If the public key could not be encoded
+     */
+    public boolean isSignatureValid() throws PKCSException, OperatorCreationException, IOException {
+        return this.isSignatureValid(CSRVerifierCache.getShared());
+    }
+
+    /**
+     * Checks if the signature of this CSR is valid
+     * @param verifierCache The cache of verifier providers to use
+     * @return True if the signature is valid
+     * @throws PKCSException
+     * @throws OperatorCreationException
+     * @throws IOException If the public key could not be encoded
+     */
+    public boolean isSignatureValid(CSRVerifierCache verifierCache) throws PKCSException, OperatorCreationException, IOException {
+        var event = new CSRVerificationEvent();
+        event.begin();
+        boolean valid = pkcs10CertificationRequest.isSignatureValid(verifierCache.get(this.getEncodedSPKI(), this.publicKey));
+        if (event.shouldCommit()) {
+            event.signatureAlgorithm = SIGNATURE_ALGORITHM_NAMES.getAlgorithmName(pkcs10CertificationRequest.getSignatureAlgorithm());
+            event.subjectHash = pkcs10CertificationRequest.getSubject().hashCode();
+            event.valid = valid;
+            event.size = this.getDEREncoded().length;
+            event.commit();
+        }
+        return valid;
+    }
+
     /**
      * Checks if a signature is valid
+     * - The key is only decoded if it is not in the {@link CSRVerifierCache#getShared()} cache
      * @param certificationRequest The CSR for which we need to check if th signature is valid
      * @return True if the signature is valid
      * @throws PKCSException
      * @throws OperatorCreationException
+     * @throws IOException If the public key could not be encoded
      */
-    public static boolean isSignatureValid(PKCS10CertificationRequest certificationRequest) throws PKCSException, OperatorCreationException {
-        JcaPKCS10CertificationRequest jcaRequest = new JcaPKCS10CertificationRequest(certificationRequest);
-        ContentVerifierProvider verifierProvider = new JcaContentVerifierProviderBuilder()
-                .build(jcaRequest.getSubjectPublicKeyInfo());
-        return jcaRequest.isSignatureValid(verifierProvider);
+    public static boolean isSignatureValid(PKCS10CertificationRequest certificationRequest) throws PKCSException, OperatorCreationException, IOException {
+        var subjectPublicKeyInfo = certificationRequest.getSubjectPublicKeyInfo();
+        var verifierProvider = CSRVerifierCache.getShared().get(subjectPublicKeyInfo.getEncoded(ASN1Encoding.DER), subjectPublicKeyInfo);
+        return certificationRequest.isSignatureValid(verifierProvider);
     }
 
+    private byte[] getEncodedSPKI() throws IOException {
+        var encoded = this.encodedSPKI;
+        if (encoded == null) { // a race only encodes twice
+            encoded = pkcs10CertificationRequest.getSubjectPublicKeyInfo().getEncoded(ASN1Encoding.DER);
+            this.encodedSPKI = encoded;
+        }
+        return encoded;
+    }
 
     public Optional<String> getSubjectRDNValueFor(AbstractASN1ObjectIdentifier abstractASN1ObjectIdentifier) throws Exception {
-        for (RDN rdn: pkcs10CertificationRequest.getSubject().getRDNs()){
-            for (var typeAndValue: rdn.getTypesAndValues()){
-                if (!typeAndValue.getType().getId().equals(abstractASN1ObjectIdentifier.getASN1OID())) {
-                    continue;
-                }
-                var asn1EncodableValue = typeAndValue.getValue();
-                return Optional.of(ASN1CodableUtils.extractUtf8OrPrintableStringFrom(asn1EncodableValue));
-            }
+        var subjectRDNs = this.getSubjectRDNs();
+        if (!subjectRDNs.contains(abstractASN1ObjectIdentifier)) {
+            return Optional.empty();
+        }
+        var value = subjectRDNs.getString(abstractASN1ObjectIdentifier);
+        if (value == null) {
+            throw new Exception("ASN1 Type of " + abstractASN1ObjectIdentifier + " not supported as a value for rdn");
+        }
+        return Optional.of(value);
+    }
+
+    /**
+     * The index of the subject's attributes, built once on first use, see {@link RDNIndex}
+     * - A CSR has no issuer, the issuer is only known once the certificate is signed
+     */
+    public RDNIndex getSubjectRDNs() {
+        var index = this.subjectRDNs;
+        if (index == null) { // a race only indexes twice
+            index = RDNIndex.of(pkcs10CertificationRequest.getSubject());
+            this.subjectRDNs = index;
         }
-        return Optional.empty();
+        return index;
     }
+
     @Override
     public String getBase64DEREncoded() throws IOException {
-        return Base64.getEncoder().encodeToString(pkcs10CertificationRequest.getEncoded());
+        return Base64.getEncoder().encodeToString(this.getDEREncoded());
     }
 
     @Override
     public String getPEMEncoded() throws IOException {
-        return "-----BEGIN CERTIFICATE REQUEST-----\n"
-                + this.getBase64DEREncoded()
-                + "\n"
-                + "-----END CERTIFICATE REQUEST-----\n";
+        return PEMWriter.toPEMString(this.getPEMLabel(), this.getDEREncoded());
+    }
+
+    @Override
+    public String getPEMLabel() {
+        return PEMBlock.CERTIFICATE_REQUEST_LABEL;
+    }
+
+    @Override
+    public byte[] getDEREncoded() throws IOException {
+        var encoded = this.derEncoded;
+        if (encoded == null) { // a race only encodes twice
+            var event = CertificateCodecEvent.start();
+            try {
+                encoded = pkcs10CertificationRequest.getEncoded();
+            } catch (IOException ex) {
+                event.failed(IssuanceStage.DER_ENCODE, ex);
+                throw ex;
+            }
+            event.succeeded(IssuanceStage.DER_ENCODE, PEMBlock.CERTIFICATE_REQUEST_LABEL, encoded.length, 0);
+            this.derEncoded = encoded;
+        }
+        return encoded;
     }
 
     public static SomeCSRHolder fromBase64Encoded(String base64Encoded) throws IOException {
@@ -77,20 +171,33 @@ public class SomeCSRHolder implements PEMStructureHolder {
     }
 
     public static SomeCSRHolder fromPEMEncoded(String pemEncoded) throws Exception {
-        var certificationRequest = SomeCSRHolder.parsePKCS10CSRfromPEM(pemEncoded);
-        return new SomeCSRHolder(certificationRequest);
+        var event = CertificateCodecEvent.start();
+        SomeCSRHolder csrHolder;
+        try {
+            csrHolder = new SomeCSRHolder(SomeCSRHolder.parsePKCS10CSRfromPEM(pemEncoded));
+        } catch (Exception ex) {
+            event.failed(IssuanceStage.PEM_DECODE, ex);
+            throw ex;
+        }
+        int derSize = event.shouldCommit() ? csrHolder.getDEREncoded().length : 0; // only encoded for a recorded event
+        event.succeeded(IssuanceStage.PEM_DECODE, PEMBlock.CERTIFICATE_REQUEST_LABEL, derSize, pemEncoded.length());
+        return csrHolder;
     }
 
 
     /**
      * Extracts the PublicKey from a given SubjectPublicKeyInfo.
+     * - Decoded with the calling thread's cached KeyFactory, see {@link KeyUtils#decodePublicKey(SubjectPublicKeyInfo)}
      *
      * @param spki the SubjectPublicKeyInfo
      * @return a PublicKey
      */
     public static PublicKey getPublicKeyFromSPKI(SubjectPublicKeyInfo spki) throws PEMException {
-        JcaPEMKeyConverter converter = new JcaPEMKeyConverter();
-        return converter.getPublicKey(spki);
+        try {
+            return KeyUtils.decodePublicKey(spki);
+        } catch (Exception ex) {
+            throw new PEMException("unable to convert key pair: " + ex.getMessage(), ex);
+        }
     }
 
     public static PKCS10CertificationRequest parsePKCS10CSRfromPEM(String pemCSR) throws Exception{
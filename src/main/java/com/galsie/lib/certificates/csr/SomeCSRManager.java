@@ -6,6 +6,7 @@ import org.bouncycastle.openssl.PEMException;
 import org.bouncycastle.pkcs.PKCS10CertificationRequest;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.security.KeyPair;
 
 @AllArgsConstructor
@@ -25,4 +26,8 @@ public class SomeCSRManager {
     public String getPEMEncoded() throws IOException{
         return this.csrHolder.getPEMEncoded();
     }
+
+    public void writePEM(OutputStream out) throws IOException {
+        this.csrHolder.writePEM(out);
+    }
 }
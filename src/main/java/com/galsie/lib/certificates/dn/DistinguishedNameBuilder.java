@@ -1,24 +1,51 @@
 package com.galsie.lib.certificates.dn;
 
-import com.galsie.lib.certificates.asn1.codable.ASN1CodableUtils;
 import com.galsie.lib.certificates.asn1.object.AbstractASN1ObjectIdentifier;
+import com.galsie.lib.certificates.asn1.object.GalsieASN1ObjectIdentifier;
 import com.galsie.lib.certificates.asn1.object.MatterASN1ObjectIdentifier;
 import com.galsie.lib.certificates.exception.MaxSupportedRDNCountExceededException;
 import org.bouncycastle.asn1.*;
 import org.bouncycastle.asn1.x500.RDN;
 import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x500.style.BCStyle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * A Distinguished Name (DN) is a set of RDNs (Relative Distinguished Names)
  * - An RDN is a key value pair where the key is a DN-Object {@link MatterASN1ObjectIdentifier}
+ *
+ * The RDNs are kept as {@link RDN} objects and the {@link X500Name} is made straight from them:
+ * - Values are never escaped nor parsed back from an X.500 string, so they may hold ',', '+', '=' or '\'
+ * - Matter and Galsie attributes are encoded as UTF8String, see 6.5.6.1
+ * - Other attributes are encoded the way {@link BCStyle} encodes them (eg: PrintableString for C and SERIALNUMBER, UTF8String for CN)
+ * - RDNs copied from another name (eg: the subject of a CSR) are added as they are, they are not decoded nor re-encoded
  */
 public class DistinguishedNameBuilder {
+
+    private static final HexFormat MATTER_ID_FORMAT = HexFormat.of().withUpperCase();
+
+    /**
+     * The Matter and Galsie attributes, whose values are always encoded as UTF8String
+     */
+    private static final Set<String> UTF8_ATTRIBUTES = Stream.concat(Arrays.stream(MatterASN1ObjectIdentifier.values()), Arrays.stream(GalsieASN1ObjectIdentifier.values()))
+            .map(AbstractASN1ObjectIdentifier::getASN1OID)
+            .collect(Collectors.toUnmodifiableSet());
+
     /**
-     * A String builder builds the DN with the set of RDNs
-     * - The builder is only used by {@link DistinguishedNameBuilder#doAddRDN(String, String)}, which ensures the X.509 v3 format is matched
+     * The {@link ASN1ObjectIdentifier}s of the {@link AbstractASN1ObjectIdentifier}s, so that their dot joined form is parsed once
      */
-    private StringBuilder stringBuilder = new StringBuilder();
-    private int rdnCount = 0;
+    private static final Map<String, ASN1ObjectIdentifier> OBJECT_IDENTIFIERS = new ConcurrentHashMap<>();
+
+    private final List<RDN> rdns = new ArrayList<>();
     private int rdnMaxCount; // if -1, means unlimited
 
     /**
@@ -43,22 +70,16 @@ public class DistinguishedNameBuilder {
         return this;
     }
 
-
     /**
-     * Auxiliary method to add the DN key value pair to the subject string builder
-     * @param dnObjectIdentifier The DN object identifier (dot joined)
-     * @param value The value, whatever its datatype is based on the requirements of the DN, encoded to a string
+     * Auxiliary method to add an RDN, checking the RDN count
+     * @param rdn The RDN
      * @return
      */
-    private DistinguishedNameBuilder doAddRDN(String dnObjectIdentifier, String value) throws MaxSupportedRDNCountExceededException {
-        if (rdnCount >= rdnMaxCount && rdnMaxCount >= 0){
+    private DistinguishedNameBuilder doAddRDN(RDN rdn) throws MaxSupportedRDNCountExceededException {
+        if (rdns.size() >= rdnMaxCount && rdnMaxCount >= 0){
             throw new MaxSupportedRDNCountExceededException();
         }
-        if (rdnCount > 0){
-            stringBuilder.append(",");
-        }
-        stringBuilder.append(dnObjectIdentifier).append("=").append(value);
-        rdnCount += 1; // increment the rdnCount
+        rdns.add(rdn);
         return this;
     }
 
@@ -68,7 +89,8 @@ public class DistinguishedNameBuilder {
      * @param value The value, whatever its datatype is based on the requirements of the DN-Object, encoded to a string
      */
     public DistinguishedNameBuilder addRDN(String dnObjectIdentifier, String value) throws MaxSupportedRDNCountExceededException {
-        return this.doAddRDN(dnObjectIdentifier, value);
+        var objectIdentifier = new ASN1ObjectIdentifier(dnObjectIdentifier);
+        return this.doAddRDN(new RDN(objectIdentifier, encodeValue(objectIdentifier, value)));
     }
 
     /**
@@ -77,11 +99,44 @@ public class DistinguishedNameBuilder {
      * @param value The value, whatever its datatype is based on the requirements of the DN, encoded to a string
      */
     public DistinguishedNameBuilder addRDN(AbstractASN1ObjectIdentifier dnObject, String value) throws MaxSupportedRDNCountExceededException {
-        this.doAddRDN(dnObject.getASN1OID(), value);
-        return this;
+        var objectIdentifier = getObjectIdentifier(dnObject);
+        return this.doAddRDN(new RDN(objectIdentifier, encodeValue(objectIdentifier, value)));
+    }
+
+    /**
+     * Adds an RDN whose value is encoded as a PrintableString
+     * - For the attributes that allow it, eg: matter-oid-vid and matter-oid-pid in Device Attestation Certificates
+     * @param dnObject The distinguished name object
+     * @param value The value, only made of PrintableString characters
+     */
+    public DistinguishedNameBuilder addPrintableRDN(AbstractASN1ObjectIdentifier dnObject, String value) throws MaxSupportedRDNCountExceededException {
+        if (!DERPrintableString.isPrintableString(value)) {
+            throw new IllegalArgumentException("'" + value + "' can not be encoded as a PrintableString");
+        }
+        return this.doAddRDN(new RDN(getObjectIdentifier(dnObject), new DERPrintableString(value)));
     }
 
+    /**
+     * Adds a Matter 64-bit identifier, encoded as 16 uppercase hex digits (eg: 0000000000000001), see 6.5.6.1
+     * - This is the form the Matter TLV certificate encoding expects, see {@link com.galsie.lib.certificates.tlv.MatterCertificateTLVCodec}
+     * @param dnObject The Matter attribute, eg: {@link MatterASN1ObjectIdentifier#MATTER_NODE_ID}
+     * @param id The identifier, considered unsigned
+     */
+    public DistinguishedNameBuilder addMatterIdRDN(MatterASN1ObjectIdentifier dnObject, long id) throws MaxSupportedRDNCountExceededException {
+        return this.addRDN(dnObject, toMatterIdString(id));
+    }
+
+    /**
+     * Adds a CASE Authenticated Tag, encoded as 8 uppercase hex digits, see 6.5.6.1
+     * @param cat The 32-bit tag (16-bit identifier, 16-bit version)
+     */
+    public DistinguishedNameBuilder addNOCCATRDN(int cat) throws MaxSupportedRDNCountExceededException {
+        return this.addRDN(MatterASN1ObjectIdentifier.MATTER_NOC_CAT, MATTER_ID_FORMAT.toHexDigits(cat));
+    }
 
+    /**
+     * Adds the RDNs of a name as they are, eg: the subject of a CSR
+     */
     public DistinguishedNameBuilder addContentsOfX500Name(X500Name x500Name) throws Exception{
         for (var rdn: x500Name.getRDNs()){
            this.addContentsOfRDN(rdn);
@@ -89,30 +144,53 @@ public class DistinguishedNameBuilder {
         return this;
     }
 
+    /**
+     * Adds an RDN as it is, multi-valued RDNs stay multi-valued
+     */
     public DistinguishedNameBuilder addContentsOfRDN(RDN rdn) throws Exception{
-        for (var typeAndValue: rdn.getTypesAndValues()){
-            this.addRDN(typeAndValue.getType(), typeAndValue.getValue());
-        }
-        return this;
+        return this.doAddRDN(rdn);
     }
 
+    /**
+     * Adds an RDN holding an already encoded value, it is not re-encoded
+     */
     public DistinguishedNameBuilder addRDN(ASN1ObjectIdentifier asn1ObjectIdentifier, ASN1Encodable value) throws Exception{
-        String strValue = ASN1CodableUtils.extractUtf8OrPrintableStringFrom(value);
-        this.addRDN(asn1ObjectIdentifier.getId(), strValue);
-        return this;
+        return this.doAddRDN(new RDN(asn1ObjectIdentifier, value));
     }
 
+    public int getRDNCount() {
+        return rdns.size();
+    }
 
     /**
-     * FINALLY builds the string
+     * FINALLY builds the name
      * - NOTE: We do not have to encode them in DER format because bouncy castle automatically handles this for us.
-     * @return A built DN string composed of all the RDNs
+     * @return A built DN composed of all the RDNs, in the order they were added
      */
     public X500Name build(){
-        if (stringBuilder.isEmpty()){
-            return new X500Name(new RDN[]{});
-        }
-        return new X500Name(stringBuilder.toString());
+        return new X500Name(rdns.toArray(new RDN[0]));
+    }
+
+    /**
+     * From 6.5.6.1. Matter-specific DN attributes are encoded as UTF8String holding the 64-bit identifier as 16 uppercase hex digits (eg: 0000000000000001)
+     *
+     * @param id The identifier, considered unsigned
+     */
+    public static String toMatterIdString(long id) {
+        return MATTER_ID_FORMAT.toHexDigits(id);
     }
 
+    private static ASN1ObjectIdentifier getObjectIdentifier(AbstractASN1ObjectIdentifier dnObject) {
+        return OBJECT_IDENTIFIERS.computeIfAbsent(dnObject.getASN1OID(), ASN1ObjectIdentifier::new);
+    }
+
+    /**
+     * Encodes a value given as a string, Matter and Galsie attributes as UTF8String, others like {@link BCStyle} does
+     */
+    private static ASN1Encodable encodeValue(ASN1ObjectIdentifier objectIdentifier, String value) {
+        if (UTF8_ATTRIBUTES.contains(objectIdentifier.getId())) {
+            return new DERUTF8String(value);
+        }
+        return BCStyle.INSTANCE.stringToValue(objectIdentifier, value);
+    }
 }
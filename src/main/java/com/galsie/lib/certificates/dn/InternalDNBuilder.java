@@ -2,8 +2,12 @@ package com.galsie.lib.certificates.dn;
 
 import com.galsie.lib.certificates.certificate.builder.CertificateBuilder;
 import com.galsie.lib.certificates.asn1.object.AbstractASN1ObjectIdentifier;
+import com.galsie.lib.certificates.asn1.object.MatterASN1ObjectIdentifier;
 import com.galsie.lib.certificates.exception.MaxSupportedRDNCountExceededException;
+import com.galsie.lib.certificates.metrics.IssuanceMetrics;
+import com.galsie.lib.certificates.metrics.IssuanceStage;
 import com.galsie.lib.utils.builder.InternalBuilder;
+import org.bouncycastle.asn1.x500.X500Name;
 
 public class InternalDNBuilder<T> extends InternalBuilder<T> {
     private DistinguishedNameBuilder distinguishedNameBuilder = new DistinguishedNameBuilder();
@@ -47,6 +51,48 @@ public class InternalDNBuilder<T> extends InternalBuilder<T> {
         return this;
     }
 
+    /**
+     * Adds a Matter 64-bit identifier as 16 uppercase hex digits, see {@link DistinguishedNameBuilder#addMatterIdRDN(MatterASN1ObjectIdentifier, long)}
+     */
+    public InternalDNBuilder<T> addMatterIdRDN(MatterASN1ObjectIdentifier dn, long id) throws MaxSupportedRDNCountExceededException {
+        this.distinguishedNameBuilder.addMatterIdRDN(dn, id);
+        return this;
+    }
+
+    /**
+     * Adds a CASE Authenticated Tag as 8 uppercase hex digits, see {@link DistinguishedNameBuilder#addNOCCATRDN(int)}
+     */
+    public InternalDNBuilder<T> addNOCCATRDN(int cat) throws MaxSupportedRDNCountExceededException {
+        this.distinguishedNameBuilder.addNOCCATRDN(cat);
+        return this;
+    }
+
+    /**
+     * Adds an RDN encoded as a PrintableString, see {@link DistinguishedNameBuilder#addPrintableRDN(AbstractASN1ObjectIdentifier, String)}
+     */
+    public InternalDNBuilder<T> addPrintableRDN(AbstractASN1ObjectIdentifier dn, String value) throws MaxSupportedRDNCountExceededException {
+        this.distinguishedNameBuilder.addPrintableRDN(dn, value);
+        return this;
+    }
+
+    /**
+     * Builds the DN, recorded as the {@link IssuanceStage#DN_BUILD} stage
+     * @return The built DN
+     */
+    public X500Name build() throws Exception {
+        var metrics = IssuanceMetrics.get();
+        long started = metrics.startTimer();
+        X500Name x500Name;
+        try {
+            x500Name = this.distinguishedNameBuilder.build();
+        } catch (Exception ex) {
+            metrics.recordError(IssuanceStage.DN_BUILD, ex);
+            throw ex;
+        }
+        metrics.recordSince(IssuanceStage.DN_BUILD, started);
+        return x500Name;
+    }
+
     /**
      * Not used while building, used to finally build.
      * @return The {@link DistinguishedNameBuilder} used to actually build the DN
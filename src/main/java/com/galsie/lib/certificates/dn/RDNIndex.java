@@ -0,0 +1,229 @@
+package com.galsie.lib.certificates.dn;
+
+import com.galsie.lib.certificates.asn1.codable.ASN1CodableUtils;
+import com.galsie.lib.certificates.asn1.object.AbstractASN1ObjectIdentifier;
+import com.galsie.lib.certificates.asn1.object.GalsieASN1ObjectIdentifier;
+import com.galsie.lib.certificates.asn1.object.MatterASN1ObjectIdentifier;
+import com.galsie.lib.utils.lang.Nullable;
+import org.bouncycastle.asn1.x500.RDN;
+import org.bouncycastle.asn1.x500.X500Name;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * An index of the attribute values of a Distinguished Name, by OID, built once from an {@link X500Name}
+ * - Lookups are a single map get, instead of a scan of every RDN comparing OID strings
+ * - The numeric identifiers are parsed while indexing, so reading them returns a primitive long without building Strings or Optionals:
+ * -- Matter identifiers (matter-node-id, matter-fabric-id, matter-rcac-id, matter-icac-id, matter-firmware-signing-id, matter-noc-cat) are hex, see 6.5.6.1
+ * -- The galsie home id is decimal
+ * - An attribute may hold many values (eg: up to 3 matter-noc-cat), they are kept in the order of the DN
+ * - Immutable, safe to share between threads
+ */
+public class RDNIndex {
+
+    private static final RDNIndex EMPTY = new RDNIndex(Map.of());
+
+    /**
+     * The numeric attributes, by OID, and the radix their values are written in
+     */
+    private static final Map<String, Integer> NUMBER_RADIXES = Map.of(
+            MatterASN1ObjectIdentifier.MATTER_NODE_ID.getASN1OID(), 16,
+            MatterASN1ObjectIdentifier.MATTER_FIRMWARE_SIGNING_ID.getASN1OID(), 16,
+            MatterASN1ObjectIdentifier.MATTER_ICAC_ID.getASN1OID(), 16,
+            MatterASN1ObjectIdentifier.MATTER_RCAC_ID.getASN1OID(), 16,
+            MatterASN1ObjectIdentifier.MATTER_FABRIC_ID.getASN1OID(), 16,
+            MatterASN1ObjectIdentifier.MATTER_NOC_CAT.getASN1OID(), 16,
+            GalsieASN1ObjectIdentifier.GALSIE_HOME_ID.getASN1OID(), 10
+    );
+
+    private final Map<String, Attribute> attributes;
+
+    private RDNIndex(Map<String, Attribute> attributes) {
+        this.attributes = attributes;
+    }
+
+    public static RDNIndex of(X500Name x500Name) {
+        RDN[] rdns = x500Name.getRDNs();
+        if (rdns.length == 0) {
+            return EMPTY;
+        }
+        var attributes = new HashMap<String, Attribute>();
+        for (RDN rdn : rdns) {
+            for (var typeAndValue : rdn.getTypesAndValues()) {
+                var oid = typeAndValue.getType().getId();
+                var value = ASN1CodableUtils.extractOptionalUtf8OrPrintableStringFrom(typeAndValue.getValue()).orElse(null);
+                attributes.computeIfAbsent(oid, (ignored) -> new Attribute(getNumberRadix(oid))).add(value);
+            }
+        }
+        return new RDNIndex(attributes);
+    }
+
+    /**
+     * @return true if the DN holds at least one value for that attribute
+     */
+    public boolean contains(AbstractASN1ObjectIdentifier identifier) {
+        return attributes.containsKey(identifier.getASN1OID());
+    }
+
+    /**
+     * @return The number of values the DN holds for that attribute
+     */
+    public int getCount(AbstractASN1ObjectIdentifier identifier) {
+        var attribute = attributes.get(identifier.getASN1OID());
+        return attribute == null ? 0 : attribute.count;
+    }
+
+    /**
+     * @return The first value of that attribute, or null if the DN does not hold it (or holds it as another type than UTF8String or PrintableString)
+     */
+    @Nullable
+    public String getString(AbstractASN1ObjectIdentifier identifier) {
+        var attribute = attributes.get(identifier.getASN1OID());
+        return attribute == null ? null : attribute.strings[0];
+    }
+
+    /**
+     * @param index The index of the value, in DN order, less than {@link RDNIndex#getCount(AbstractASN1ObjectIdentifier)}
+     */
+    @Nullable
+    public String getString(AbstractASN1ObjectIdentifier identifier, int index) {
+        return this.getAttribute(identifier, index).strings[index];
+    }
+
+    /**
+     * Gets a numeric identifier, see {@link RDNIndex} for the attributes that are numeric
+     *
+     * @param identifier The attribute
+     * @param index The index of the value, in DN order
+     * @return The value, Matter identifiers are unsigned
+     * @throws NoSuchElementException If the DN does not hold that many values for the attribute
+     * @throws NumberFormatException If the attribute is not numeric, or the value is not a valid number
+     */
+    public long getLong(AbstractASN1ObjectIdentifier identifier, int index) {
+        var attribute = this.getAttribute(identifier, index);
+        if (attribute.numbers == null || (attribute.invalidNumbers & (1L << Math.min(index, 63))) != 0) {
+            throw new NumberFormatException("The value of " + identifier + " at " + index + " is not a valid number: " + attribute.strings[index]);
+        }
+        return attribute.numbers[index];
+    }
+
+    public long getLong(AbstractASN1ObjectIdentifier identifier) {
+        return this.getLong(identifier, 0);
+    }
+
+    /**
+     * Gets the first value of a numeric identifier, or a default value if the DN does not hold it
+     * @throws NumberFormatException If the attribute is not numeric, or the value is not a valid number
+     */
+    public long getLongOrDefault(AbstractASN1ObjectIdentifier identifier, long defaultValue) {
+        return this.contains(identifier) ? this.getLong(identifier, 0) : defaultValue;
+    }
+
+    /**
+     * @throws NoSuchElementException If the DN does not hold a matter-node-id
+     */
+    public long getNodeId() {
+        return this.getLong(MatterASN1ObjectIdentifier.MATTER_NODE_ID, 0);
+    }
+
+    /**
+     * @throws NoSuchElementException If the DN does not hold a matter-fabric-id
+     */
+    public long getFabricId() {
+        return this.getLong(MatterASN1ObjectIdentifier.MATTER_FABRIC_ID, 0);
+    }
+
+    /**
+     * @throws NoSuchElementException If the DN does not hold a matter-rcac-id
+     */
+    public long getRCACId() {
+        return this.getLong(MatterASN1ObjectIdentifier.MATTER_RCAC_ID, 0);
+    }
+
+    /**
+     * @throws NoSuchElementException If the DN does not hold a matter-icac-id
+     */
+    public long getICACId() {
+        return this.getLong(MatterASN1ObjectIdentifier.MATTER_ICAC_ID, 0);
+    }
+
+    /**
+     * @throws NoSuchElementException If the DN does not hold a galsie home id
+     */
+    public long getHomeId() {
+        return this.getLong(GalsieASN1ObjectIdentifier.GALSIE_HOME_ID, 0);
+    }
+
+    public int getNOCCATCount() {
+        return this.getCount(MatterASN1ObjectIdentifier.MATTER_NOC_CAT);
+    }
+
+    /**
+     * @param index The index of the CASE Authenticated Tag, less than {@link RDNIndex#getNOCCATCount()}
+     * @return The 32-bit tag (16-bit identifier, 16-bit version)
+     */
+    public long getNOCCAT(int index) {
+        return this.getLong(MatterASN1ObjectIdentifier.MATTER_NOC_CAT, index);
+    }
+
+    private Attribute getAttribute(AbstractASN1ObjectIdentifier identifier, int index) {
+        var attribute = attributes.get(identifier.getASN1OID());
+        if (attribute == null || index < 0 || index >= attribute.count) {
+            throw new NoSuchElementException("The DN does not hold a value of " + identifier + " at " + index);
+        }
+        return attribute;
+    }
+
+    /**
+     * @return The radix the values of that attribute are written in, or 0 if they are not numeric
+     */
+    private static int getNumberRadix(String oid) {
+        return NUMBER_RADIXES.getOrDefault(oid, 0);
+    }
+
+    /**
+     * The values of one attribute, most attributes hold a single value so the arrays start at 1
+     */
+    private static class Attribute {
+        private final int radix;
+        private String[] strings = new String[1];
+        @Nullable
+        private long[] numbers;
+        /**
+         * A bit per value that is not a valid number
+         */
+        private long invalidNumbers;
+        private int count;
+
+        Attribute(int radix) {
+            this.radix = radix;
+            if (radix != 0) {
+                this.numbers = new long[1];
+            }
+        }
+
+        void add(@Nullable String value) {
+            if (count == strings.length) {
+                strings = Arrays.copyOf(strings, count * 2);
+                if (numbers != null) {
+                    numbers = Arrays.copyOf(numbers, count * 2);
+                }
+            }
+            strings[count] = value;
+            if (numbers != null) {
+                try {
+                    if (value == null) {
+                        throw new NumberFormatException();
+                    }
+                    numbers[count] = radix == 16 ? Long.parseUnsignedLong(value, 16) : Long.parseLong(value);
+                } catch (NumberFormatException ex) {
+                    invalidNumbers |= 1L << Math.min(count, 63);
+                }
+            }
+            count++;
+        }
+    }
+}
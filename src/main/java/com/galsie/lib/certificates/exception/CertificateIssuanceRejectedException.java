@@ -0,0 +1,39 @@
+package com.galsie.lib.certificates.exception;
+
+import lombok.Getter;
+
+/**
+ * Completes the future of an issuance that the {@link com.galsie.lib.certificates.service.CertificateIssuanceService} did not perform
+ * - The {@link Reason} tells why, callers usually answer SATURATED and QUEUE_TIMEOUT with a retry-later (eg: HTTP 503)
+ * - The certificate was never signed, so retrying can not issue it twice
+ */
+@Getter
+public class CertificateIssuanceRejectedException extends Exception {
+
+    public enum Reason {
+        /**
+         * Every signing slot was busy and the queue was full, the issuance was refused on submission
+         */
+        SATURATED,
+        /**
+         * The issuance waited in the queue longer than the maximum queue time, it was shed without being signed
+         */
+        QUEUE_TIMEOUT,
+        /**
+         * The service was closed
+         */
+        CLOSED
+    }
+
+    private final Reason reason;
+
+    public CertificateIssuanceRejectedException(Reason reason, String message) {
+        super(reason + ": " + message);
+        this.reason = reason;
+    }
+
+    public CertificateIssuanceRejectedException(Reason reason, String message, Throwable cause) {
+        super(reason + ": " + message, cause);
+        this.reason = reason;
+    }
+}
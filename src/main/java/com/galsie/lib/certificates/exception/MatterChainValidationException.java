@@ -0,0 +1,62 @@
+package com.galsie.lib.certificates.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a Matter certificate chain (NOC, optional ICAC, RCAC) is not valid
+ * - The {@link Reason} tells which rule was violated, the message tells where
+ */
+@Getter
+public class MatterChainValidationException extends Exception {
+
+    public enum Reason {
+        /**
+         * The chain is empty, or longer than NOC, ICAC, RCAC
+         */
+        INVALID_CHAIN_LENGTH,
+        /**
+         * A certificate is not X.509 v3, or is not signed with ecdsa-with-SHA256, or its key is not a prime256v1 EC key
+         */
+        UNSUPPORTED_ALGORITHM,
+        /**
+         * A DN does not follow the Matter DN encoding rules (too many RDNs, multi-valued RDNs, missing or malformed Matter identifiers)
+         */
+        INVALID_DN,
+        /**
+         * An extension is missing, malformed, wrongly marked (non) critical, or not allowed for the certificate type
+         */
+        INVALID_EXTENSIONS,
+        /**
+         * The fabric ids of the certificates in the chain do not match
+         */
+        FABRIC_ID_MISMATCH,
+        /**
+         * The issuer DN (or authority key identifier) of a certificate does not match the subject (or subject key identifier) of the next certificate
+         */
+        ISSUER_MISMATCH,
+        /**
+         * A certificate is not valid at the validation time
+         */
+        INVALID_TIME,
+        /**
+         * A signature does not verify
+         */
+        INVALID_SIGNATURE,
+        /**
+         * The chain does not end at a trusted RCAC
+         */
+        UNTRUSTED_ROOT
+    }
+
+    private final Reason reason;
+
+    public MatterChainValidationException(Reason reason, String message) {
+        super(reason + ": " + message);
+        this.reason = reason;
+    }
+
+    public MatterChainValidationException(Reason reason, String message, Throwable cause) {
+        super(reason + ": " + message, cause);
+        this.reason = reason;
+    }
+}
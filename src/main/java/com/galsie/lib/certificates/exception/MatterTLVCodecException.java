@@ -0,0 +1,16 @@
+package com.galsie.lib.certificates.exception;
+
+/**
+ * Thrown when a certificate can not be converted between X.509 DER and the Matter TLV certificate format
+ * - Either the data is malformed, or the certificate uses something the Matter TLV format can not represent
+ */
+public class MatterTLVCodecException extends Exception {
+
+    public MatterTLVCodecException(String message) {
+        super(message);
+    }
+
+    public MatterTLVCodecException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,28 @@
+package com.galsie.lib.certificates.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * The signature of a CSR was verified
+ */
+@Name("com.galsie.certificates.CSRVerification")
+@Label("CSR Verification")
+@Category({"Galsie", "Certificates"})
+@Enabled(false)
+@StackTrace(false)
+public class CSRVerificationEvent extends Event {
+
+    @Label("Signature Algorithm")
+    public String signatureAlgorithm;
+
+    @Label("Subject Hash")
+    @Description("The hash code of the CSR's subject name")
+    public int subjectHash;
+
+    @Label("Valid")
+    public boolean valid;
+
+    @Label("CSR Size")
+    @DataAmount
+    public int size;
+}
@@ -0,0 +1,104 @@
+package com.galsie.lib.certificates.jfr;
+
+import com.galsie.lib.certificates.metrics.IssuanceMetrics;
+import com.galsie.lib.certificates.metrics.IssuanceStage;
+import jdk.jfr.*;
+
+/**
+ * A certificate or a CSR was encoded to, or decoded from, DER or PEM
+ * - The codecs also record the operation's {@link IssuanceStage} through it, inline so that no lambda is allocated:
+ *  var event = CertificateCodecEvent.start();
+ *  try { ... } catch (IOException ex) { event.failed(IssuanceStage.DER_ENCODE, ex); throw ex; }
+ *  event.succeeded(IssuanceStage.DER_ENCODE, PEMBlock.CERTIFICATE_LABEL, derSize, 0);
+ */
+@Name("com.galsie.certificates.CertificateCodec")
+@Label("Certificate Encode/Decode")
+@Category({"Galsie", "Certificates"})
+@Enabled(false)
+@StackTrace(false)
+public class CertificateCodecEvent extends Event {
+
+    public static final String DER_ENCODE = "DER encode";
+    public static final String DER_DECODE = "DER decode";
+    public static final String PEM_ENCODE = "PEM encode";
+    public static final String PEM_DECODE = "PEM decode";
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Structure")
+    @Description("The PEM label of what was encoded or decoded, eg: CERTIFICATE")
+    public String structure;
+
+    @Label("DER Size")
+    @DataAmount
+    public int derSize;
+
+    @Label("PEM Size")
+    @DataAmount
+    @Description("0 for DER operations")
+    public int pemSize;
+
+    /**
+     * The metrics the operation is recorded into, and the start of their timer, not part of the event
+     */
+    private transient IssuanceMetrics metrics;
+    private transient long metricsStarted;
+
+    /**
+     * Starts a codec operation: begins the event, and the {@link IssuanceMetrics#startTimer()} of its stage
+     *
+     * @return The started event, to end with {@link CertificateCodecEvent#succeeded} or {@link CertificateCodecEvent#failed}
+     */
+    public static CertificateCodecEvent start() {
+        var event = new CertificateCodecEvent();
+        event.metrics = IssuanceMetrics.get();
+        event.metricsStarted = event.metrics.startTimer();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Records the latency of the stage, and commits the event if it is recorded
+     *
+     * @param stage One of the codec stages, eg: {@link IssuanceStage#DER_ENCODE}
+     * @param structure The PEM label, eg: CERTIFICATE
+     */
+    public void succeeded(IssuanceStage stage, String structure, int derSize, int pemSize) {
+        this.metrics.recordSince(stage, this.metricsStarted);
+        this.commitFor(getOperation(stage), structure, derSize, pemSize);
+    }
+
+    /**
+     * Records the error of the stage, the event is not committed
+     */
+    public void failed(IssuanceStage stage, Throwable error) {
+        this.metrics.recordError(stage, error);
+    }
+
+    private static String getOperation(IssuanceStage stage) {
+        return switch (stage) {
+            case DER_ENCODE -> DER_ENCODE;
+            case DER_DECODE -> DER_DECODE;
+            case PEM_ENCODE -> PEM_ENCODE;
+            case PEM_DECODE -> PEM_DECODE;
+            default -> throw new IllegalArgumentException(stage + " is not a codec stage");
+        };
+    }
+
+    /**
+     * Commits the event if it is recorded
+     *
+     * @param operation eg: {@link CertificateCodecEvent#DER_ENCODE}
+     * @param structure The PEM label, eg: CERTIFICATE
+     */
+    public void commitFor(String operation, String structure, int derSize, int pemSize) {
+        if (this.shouldCommit()) {
+            this.operation = operation;
+            this.structure = structure;
+            this.derSize = derSize;
+            this.pemSize = pemSize;
+            this.commit();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.galsie.lib.certificates.jfr;
+
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import jdk.jfr.*;
+
+import java.io.IOException;
+
+/**
+ * A certificate was signed
+ */
+@Name("com.galsie.certificates.CertificateSigning")
+@Label("Certificate Signing")
+@Category({"Galsie", "Certificates"})
+@Enabled(false)
+@StackTrace(false)
+public class CertificateSigningEvent extends Event {
+
+    @Label("Signature Algorithm")
+    public String signatureAlgorithm;
+
+    @Label("Issuer Subject Hash")
+    @Description("The hash code of the issuer's subject name")
+    public int issuerSubjectHash;
+
+    @Label("Serial Number")
+    @Description("In hex")
+    public String serialNumber;
+
+    @Label("Certificate Size")
+    @DataAmount
+    public int size;
+
+    /**
+     * Commits the event if it is recorded, the fields are only read from the certificate then
+     *
+     * @param signatureAlgorithm The signature algorithm, eg: SHA256withECDSA
+     * @param certificateHolder The signed certificate
+     */
+    public void commitFor(String signatureAlgorithm, SomeX509v3CertificateHolder certificateHolder) throws IOException {
+        if (this.shouldCommit()) {
+            this.signatureAlgorithm = signatureAlgorithm;
+            this.issuerSubjectHash = certificateHolder.getIssuer().hashCode();
+            this.serialNumber = certificateHolder.getSerialNumber().toString(16);
+            this.size = certificateHolder.getDEREncoded().length; // kept by the holder, so it is not encoded again later
+            this.commit();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.galsie.lib.certificates.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * The to-be-signed part of a certificate was built: its subject name, its fields and its extensions
+ */
+@Name("com.galsie.certificates.CertificateTBSBuild")
+@Label("Certificate TBS Build")
+@Category({"Galsie", "Certificates"})
+@Enabled(false)
+@StackTrace(false)
+public class CertificateTBSBuildEvent extends Event {
+
+    @Label("Issuer Subject Hash")
+    @Description("The hash code of the issuer's subject name")
+    public int issuerSubjectHash;
+
+    @Label("Serial Number")
+    @Description("In hex")
+    public String serialNumber;
+
+    @Label("Extension Count")
+    public int extensionCount;
+
+    @Label("Profile")
+    public String profile;
+}
@@ -0,0 +1,25 @@
+package com.galsie.lib.certificates.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A keypair was generated, or taken from a {@link com.galsie.lib.certificates.keypair.KeypairPool}
+ */
+@Name("com.galsie.certificates.KeypairGeneration")
+@Label("Keypair Generation")
+@Category({"Galsie", "Certificates"})
+@Enabled(false)
+@StackTrace(false)
+public class KeypairGenerationEvent extends Event {
+
+    @Label("Algorithm")
+    public String algorithm;
+
+    @Label("Parameters")
+    @Description("The curve of elliptic curve algorithms")
+    public String parameters;
+
+    @Label("Pooled")
+    @Description("Whether the keypair was taken from a keypair pool")
+    public boolean pooled;
+}
@@ -0,0 +1,20 @@
+package com.galsie.lib.certificates.keypair;
+
+/**
+ * Holds the process wide {@link EntropySource#get()}
+ */
+class DefaultEntropySource {
+
+    private static volatile EntropySource entropySource = EntropySource.threadLocalDRBG();
+
+    static EntropySource get() {
+        return entropySource;
+    }
+
+    static void set(EntropySource entropySource) {
+        if (entropySource == null) {
+            throw new IllegalArgumentException("The entropy source can not be null, use EntropySource.threadLocalDRBG()");
+        }
+        DefaultEntropySource.entropySource = entropySource;
+    }
+}
@@ -0,0 +1,95 @@
+package com.galsie.lib.certificates.keypair;
+
+import java.security.SecureRandom;
+
+/**
+ * Where the randomness of key generation and signing comes from
+ * - {@link EntropySource#threadLocalDRBG()}: each thread has its own NIST DRBG, reseeded periodically, threads never contend. The default
+ * - {@link EntropySource#shared()}: one {@link SecureRandom} for every thread
+ * - {@link EntropySource#seeded(long)}: a deterministic sequence, for reproducible benchmarks and tests. NEVER for real keys
+ *
+ * Set per builder, eg: {@link KeypairBuilder#setEntropySource(EntropySource)}, or process wide through {@link EntropySource#set(EntropySource)}
+ */
+public interface EntropySource {
+
+    /**
+     * Reseed the thread local DRBGs after this many uses, see {@link EntropySource#threadLocalDRBG(int)}
+     */
+    int DEFAULT_RESEED_INTERVAL = 4096;
+
+    /**
+     * Gets the random to use on the calling thread
+     * - Depending on the source, it may not be safe to hand to other threads, use {@link EntropySource#asSecureRandom()} for that
+     */
+    SecureRandom getSecureRandom();
+
+    /**
+     * A {@link SecureRandom} view of this source, that uses {@link EntropySource#getSecureRandom()} of whichever thread calls it
+     * - For objects that keep a random and are used by many threads, eg: a pooled signer
+     */
+    default SecureRandom asSecureRandom() {
+        return new EntropySourceSecureRandom(this);
+    }
+
+    /**
+     * A DRBG per thread, reseeded every {@link EntropySource#DEFAULT_RESEED_INTERVAL} uses
+     */
+    static EntropySource threadLocalDRBG() {
+        return threadLocalDRBG(DEFAULT_RESEED_INTERVAL);
+    }
+
+    /**
+     * A DRBG per thread, instantiated at 256 bits of security strength
+     *
+     * @param reseedInterval The number of uses after which the DRBG is reseeded from the system entropy
+     *                       - 1 requests prediction resistance: fresh entropy for every keypair and signature, at the cost of reading the system entropy each time
+     */
+    static EntropySource threadLocalDRBG(int reseedInterval) {
+        return new ThreadLocalDRBGEntropySource(reseedInterval);
+    }
+
+    /**
+     * One {@link SecureRandom} shared by every thread, the JDK's default
+     */
+    static EntropySource shared() {
+        return shared(new SecureRandom());
+    }
+
+    /**
+     * One {@link SecureRandom} shared by every thread
+     */
+    static EntropySource shared(SecureRandom secureRandom) {
+        return () -> secureRandom;
+    }
+
+    /**
+     * A deterministic source: the same seed gives the same keys and signatures, as long as they are generated in the same order
+     * - Shared by every thread, so the order is only reproducible from a single thread
+     * - NEVER use it for real keys, the seed is the key
+     *
+     * @param seed The seed
+     */
+    static EntropySource seeded(long seed) {
+        try {
+            var secureRandom = SecureRandom.getInstance("SHA1PRNG", "SUN");
+            secureRandom.setSeed(seed); // seeded before its first use, so it does not mix in system entropy
+            return shared(secureRandom);
+        } catch (Exception ex) {
+            throw new IllegalStateException("The SHA1PRNG algorithm is not available", ex);
+        }
+    }
+
+    /**
+     * @return The process wide source, used by builders that were not given one
+     */
+    static EntropySource get() {
+        return DefaultEntropySource.get();
+    }
+
+    /**
+     * Sets the process wide source
+     */
+    static void set(EntropySource entropySource) {
+        DefaultEntropySource.set(entropySource);
+    }
+}
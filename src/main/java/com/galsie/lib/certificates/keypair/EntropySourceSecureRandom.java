@@ -0,0 +1,74 @@
+package com.galsie.lib.certificates.keypair;
+
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.security.SecureRandom;
+import java.security.SecureRandomParameters;
+import java.security.SecureRandomSpi;
+
+/**
+ * The {@link SecureRandom} of {@link EntropySource#asSecureRandom()}
+ * - Every call goes to the calling thread's random of the source
+ * - Overrides the public methods, so that it does not lock like a {@link SecureRandom} of an unknown provider does
+ * - Not serializable, an {@link EntropySource} is not
+ */
+class EntropySourceSecureRandom extends SecureRandom {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient EntropySource entropySource;
+
+    EntropySourceSecureRandom(EntropySource entropySource) {
+        super(new DelegatingSpi(entropySource), null);
+        this.entropySource = entropySource;
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes) {
+        this.entropySource.getSecureRandom().nextBytes(bytes);
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes, SecureRandomParameters params) {
+        this.entropySource.getSecureRandom().nextBytes(bytes, params);
+    }
+
+    @Override
+    public byte[] generateSeed(int numBytes) {
+        return this.entropySource.getSecureRandom().generateSeed(numBytes);
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return this.entropySource.getSecureRandom().getAlgorithm();
+    }
+
+    private void writeObject(ObjectOutputStream out) throws NotSerializableException {
+        throw new NotSerializableException(EntropySourceSecureRandom.class.getName());
+    }
+
+    private static class DelegatingSpi extends SecureRandomSpi {
+        private static final long serialVersionUID = 1L;
+
+        private final transient EntropySource entropySource;
+
+        private DelegatingSpi(EntropySource entropySource) {
+            this.entropySource = entropySource;
+        }
+
+        @Override
+        protected void engineSetSeed(byte[] seed) {
+            this.entropySource.getSecureRandom().setSeed(seed);
+        }
+
+        @Override
+        protected void engineNextBytes(byte[] bytes) {
+            this.entropySource.getSecureRandom().nextBytes(bytes);
+        }
+
+        @Override
+        protected byte[] engineGenerateSeed(int numBytes) {
+            return this.entropySource.getSecureRandom().generateSeed(numBytes);
+        }
+    }
+}
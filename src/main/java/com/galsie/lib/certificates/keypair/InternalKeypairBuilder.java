@@ -2,6 +2,7 @@ package com.galsie.lib.certificates.keypair;
 
 import com.galsie.lib.certificates.keypair.algo.KeypairGenerationAlgorithm;
 import com.galsie.lib.utils.builder.InternalBuilder;
+import com.galsie.lib.utils.lang.Nullable;
 
 import java.security.KeyPair;
 
@@ -23,15 +24,31 @@ public class InternalKeypairBuilder<T> extends InternalBuilder<T> {
      * Sets the Keypair Generation Algorithm (with the algorithm specification)
      *
      * @param keypairGenerationAlgorithm An instance of a subclass of KeypairGenerationAlgorithm:
-     *                                   - eg: ECDSA.SECP_256_RV1
-     *                                   Algorithms may have different providers, to change the provider:
-     *                                   - ECDSA.SECP_256_RV1.withProvider(SecurityProvider...)
+     *                                   - eg: ECDSA.SECP_256_R1, or EdDSA.ED_25519 for certificates that are not matter constrained
+     *                                   The provider is the one selected for key generation, see {@link com.galsie.lib.certificates.ProviderSelection}
      */
     public InternalKeypairBuilder<T> setGenerationAlgorithm(KeypairGenerationAlgorithm keypairGenerationAlgorithm) {
         this.keypairBuilder.setGenerationAlgorithm(keypairGenerationAlgorithm);
         return this;
     }
 
+    /**
+     * Sets where the randomness of the keypair comes from, see {@link KeypairBuilder#setEntropySource(EntropySource)}
+     * - Builders that sign with the generated key use the same source for the signature
+     */
+    public InternalKeypairBuilder<T> setEntropySource(@Nullable EntropySource entropySource) {
+        this.keypairBuilder.setEntropySource(entropySource);
+        return this;
+    }
+
+    /**
+     * @return The source of the keypair randomness, or null if the process wide one is used
+     */
+    @Nullable
+    public EntropySource getEntropySource() {
+        return this.keypairBuilder.getEntropySource();
+    }
+
     /**
      * Builds the {@link KeyPair} with the Specified algorithm (including specs) and the security provider
      *
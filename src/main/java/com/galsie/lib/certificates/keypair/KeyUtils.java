@@ -1,14 +1,91 @@
 package com.galsie.lib.certificates.keypair;
 
+import com.galsie.lib.certificates.CryptoOperation;
+import com.galsie.lib.certificates.SecurityProvider;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.edec.EdECObjectIdentifiers;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.asn1.x9.X9ObjectIdentifiers;
+
 import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
 import java.security.PrivateKey;
+import java.security.PublicKey;
 import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * Decodes keys with cached {@link KeyFactory}s
+ * - {@link KeyFactory#getInstance(String)} walks the providers on every call, and a {@link KeyFactory} is not thread safe
+ * - So each thread keeps its own {@link KeyFactory} per (provider, algorithm), looked up once
+ * - The provider is the one selected for {@link CryptoOperation#KEY_DECODING}
+ */
 public class KeyUtils {
 
+    private static final ThreadLocal<Map<SecurityProvider, Map<String, KeyFactory>>> KEY_FACTORIES = ThreadLocal.withInitial(() -> new EnumMap<>(SecurityProvider.class));
+
+    /**
+     * The key algorithms of the SubjectPublicKeyInfo algorithm OIDs, as bouncy castle's JcaPEMKeyConverter names them
+     * - Other OIDs are looked up by their dotted form
+     */
+    private static final Map<ASN1ObjectIdentifier, String> PUBLIC_KEY_ALGORITHMS = Map.of(
+            X9ObjectIdentifiers.id_ecPublicKey, "ECDSA",
+            PKCSObjectIdentifiers.rsaEncryption, "RSA",
+            X9ObjectIdentifiers.id_dsa, "DSA",
+            EdECObjectIdentifiers.id_Ed25519, "Ed25519",
+            EdECObjectIdentifiers.id_Ed448, "Ed448",
+            EdECObjectIdentifiers.id_X25519, "X25519",
+            EdECObjectIdentifiers.id_X448, "X448"
+    );
+
+    /**
+     * Gets the calling thread's {@link KeyFactory} of an algorithm, from the provider selected for {@link CryptoOperation#KEY_DECODING}
+     * - The factory must not be handed to other threads
+     *
+     * @param keyAlgo The key algorithm, eg: EC
+     */
+    public static KeyFactory getKeyFactory(String keyAlgo) throws NoSuchAlgorithmException, NoSuchProviderException {
+        return getKeyFactory(SecurityProvider.forOperation(CryptoOperation.KEY_DECODING), keyAlgo);
+    }
+
+    /**
+     * Gets the calling thread's {@link KeyFactory} of an algorithm, from a given provider
+     * - The factory must not be handed to other threads
+     *
+     * @param securityProvider The provider of the factory
+     * @param keyAlgo The key algorithm, eg: EC, mapped with {@link SecurityProvider#getKeyAlgorithmName(String)}
+     */
+    public static KeyFactory getKeyFactory(SecurityProvider securityProvider, String keyAlgo) throws NoSuchAlgorithmException, NoSuchProviderException {
+        var providerKeyFactories = KEY_FACTORIES.get();
+        var keyFactories = providerKeyFactories.get(securityProvider);
+        if (keyFactories == null) {
+            keyFactories = new HashMap<>();
+            providerKeyFactories.put(securityProvider, keyFactories);
+        }
+        var keyFactory = keyFactories.get(keyAlgo);
+        if (keyFactory == null) {
+            keyFactory = KeyFactory.getInstance(securityProvider.getKeyAlgorithmName(keyAlgo), securityProvider.getProvider());
+            keyFactories.put(keyAlgo, keyFactory);
+        }
+        return keyFactory;
+    }
+
     public static PrivateKey decodePrivateKey(byte[] keyData, String keyAlgo) throws Exception {
         var encodedKeySpec = new PKCS8EncodedKeySpec(keyData);
-        var keyFactory = KeyFactory.getInstance(keyAlgo);
-        return keyFactory.generatePrivate(encodedKeySpec);
+        return getKeyFactory(keyAlgo).generatePrivate(encodedKeySpec);
+    }
+
+    /**
+     * Decodes the public key of a SubjectPublicKeyInfo, eg: of a certificate or a CSR
+     */
+    public static PublicKey decodePublicKey(SubjectPublicKeyInfo subjectPublicKeyInfo) throws Exception {
+        var algorithm = subjectPublicKeyInfo.getAlgorithm().getAlgorithm();
+        var keyAlgo = PUBLIC_KEY_ALGORITHMS.getOrDefault(algorithm, algorithm.getId());
+        return getKeyFactory(keyAlgo).generatePublic(new X509EncodedKeySpec(subjectPublicKeyInfo.getEncoded()));
     }
 }
@@ -1,15 +1,35 @@
 package com.galsie.lib.certificates.keypair;
 
+import com.galsie.lib.certificates.CryptoOperation;
+import com.galsie.lib.certificates.ProviderSelection;
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.jfr.KeypairGenerationEvent;
+import com.galsie.lib.certificates.keypair.algo.ECDSA;
 import com.galsie.lib.certificates.keypair.algo.KeypairGenerationAlgorithm;
+import com.galsie.lib.certificates.metrics.IssuanceMetrics;
+import com.galsie.lib.certificates.metrics.IssuanceStage;
+import com.galsie.lib.utils.lang.Nullable;
+
+import org.bouncycastle.jce.spec.ECNamedCurveParameterSpec;
 
 import java.security.*;
+import java.security.spec.AlgorithmParameterSpec;
+import java.security.spec.NamedParameterSpec;
+import java.util.Optional;
 
 /**
  * A Builder class for {@link KeyPair} that makes it more convenient to select the algorithm, the algorithm specs, and the provider
  */
 public class KeypairBuilder {
 
-    private KeypairGenerationAlgorithm keypairGenerationAlgorithm = null;
+    /**
+     * Defaults to ECDSA secp256r1, which is what the matter protocol requires for its certificates
+     */
+    private KeypairGenerationAlgorithm keypairGenerationAlgorithm = ECDSA.SECP_256_R1;
+    /**
+     * The source of the generation randomness, or null for the process wide {@link EntropySource#get()}
+     */
+    private EntropySource entropySource;
     /**
      * Initializes the builder
      */
@@ -22,22 +42,84 @@ public class KeypairBuilder {
      * Sets the Keypair Generation Algorithm (with the algorithm specification)
      * @param keypairGenerationAlgorithm An instance of a subclass of KeypairGenerationAlgorithm:
      *                                   - eg: ECDSA.SECP_256_RV1
-     *                                   Algorithms may have different providers, to change the provider:
-     *                                   - ECDSA.SECP_256_RV1.withProvider(SecurityProvider...)
+     *                                   The provider is the one selected for {@link CryptoOperation#KEY_GENERATION}, see {@link ProviderSelection}
      */
     public KeypairBuilder setGenerationAlgorithm(KeypairGenerationAlgorithm keypairGenerationAlgorithm){
         this.keypairGenerationAlgorithm = keypairGenerationAlgorithm;
         return this;
     }
 
+    /**
+     * Sets where the randomness of the keypair comes from
+     * - A builder given its own source generates inline, it does not take pooled keypairs (which came from the process wide source)
+     * @param entropySource The source, or null for the process wide {@link EntropySource#get()}
+     */
+    public KeypairBuilder setEntropySource(@Nullable EntropySource entropySource) {
+        this.entropySource = entropySource;
+        return this;
+    }
+
+    /**
+     * @return The source of the generation randomness, or null if the process wide one is used
+     */
+    @Nullable
+    public EntropySource getEntropySource() {
+        return this.entropySource;
+    }
+
     /**
      * Builds the {@link KeyPair} with the Specified algorithm (including specs) and the security provider
+     * - If a {@link KeypairPool} was started for the algorithm and no entropy source was set, the keypair is taken from the pool
      * @return The generated {@link KeyPair}
      * @throws Exception
      */
     public KeyPair build() throws Exception {
-        KeyPairGenerator g = KeyPairGenerator.getInstance(keypairGenerationAlgorithm.getAlgorithmIdentifier(), "BC");
-        g.initialize(keypairGenerationAlgorithm.getAlgorithmParameterSpec(), new SecureRandom());
+        var event = new KeypairGenerationEvent();
+        event.begin();
+        var keypairPool = this.entropySource == null ? KeypairPool.forAlgorithm(keypairGenerationAlgorithm) : Optional.<KeypairPool>empty();
+        var metrics = IssuanceMetrics.get();
+        long started = metrics.startTimer();
+        KeyPair keyPair;
+        try {
+            keyPair = keypairPool.isPresent() ? keypairPool.get().take() : generateKeypair(keypairGenerationAlgorithm, this.entropySource == null ? EntropySource.get() : this.entropySource);
+        } catch (Exception ex) {
+            metrics.recordError(IssuanceStage.KEYPAIR_GENERATION, ex);
+            throw ex;
+        }
+        metrics.recordSince(IssuanceStage.KEYPAIR_GENERATION, started);
+        if (event.shouldCommit()) {
+            event.algorithm = keypairGenerationAlgorithm.getAlgorithmIdentifier();
+            event.parameters = describeParameters(keypairGenerationAlgorithm.getAlgorithmParameterSpec());
+            event.pooled = keypairPool.isPresent();
+            event.commit();
+        }
+        return keyPair;
+    }
+
+    /**
+     * @return The name of a named curve, or else the class of the parameters
+     */
+    private static String describeParameters(AlgorithmParameterSpec algorithmParameterSpec) {
+        if (algorithmParameterSpec instanceof ECNamedCurveParameterSpec namedCurveParameterSpec) {
+            return namedCurveParameterSpec.getName();
+        }
+        if (algorithmParameterSpec instanceof NamedParameterSpec namedParameterSpec) { // including ECGenParameterSpec
+            return namedParameterSpec.getName();
+        }
+        return algorithmParameterSpec == null ? null : algorithmParameterSpec.getClass().getSimpleName();
+    }
+
+    /**
+     * Generates a new {@link KeyPair} on the caller's thread, without going through a {@link KeypairPool}
+     * @param keypairGenerationAlgorithm The algorithm (including specs)
+     * @param entropySource The source of the randomness
+     * @return The generated {@link KeyPair}
+     * @throws Exception
+     */
+    static KeyPair generateKeypair(KeypairGenerationAlgorithm keypairGenerationAlgorithm, EntropySource entropySource) throws Exception {
+        var securityProvider = SecurityProvider.forOperation(CryptoOperation.KEY_GENERATION);
+        KeyPairGenerator g = KeyPairGenerator.getInstance(keypairGenerationAlgorithm.getAlgorithmIdentifier(securityProvider), securityProvider.getProvider());
+        g.initialize(keypairGenerationAlgorithm.getAlgorithmParameterSpec(securityProvider), entropySource.getSecureRandom());
         return g.generateKeyPair();
     }
 
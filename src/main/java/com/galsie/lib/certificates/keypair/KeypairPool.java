@@ -0,0 +1,251 @@
+package com.galsie.lib.certificates.keypair;
+
+import com.galsie.lib.certificates.keypair.algo.KeypairGenerationAlgorithm;
+
+import java.security.KeyPair;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link KeypairPool} holds {@link KeyPair}s of a single {@link KeypairGenerationAlgorithm} that were generated ahead of time by background workers
+ * - Key generation is expensive (a full curve keygen), pooling takes it off the caller's thread
+ * - The pool is opt-in per algorithm, through {@link KeypairPool#start(KeypairGenerationAlgorithm, int, int, int)}
+ * - Once started, {@link KeypairBuilder#build()} takes keypairs from the pool, and falls back to inline generation when the pool is empty
+ *
+ * Watermarks:
+ * - When the number of pooled keypairs drops to the low watermark, the workers are woken up
+ * - The workers keep generating until the pool holds the high watermark
+ *
+ * NOTE: A pooled keypair is handed out exactly once, it is never shared between two callers.
+ */
+public class KeypairPool {
+
+    /**
+     * The started pools, one per algorithm
+     */
+    private static final Map<KeypairGenerationAlgorithm, KeypairPool> POOLS = new ConcurrentHashMap<>();
+
+    private final KeypairGenerationAlgorithm keypairGenerationAlgorithm;
+    private final int lowWatermark;
+    private final int highWatermark;
+    private final int workerCount;
+
+    private final ConcurrentLinkedQueue<KeyPair> keypairs = new ConcurrentLinkedQueue<>();
+    /**
+     * The size of {@link KeypairPool#keypairs}, kept separately since {@link ConcurrentLinkedQueue#size()} is linear
+     */
+    private final AtomicInteger pooledCount = new AtomicInteger();
+    private final ExecutorService workers;
+
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private final AtomicBoolean refilling = new AtomicBoolean(false);
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    /**
+     * The number of keypairs being generated by the workers right now
+     */
+    private final AtomicInteger generatingCount = new AtomicInteger();
+    private volatile boolean refillFailed;
+    private volatile long refillStartedAtNanos;
+
+    /*
+    Counters
+     */
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder refills = new LongAdder();
+    private final LongAdder totalRefillLagNanos = new LongAdder();
+    private final AtomicLong lastRefillLagNanos = new AtomicLong();
+    private final AtomicLong maxRefillLagNanos = new AtomicLong();
+
+    private KeypairPool(KeypairGenerationAlgorithm keypairGenerationAlgorithm, int lowWatermark, int highWatermark, int workerCount) {
+        if (lowWatermark < 0 || highWatermark <= lowWatermark) {
+            throw new IllegalArgumentException("The watermarks must satisfy 0 <= low < high, got low=" + lowWatermark + " high=" + highWatermark);
+        }
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("The worker count must be positive, got " + workerCount);
+        }
+        this.keypairGenerationAlgorithm = keypairGenerationAlgorithm;
+        this.lowWatermark = lowWatermark;
+        this.highWatermark = highWatermark;
+        this.workerCount = workerCount;
+        var threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            var thread = new Thread(runnable, "galsie-keypair-pool-" + keypairGenerationAlgorithm.getAlgorithmIdentifier() + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true); // never keep the JVM alive for pre-generation
+            return thread;
+        });
+    }
+
+    /**
+     * Starts a pool for the given algorithm, and registers it so that {@link KeypairBuilder} uses it
+     * - If a pool was already started for the algorithm, it is stopped and replaced
+     * - The pool starts filling up in the background right away
+     *
+     * @param keypairGenerationAlgorithm The algorithm (with its parameter spec) of the pooled keypairs
+     * @param lowWatermark When the pooled count drops to this value, a refill is triggered
+     * @param highWatermark A refill generates keypairs until the pooled count reaches this value
+     * @param workerCount The number of background threads generating keypairs
+     * @return The started pool
+     */
+    public static KeypairPool start(KeypairGenerationAlgorithm keypairGenerationAlgorithm, int lowWatermark, int highWatermark, int workerCount) {
+        var pool = new KeypairPool(keypairGenerationAlgorithm, lowWatermark, highWatermark, workerCount);
+        var previous = POOLS.put(keypairGenerationAlgorithm, pool);
+        if (previous != null) {
+            previous.doStop();
+        }
+        pool.triggerRefill();
+        return pool;
+    }
+
+    /**
+     * Gets the started pool for an algorithm
+     *
+     * @param keypairGenerationAlgorithm The algorithm
+     * @return The pool, or empty if no pool was started for that algorithm
+     */
+    public static Optional<KeypairPool> forAlgorithm(KeypairGenerationAlgorithm keypairGenerationAlgorithm) {
+        if (POOLS.isEmpty()) { // the common case when pooling is not used
+            return Optional.empty();
+        }
+        return Optional.ofNullable(POOLS.get(keypairGenerationAlgorithm));
+    }
+
+    /**
+     * Takes a keypair from the pool
+     * - If the pool is empty, the keypair is generated inline on the caller's thread (counted as a miss)
+     *
+     * @return A keypair that was not handed out before
+     * @throws Exception If the inline generation failed
+     */
+    public KeyPair take() throws Exception {
+        var keyPair = this.keypairs.poll();
+        if (keyPair != null) {
+            hits.increment();
+            if (pooledCount.decrementAndGet() <= lowWatermark) {
+                this.triggerRefill();
+            }
+            return keyPair;
+        }
+        misses.increment();
+        this.triggerRefill();
+        return KeypairBuilder.generateKeypair(this.keypairGenerationAlgorithm, EntropySource.get());
+    }
+
+    /**
+     * Stops the background workers and unregisters the pool
+     * - Pooled keypairs are dropped
+     */
+    public void stop() {
+        POOLS.remove(this.keypairGenerationAlgorithm, this);
+        this.doStop();
+    }
+
+    public int getPooledCount() {
+        return this.pooledCount.get();
+    }
+
+    public KeypairGenerationAlgorithm getKeypairGenerationAlgorithm() {
+        return this.keypairGenerationAlgorithm;
+    }
+
+    /**
+     * Gets a snapshot of the pool's counters
+     *
+     * @return The {@link KeypairPoolStatistics}
+     */
+    public KeypairPoolStatistics getStatistics() {
+        return new KeypairPoolStatistics(
+                hits.sum(),
+                misses.sum(),
+                generated.sum(),
+                pooledCount.get(),
+                refills.sum(),
+                lastRefillLagNanos.get(),
+                maxRefillLagNanos.get(),
+                totalRefillLagNanos.sum()
+        );
+    }
+
+    private void doStop() {
+        this.running.set(false);
+        this.workers.shutdownNow();
+        this.keypairs.clear();
+        this.pooledCount.set(0);
+    }
+
+    /**
+     * Wakes the workers up, unless a refill is already in progress
+     * - The refill lag is measured from here until the high watermark is reached
+     */
+    private void triggerRefill() {
+        if (!running.get() || !refilling.compareAndSet(false, true)) {
+            return;
+        }
+        this.refillStartedAtNanos = System.nanoTime();
+        this.refillFailed = false;
+        this.activeWorkers.set(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            this.workers.execute(this::refill);
+        }
+    }
+
+    private void refill() {
+        try {
+            while (running.get() && this.reserveSlot()) {
+                try {
+                    this.keypairs.offer(KeypairBuilder.generateKeypair(this.keypairGenerationAlgorithm, EntropySource.get()));
+                    pooledCount.incrementAndGet();
+                    generated.increment();
+                } finally {
+                    generatingCount.decrementAndGet();
+                }
+            }
+        } catch (Exception ex) {
+            // The algorithm could not be generated in the background, callers fall back to inline generation which surfaces the error
+            this.refillFailed = true;
+        } finally {
+            if (activeWorkers.decrementAndGet() == 0) {
+                this.onRefillDone();
+            }
+        }
+    }
+
+    /**
+     * Reserves the generation of one keypair, so that concurrent workers never fill the pool past the high watermark
+     *
+     * @return false if the pooled and in-progress keypairs already reach the high watermark
+     */
+    private boolean reserveSlot() {
+        while (true) {
+            var generating = generatingCount.get();
+            if (pooledCount.get() + generating >= highWatermark) {
+                return false;
+            }
+            if (generatingCount.compareAndSet(generating, generating + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void onRefillDone() {
+        var lag = System.nanoTime() - this.refillStartedAtNanos;
+        refills.increment();
+        totalRefillLagNanos.add(lag);
+        lastRefillLagNanos.set(lag);
+        maxRefillLagNanos.accumulateAndGet(lag, Math::max);
+        refilling.set(false);
+        // Keypairs may have been taken while the last worker was finishing up
+        if (!refillFailed && pooledCount.get() <= lowWatermark) {
+            this.triggerRefill();
+        }
+    }
+}
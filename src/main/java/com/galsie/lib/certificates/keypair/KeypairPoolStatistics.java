@@ -0,0 +1,58 @@
+package com.galsie.lib.certificates.keypair;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A snapshot of the counters of a {@link KeypairPool}
+ * - Taken through {@link KeypairPool#getStatistics()}
+ */
+@AllArgsConstructor
+@Getter
+public class KeypairPoolStatistics {
+
+    /**
+     * The number of keypairs taken from the pool
+     */
+    private long hits;
+
+    /**
+     * The number of keypairs generated inline because the pool was empty
+     */
+    private long misses;
+
+    /**
+     * The number of keypairs generated by the background workers
+     */
+    private long generated;
+
+    /**
+     * The number of keypairs in the pool when the snapshot was taken
+     */
+    private int pooledCount;
+
+    /**
+     * The number of completed refills (low watermark to high watermark)
+     */
+    private long refills;
+
+    /**
+     * The time it took the last refill to reach the high watermark, in nanoseconds
+     */
+    private long lastRefillLagNanos;
+
+    /**
+     * The longest time a refill took to reach the high watermark, in nanoseconds
+     */
+    private long maxRefillLagNanos;
+
+    /**
+     * The sum of all refill times, in nanoseconds
+     */
+    private long totalRefillLagNanos;
+
+    public double getHitRatio() {
+        var total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
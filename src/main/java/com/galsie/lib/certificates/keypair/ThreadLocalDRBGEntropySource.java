@@ -0,0 +1,62 @@
+package com.galsie.lib.certificates.keypair;
+
+import java.nio.ByteBuffer;
+import java.security.DrbgParameters;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * An {@link EntropySource} with a DRBG per thread, see {@link EntropySource#threadLocalDRBG(int)}
+ * - Each DRBG is personalized with its thread, so two threads never produce the same sequence even if the system entropy repeats
+ */
+class ThreadLocalDRBGEntropySource implements EntropySource {
+
+    private static final int SECURITY_STRENGTH = 256;
+
+    private final int reseedInterval;
+    private final ThreadLocal<ReseedingDRBG> drbgs = ThreadLocal.withInitial(this::instantiate);
+
+    ThreadLocalDRBGEntropySource(int reseedInterval) {
+        if (reseedInterval <= 0) {
+            throw new IllegalArgumentException("The reseed interval must be positive, got " + reseedInterval);
+        }
+        this.reseedInterval = reseedInterval;
+    }
+
+    @Override
+    public SecureRandom getSecureRandom() {
+        var drbg = this.drbgs.get();
+        if (++drbg.uses >= this.reseedInterval) {
+            drbg.uses = 0;
+            drbg.secureRandom.reseed(DrbgParameters.reseed(this.isPredictionResistant(), null));
+        }
+        return drbg.secureRandom;
+    }
+
+    private boolean isPredictionResistant() {
+        return this.reseedInterval == 1;
+    }
+
+    private ReseedingDRBG instantiate() {
+        var thread = Thread.currentThread();
+        var personalization = ByteBuffer.allocate(16).putLong(thread.getId()).putLong(System.nanoTime()).array();
+        var capability = this.isPredictionResistant() ? DrbgParameters.Capability.PR_AND_RESEED : DrbgParameters.Capability.RESEED_ONLY;
+        try {
+            return new ReseedingDRBG(SecureRandom.getInstance("DRBG", DrbgParameters.instantiation(SECURITY_STRENGTH, capability, personalization)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("The DRBG algorithm is not available", ex);
+        }
+    }
+
+    private static class ReseedingDRBG {
+        private final SecureRandom secureRandom;
+        /**
+         * The uses since the last reseed, only touched by the owning thread
+         */
+        private int uses;
+
+        private ReseedingDRBG(SecureRandom secureRandom) {
+            this.secureRandom = secureRandom;
+        }
+    }
+}
@@ -4,13 +4,14 @@ import com.galsie.lib.certificates.SecurityProvider;
 import org.bouncycastle.jce.ECNamedCurveTable;
 
 import java.security.spec.AlgorithmParameterSpec;
+import java.security.spec.ECGenParameterSpec;
 
 public class ECDSA extends KeypairGenerationAlgorithm {
 
     /**
      * ECDSA Algorithms with Specs
      */
-    public static ECDSA SECP_256_R1 = new ECDSA(ECNamedCurveTable.getParameterSpec("secp256r1"));
+    public static ECDSA SECP_256_R1 = new ECDSA("secp256r1");
 
     /**
      * Algorithm Identifier is the same for all instances of the algorithm, what is changing is the parameter spec
@@ -18,15 +19,35 @@ public class ECDSA extends KeypairGenerationAlgorithm {
     private static String ALGORITHM_IDENTIFIER = "ECDSA";
 
     /**
-     * Creates a new instance of the algorithm with the given parameter spec (such as what type of curve), and an algorithm provider (such as bouncy castle)
-     * @param algorithmParameterSpec
+     * The name of the curve, for providers other than bouncy castle
      */
-    private ECDSA(AlgorithmParameterSpec algorithmParameterSpec) {
-        super(algorithmParameterSpec);
+    private final String curveName;
+
+    /**
+     * Creates a new instance of the algorithm for the named curve
+     * - The parameter spec is bouncy castle's, other providers are given {@link ECGenParameterSpec}, see {@link ECDSA#getAlgorithmParameterSpec(SecurityProvider)}
+     * @param curveName eg: secp256r1
+     */
+    private ECDSA(String curveName) {
+        super(ECNamedCurveTable.getParameterSpec(curveName));
+        this.curveName = curveName;
     }
 
 
     public String getAlgorithmIdentifier() {
         return ALGORITHM_IDENTIFIER;
     }
-}
\ No newline at end of file
+
+    @Override
+    public String getAlgorithmIdentifier(SecurityProvider securityProvider) {
+        return securityProvider.getKeyAlgorithmName(ALGORITHM_IDENTIFIER);
+    }
+
+    @Override
+    public AlgorithmParameterSpec getAlgorithmParameterSpec(SecurityProvider securityProvider) {
+        if (securityProvider == SecurityProvider.BOUNCY_CASTLE) {
+            return this.algorithmParameterSpec;
+        }
+        return new ECGenParameterSpec(this.curveName);
+    }
+}
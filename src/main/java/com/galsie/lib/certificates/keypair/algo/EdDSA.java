@@ -0,0 +1,28 @@
+package com.galsie.lib.certificates.keypair.algo;
+
+import java.security.spec.NamedParameterSpec;
+
+/**
+ * Edwards curve keypairs, for the internal Galsie service certificates (which are not bound by the matter constraints)
+ * - Sign with pure EdDSA: the signature covers the message itself, there is no separate hashing algorithm
+ * - Signatures have a fixed size, 64 bytes for Ed25519 and 114 bytes for Ed448
+ */
+public class EdDSA extends KeypairGenerationAlgorithm {
+
+    public static EdDSA ED_25519 = new EdDSA(NamedParameterSpec.ED25519);
+    public static EdDSA ED_448 = new EdDSA(NamedParameterSpec.ED448);
+
+    private final String algorithmIdentifier;
+
+    /**
+     * Unlike ECDSA, the curve is part of the algorithm identifier, eg: Ed25519
+     */
+    private EdDSA(NamedParameterSpec namedParameterSpec) {
+        super(namedParameterSpec);
+        this.algorithmIdentifier = namedParameterSpec.getName();
+    }
+
+    public String getAlgorithmIdentifier() {
+        return algorithmIdentifier;
+    }
+}
@@ -33,5 +33,24 @@ public abstract class KeypairGenerationAlgorithm {
         return this.algorithmParameterSpec;
     }
 
+    /**
+     * Gets the identifier of the algorithm in a specific provider, see {@link SecurityProvider#getKeyAlgorithmName(String)}
+     * @param securityProvider The provider the keypair generator is taken from
+     * @return A String identifying the algorithm in that provider
+     */
+    public String getAlgorithmIdentifier(SecurityProvider securityProvider) {
+        return securityProvider.getKeyAlgorithmName(this.getAlgorithmIdentifier());
+    }
+
+    /**
+     * Gets the Parameters used for generating the key with this algorithm in a specific provider
+     * - Defaults to {@link KeypairGenerationAlgorithm#getAlgorithmParameterSpec()}, algorithms whose parameters are provider specific override it
+     * @param securityProvider The provider the keypair generator is taken from
+     * @return An AlgorithmParameterSpec that provider accepts
+     */
+    public AlgorithmParameterSpec getAlgorithmParameterSpec(SecurityProvider securityProvider) {
+        return this.getAlgorithmParameterSpec();
+    }
+
 
 }
\ No newline at end of file
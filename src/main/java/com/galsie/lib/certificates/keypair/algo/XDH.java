@@ -0,0 +1,24 @@
+package com.galsie.lib.certificates.keypair.algo;
+
+import java.security.spec.NamedParameterSpec;
+
+/**
+ * Montgomery curve keypairs, for key agreement (X25519 / X448)
+ * - They can not sign: a certificate can hold an XDH public key, but it must be signed by another issuer, and no CSR can be built for it
+ */
+public class XDH extends KeypairGenerationAlgorithm {
+
+    public static XDH X_25519 = new XDH(NamedParameterSpec.X25519);
+    public static XDH X_448 = new XDH(NamedParameterSpec.X448);
+
+    private final String algorithmIdentifier;
+
+    private XDH(NamedParameterSpec namedParameterSpec) {
+        super(namedParameterSpec);
+        this.algorithmIdentifier = namedParameterSpec.getName();
+    }
+
+    public String getAlgorithmIdentifier() {
+        return algorithmIdentifier;
+    }
+}
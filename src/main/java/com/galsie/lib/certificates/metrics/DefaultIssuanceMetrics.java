@@ -0,0 +1,20 @@
+package com.galsie.lib.certificates.metrics;
+
+/**
+ * Holds the process wide {@link IssuanceMetrics#get()}
+ */
+class DefaultIssuanceMetrics {
+
+    private static volatile IssuanceMetrics issuanceMetrics = IssuanceMetrics.NO_OP;
+
+    static IssuanceMetrics get() {
+        return issuanceMetrics;
+    }
+
+    static void set(IssuanceMetrics issuanceMetrics) {
+        if (issuanceMetrics == null) {
+            throw new IllegalArgumentException("The issuance metrics can not be null, use IssuanceMetrics.NO_OP");
+        }
+        DefaultIssuanceMetrics.issuanceMetrics = issuanceMetrics;
+    }
+}
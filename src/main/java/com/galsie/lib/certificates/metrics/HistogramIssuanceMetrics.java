@@ -0,0 +1,81 @@
+package com.galsie.lib.certificates.metrics;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records into in-process histograms, one {@link LatencyHistogram} per {@link IssuanceStage}
+ * - Recording a latency does not allocate nor lock
+ * - Errors are counted by exception class, only the first error of a class allocates its counter
+ * - {@link HistogramIssuanceMetrics#snapshot()} copies what was recorded, eg: for a periodic export to a monitoring system
+ *
+ * Usage:
+ *  var metrics = new HistogramIssuanceMetrics();
+ *  IssuanceMetrics.set(metrics);
+ *  ...
+ *  IssuanceMetricsSnapshot snapshot = metrics.snapshot();
+ */
+public class HistogramIssuanceMetrics implements IssuanceMetrics {
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[IssuanceStage.values().length];
+    private final Map<IssuanceStage, ConcurrentHashMap<Class<?>, LongAdder>> errors = new EnumMap<>(IssuanceStage.class);
+
+    public HistogramIssuanceMetrics() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param stripes The number of copies of each histogram's counts, to spread the threads over
+     */
+    public HistogramIssuanceMetrics(int stripes) {
+        for (var stage : IssuanceStage.values()) {
+            histograms[stage.ordinal()] = new LatencyHistogram(stripes);
+            errors.put(stage, new ConcurrentHashMap<>()); // filled once, only read afterwards
+        }
+    }
+
+    @Override
+    public void recordLatency(IssuanceStage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void recordError(IssuanceStage stage, Throwable error) {
+        var stageErrors = errors.get(stage);
+        var counter = stageErrors.get(error.getClass());
+        if (counter == null) {
+            counter = stageErrors.computeIfAbsent(error.getClass(), (ignored) -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * @return A copy of what was recorded, recording may go on while it is taken
+     */
+    public IssuanceMetricsSnapshot snapshot() {
+        var latencies = new EnumMap<IssuanceStage, LatencySnapshot>(IssuanceStage.class);
+        var errorCounts = new EnumMap<IssuanceStage, Map<String, Long>>(IssuanceStage.class);
+        for (var stage : IssuanceStage.values()) {
+            latencies.put(stage, histograms[stage.ordinal()].snapshot());
+            var stageErrors = new TreeMap<String, Long>();
+            errors.get(stage).forEach((errorClass, counter) -> stageErrors.put(errorClass.getName(), counter.sum()));
+            errorCounts.put(stage, Collections.unmodifiableMap(stageErrors));
+        }
+        return new IssuanceMetricsSnapshot(Collections.unmodifiableMap(latencies), Collections.unmodifiableMap(errorCounts));
+    }
+
+    /**
+     * Clears what was recorded
+     * - Latencies recorded while resetting may be partly kept
+     */
+    public void reset() {
+        for (var stage : IssuanceStage.values()) {
+            histograms[stage.ordinal()].reset();
+            errors.get(stage).clear();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.galsie.lib.certificates.metrics;
+
+/**
+ * Receives the latency and the errors of each {@link IssuanceStage}
+ * - The library records into {@link IssuanceMetrics#get()}, which is {@link IssuanceMetrics#NO_OP} until another implementation is set
+ * - {@link HistogramIssuanceMetrics} keeps in-process histograms that can be exported as a snapshot
+ * - Or implement it to forward to a monitoring system, the library does not depend on any
+ *
+ * Implementations are called from the issuing threads, so they must be thread safe and cheap
+ *
+ * How the library records a stage, inline so that no lambda is allocated per call:
+ *  long started = metrics.startTimer();
+ *  try { ... } catch (Exception ex) { metrics.recordError(stage, ex); throw ex; }
+ *  metrics.recordSince(stage, started);
+ * The codecs record through {@link com.galsie.lib.certificates.jfr.CertificateCodecEvent#start()}, which times both the stage and the JFR event
+ */
+public interface IssuanceMetrics {
+
+    /**
+     * Records nothing, does not read the clock and does not allocate
+     */
+    IssuanceMetrics NO_OP = new IssuanceMetrics() {
+        @Override
+        public long startTimer() {
+            return 0;
+        }
+
+        @Override
+        public void recordSince(IssuanceStage stage, long startTimer) {
+        }
+
+        @Override
+        public void recordLatency(IssuanceStage stage, long nanos) {
+        }
+
+        @Override
+        public void recordError(IssuanceStage stage, Throwable error) {
+        }
+    };
+
+    /**
+     * @return The start of a stage, to pass to {@link IssuanceMetrics#recordSince(IssuanceStage, long)}
+     */
+    default long startTimer() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the latency of a stage that started at {@link IssuanceMetrics#startTimer()}
+     */
+    default void recordSince(IssuanceStage stage, long startTimer) {
+        this.recordLatency(stage, System.nanoTime() - startTimer);
+    }
+
+    /**
+     * @param stage The stage
+     * @param nanos How long it took, in nanoseconds
+     */
+    void recordLatency(IssuanceStage stage, long nanos);
+
+    /**
+     * @param stage The stage that failed
+     * @param error What it failed with
+     */
+    void recordError(IssuanceStage stage, Throwable error);
+
+    /**
+     * @return The metrics the library records into
+     */
+    static IssuanceMetrics get() {
+        return DefaultIssuanceMetrics.get();
+    }
+
+    /**
+     * Sets the metrics the library records into, eg: a {@link HistogramIssuanceMetrics}, or {@link IssuanceMetrics#NO_OP} to stop recording
+     */
+    static void set(IssuanceMetrics issuanceMetrics) {
+        DefaultIssuanceMetrics.set(issuanceMetrics);
+    }
+}
@@ -0,0 +1,54 @@
+package com.galsie.lib.certificates.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * What a {@link HistogramIssuanceMetrics} recorded at some point
+ * - Immutable, meant to be exported to a monitoring system
+ */
+@AllArgsConstructor
+@Getter
+public class IssuanceMetricsSnapshot {
+
+    /**
+     * The latencies of every stage
+     */
+    private final Map<IssuanceStage, LatencySnapshot> latencies;
+
+    /**
+     * The number of errors of every stage, by the class name of the exception
+     */
+    private final Map<IssuanceStage, Map<String, Long>> errors;
+
+    public LatencySnapshot getLatency(IssuanceStage stage) {
+        return latencies.get(stage);
+    }
+
+    /**
+     * @return The number of errors of the stage, of any type
+     */
+    public long getErrorCount(IssuanceStage stage) {
+        return errors.get(stage).values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder();
+        for (var stage : IssuanceStage.values()) {
+            var latency = latencies.get(stage);
+            var stageErrors = errors.get(stage);
+            if (latency.getCount() == 0 && stageErrors.isEmpty()) {
+                continue;
+            }
+            builder.append(stage).append(": ").append(latency);
+            if (!stageErrors.isEmpty()) {
+                builder.append(", errors=").append(stageErrors);
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package com.galsie.lib.certificates.metrics;
+
+/**
+ * The stages of issuance that {@link IssuanceMetrics} records
+ * - Stages nest: a CERTIFICATE_BUILD includes the DN_BUILD, EXTENSION_ENCODING and SIGNING of that certificate (and the KEYPAIR_GENERATION of a managed certificate)
+ */
+public enum IssuanceStage {
+    /**
+     * {@link com.galsie.lib.certificates.keypair.KeypairBuilder#build()}, taking from a keypair pool included
+     */
+    KEYPAIR_GENERATION,
+    /**
+     * Building the subject name of a certificate or a CSR
+     */
+    DN_BUILD,
+    /**
+     * Encoding and adding the extensions of a certificate, key identifiers included
+     */
+    EXTENSION_ENCODING,
+    /**
+     * Signing a certificate or a CSR
+     */
+    SIGNING,
+    /**
+     * {@link com.galsie.lib.certificates.csr.CertificateSigningRequestBuilder#build()}, from start to end
+     */
+    CSR_BUILD,
+    /**
+     * Building a certificate, from start to end
+     */
+    CERTIFICATE_BUILD,
+    /**
+     * Encoding a certificate or a CSR to DER
+     */
+    DER_ENCODE,
+    /**
+     * Decoding a certificate from DER
+     */
+    DER_DECODE,
+    /**
+     * Writing DER data as PEM text
+     */
+    PEM_ENCODE,
+    /**
+     * Parsing a certificate or a CSR from PEM text
+     */
+    PEM_DECODE
+}
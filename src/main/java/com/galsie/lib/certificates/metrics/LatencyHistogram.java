@@ -0,0 +1,86 @@
+package com.galsie.lib.certificates.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free, fixed size histogram of latencies in nanoseconds
+ * - Log-linear buckets: each power of two is split in 8 buckets, so a bucket is at most 12.5% wide relative to its values
+ * - 512 buckets cover every positive long, recording never allocates nor resizes
+ * - The bucket counts are striped: each thread counts into one of several copies (chosen by thread id), so threads recording the same latency rarely contend
+ */
+class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int BUCKET_COUNT = 64 * SUB_BUCKET_COUNT;
+
+    private final int stripeCount;
+    private final AtomicLongArray counts;
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    LatencyHistogram(int stripes) {
+        int stripeCount = 1;
+        while (stripeCount < stripes) {
+            stripeCount <<= 1;
+        }
+        this.stripeCount = stripeCount;
+        this.counts = new AtomicLongArray(stripeCount * BUCKET_COUNT);
+    }
+
+    void record(long nanos) {
+        if (nanos < 0) { // the clock is monotonic, but a caller may pass anything
+            nanos = 0;
+        }
+        int stripe = (int) (Thread.currentThread().getId() & (stripeCount - 1));
+        counts.incrementAndGet(stripe * BUCKET_COUNT + bucketIndex(nanos));
+        totalNanos.add(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    LatencySnapshot snapshot() {
+        long[] bucketCounts = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int stripe = 0; stripe < stripeCount; stripe++) {
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                long bucketCount = counts.get(stripe * BUCKET_COUNT + bucket);
+                bucketCounts[bucket] += bucketCount;
+                count += bucketCount;
+            }
+        }
+        return new LatencySnapshot(count, totalNanos.sum(), maxNanos.get(), bucketCounts);
+    }
+
+    void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    static int bucketIndex(long nanos) {
+        if (nanos < SUB_BUCKET_COUNT) {
+            return (int) nanos;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(nanos)) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((nanos >>> shift) & (SUB_BUCKET_COUNT - 1));
+    }
+
+    /**
+     * @return The greatest latency that falls in the bucket
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long lowerBound = (long) (SUB_BUCKET_COUNT + (index & (SUB_BUCKET_COUNT - 1))) << shift;
+        return lowerBound + ((1L << shift) - 1);
+    }
+}
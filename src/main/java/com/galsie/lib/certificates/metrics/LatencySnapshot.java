@@ -0,0 +1,73 @@
+package com.galsie.lib.certificates.metrics;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * The latencies recorded for a stage at some point, see {@link HistogramIssuanceMetrics#snapshot()}
+ */
+@Getter
+public class LatencySnapshot {
+
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+    @Getter(AccessLevel.NONE)
+    private final long[] bucketCounts;
+
+    LatencySnapshot(long count, long totalNanos, long maxNanos, long[] bucketCounts) {
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.bucketCounts = bucketCounts;
+    }
+
+    public double getMeanNanos() {
+        return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    /**
+     * @param percentile In [0, 100], eg: 99.9
+     * @return The upper bound of the bucket holding that percentile, at most 12.5% above the recorded latency, or 0 if nothing was recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < bucketCounts.length; bucket++) {
+            seen += bucketCounts[bucket];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.bucketUpperBound(bucket), maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    /**
+     * @return The number of buckets, for {@link LatencySnapshot#getBucketCount(int)}
+     */
+    public int getBucketLength() {
+        return bucketCounts.length;
+    }
+
+    /**
+     * @return The number of latencies recorded in the bucket
+     */
+    public long getBucketCount(int index) {
+        return bucketCounts[index];
+    }
+
+    /**
+     * @return The greatest latency, in nanoseconds, that falls in the bucket
+     */
+    public long getBucketUpperBoundNanos(int index) {
+        return LatencyHistogram.bucketUpperBound(index);
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + ", mean=" + (long) this.getMeanNanos() + "ns, p50=" + this.getPercentileNanos(50) + "ns, p99=" + this.getPercentileNanos(99) + "ns, max=" + maxNanos + "ns";
+    }
+}
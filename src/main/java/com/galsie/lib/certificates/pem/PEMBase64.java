@@ -0,0 +1,125 @@
+package com.galsie.lib.certificates.pem;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Base64 (RFC 4648) over the bytes of PEM data
+ * - Decodes straight from a {@link ByteBuffer} region, the base64 text is never turned into a {@link String}
+ * - Line breaks and other whitespace in the encoded text are skipped, as RFC 7468 allows
+ * - Encodes into a byte array, for {@link PEMWriter}
+ */
+class PEMBase64 {
+
+    private static final byte[] ENCODE_TABLE = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int WHITESPACE = -2;
+    private static final int INVALID = -1;
+
+    private static final int[] DECODE_TABLE = new int[256];
+
+    static {
+        Arrays.fill(DECODE_TABLE, INVALID);
+        for (int i = 0; i < ENCODE_TABLE.length; i++) {
+            DECODE_TABLE[ENCODE_TABLE[i]] = i;
+        }
+        for (char c : new char[]{' ', '\t', '\r', '\n'}) {
+            DECODE_TABLE[c] = WHITESPACE;
+        }
+    }
+
+    /**
+     * Decodes the base64 text between two absolute positions of a buffer
+     * - The buffer's position and limit are not used or modified
+     *
+     * @param buffer The buffer holding the text
+     * @param from The position of the first character
+     * @param to The position after the last character
+     * @return The decoded bytes
+     * @throws IOException If the text holds a character that is not base64 or whitespace, or is truncated
+     */
+    static byte[] decode(ByteBuffer buffer, int from, int to) throws IOException {
+        var decoded = new byte[(to - from) / 4 * 3 + 3]; // upper bound, whitespace included
+        int size = 0;
+        int accumulator = 0;
+        int sextets = 0;
+        int padding = 0;
+        for (int i = from; i < to; i++) {
+            int c = buffer.get(i) & 0xFF;
+            if (c == '=') {
+                padding++;
+                continue;
+            }
+            int value = DECODE_TABLE[c];
+            if (value == WHITESPACE) {
+                continue;
+            }
+            if (value == INVALID || padding > 0) {
+                throw new IOException("Invalid base64 character 0x" + Integer.toHexString(c) + " at " + i);
+            }
+            accumulator = (accumulator << 6) | value;
+            if (++sextets == 4) {
+                decoded[size++] = (byte) (accumulator >> 16);
+                decoded[size++] = (byte) (accumulator >> 8);
+                decoded[size++] = (byte) accumulator;
+                accumulator = 0;
+                sextets = 0;
+            }
+        }
+        switch (sextets) {
+            case 0 -> {
+            }
+            case 2 -> decoded[size++] = (byte) (accumulator >> 4);
+            case 3 -> {
+                decoded[size++] = (byte) (accumulator >> 10);
+                decoded[size++] = (byte) (accumulator >> 2);
+            }
+            default -> throw new IOException("Truncated base64 data");
+        }
+        if (padding > 2 || (padding > 0 && sextets + padding != 4)) {
+            throw new IOException("Invalid base64 padding");
+        }
+        return size == decoded.length ? decoded : Arrays.copyOf(decoded, size);
+    }
+
+    /**
+     * @return The length of the base64 text (with padding) of some number of bytes
+     */
+    static int encodedLength(int length) {
+        return (length + 2) / 3 * 4;
+    }
+
+    /**
+     * Encodes bytes into base64 text, with padding
+     *
+     * @param source The bytes to encode
+     * @param offset The position of the first byte to encode
+     * @param length The number of bytes to encode
+     * @param target The array the text is written to
+     * @param targetOffset The position in the target of the first character
+     * @return The position in the target after the last character
+     */
+    static int encode(byte[] source, int offset, int length, byte[] target, int targetOffset) {
+        int end = offset + length;
+        int i = offset;
+        int t = targetOffset;
+        for (; i + 3 <= end; i += 3) {
+            int bits = (source[i] & 0xFF) << 16 | (source[i + 1] & 0xFF) << 8 | (source[i + 2] & 0xFF);
+            target[t++] = ENCODE_TABLE[bits >>> 18];
+            target[t++] = ENCODE_TABLE[(bits >>> 12) & 0x3F];
+            target[t++] = ENCODE_TABLE[(bits >>> 6) & 0x3F];
+            target[t++] = ENCODE_TABLE[bits & 0x3F];
+        }
+        int remaining = end - i;
+        if (remaining > 0) {
+            int bits = (source[i] & 0xFF) << 16 | (remaining == 2 ? (source[i + 1] & 0xFF) << 8 : 0);
+            target[t++] = ENCODE_TABLE[bits >>> 18];
+            target[t++] = ENCODE_TABLE[(bits >>> 12) & 0x3F];
+            target[t++] = remaining == 2 ? ENCODE_TABLE[(bits >>> 6) & 0x3F] : (byte) '=';
+            target[t++] = '=';
+        }
+        return t;
+    }
+}
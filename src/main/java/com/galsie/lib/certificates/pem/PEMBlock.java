@@ -0,0 +1,77 @@
+package com.galsie.lib.certificates.pem;
+
+import com.galsie.lib.certificates.PEMStructureHolder;
+import com.galsie.lib.certificates.certificate.LazyCertificateView;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.csr.SomeCSRHolder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+
+import java.io.IOException;
+
+/**
+ * A single object read from a PEM or DER bundle by {@link PEMBundleReader}
+ * - Holds the label and the DER bytes, the object itself is only parsed when asked for
+ * - For DER bundles, the label is inferred from the structure (see {@link PEMBundleReader})
+ */
+@AllArgsConstructor
+@Getter
+public class PEMBlock {
+
+    public static final String CERTIFICATE_LABEL = "CERTIFICATE";
+    public static final String CERTIFICATE_REQUEST_LABEL = "CERTIFICATE REQUEST";
+    /**
+     * The label some older tools write for certificate requests
+     */
+    public static final String NEW_CERTIFICATE_REQUEST_LABEL = "NEW CERTIFICATE REQUEST";
+    public static final String CRL_LABEL = "X509 CRL";
+
+    /**
+     * The label of the block, eg: CERTIFICATE for '-----BEGIN CERTIFICATE-----'
+     */
+    private final String label;
+    private final byte[] derEncoded;
+
+    public boolean isCertificate() {
+        return CERTIFICATE_LABEL.equals(label);
+    }
+
+    public boolean isCertificateSigningRequest() {
+        return CERTIFICATE_REQUEST_LABEL.equals(label) || NEW_CERTIFICATE_REQUEST_LABEL.equals(label);
+    }
+
+    public SomeX509v3CertificateHolder toCertificateHolder() throws IOException {
+        if (!this.isCertificate()) {
+            throw new IOException("A '" + label + "' block is not a certificate");
+        }
+        return SomeX509v3CertificateHolder.fromDERData(derEncoded);
+    }
+
+    /**
+     * Makes a {@link LazyCertificateView} over the DER bytes of the block, nothing is parsed until a field is read
+     */
+    public LazyCertificateView toCertificateView() throws IOException {
+        if (!this.isCertificate()) {
+            throw new IOException("A '" + label + "' block is not a certificate");
+        }
+        return LazyCertificateView.of(derEncoded);
+    }
+
+    public SomeCSRHolder toCSRHolder() throws IOException {
+        if (!this.isCertificateSigningRequest()) {
+            throw new IOException("A '" + label + "' block is not a certificate signing request");
+        }
+        return new SomeCSRHolder(new PKCS10CertificationRequest(derEncoded));
+    }
+
+    /**
+     * Parses the block as a certificate or a certificate signing request, depending on its label
+     */
+    public PEMStructureHolder toPEMStructureHolder() throws IOException {
+        if (this.isCertificate()) {
+            return this.toCertificateHolder();
+        }
+        return this.toCSRHolder();
+    }
+}
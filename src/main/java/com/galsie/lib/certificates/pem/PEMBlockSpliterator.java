@@ -0,0 +1,94 @@
+package com.galsie.lib.certificates.pem;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Splits a bundle held in a {@link ByteBuffer} (eg: a memory-mapped file) into chunks that are scanned and decoded concurrently
+ * - A chunk owns the blocks that START in it, the last one may extend into the next chunk
+ * - PEM chunks are split at a BEGIN marker found from the middle of the chunk
+ * - DER chunks are split by walking element headers up to the middle of the chunk, which does not touch the contents
+ */
+class PEMBlockSpliterator implements Spliterator<PEMBlock> {
+
+    /**
+     * Chunks smaller than this are not split further, scanning them is cheaper than handing them to another thread
+     */
+    static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+    private final ByteBuffer buffer;
+    private final boolean der;
+    private final PEMBundleScanner scanner;
+    private final int end;
+
+    PEMBlockSpliterator(ByteBuffer buffer, boolean der, int start, int end) {
+        this.buffer = buffer;
+        this.der = der;
+        this.scanner = new PEMBundleScanner(der, start);
+        this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super PEMBlock> action) {
+        PEMBlock block;
+        try {
+            block = scanner.next(buffer, end, buffer.limit());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        if (block == null) {
+            if (scanner.getPosition() < end && scanner.isInsideBlock(buffer, buffer.limit())) {
+                throw new UncheckedIOException(new IOException("Truncated block at " + scanner.getPosition()));
+            }
+            scanner.setPosition(end);
+            return false;
+        }
+        action.accept(block);
+        return true;
+    }
+
+    @Override
+    public Spliterator<PEMBlock> trySplit() {
+        int start = scanner.getPosition();
+        if (end - start < 2 * MIN_CHUNK_SIZE) {
+            return null;
+        }
+        int split = der ? this.findDERSplit(start) : PEMBundleScanner.indexOf(buffer, PEMBundleScanner.BEGIN_MARKER, start + (end - start) / 2, end, buffer.limit());
+        if (split <= start || split >= end) {
+            return null;
+        }
+        var prefix = new PEMBlockSpliterator(buffer, der, start, split);
+        scanner.setPosition(split);
+        return prefix;
+    }
+
+    private int findDERSplit(int start) {
+        int middle = start + (end - start) / 2;
+        int position = start;
+        try {
+            while (position < middle) {
+                int length = PEMBundleScanner.derElementLength(buffer, position, buffer.limit());
+                if (length < 0) {
+                    return -1;
+                }
+                position += length;
+            }
+        } catch (IOException ex) {
+            return -1; // reported when the prefix is scanned
+        }
+        return position;
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - scanner.getPosition(); // in bytes, only relative sizes matter for splitting
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+}
@@ -0,0 +1,283 @@
+package com.galsie.lib.certificates.pem;
+
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.csr.SomeCSRHolder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads bundles of certificates and certificate signing requests, such as trust bundles or issuance logs
+ * - PEM bundles hold any number of RFC 7468 blocks ('-----BEGIN CERTIFICATE-----' ...), text between the blocks is ignored
+ * - DER bundles hold any number of concatenated DER structures
+ * - The format is detected from the first byte that is not whitespace
+ *
+ * Reading is lazy, blocks are found and decoded as they are iterated:
+ * - {@link PEMBundleReader#open(Path)} memory-maps the file, {@link PEMBundleReader#of(ReadableByteChannel)} reads a channel through a growing window
+ * - Base64 is decoded straight from the bytes, no String is made per block
+ * - {@link PEMBundleReader#parallelStream()} splits a memory-mapped (or in-memory) bundle into chunks that are decoded concurrently
+ *
+ * Usage:
+ * - try (var reader = PEMBundleReader.open(path)) { reader.certificates().forEach(...); }
+ *
+ * NOTE: A reader is iterated once, it is not thread safe (the parallel stream handles its own threads).
+ * Malformed blocks surface as {@link UncheckedIOException}s while iterating.
+ */
+public class PEMBundleReader implements Iterable<PEMBlock>, Closeable {
+
+    /**
+     * The initial size of the window a channel is read through, it grows to fit the largest block
+     */
+    private static final int INITIAL_WINDOW_SIZE = 64 * 1024;
+
+    /**
+     * The bundle when it is fully addressable (memory-mapped or in memory), otherwise null
+     */
+    private final ByteBuffer buffer;
+    private final ReadableByteChannel channel;
+    private boolean consumed;
+
+    private PEMBundleReader(ByteBuffer buffer, ReadableByteChannel channel) {
+        this.buffer = buffer;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens a bundle file by memory-mapping it
+     * - Files larger than 2GB can not be mapped in one buffer, they are read as a channel instead (without the parallel split)
+     */
+    public static PEMBundleReader open(Path path) throws IOException {
+        var fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (fileChannel.size() > Integer.MAX_VALUE) {
+                return new PEMBundleReader(null, fileChannel);
+            }
+            return new PEMBundleReader(fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size()), fileChannel);
+        } catch (IOException | RuntimeException ex) {
+            fileChannel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Reads a bundle from a channel, the channel is closed with the reader
+     */
+    public static PEMBundleReader of(ReadableByteChannel channel) {
+        return new PEMBundleReader(null, channel);
+    }
+
+    /**
+     * Reads a bundle held in memory, from the buffer's position to its limit. The buffer is not modified.
+     */
+    public static PEMBundleReader of(ByteBuffer buffer) {
+        return new PEMBundleReader(buffer, null);
+    }
+
+    @Override
+    public Iterator<PEMBlock> iterator() {
+        this.markConsumed();
+        if (buffer != null) {
+            return Spliterators.iterator(this.bufferSpliterator());
+        }
+        return new ChannelBlockIterator();
+    }
+
+    /**
+     * @return The blocks of the bundle, in order, found and decoded lazily
+     */
+    public Stream<PEMBlock> stream() {
+        return StreamSupport.stream(this.spliterator(), false);
+    }
+
+    /**
+     * Decodes the blocks concurrently
+     * - Memory-mapped and in-memory bundles are split into chunks at block boundaries, each chunk is scanned and decoded by one thread
+     * - Channel bundles are scanned on the calling thread, decoding is handed out in batches
+     * - Encounter order is kept, use forEachOrdered or toList to get the blocks in order
+     *
+     * @return The blocks of the bundle, as a parallel stream
+     */
+    public Stream<PEMBlock> parallelStream() {
+        return StreamSupport.stream(this.spliterator(), true);
+    }
+
+    @Override
+    public Spliterator<PEMBlock> spliterator() {
+        if (buffer != null) {
+            this.markConsumed();
+            return this.bufferSpliterator();
+        }
+        return Spliterators.spliteratorUnknownSize(this.iterator(), Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+    }
+
+    /**
+     * @return The certificates of the bundle, other blocks are skipped
+     */
+    public Stream<SomeX509v3CertificateHolder> certificates() {
+        return this.stream().filter(PEMBlock::isCertificate).map(PEMBundleReader::toCertificateHolder);
+    }
+
+    /**
+     * @return The certificate signing requests of the bundle, other blocks are skipped
+     */
+    public Stream<SomeCSRHolder> certificateSigningRequests() {
+        return this.stream().filter(PEMBlock::isCertificateSigningRequest).map(PEMBundleReader::toCSRHolder);
+    }
+
+    /**
+     * Same as {@link PEMBundleReader#certificates()}, but parsing the certificates concurrently, see {@link PEMBundleReader#parallelStream()}
+     */
+    public Stream<SomeX509v3CertificateHolder> parallelCertificates() {
+        return this.parallelStream().filter(PEMBlock::isCertificate).map(PEMBundleReader::toCertificateHolder);
+    }
+
+    /**
+     * Same as {@link PEMBundleReader#certificateSigningRequests()}, but parsing the requests concurrently, see {@link PEMBundleReader#parallelStream()}
+     */
+    public Stream<SomeCSRHolder> parallelCertificateSigningRequests() {
+        return this.parallelStream().filter(PEMBlock::isCertificateSigningRequest).map(PEMBundleReader::toCSRHolder);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void markConsumed() {
+        if (consumed) {
+            throw new IllegalStateException("The bundle was already read");
+        }
+        this.consumed = true;
+    }
+
+    private Spliterator<PEMBlock> bufferSpliterator() {
+        int start = buffer.position();
+        while (start < buffer.limit() && isWhitespace(buffer.get(start))) {
+            start++;
+        }
+        boolean der = start < buffer.limit() && PEMBundleScanner.isDER(buffer.get(start) & 0xFF);
+        return new PEMBlockSpliterator(buffer, der, start, buffer.limit());
+    }
+
+    private static SomeX509v3CertificateHolder toCertificateHolder(PEMBlock block) {
+        try {
+            return block.toCertificateHolder();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static SomeCSRHolder toCSRHolder(PEMBlock block) {
+        try {
+            return block.toCSRHolder();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    /**
+     * Reads a channel through a window that is compacted as blocks are consumed, and grows when a block does not fit
+     */
+    private class ChannelBlockIterator implements Iterator<PEMBlock> {
+
+        private ByteBuffer window = ByteBuffer.allocate(INITIAL_WINDOW_SIZE);
+        private PEMBundleScanner scanner;
+        private boolean endOfStream;
+        private PEMBlock nextBlock;
+
+        @Override
+        public boolean hasNext() {
+            if (nextBlock == null) {
+                try {
+                    this.nextBlock = this.fetch();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+            return nextBlock != null;
+        }
+
+        @Override
+        public PEMBlock next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            var block = this.nextBlock;
+            this.nextBlock = null;
+            return block;
+        }
+
+        private PEMBlock fetch() throws IOException {
+            while (true) {
+                int filled = window.position();
+                if (scanner != null) {
+                    var block = scanner.next(window, filled, filled);
+                    if (block != null) {
+                        return block;
+                    }
+                } else if (this.detectFormat(filled)) {
+                    continue;
+                }
+                if (endOfStream) {
+                    if (scanner != null && scanner.isInsideBlock(window, filled)) {
+                        throw new IOException("Truncated block at the end of the bundle");
+                    }
+                    return null;
+                }
+                this.readMore();
+            }
+        }
+
+        /**
+         * Creates the scanner once the first byte that is not whitespace was read
+         *
+         * @return true if the scanner was created
+         */
+        private boolean detectFormat(int filled) {
+            int start = 0;
+            while (start < filled && isWhitespace(window.get(start))) {
+                start++;
+            }
+            if (start == filled) {
+                window.clear(); // only whitespace so far
+                return false;
+            }
+            this.scanner = new PEMBundleScanner(PEMBundleScanner.isDER(window.get(start) & 0xFF), start);
+            return true;
+        }
+
+        private void readMore() throws IOException {
+            int keep = scanner == null ? 0 : scanner.getPosition();
+            if (keep > 0) { // drop the consumed bytes
+                window.flip().position(keep);
+                window.compact();
+                scanner.setPosition(0);
+            }
+            if (!window.hasRemaining()) {
+                var grown = ByteBuffer.allocate(window.capacity() * 2);
+                this.window = grown.put(window.flip());
+            }
+            if (channel.read(window) < 0) {
+                this.endOfStream = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.galsie.lib.certificates.pem;
+
+import com.galsie.lib.certificates.asn1.der.DERReader;
+import com.galsie.lib.certificates.asn1.der.DERTags;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Finds the blocks of a PEM or DER bundle in a {@link ByteBuffer}
+ * - Works on absolute positions, the buffer's own position and limit are not used or modified
+ * - The data may be incomplete (eg: read from a channel so far), {@link PEMBundleScanner#needsMoreData()} tells when a block was cut off
+ *
+ * A PEM bundle is any number of RFC 7468 blocks, text between blocks is ignored.
+ * A DER bundle is any number of concatenated DER SEQUENCEs.
+ */
+class PEMBundleScanner {
+
+    static final byte[] BEGIN_MARKER = "-----BEGIN ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END_MARKER = "-----END ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DASHES = "-----".getBytes(StandardCharsets.US_ASCII);
+
+    private final boolean der;
+    private int position;
+    private boolean needsMoreData;
+
+    PEMBundleScanner(boolean der, int position) {
+        this.der = der;
+        this.position = position;
+    }
+
+    /**
+     * Checks the format of a bundle from its first byte that is not whitespace
+     *
+     * @return true for a DER bundle, false for a PEM bundle
+     */
+    static boolean isDER(int firstNonWhitespaceByte) {
+        return firstNonWhitespaceByte == DERTags.SEQUENCE;
+    }
+
+    /**
+     * Scans the next block
+     *
+     * @param buffer The data
+     * @param startBound Only blocks that start before this position are returned. A returned block may extend past it, up to the limit
+     * @param limit The end of the available data
+     * @return The block, or null if there is none. If {@link PEMBundleScanner#needsMoreData()}, a block may be found once more data is available
+     * @throws IOException If a block is malformed
+     */
+    PEMBlock next(ByteBuffer buffer, int startBound, int limit) throws IOException {
+        this.needsMoreData = false;
+        return der ? this.nextDER(buffer, startBound, limit) : this.nextPEM(buffer, startBound, limit);
+    }
+
+    private PEMBlock nextPEM(ByteBuffer buffer, int startBound, int limit) throws IOException {
+        var begin = indexOf(buffer, BEGIN_MARKER, position, Math.min(startBound, limit), limit);
+        if (begin < 0) {
+            this.needsMoreData = true;
+            // only the bytes that may be the start of a marker have to be scanned again
+            this.position = Math.max(position, Math.min(startBound, limit - BEGIN_MARKER.length + 1));
+            return null;
+        }
+        this.position = begin;
+        int labelStart = begin + BEGIN_MARKER.length;
+        int labelEnd = indexOfOnLine(buffer, DASHES, labelStart, limit);
+        if (labelEnd < 0) {
+            return null;
+        }
+        int bodyStart = labelEnd + DASHES.length;
+        int end = indexOf(buffer, END_MARKER, bodyStart, limit, limit);
+        if (end < 0) {
+            this.needsMoreData = true;
+            return null;
+        }
+        int labelLength = labelEnd - labelStart;
+        int endLabelStart = end + END_MARKER.length;
+        if (endLabelStart + labelLength + DASHES.length > limit) {
+            this.needsMoreData = true;
+            return null;
+        }
+        for (int i = 0; i < labelLength; i++) {
+            if (buffer.get(labelStart + i) != buffer.get(endLabelStart + i)) {
+                throw new IOException("The END label of the PEM block at " + begin + " does not match its BEGIN label");
+            }
+        }
+        if (!regionEquals(buffer, endLabelStart + labelLength, DASHES)) {
+            throw new IOException("Malformed END line of the PEM block at " + begin);
+        }
+        var label = new byte[labelLength];
+        buffer.get(labelStart, label);
+        var derEncoded = PEMBase64.decode(buffer, bodyStart, end);
+        this.position = endLabelStart + labelLength + DASHES.length;
+        return new PEMBlock(new String(label, StandardCharsets.US_ASCII), derEncoded);
+    }
+
+    /**
+     * Finds the end of the label on the BEGIN line
+     */
+    private int indexOfOnLine(ByteBuffer buffer, byte[] pattern, int from, int limit) throws IOException {
+        for (int i = from; i + pattern.length <= limit; i++) {
+            var b = buffer.get(i);
+            if (b == '\n' || b == '\r') {
+                throw new IOException("Malformed BEGIN line of the PEM block at " + position);
+            }
+            if (regionEquals(buffer, i, pattern)) {
+                return i;
+            }
+        }
+        this.needsMoreData = true;
+        return -1;
+    }
+
+    private PEMBlock nextDER(ByteBuffer buffer, int startBound, int limit) throws IOException {
+        if (position >= Math.min(startBound, limit)) {
+            this.needsMoreData = position < startBound;
+            return null;
+        }
+        int elementLength = derElementLength(buffer, position, limit);
+        if (elementLength < 0 || position + elementLength > limit) {
+            this.needsMoreData = true;
+            return null;
+        }
+        var derEncoded = new byte[elementLength];
+        buffer.get(position, derEncoded);
+        var label = derLabel(ByteBuffer.wrap(derEncoded));
+        this.position += elementLength;
+        return new PEMBlock(label, derEncoded);
+    }
+
+    /**
+     * Reads the header of the DER element at a position
+     *
+     * @return The length of the whole element (header and content), or -1 if the header is cut off
+     */
+    static int derElementLength(ByteBuffer buffer, int position, int limit) throws IOException {
+        if (position + 2 > limit) {
+            return -1;
+        }
+        if ((buffer.get(position) & 0xFF) != DERTags.SEQUENCE) {
+            throw new IOException("Expected a DER SEQUENCE at " + position);
+        }
+        int length = buffer.get(position + 1) & 0xFF;
+        int headerLength = 2;
+        if (length > 0x7F) {
+            int lengthOctets = length & 0x7F;
+            if (lengthOctets == 0 || lengthOctets > 4) {
+                throw new IOException("Unsupported DER length encoding at " + position);
+            }
+            if (position + 2 + lengthOctets > limit) {
+                return -1;
+            }
+            length = 0;
+            for (int i = 0; i < lengthOctets; i++) {
+                length = (length << 8) | (buffer.get(position + 2 + i) & 0xFF);
+            }
+            if (length < 0 || length > Integer.MAX_VALUE - 6) {
+                throw new IOException("DER length overflow at " + position);
+            }
+            headerLength += lengthOctets;
+        }
+        return headerLength + length;
+    }
+
+    /**
+     * Tells a certificate from a certificate request by their structure
+     * - A TBSCertificate starts with the [0] version (v2, v3) or has at least 6 fields (v1)
+     * - A CertificationRequestInfo has 4 fields, the last being the [0] attributes
+     */
+    private static String derLabel(ByteBuffer derEncoded) throws IOException {
+        var reader = new DERReader(derEncoded);
+        reader.expect(DERTags.SEQUENCE);
+        reader.expect(DERTags.SEQUENCE);
+        int end = reader.getContentEnd();
+        int fieldCount = 0;
+        int firstTag = -1;
+        int lastTag = -1;
+        while (reader.hasNext(end)) {
+            lastTag = reader.skipNext();
+            if (fieldCount++ == 0) {
+                firstTag = lastTag;
+            }
+        }
+        if (firstTag == DERTags.INTEGER && fieldCount == 4 && lastTag == DERTags.contextConstructed(0)) {
+            return PEMBlock.CERTIFICATE_REQUEST_LABEL;
+        }
+        return PEMBlock.CERTIFICATE_LABEL;
+    }
+
+    int getPosition() {
+        return position;
+    }
+
+    void setPosition(int position) {
+        this.position = position;
+    }
+
+    /**
+     * @return true if the last {@link PEMBundleScanner#next(ByteBuffer, int, int)} stopped at the end of the data rather than at the start bound
+     */
+    boolean needsMoreData() {
+        return needsMoreData;
+    }
+
+    /**
+     * @return true if the scanner is inside a block that was cut off, as opposed to between blocks
+     */
+    boolean isInsideBlock(ByteBuffer buffer, int limit) {
+        if (der) {
+            return position < limit;
+        }
+        return position + BEGIN_MARKER.length <= limit && regionEquals(buffer, position, BEGIN_MARKER);
+    }
+
+    /**
+     * Finds the first position in [from, startBound) where the pattern starts and fully fits before the limit
+     *
+     * @return The position, or -1
+     */
+    static int indexOf(ByteBuffer buffer, byte[] pattern, int from, int startBound, int limit) {
+        int last = Math.min(startBound, limit - pattern.length + 1);
+        var first = pattern[0];
+        for (int i = from; i < last; i++) {
+            if (buffer.get(i) == first && regionEquals(buffer, i, pattern)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionEquals(ByteBuffer buffer, int position, byte[] pattern) {
+        for (int i = 0; i < pattern.length; i++) {
+            if (buffer.get(position + i) != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,144 @@
+package com.galsie.lib.certificates.pem;
+
+import com.galsie.lib.certificates.jfr.CertificateCodecEvent;
+import com.galsie.lib.certificates.metrics.IssuanceStage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes DER data as RFC 7468 PEM text
+ * - Base64 lines are wrapped at 64 columns, lines end with '\n', and the END line is followed by a '\n'
+ * - Encodes straight from the DER bytes into the sink, no String is made
+ * - Streams go through a small per-thread scratch array that is flushed as it fills up, so the PEM text is never held in full
+ */
+public class PEMWriter {
+
+    /**
+     * RFC 7468: generators MUST wrap the base64-encoded lines so that each line consists of exactly 64 characters except for the final line
+     */
+    private static final int LINE_LENGTH = 64;
+    private static final int BYTES_PER_LINE = LINE_LENGTH / 4 * 3;
+
+    private static final byte[] BEGIN = "-----BEGIN ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END = "-----END ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DASHES = "-----".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int SCRATCH_SIZE = 64 * (LINE_LENGTH + 1);
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[SCRATCH_SIZE]);
+
+    /**
+     * @param label The label, eg: CERTIFICATE
+     * @param derLength The length of the DER data
+     * @return The length of the PEM text, in bytes
+     */
+    public static int getPEMLength(String label, int derLength) {
+        int lineCount = (derLength + BYTES_PER_LINE - 1) / BYTES_PER_LINE;
+        return boundaryLength(BEGIN, label) + PEMBase64.encodedLength(derLength) + lineCount + boundaryLength(END, label);
+    }
+
+    /**
+     * Writes DER data as PEM text to a stream
+     */
+    public static void writePEM(String label, byte[] derEncoded, OutputStream out) throws IOException {
+        write(label, derEncoded, SCRATCH.get(), 0, out::write);
+    }
+
+    /**
+     * Writes DER data as PEM text at the position of a buffer, which is moved past it
+     *
+     * @throws BufferOverflowException If the buffer does not have {@link PEMWriter#getPEMLength(String, int)} bytes remaining
+     */
+    public static void writePEM(String label, byte[] derEncoded, ByteBuffer out) {
+        int length = getPEMLength(label, derEncoded.length);
+        if (out.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+        try {
+            if (out.hasArray() && !out.isReadOnly()) { // encode in place
+                write(label, derEncoded, out.array(), out.arrayOffset() + out.position(), null);
+                out.position(out.position() + length);
+            } else {
+                write(label, derEncoded, SCRATCH.get(), 0, out::put);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // buffer sinks do not throw
+        }
+    }
+
+    /**
+     * @return The PEM text of DER data, the only allocations are the text's bytes and the String
+     */
+    public static String toPEMString(String label, byte[] derEncoded) {
+        var pem = new byte[getPEMLength(label, derEncoded.length)];
+        try {
+            write(label, derEncoded, pem, 0, null);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return new String(pem, StandardCharsets.US_ASCII);
+    }
+
+    private interface Sink {
+        void write(byte[] bytes, int offset, int length) throws IOException;
+    }
+
+    /**
+     * Writes the PEM text into a target array, flushing it to the sink whenever it fills up
+     *
+     * @param sink Where the target array is flushed to, or null if the target array fits the whole text
+     */
+    private static void write(String label, byte[] derEncoded, byte[] target, int offset, Sink sink) throws IOException {
+        var event = CertificateCodecEvent.start();
+        try {
+            doWrite(label, derEncoded, target, offset, sink);
+        } catch (IOException | RuntimeException ex) {
+            event.failed(IssuanceStage.PEM_ENCODE, ex);
+            throw ex;
+        }
+        event.succeeded(IssuanceStage.PEM_ENCODE, label, derEncoded.length, getPEMLength(label, derEncoded.length));
+    }
+
+    private static void doWrite(String label, byte[] derEncoded, byte[] target, int offset, Sink sink) throws IOException {
+        int size = offset;
+        size = writeBoundary(BEGIN, label, target, size);
+        for (int i = 0; i < derEncoded.length; i += BYTES_PER_LINE) {
+            if (sink != null && size + LINE_LENGTH + 1 > target.length) {
+                sink.write(target, offset, size - offset);
+                size = offset;
+            }
+            size = PEMBase64.encode(derEncoded, i, Math.min(BYTES_PER_LINE, derEncoded.length - i), target, size);
+            target[size++] = '\n';
+        }
+        if (sink != null && size + boundaryLength(END, label) > target.length) {
+            sink.write(target, offset, size - offset);
+            size = offset;
+        }
+        size = writeBoundary(END, label, target, size);
+        if (sink != null) {
+            sink.write(target, offset, size - offset);
+        }
+    }
+
+    private static int boundaryLength(byte[] marker, String label) {
+        return marker.length + label.length() + DASHES.length + 1;
+    }
+
+    private static int writeBoundary(byte[] marker, String label, byte[] target, int position) {
+        if (boundaryLength(marker, label) > target.length - position) {
+            throw new IllegalArgumentException("The PEM label is too long: " + label);
+        }
+        System.arraycopy(marker, 0, target, position, marker.length);
+        position += marker.length;
+        for (int i = 0; i < label.length(); i++) {
+            target[position++] = (byte) label.charAt(i); // labels are ASCII
+        }
+        System.arraycopy(DASHES, 0, target, position, DASHES.length);
+        position += DASHES.length;
+        target[position++] = '\n';
+        return position;
+    }
+}
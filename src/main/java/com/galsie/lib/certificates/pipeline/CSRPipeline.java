@@ -0,0 +1,500 @@
+package com.galsie.lib.certificates.pipeline;
+
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
+import com.galsie.lib.certificates.certificate.builder.AnyUnmanagedCertificateBuilder;
+import com.galsie.lib.certificates.csr.SomeCSRHolder;
+import com.galsie.lib.utils.crypto.hasher.HashingAlgorithm;
+import com.galsie.lib.utils.functional.ThrowableConsumer;
+import com.galsie.lib.utils.lang.Nullable;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Issues certificates for a stream of PEM encoded CSRs, in stages: {@link CSRPipelineStage}
+ * - Each stage has its own workers, and a bounded buffer in front of it. A full buffer blocks the stage before it, so a slow stage slows the whole pipeline down instead of piling CSRs up
+ * - The signing stage takes up to 'signingBatchSize' waiting CSRs at once, and signs them with one signer of the issuer
+ * - A CSR that fails a stage skips the later ones, its {@link CSRPipelineResult} holds the failure
+ * - {@link CSRPipeline#getStatistics()} tells the throughput and the queue depth of each stage, to find the bottleneck
+ *
+ * It is a {@link Flow.Processor}: subscribe it to the publisher of the CSRs, and subscribe the consumer of the results to it
+ * - It requests as many CSRs as fit in the first buffer, then one per CSR the decoding stage takes
+ * - Results are published through a {@link SubmissionPublisher}, a slow subscriber blocks the last stage
+ * - Subscribe before the CSRs arrive, results published while there is no subscriber are dropped
+ * - Once the upstream publisher completes and every CSR was published, the subscribers are completed
+ *
+ * Example:
+ *  var pipeline = CSRPipeline.builder(icac)
+ *      .setSubjectPolicy(csrHolder -> policy.check(csrHolder.getSubject()))
+ *      .setTemplate(builder -> builder.setValidFrom(now).setValidTo(expiry))
+ *      .setPersister(result -> store.append(result.getCertificateHolder()))
+ *      .build();
+ *  pipeline.subscribe(resultSubscriber);
+ *  csrPublisher.subscribe(pipeline);
+ */
+public class CSRPipeline implements Flow.Processor<String, CSRPipelineResult>, AutoCloseable {
+
+    public static final int DEFAULT_BUFFER_CAPACITY = 256;
+    public static final int DEFAULT_SIGNING_BATCH_SIZE = 32;
+
+    private final SomeX509v3CertificateManager issuer;
+    private final ThrowableConsumer<AnyUnmanagedCertificateBuilder> template;
+    @Nullable
+    private final ThrowableConsumer<SomeCSRHolder> subjectPolicy;
+    @Nullable
+    private final ThrowableConsumer<CSRPipelineResult> persister;
+    private final int signingBatchSize;
+
+    /**
+     * The stages in order, the first one takes the submitted CSRs
+     */
+    private final List<Stage> stages = new ArrayList<>();
+    private final SubmissionPublisher<CSRPipelineResult> publisher;
+
+    private final AtomicLong sequenceNumbers = new AtomicLong();
+    /**
+     * The CSRs submitted and not published yet
+     */
+    private final AtomicLong inFlight = new AtomicLong();
+    private volatile Flow.Subscription upstream;
+    private volatile boolean upstreamDone;
+    private volatile Throwable upstreamError;
+    private final AtomicBoolean publisherClosed = new AtomicBoolean();
+    private volatile boolean closed;
+
+    private CSRPipeline(Builder builder) {
+        this.issuer = builder.issuer;
+        this.template = builder.template;
+        this.subjectPolicy = builder.subjectPolicy;
+        this.persister = builder.persister;
+        this.signingBatchSize = builder.signingBatchSize;
+        this.publisher = new SubmissionPublisher<>(builder.deliveryExecutor, builder.bufferCapacity);
+        for (var stage : CSRPipelineStage.values()) {
+            if ((stage == CSRPipelineStage.POLICY && subjectPolicy == null) || (stage == CSRPipelineStage.PERSIST && persister == null)) {
+                continue;
+            }
+            var parallelism = builder.parallelism.getOrDefault(stage, defaultParallelism(stage));
+            this.stages.add(new Stage(stage, parallelism, builder.bufferCapacity, stage == CSRPipelineStage.SIGN ? signingBatchSize : 1));
+        }
+        for (int i = 0; i < stages.size() - 1; i++) {
+            stages.get(i).next = stages.get(i + 1);
+        }
+        for (var stage : stages) {
+            stage.start();
+        }
+    }
+
+    public static Builder builder(SomeX509v3CertificateManager issuer) {
+        return new Builder(issuer);
+    }
+
+    /**
+     * The CPU bound stages (verifying and signing) get a worker per core, the others one
+     */
+    private static int defaultParallelism(CSRPipelineStage stage) {
+        return stage == CSRPipelineStage.VERIFY || stage == CSRPipelineStage.SIGN ? Runtime.getRuntime().availableProcessors() : 1;
+    }
+
+    /*
+    Flow.Subscriber: the CSRs
+     */
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (upstream != null || closed) {
+            subscription.cancel(); // a pipeline takes its CSRs from one publisher
+            return;
+        }
+        upstream = subscription;
+        subscription.request(stages.get(0).queue.remainingCapacity());
+    }
+
+    @Override
+    public void onNext(String pemEncodedCSR) {
+        try {
+            this.submit(pemEncodedCSR);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        upstreamError = throwable;
+        this.complete();
+    }
+
+    @Override
+    public void onComplete() {
+        this.complete();
+    }
+
+    /**
+     * Submits a CSR without an upstream publisher, blocking while the first buffer is full
+     * - Do not mix with {@link CSRPipeline#onSubscribe(Flow.Subscription)}, the upstream would be requested CSRs that were submitted here
+     *
+     * @param pemEncodedCSR The PEM encoded CSR
+     * @throws IllegalStateException If the pipeline was completed or closed
+     */
+    public void submit(String pemEncodedCSR) throws InterruptedException {
+        if (closed || upstreamDone) {
+            throw new IllegalStateException("The pipeline does not take CSRs anymore");
+        }
+        inFlight.incrementAndGet(); // before the put, or a worker could publish the CSR and complete the subscribers first
+        try {
+            stages.get(0).queue.put(new Item(sequenceNumbers.getAndIncrement(), pemEncodedCSR));
+        } catch (InterruptedException ex) {
+            this.published();
+            throw ex;
+        }
+    }
+
+    /**
+     * Ends the CSRs submitted with {@link CSRPipeline#submit(String)}: once they are all published, the subscribers are completed
+     */
+    public void complete() {
+        upstreamDone = true;
+        this.completeSubscribersIfDone();
+    }
+
+    private void completeSubscribersIfDone() {
+        if (upstreamDone && inFlight.get() == 0 && publisherClosed.compareAndSet(false, true)) {
+            var error = upstreamError;
+            if (error == null) {
+                publisher.close();
+            } else {
+                publisher.closeExceptionally(error);
+            }
+        }
+    }
+
+    /*
+    Flow.Publisher: the results
+     */
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super CSRPipelineResult> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    private void publish(Item item) {
+        try {
+            if (!publisherClosed.get()) {
+                publisher.submit(item.toResult()); // blocks while a subscriber's buffer is full
+            }
+        } catch (IllegalStateException | RejectedExecutionException ex) {
+            // closed meanwhile, or the delivery executor refused: dropped, like the results published once closed
+        } finally {
+            this.published();
+        }
+    }
+
+    /**
+     * A CSR left the pipeline, or never entered it
+     */
+    private void published() {
+        if (inFlight.decrementAndGet() == 0) {
+            this.completeSubscribersIfDone();
+        }
+    }
+
+    /*
+    Stages
+     */
+
+    private void process(CSRPipelineStage stage, List<Item> items) {
+        if (stage == CSRPipelineStage.SIGN) {
+            this.sign(items);
+            return;
+        }
+        for (var item : items) {
+            try {
+                switch (stage) {
+                    case DECODE -> item.csrHolder = SomeCSRHolder.fromPEMEncoded(item.pemEncodedCSR);
+                    case VERIFY -> {
+                        if (!item.csrHolder.isSignatureValid()) {
+                            throw new Exception("Invalid Signature.");
+                        }
+                    }
+                    case POLICY -> subjectPolicy.consume(item.csrHolder);
+                    case ENCODE -> item.pemEncodedCertificate = item.certificateHolder.getPEMEncoded();
+                    case PERSIST -> persister.consume(item.toResult());
+                    default -> throw new IllegalStateException("Unknown stage " + stage);
+                }
+            } catch (Exception ex) {
+                item.fail(stage, ex);
+            }
+        }
+    }
+
+    /**
+     * Builds the certificates of a batch, then signs them with one signer per hashing algorithm
+     */
+    private void sign(List<Item> items) {
+        var tbsByHashingAlgorithm = new LinkedHashMap<HashingAlgorithm, List<Item>>();
+        for (var item : items) {
+            try {
+                var builder = AnyUnmanagedCertificateBuilder.start().forVerifiedCertificateSigningRequest(item.csrHolder, true);
+                template.consume(builder);
+                item.tbs = builder.buildTBSSignedBy(issuer);
+                tbsByHashingAlgorithm.computeIfAbsent(builder.getSigningHashingAlgorithm(), (ignored) -> new ArrayList<>()).add(item);
+            } catch (Exception ex) {
+                item.fail(CSRPipelineStage.SIGN, ex);
+            }
+        }
+        for (var entry : tbsByHashingAlgorithm.entrySet()) {
+            var toSign = entry.getValue();
+            var tbs = new ArrayList<X509v3CertificateBuilder>(toSign.size());
+            for (var item : toSign) {
+                tbs.add(item.tbs);
+                item.tbs = null;
+            }
+            var certificateHolders = issuer.signCertificates(tbs, entry.getKey(), (ex, index) -> toSign.get(index).fail(CSRPipelineStage.SIGN, ex));
+            for (int index = 0; index < toSign.size(); index++) {
+                toSign.get(index).certificateHolder = certificateHolders.get(index);
+            }
+        }
+    }
+
+    /**
+     * @return A snapshot of the counters of each stage, in order
+     */
+    public List<CSRPipelineStageStatistics> getStatistics() {
+        var statistics = new ArrayList<CSRPipelineStageStatistics>(stages.size());
+        for (var stage : stages) {
+            statistics.add(new CSRPipelineStageStatistics(stage.stage, stage.workerCount, stage.processed.sum(), stage.failed.sum(), stage.batches.sum(),
+                    stage.queue.size(), stage.queue.size() + stage.queue.remainingCapacity(), stage.busyNanos.sum()));
+        }
+        return statistics;
+    }
+
+    /**
+     * Stops the workers right away, the CSRs still in the pipeline are dropped, and completes the subscribers
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (var stage : stages) {
+            stage.stop();
+        }
+        var subscription = upstream;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        if (publisherClosed.compareAndSet(false, true)) {
+            publisher.close();
+        }
+    }
+
+    private class Stage {
+        private final CSRPipelineStage stage;
+        private final int workerCount;
+        private final ArrayBlockingQueue<Item> queue;
+        private final int batchSize;
+        private final List<Thread> workers = new ArrayList<>();
+        private Stage next;
+
+        /*
+        Counters
+         */
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+
+        private Stage(CSRPipelineStage stage, int workerCount, int bufferCapacity, int batchSize) {
+            this.stage = stage;
+            this.workerCount = workerCount;
+            this.queue = new ArrayBlockingQueue<>(bufferCapacity);
+            this.batchSize = batchSize;
+        }
+
+        private void start() {
+            for (int i = 1; i <= workerCount; i++) {
+                var thread = new Thread(this::work, "galsie-csr-pipeline-" + stage.name().toLowerCase() + "-" + i);
+                thread.setDaemon(true);
+                workers.add(thread);
+                thread.start();
+            }
+        }
+
+        private void stop() {
+            for (var worker : workers) {
+                worker.interrupt();
+            }
+        }
+
+        private void work() {
+            var batch = new ArrayList<Item>(batchSize);
+            try {
+                while (!closed) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, batchSize - 1);
+                    var subscription = upstream;
+                    if (subscription != null && this == stages.get(0)) {
+                        subscription.request(batch.size()); // room was made in the first buffer
+                    }
+                    long started = System.nanoTime();
+                    try {
+                        process(stage, batch);
+                    } catch (Throwable ex) { // eg: an Error thrown by the template. The worker goes on, a dead one would stall the pipeline
+                        for (var item : batch) {
+                            if (item.failure == null) {
+                                item.fail(stage, ex);
+                            }
+                        }
+                    }
+                    busyNanos.add(System.nanoTime() - started);
+                    processed.add(batch.size());
+                    batches.increment();
+                    for (var item : batch) {
+                        if (item.failedStage == stage) {
+                            failed.increment();
+                        }
+                        if (item.failure != null || next == null) {
+                            publish(item);
+                        } else {
+                            next.queue.put(item);
+                        }
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException ex) {
+                // closed
+            }
+        }
+    }
+
+    /**
+     * A CSR on its way through the stages, only touched by one worker at a time
+     */
+    private static class Item {
+        private final long sequenceNumber;
+        private final String pemEncodedCSR;
+        private SomeCSRHolder csrHolder;
+        private X509v3CertificateBuilder tbs;
+        private SomeX509v3CertificateHolder certificateHolder;
+        private String pemEncodedCertificate;
+        private CSRPipelineStage failedStage;
+        private Throwable failure;
+
+        private Item(long sequenceNumber, String pemEncodedCSR) {
+            this.sequenceNumber = sequenceNumber;
+            this.pemEncodedCSR = pemEncodedCSR;
+        }
+
+        private void fail(CSRPipelineStage stage, Throwable ex) {
+            this.failedStage = stage;
+            this.failure = ex;
+        }
+
+        private CSRPipelineResult toResult() {
+            return new CSRPipelineResult(sequenceNumber, pemEncodedCSR, csrHolder, certificateHolder, pemEncodedCertificate, failedStage, failure);
+        }
+    }
+
+    public static class Builder {
+        private final SomeX509v3CertificateManager issuer;
+        private ThrowableConsumer<AnyUnmanagedCertificateBuilder> template = (builder) -> {};
+        @Nullable
+        private ThrowableConsumer<SomeCSRHolder> subjectPolicy;
+        @Nullable
+        private ThrowableConsumer<CSRPipelineResult> persister;
+        private final EnumMap<CSRPipelineStage, Integer> parallelism = new EnumMap<>(CSRPipelineStage.class);
+        private int bufferCapacity = DEFAULT_BUFFER_CAPACITY;
+        private int signingBatchSize = DEFAULT_SIGNING_BATCH_SIZE;
+        private Executor deliveryExecutor = ForkJoinPool.commonPool();
+
+        private Builder(SomeX509v3CertificateManager issuer) {
+            this.issuer = issuer;
+        }
+
+        /**
+         * Applied to the builder of every certificate, after the CSR was set
+         * - Sets the validity, extensions, serial number (by default from {@link com.galsie.lib.certificates.serial.SerialNumberAllocator#getDefault()})...
+         * - Called concurrently by the signing workers, so it must not mutate shared state
+         */
+        public Builder setTemplate(ThrowableConsumer<AnyUnmanagedCertificateBuilder> template) {
+            this.template = template;
+            return this;
+        }
+
+        /**
+         * @param subjectPolicy Rejects a CSR by throwing, eg: when its subject is not allowed. Null for no policy stage
+         */
+        public Builder setSubjectPolicy(@Nullable ThrowableConsumer<SomeCSRHolder> subjectPolicy) {
+            this.subjectPolicy = subjectPolicy;
+            return this;
+        }
+
+        /**
+         * @param persister Persists an issued certificate (with its PEM encoding), a throw fails the CSR. Null for no persisting stage
+         */
+        public Builder setPersister(@Nullable ThrowableConsumer<CSRPipelineResult> persister) {
+            this.persister = persister;
+            return this;
+        }
+
+        /**
+         * @param stage The stage
+         * @param workerCount The number of workers of the stage, defaults to one per core for VERIFY and SIGN, and one for the others
+         */
+        public Builder setParallelism(CSRPipelineStage stage, int workerCount) {
+            if (workerCount <= 0) {
+                throw new IllegalArgumentException("The worker count of " + stage + " must be positive, got " + workerCount);
+            }
+            this.parallelism.put(stage, workerCount);
+            return this;
+        }
+
+        /**
+         * @param bufferCapacity The CSRs that may wait in front of each stage, and the results buffered per subscriber
+         */
+        public Builder setBufferCapacity(int bufferCapacity) {
+            if (bufferCapacity <= 0) {
+                throw new IllegalArgumentException("The buffer capacity must be positive, got " + bufferCapacity);
+            }
+            this.bufferCapacity = bufferCapacity;
+            return this;
+        }
+
+        /**
+         * @param signingBatchSize The most CSRs a signing worker signs with one signer, 1 disables the batching
+         */
+        public Builder setSigningBatchSize(int signingBatchSize) {
+            if (signingBatchSize <= 0) {
+                throw new IllegalArgumentException("The signing batch size must be positive, got " + signingBatchSize);
+            }
+            this.signingBatchSize = signingBatchSize;
+            return this;
+        }
+
+        /**
+         * @param deliveryExecutor Delivers the results to the subscribers, defaults to the common {@link ForkJoinPool}
+         */
+        public Builder setDeliveryExecutor(Executor deliveryExecutor) {
+            this.deliveryExecutor = deliveryExecutor;
+            return this;
+        }
+
+        /**
+         * Builds the pipeline and starts its workers
+         */
+        public CSRPipeline build() {
+            return new CSRPipeline(this);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.galsie.lib.certificates.pipeline;
+
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.csr.SomeCSRHolder;
+import com.galsie.lib.utils.lang.Nullable;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The outcome of one CSR that went through a {@link CSRPipeline}
+ * - A failed CSR leaves the pipeline at the stage that failed it, the fields of the later stages are null
+ * - Results are published in completion order, the sequence number is the order the CSRs were submitted in
+ */
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+@Getter
+public class CSRPipelineResult {
+
+    private final long sequenceNumber;
+    private final String pemEncodedCSR;
+    @Nullable
+    private final SomeCSRHolder csrHolder;
+    @Nullable
+    private final SomeX509v3CertificateHolder certificateHolder;
+    @Nullable
+    private final String pemEncodedCertificate;
+    /**
+     * The stage that failed the CSR, null on success
+     */
+    @Nullable
+    private final CSRPipelineStage failedStage;
+    @Nullable
+    private final Throwable failure;
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+}
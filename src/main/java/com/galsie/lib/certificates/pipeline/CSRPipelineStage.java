@@ -0,0 +1,38 @@
+package com.galsie.lib.certificates.pipeline;
+
+/**
+ * The stages of a {@link CSRPipeline}, in order
+ * - POLICY and PERSIST only exist when a policy and a persister are set
+ */
+public enum CSRPipelineStage {
+
+    /**
+     * Decodes the PEM encoded CSR
+     */
+    DECODE,
+
+    /**
+     * Verifies the CSR signature
+     */
+    VERIFY,
+
+    /**
+     * Enforces the subject policy, which rejects a CSR by throwing
+     */
+    POLICY,
+
+    /**
+     * Builds and signs the certificates, in micro-batches that share one signer
+     */
+    SIGN,
+
+    /**
+     * PEM encodes the certificates
+     */
+    ENCODE,
+
+    /**
+     * Persists the issued certificates
+     */
+    PERSIST
+}
@@ -0,0 +1,56 @@
+package com.galsie.lib.certificates.pipeline;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A snapshot of the counters of one stage of a {@link CSRPipeline}
+ * - Taken through {@link CSRPipeline#getStatistics()}
+ * - The bottleneck is the stage with the lowest throughput, the queues in front of it are full and the ones after it are empty
+ */
+@AllArgsConstructor
+@Getter
+public class CSRPipelineStageStatistics {
+
+    private CSRPipelineStage stage;
+
+    private int workerCount;
+
+    /**
+     * The number of CSRs the stage handled, including the ones it failed
+     */
+    private long processedCount;
+
+    /**
+     * The number of CSRs the stage failed
+     */
+    private long failedCount;
+
+    /**
+     * The number of batches the stage handled, equal to the processed count except for the signing stage
+     */
+    private long batchCount;
+
+    /**
+     * The number of CSRs waiting in front of the stage when the snapshot was taken
+     */
+    private int queueDepth;
+
+    private int queueCapacity;
+
+    /**
+     * The time the workers spent handling CSRs (not waiting for them), summed over the workers, in nanoseconds
+     */
+    private long busyNanos;
+
+    /**
+     * @return The CSRs per second the stage handles when all its workers are busy
+     */
+    public double getThroughputPerSecond() {
+        return busyNanos == 0 ? 0 : processedCount * 1e9 * workerCount / busyNanos;
+    }
+
+    public double getAverageBatchSize() {
+        return batchCount == 0 ? 0 : (double) processedCount / batchCount;
+    }
+}
@@ -0,0 +1,20 @@
+package com.galsie.lib.certificates.serial;
+
+/**
+ * Holds the process wide default of {@link SerialNumberAllocator#getDefault()}
+ */
+class DefaultSerialNumberAllocator {
+
+    private static volatile SerialNumberAllocator serialNumberAllocator = new TimeOrderedSerialNumberAllocator();
+
+    static SerialNumberAllocator get() {
+        return serialNumberAllocator;
+    }
+
+    static void set(SerialNumberAllocator serialNumberAllocator) {
+        if (serialNumberAllocator == null) {
+            throw new IllegalArgumentException("The default serial number allocator can not be null");
+        }
+        DefaultSerialNumberAllocator.serialNumberAllocator = serialNumberAllocator;
+    }
+}
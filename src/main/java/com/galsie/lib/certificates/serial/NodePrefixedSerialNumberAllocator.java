@@ -0,0 +1,80 @@
+package com.galsie.lib.certificates.serial;
+
+import lombok.Getter;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Allocates serial numbers made of the issuing node's id, the allocator's start time and a counter
+ * - 0x01 (1 octet) | node id (4 octets) | start time in milliseconds (6 octets) | counter (8 octets)
+ * - Unique by construction: nodes have different ids, and a node that restarts starts at a later time
+ * - The counter is striped: each thread increments one of several counters, stripe i hands out i, i + stripes, i + 2 * stripes...
+ * -- So threads rarely contend on the same counter, and the stripes never hand out the same value
+ * -- The stripes are spaced a cache line apart so that they do not share one
+ *
+ * Note:
+ * - Create one allocator per node and share it, two allocators of the same node id in the same JVM are given different start times
+ * - The serial numbers are only roughly ordered, each stripe counts on its own
+ */
+@Getter
+public class NodePrefixedSerialNumberAllocator implements SerialNumberAllocator {
+
+    private static final int SERIAL_NUMBER_OCTETS = 19;
+    /**
+     * A cache line holds 8 longs
+     */
+    private static final int STRIPE_SPACING = 8;
+    /**
+     * The last start time given, so that allocators made in the same millisecond do not share it
+     */
+    private static final AtomicLong LAST_START_MILLIS = new AtomicLong();
+
+    private final int nodeId;
+    private final long startMillis;
+    private final int stripeCount;
+    private final AtomicLongArray counters;
+
+    public NodePrefixedSerialNumberAllocator(int nodeId) {
+        this(nodeId, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * @param nodeId The id of the issuing node, unique within the cluster
+     * @param stripes The number of counters, rounded up to a power of two
+     */
+    public NodePrefixedSerialNumberAllocator(int nodeId, int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("An allocator needs at least one stripe");
+        }
+        long now = System.currentTimeMillis();
+        this.nodeId = nodeId;
+        this.startMillis = LAST_START_MILLIS.accumulateAndGet(now, (last, current) -> Math.max(last + 1, current));
+        int stripeCount = 1;
+        while (stripeCount < stripes) {
+            stripeCount <<= 1;
+        }
+        this.stripeCount = stripeCount;
+        this.counters = new AtomicLongArray(stripeCount * STRIPE_SPACING);
+    }
+
+    @Override
+    public BigInteger allocate() {
+        int stripe = (int) (Thread.currentThread().getId() & (stripeCount - 1));
+        long counter = counters.getAndIncrement(stripe * STRIPE_SPACING) * stripeCount + stripe;
+        byte[] serialNumber = new byte[SERIAL_NUMBER_OCTETS];
+        serialNumber[0] = 0x01;
+        putBigEndian(serialNumber, 1, nodeId, 4);
+        putBigEndian(serialNumber, 5, startMillis, 6);
+        putBigEndian(serialNumber, 11, counter, 8);
+        return new BigInteger(1, serialNumber);
+    }
+
+    static void putBigEndian(byte[] bytes, int offset, long value, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.galsie.lib.certificates.serial;
+
+import lombok.Getter;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+
+/**
+ * Allocates random serial numbers, checked against the serial numbers already given
+ * - 0x01 (1 octet) | random (18 octets)
+ * - Each serial is checked against a {@link SerialNumberBloomFilter}, if it might have been given already another one is drawn
+ * -- A false positive only costs drawing again, so no serial is ever given twice by this allocator
+ * -- The filter is lock-free, threads only contend when setting the same word of bits
+ * - Each thread has its own {@link SecureRandom}
+ *
+ * Note:
+ * - The filter only knows the serials of this allocator, across nodes uniqueness comes from the 144 random bits
+ * - Past the expected number of serials the filter fills up and draws are retried more often, size it for the issuer's lifetime
+ */
+@Getter
+public class RandomSerialNumberAllocator implements SerialNumberAllocator {
+
+    public static final double DEFAULT_FALSE_POSITIVE_PROBABILITY = 0.0001;
+
+    private static final int SERIAL_NUMBER_OCTETS = 19;
+
+    private static final ThreadLocal<SecureRandom> SECURE_RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+    private final SerialNumberBloomFilter bloomFilter;
+
+    /**
+     * @param expectedSerialNumbers The number of serials expected to be allocated
+     * @param falsePositiveProbability The probability of drawing again while under the expected number of serials
+     */
+    public RandomSerialNumberAllocator(int expectedSerialNumbers, double falsePositiveProbability) {
+        this.bloomFilter = new SerialNumberBloomFilter(expectedSerialNumbers, falsePositiveProbability);
+    }
+
+    @Override
+    public BigInteger allocate() {
+        var secureRandom = SECURE_RANDOM.get();
+        byte[] serialNumber = new byte[SERIAL_NUMBER_OCTETS];
+        do {
+            secureRandom.nextBytes(serialNumber);
+            serialNumber[0] = 0x01;
+        } while (!bloomFilter.add(serialNumber));
+        return new BigInteger(1, serialNumber);
+    }
+}
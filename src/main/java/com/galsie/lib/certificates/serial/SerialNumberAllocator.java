@@ -0,0 +1,66 @@
+package com.galsie.lib.certificates.serial;
+
+import java.math.BigInteger;
+
+/**
+ * Allocates certificate serial numbers
+ * - From RFC 5280 4.1.2.2: serial numbers are positive integers, unique per issuer, of at most 20 octets
+ * - Every allocator here returns positive numbers of a fixed 19 octets (a leading 0x01 octet keeps the length fixed)
+ * - Safe to call from many threads
+ *
+ * Strategies:
+ * - {@link SerialNumberAllocator#nodePrefixed(int)}: the issuing node's id, its start time and a striped counter, unique by construction across nodes
+ * - {@link SerialNumberAllocator#timeOrdered()}: the time in milliseconds and 96 random bits, ordered by issuance time, needs no configuration
+ * - {@link SerialNumberAllocator#secureRandom(int)}: 144 random bits, checked against a Bloom filter of the serials this allocator already gave
+ *
+ * Builders that are not given a serial number take one from {@link SerialNumberAllocator#getDefault()}
+ */
+public interface SerialNumberAllocator {
+
+    /**
+     * The maximum length of a serial number, in octets
+     */
+    int MAX_SERIAL_NUMBER_OCTETS = 20;
+
+    /**
+     * @return A new serial number, positive and at most {@link SerialNumberAllocator#MAX_SERIAL_NUMBER_OCTETS} octets
+     */
+    BigInteger allocate();
+
+    /**
+     * @param nodeId The id of the issuing node, unique within the cluster (eg: from its configuration)
+     * @return A {@link NodePrefixedSerialNumberAllocator}
+     */
+    static SerialNumberAllocator nodePrefixed(int nodeId) {
+        return new NodePrefixedSerialNumberAllocator(nodeId);
+    }
+
+    /**
+     * @return A {@link TimeOrderedSerialNumberAllocator}
+     */
+    static SerialNumberAllocator timeOrdered() {
+        return new TimeOrderedSerialNumberAllocator();
+    }
+
+    /**
+     * @param expectedSerialNumbers The number of serials expected to be allocated, sizes the Bloom filter
+     * @return A {@link RandomSerialNumberAllocator}
+     */
+    static SerialNumberAllocator secureRandom(int expectedSerialNumbers) {
+        return new RandomSerialNumberAllocator(expectedSerialNumbers, RandomSerialNumberAllocator.DEFAULT_FALSE_POSITIVE_PROBABILITY);
+    }
+
+    /**
+     * @return The allocator used by builders that were not given a serial number, a {@link TimeOrderedSerialNumberAllocator} unless set
+     */
+    static SerialNumberAllocator getDefault() {
+        return DefaultSerialNumberAllocator.get();
+    }
+
+    /**
+     * Sets the allocator used by builders that were not given a serial number, eg: a {@link NodePrefixedSerialNumberAllocator} once the node id is known
+     */
+    static void setDefault(SerialNumberAllocator serialNumberAllocator) {
+        DefaultSerialNumberAllocator.set(serialNumberAllocator);
+    }
+}
@@ -0,0 +1,82 @@
+package com.galsie.lib.certificates.serial;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free Bloom filter of serial numbers
+ * - The bits are set with compare-and-set on an {@link AtomicLongArray}
+ * - The serial numbers are random, so the k bit positions are derived from two of their 8 octet words (double hashing) rather than hashed again
+ */
+@Getter
+public class SerialNumberBloomFilter {
+
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLongArray words;
+
+    /**
+     * @param expectedInsertions The number of serials expected to be added
+     * @param falsePositiveProbability The probability that a serial not added is reported as added, under the expected number of insertions
+     */
+    public SerialNumberBloomFilter(int expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions < 1 || falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("A Bloom filter needs at least one expected insertion and a false positive probability in (0, 1)");
+        }
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.max(1, (bits + 63) / 64);
+        this.bitCount = wordCount * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        this.words = new AtomicLongArray(wordCount);
+    }
+
+    /**
+     * Adds a serial number
+     *
+     * @param serialNumber At least 16 octets, the last 16 are used
+     * @return true if the serial was not in the filter, false if it might have been
+     */
+    public boolean add(byte[] serialNumber) {
+        long hash1 = readLong(serialNumber, serialNumber.length - 16);
+        long hash2 = readLong(serialNumber, serialNumber.length - 8) | 1; // Odd, so the positions do not repeat
+        boolean added = false;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            int wordIndex = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word;
+            do {
+                word = words.get(wordIndex);
+                if ((word & mask) != 0) {
+                    break;
+                }
+                added = true;
+            } while (!words.compareAndSet(wordIndex, word, word | mask));
+        }
+        return added;
+    }
+
+    /**
+     * @return true if the serial number might have been added
+     */
+    public boolean mightContain(byte[] serialNumber) {
+        long hash1 = readLong(serialNumber, serialNumber.length - 16);
+        long hash2 = readLong(serialNumber, serialNumber.length - 8) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+}
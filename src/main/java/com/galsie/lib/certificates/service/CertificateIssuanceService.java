@@ -0,0 +1,422 @@
+package com.galsie.lib.certificates.service;
+
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
+import com.galsie.lib.certificates.certificate.builder.AnyUnmanagedCertificateBuilder;
+import com.galsie.lib.certificates.certificate.builder.UnmanagedCertificateBuilder;
+import com.galsie.lib.certificates.csr.SomeCSRHolder;
+import com.galsie.lib.certificates.exception.CertificateIssuanceRejectedException;
+import com.galsie.lib.certificates.exception.CertificateIssuanceRejectedException.Reason;
+import com.galsie.lib.utils.functional.ThrowableConsumer;
+import com.galsie.lib.utils.functional.ThrowableSupplier;
+import com.galsie.lib.utils.lang.Nullable;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Issues certificates signed by one {@link SomeX509v3CertificateManager} asynchronously, with admission control
+ * - Every issuance returns a {@link CompletableFuture} right away, the caller's thread never signs
+ * - At most 'maxConcurrentSignings' issuances (by default one per core) build and sign at once, signing is CPU bound and more would only add latency
+ * - At most 'queueCapacity' more wait for a slot, in arrival order. Beyond that, issuances are refused on submission
+ * - With a maximum queue time, issuances that waited too long are shed instead of signed late, so that a burst does not stretch the latency of everything behind it
+ * - Refused and shed issuances complete with a {@link CertificateIssuanceRejectedException}, whose {@link Reason} tells which
+ *
+ * Runs on virtual threads when the JVM has them (Java 21+), otherwise on platform threads, or on a given {@link Executor}
+ * - Queued issuances wait on their own thread, so that they can be shed on time: at most 'maxConcurrentSignings + queueCapacity' threads
+ * - On virtual threads, only the waiting is done there: the issuance is then signed on a pool of 'maxConcurrentSignings' platform threads
+ *   A new virtual thread per issuance would start with empty thread locals, so it would seed a new DRBG ({@link com.galsie.lib.certificates.keypair.ThreadLocalDRBGEntropySource})
+ *   and rebuild the per-thread caches (key factories, PEM buffers, TBS builders...) on every issuance
+ *
+ * Example:
+ *  var service = CertificateIssuanceService.builder(icac).setMaxQueueTime(Duration.ofMillis(250)).build();
+ *  service.issue(csrHolder, builder -> builder.setValidFrom(now).setValidTo(expiry))
+ *      .whenComplete((certificate, ex) -> ...);
+ */
+public class CertificateIssuanceService implements AutoCloseable {
+
+    private final SomeX509v3CertificateManager issuer;
+    private final Executor executor;
+    /**
+     * The executor created by the service, shut down on {@link CertificateIssuanceService#close()}. Null for a given executor
+     */
+    @Nullable
+    private final ExecutorService ownedExecutor;
+    /**
+     * Where the issuances are signed once they hold a slot, null to sign on the waiting thread
+     * - By default, when the issuances wait on virtual threads, platform threads whose idle threads are released after a minute
+     */
+    @Nullable
+    private final Executor signingExecutor;
+    private final int maxConcurrentSignings;
+    private final int queueCapacity;
+    /**
+     * The maximum queue time in nanoseconds, or -1 to never shed
+     */
+    private final long maxQueueNanos;
+
+    /**
+     * The signing slots, fair so that waiting issuances get them in arrival order
+     */
+    private final Semaphore signingSlots;
+    /**
+     * The admitted issuances that did not complete yet, queued or signing
+     */
+    private final AtomicInteger admittedCount = new AtomicInteger();
+    private final AtomicInteger signingCount = new AtomicInteger();
+    private volatile boolean closed;
+
+    /*
+    Counters
+     */
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    private CertificateIssuanceService(Builder builder) {
+        this.issuer = builder.issuer;
+        this.maxConcurrentSignings = builder.maxConcurrentSignings;
+        this.queueCapacity = builder.queueCapacity;
+        this.maxQueueNanos = builder.maxQueueTime == null ? -1 : builder.maxQueueTime.toNanos();
+        this.signingSlots = new Semaphore(builder.maxConcurrentSignings, true);
+        if (builder.executor != null) {
+            this.executor = builder.executor;
+            this.ownedExecutor = null;
+            this.signingExecutor = builder.signingExecutor;
+        } else {
+            var virtualThreadExecutor = newVirtualThreadExecutor();
+            this.ownedExecutor = virtualThreadExecutor != null ? virtualThreadExecutor : newPlatformThreadExecutor();
+            this.executor = this.ownedExecutor;
+            if (builder.signingExecutor != null) {
+                this.signingExecutor = builder.signingExecutor;
+            } else {
+                this.signingExecutor = virtualThreadExecutor != null ? newSigningExecutor(builder.maxConcurrentSignings) : null;
+            }
+        }
+    }
+
+    public static Builder builder(SomeX509v3CertificateManager issuer) {
+        return new Builder(issuer);
+    }
+
+    /**
+     * Issues a certificate for a CSR, see {@link UnmanagedCertificateBuilder#forCertificateSigningRequest(SomeCSRHolder, boolean)}
+     * - The CSR signature is verified on the service's threads, its requested extensions are ignored
+     *
+     * @param csrHolder The CSR
+     * @param template Sets the rest of the certificate: validity, serial number, extensions... Called on the service's threads
+     * @return A future completed with the certificate, or with the failure of the issuance, or with a {@link CertificateIssuanceRejectedException}
+     */
+    public CompletableFuture<SomeX509v3CertificateHolder> issue(SomeCSRHolder csrHolder, ThrowableConsumer<AnyUnmanagedCertificateBuilder> template) {
+        return this.submit(() -> {
+            var builder = AnyUnmanagedCertificateBuilder.start().forCertificateSigningRequest(csrHolder, true);
+            template.consume(builder);
+            return builder.buildSignedBy(issuer);
+        });
+    }
+
+    /**
+     * Issues a certificate built entirely by the template, eg: one that sets the subject and the public key
+     *
+     * @param template Sets the certificate. Called on the service's threads
+     * @return A future completed with the certificate, or with the failure of the issuance, or with a {@link CertificateIssuanceRejectedException}
+     */
+    public CompletableFuture<SomeX509v3CertificateHolder> issue(ThrowableConsumer<AnyUnmanagedCertificateBuilder> template) {
+        return this.submit(() -> {
+            var builder = AnyUnmanagedCertificateBuilder.start();
+            template.consume(builder);
+            return builder.buildSignedBy(issuer);
+        });
+    }
+
+    /**
+     * Runs any issuance under the service's admission control, eg: one through a {@link com.galsie.lib.certificates.certificate.profile.ProfiledCertificateIssuer}
+     *
+     * @param issuance The issuance, run while holding a signing slot
+     * @return A future completed with the certificate, or with the failure of the issuance, or with a {@link CertificateIssuanceRejectedException}
+     */
+    public CompletableFuture<SomeX509v3CertificateHolder> submit(ThrowableSupplier<SomeX509v3CertificateHolder> issuance) {
+        var future = new CompletableFuture<SomeX509v3CertificateHolder>();
+        if (closed) {
+            return this.reject(future, Reason.CLOSED, "The issuance service is closed");
+        }
+        if (admittedCount.incrementAndGet() > maxConcurrentSignings + queueCapacity) {
+            admittedCount.decrementAndGet();
+            refused.increment();
+            return this.reject(future, Reason.SATURATED, maxConcurrentSignings + " issuances are signing and " + queueCapacity + " are queued");
+        }
+        long admittedAt = System.nanoTime();
+        try {
+            executor.execute(() -> this.run(issuance, future, admittedAt));
+        } catch (RejectedExecutionException ex) {
+            admittedCount.decrementAndGet();
+            return this.reject(future, Reason.CLOSED, "The executor refused the issuance");
+        }
+        return future;
+    }
+
+    /**
+     * Waits for a signing slot, then signs, on this thread or on the signing executor
+     */
+    private void run(ThrowableSupplier<SomeX509v3CertificateHolder> issuance, CompletableFuture<SomeX509v3CertificateHolder> future, long admittedAt) {
+        Exception failure = null;
+        boolean acquired = false;
+        try {
+            if (future.isDone()) { // cancelled by the caller while queued
+                return;
+            }
+            if (!this.acquireSlot(admittedAt)) {
+                shed.increment();
+                failure = new CertificateIssuanceRejectedException(Reason.QUEUE_TIMEOUT, "Waited more than " + TimeUnit.NANOSECONDS.toMillis(maxQueueNanos) + "ms for a signing slot");
+                return;
+            }
+            acquired = true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            failure = new CertificateIssuanceRejectedException(Reason.CLOSED, "Interrupted while waiting for a signing slot");
+        } finally {
+            if (!acquired) {
+                admittedCount.decrementAndGet();
+                if (failure != null) {
+                    future.completeExceptionally(failure);
+                }
+            }
+        }
+        if (signingExecutor == null) {
+            this.sign(issuance, future);
+            return;
+        }
+        try {
+            signingExecutor.execute(() -> this.sign(issuance, future)); // never queues for long: a slot is held per running or queued signing
+        } catch (Throwable ex) { // refused, or the executor could not start a thread: the slot was never handed to sign()
+            signingSlots.release();
+            admittedCount.decrementAndGet();
+            if (ex instanceof RejectedExecutionException) {
+                future.completeExceptionally(new CertificateIssuanceRejectedException(Reason.CLOSED, "The signing executor refused the issuance", ex));
+            } else {
+                failed.increment();
+                future.completeExceptionally(ex);
+            }
+        }
+    }
+
+    /**
+     * Signs while holding a signing slot, and releases it
+     */
+    private void sign(ThrowableSupplier<SomeX509v3CertificateHolder> issuance, CompletableFuture<SomeX509v3CertificateHolder> future) {
+        SomeX509v3CertificateHolder certificateHolder = null;
+        Throwable failure = null;
+        boolean issuedOne = false;
+        signingCount.incrementAndGet();
+        try {
+            certificateHolder = issuance.supply();
+            issued.increment();
+            issuedOne = true;
+        } catch (Throwable ex) { // an Error too, or the future would never complete
+            failed.increment();
+            failure = ex;
+        } finally {
+            signingCount.decrementAndGet();
+            signingSlots.release();
+            admittedCount.decrementAndGet();
+            // completed last, so that the counters already account for the issuance when the caller sees it
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else if (issuedOne) {
+                future.complete(certificateHolder);
+            }
+        }
+    }
+
+    /**
+     * Waits for a signing slot, up to the remaining queue time
+     *
+     * @return False if the issuance must be shed
+     */
+    private boolean acquireSlot(long admittedAt) throws InterruptedException {
+        if (maxQueueNanos < 0) {
+            signingSlots.acquire();
+            return true;
+        }
+        long remainingNanos = maxQueueNanos - (System.nanoTime() - admittedAt);
+        return remainingNanos > 0 && signingSlots.tryAcquire(remainingNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private CompletableFuture<SomeX509v3CertificateHolder> reject(CompletableFuture<SomeX509v3CertificateHolder> future, Reason reason, String message) {
+        future.completeExceptionally(new CertificateIssuanceRejectedException(reason, message));
+        return future;
+    }
+
+    /**
+     * @return The issuances that were admitted and did not complete yet, queued or signing
+     */
+    public int getAdmittedCount() {
+        return admittedCount.get();
+    }
+
+    /**
+     * @return The issuances signing right now
+     */
+    public int getSigningCount() {
+        return signingCount.get();
+    }
+
+    public long getIssuedCount() {
+        return issued.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * @return The issuances refused on submission because the service was saturated
+     */
+    public long getRefusedCount() {
+        return refused.sum();
+    }
+
+    /**
+     * @return The issuances shed after waiting longer than the maximum queue time
+     */
+    public long getShedCount() {
+        return shed.sum();
+    }
+
+    /**
+     * Stops admitting issuances, the admitted ones still complete
+     * - An executor created by the service is shut down, a given executor is left running
+     * - The signing threads are not shut down, since the admitted issuances may still hand them work, they end once idle for a minute
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    /**
+     * A virtual thread per issuance, the service is compiled for Java 17 so they are looked up reflectively
+     *
+     * @return The executor, or null if the JVM has no virtual threads
+     */
+    @Nullable
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Cached platform threads: the admission control already bounds them, and idle ones are released after a minute
+     */
+    private static ExecutorService newPlatformThreadExecutor() {
+        var threadCount = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            var thread = new Thread(runnable, "galsie-issuance-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * One platform thread per signing slot, long lived so that their thread locals are reused, released after a minute idle
+     */
+    private static ExecutorService newSigningExecutor(int maxConcurrentSignings) {
+        var threadCount = new AtomicInteger();
+        var signingExecutor = new ThreadPoolExecutor(maxConcurrentSignings, maxConcurrentSignings, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), runnable -> {
+            var thread = new Thread(runnable, "galsie-signing-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        signingExecutor.allowCoreThreadTimeOut(true);
+        return signingExecutor;
+    }
+
+    public static class Builder {
+        private final SomeX509v3CertificateManager issuer;
+        private int maxConcurrentSignings = Runtime.getRuntime().availableProcessors();
+        private int queueCapacity = -1;
+        @Nullable
+        private Duration maxQueueTime;
+        @Nullable
+        private Executor executor;
+        @Nullable
+        private Executor signingExecutor;
+
+        private Builder(SomeX509v3CertificateManager issuer) {
+            this.issuer = issuer;
+        }
+
+        /**
+         * @param maxConcurrentSignings The issuances that build and sign at once, defaults to the number of cores
+         */
+        public Builder setMaxConcurrentSignings(int maxConcurrentSignings) {
+            if (maxConcurrentSignings <= 0) {
+                throw new IllegalArgumentException("The maximum concurrent signings must be positive, got " + maxConcurrentSignings);
+            }
+            this.maxConcurrentSignings = maxConcurrentSignings;
+            return this;
+        }
+
+        /**
+         * @param queueCapacity The issuances that may wait for a signing slot, beyond which they are refused. Defaults to 8 per signing slot
+         */
+        public Builder setQueueCapacity(int queueCapacity) {
+            if (queueCapacity < 0) {
+                throw new IllegalArgumentException("The queue capacity can not be negative, got " + queueCapacity);
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * @param maxQueueTime How long an issuance may wait for a signing slot before it is shed, or null to never shed (the default)
+         */
+        public Builder setMaxQueueTime(@Nullable Duration maxQueueTime) {
+            this.maxQueueTime = maxQueueTime;
+            return this;
+        }
+
+        /**
+         * @param executor The executor the issuances run on, or null for virtual threads (or a platform pool before Java 21)
+         *                 - Issuances wait and sign on its threads, reusing threads keeps the per-thread DRBGs and caches warm
+         *                 - It should run every admitted issuance at once ('maxConcurrentSignings + queueCapacity'), an issuance queued in the executor is only shed once it runs
+         */
+        public Builder setExecutor(@Nullable Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * @param signingExecutor The executor the issuances are signed on once they hold a slot, or null for the default
+         *                 - By default, issuances are signed on the thread that waited for the slot, or on a pool of 'maxConcurrentSignings' platform threads when they wait on virtual threads
+         *                 - It should run 'maxConcurrentSignings' tasks at once. An issuance it refuses completes with a {@link CertificateIssuanceRejectedException}
+         */
+        public Builder setSigningExecutor(@Nullable Executor signingExecutor) {
+            this.signingExecutor = signingExecutor;
+            return this;
+        }
+
+        public CertificateIssuanceService build() {
+            if (queueCapacity < 0) {
+                queueCapacity = 8 * maxConcurrentSignings;
+            }
+            return new CertificateIssuanceService(this);
+        }
+    }
+}
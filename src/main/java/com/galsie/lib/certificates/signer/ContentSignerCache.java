@@ -0,0 +1,138 @@
+package com.galsie.lib.certificates.signer;
+
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.keypair.EntropySource;
+import com.galsie.lib.utils.crypto.hasher.HashingAlgorithm;
+import com.galsie.lib.utils.lang.Nullable;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import java.security.GeneralSecurityException;
+import java.security.NoSuchProviderException;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the {@link ContentSignerPool}s of a single private key, one per (hashing algorithm, provider)
+ * - Used by {@link com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager} so that an issuer does not rebuild its signer for every certificate
+ * - Safe to use from many threads
+ */
+public class ContentSignerCache {
+
+    /**
+     * The number of idle signers kept per pool, one per core is enough to never build a signer in steady state
+     */
+    public static final int DEFAULT_POOL_CAPACITY = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Providers resolved by name, so that building a signer does not go through {@link Security#getProvider(String)}
+     */
+    private static final Map<String, Provider> PROVIDERS = new ConcurrentHashMap<>();
+
+    /**
+     * The randomness of the signers that were not given an {@link EntropySource}, the process wide {@link EntropySource#get()} at the time of each signature
+     */
+    private static final SecureRandom PROCESS_WIDE_RANDOM = ((EntropySource) () -> EntropySource.get().getSecureRandom()).asSecureRandom();
+
+    private final PrivateKey privateKey;
+    private final int poolCapacity;
+    private final EntropySource entropySource;
+    /**
+     * The pools by hashing algorithm, then by provider name: the key is fixed, so the signature algorithm follows from the hashing algorithm
+     * - Filled for every hashing algorithm up front and never written after, lookups allocate nothing
+     */
+    private final Map<HashingAlgorithm, Map<String, ContentSignerPool>> pools = new EnumMap<>(HashingAlgorithm.class);
+
+    public ContentSignerCache(PrivateKey privateKey) {
+        this(privateKey, DEFAULT_POOL_CAPACITY);
+    }
+
+    public ContentSignerCache(PrivateKey privateKey, int poolCapacity) {
+        this(privateKey, poolCapacity, null);
+    }
+
+    /**
+     * @param entropySource The randomness of the signatures, or null for the process wide {@link EntropySource#get()}
+     */
+    public ContentSignerCache(PrivateKey privateKey, int poolCapacity, @Nullable EntropySource entropySource) {
+        this.privateKey = privateKey;
+        this.poolCapacity = poolCapacity;
+        this.entropySource = entropySource;
+        for (var hashingAlgorithm : HashingAlgorithm.values()) {
+            this.pools.put(hashingAlgorithm, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Gets the pool of signers for the hashing algorithm and the provider
+     *
+     * @param hashingAlgorithm The hashing algorithm of the signature
+     * @param providerIdentifier The provider name, eg: BC
+     * @return The {@link ContentSignerPool}, created on first use
+     */
+    public ContentSignerPool getPool(HashingAlgorithm hashingAlgorithm, String providerIdentifier) {
+        var providerPools = this.pools.get(hashingAlgorithm);
+        var pool = providerPools.get(providerIdentifier); // every signature looks its pool up, only the first of each provider builds it
+        if (pool == null) {
+            pool = providerPools.computeIfAbsent(providerIdentifier,
+                    (ignored) -> new ContentSignerPool(SignatureAlgorithmResolver.resolve(hashingAlgorithm, privateKey), providerIdentifier, privateKey, entropySource, poolCapacity));
+        }
+        return pool;
+    }
+
+    /**
+     * Builds a new (not pooled) {@link ContentSigner}
+     * - The provider is looked up by name once and then reused
+     * - A key of another provider is converted first when needed, see {@link SecurityProvider#toProviderKey(PrivateKey)}
+     *
+     * @param signatureAlgorithm The signature algorithm, see {@link SignatureAlgorithmResolver}
+     * @param providerIdentifier The provider name, eg: BC
+     * @param privateKey The private key to sign with
+     * @return The built signer
+     * @throws OperatorCreationException If the signer could not be built for that key
+     * @throws NoSuchProviderException If the provider is not registered
+     */
+    public static ContentSigner buildSigner(String signatureAlgorithm, String providerIdentifier, PrivateKey privateKey) throws OperatorCreationException, NoSuchProviderException {
+        return buildSigner(signatureAlgorithm, providerIdentifier, privateKey, null);
+    }
+
+    /**
+     * Builds a new (not pooled) {@link ContentSigner}, see {@link ContentSignerCache#buildSigner(String, String, PrivateKey)}
+     * - The signer may be used by many threads (one at a time), each signature draws from the source on the signing thread
+     *
+     * @param entropySource The randomness of the signatures, or null for the process wide {@link EntropySource#get()}
+     */
+    public static ContentSigner buildSigner(String signatureAlgorithm, String providerIdentifier, PrivateKey privateKey, @Nullable EntropySource entropySource) throws OperatorCreationException, NoSuchProviderException {
+        var securityProvider = SecurityProvider.fromIdentifier(providerIdentifier);
+        if (securityProvider != null) {
+            try {
+                privateKey = securityProvider.toProviderKey(privateKey);
+            } catch (GeneralSecurityException ex) {
+                throw new OperatorCreationException("The private key could not be converted for " + providerIdentifier, ex);
+            }
+        }
+        return new JcaContentSignerBuilder(signatureAlgorithm)
+                .setProvider(getProvider(providerIdentifier))
+                .setSecureRandom(entropySource == null ? PROCESS_WIDE_RANDOM : entropySource.asSecureRandom())
+                .build(privateKey);
+    }
+
+    private static Provider getProvider(String providerIdentifier) throws NoSuchProviderException {
+        var provider = PROVIDERS.get(providerIdentifier);
+        if (provider != null) {
+            return provider;
+        }
+        provider = Security.getProvider(providerIdentifier);
+        if (provider == null) {
+            throw new NoSuchProviderException("The provider " + providerIdentifier + " is not registered");
+        }
+        PROVIDERS.put(providerIdentifier, provider);
+        return provider;
+    }
+}
@@ -0,0 +1,75 @@
+package com.galsie.lib.certificates.signer;
+
+import com.galsie.lib.certificates.keypair.EntropySource;
+import com.galsie.lib.utils.functional.ThrowableBiFunction;
+import com.galsie.lib.utils.functional.ThrowableFunction;
+import org.bouncycastle.operator.ContentSigner;
+
+import java.security.PrivateKey;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A bounded pool of initialized {@link ContentSigner}s for one (signature algorithm, provider, private key)
+ * - A {@link ContentSigner} wraps a {@link java.security.Signature} that is initialized with the private key, building it requires a provider lookup and a key init
+ * - A {@link ContentSigner} is NOT thread safe, but it is reusable: getting the signature resets it
+ * - The pool hands each signer to one thread at a time, and keeps up to 'capacity' idle signers for reuse
+ */
+public class ContentSignerPool {
+
+    private final String signatureAlgorithm;
+    private final String providerIdentifier;
+    private final PrivateKey privateKey;
+    private final EntropySource entropySource;
+    private final ArrayBlockingQueue<ContentSigner> idleSigners;
+
+    ContentSignerPool(String signatureAlgorithm, String providerIdentifier, PrivateKey privateKey, EntropySource entropySource, int capacity) {
+        this.signatureAlgorithm = signatureAlgorithm;
+        this.providerIdentifier = providerIdentifier;
+        this.privateKey = privateKey;
+        this.entropySource = entropySource;
+        this.idleSigners = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Runs the function with a signer from the pool
+     * - If no signer is idle, a new one is built (the pool never blocks)
+     * - The signer is returned to the pool only if the function succeeded, a failed signer may be mid-signature and is dropped
+     *
+     * @param function The function using the signer, it must not keep a reference to the signer
+     * @return The result of the function
+     * @param <R> The result type
+     * @throws Exception If building the signer, or the function, failed
+     */
+    public <R> R withSigner(ThrowableFunction<ContentSigner, R> function) throws Exception {
+        return this.withSigner(function, ThrowableFunction::apply);
+    }
+
+    /**
+     * Runs the function with a signer from the pool, see {@link ContentSignerPool#withSigner(ThrowableFunction)}
+     * - The function is given its argument, so that a non-capturing method reference (eg: X509v3CertificateBuilder::build) can be passed without allocating
+     *
+     * @param argument The first argument of the function
+     * @param function The function using the signer, it must not keep a reference to the signer
+     * @return The result of the function
+     * @param <A> The argument type
+     * @param <R> The result type
+     * @throws Exception If building the signer, or the function, failed
+     */
+    public <A, R> R withSigner(A argument, ThrowableBiFunction<A, ContentSigner, R> function) throws Exception {
+        var signer = this.idleSigners.poll();
+        if (signer == null) {
+            signer = ContentSignerCache.buildSigner(signatureAlgorithm, providerIdentifier, privateKey, entropySource);
+        }
+        var result = function.apply(argument, signer);
+        this.idleSigners.offer(signer); // dropped if the pool is already full
+        return result;
+    }
+
+    public String getSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    public int getIdleCount() {
+        return this.idleSigners.size();
+    }
+}
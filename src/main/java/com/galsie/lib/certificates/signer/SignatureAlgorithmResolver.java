@@ -0,0 +1,82 @@
+package com.galsie.lib.certificates.signer;
+
+import com.galsie.lib.utils.crypto.hasher.HashingAlgorithm;
+
+import java.security.Key;
+import java.security.interfaces.EdECKey;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the JCA signature algorithm name (eg: SHA256withECDSA) used to sign with a given key
+ * - The names are resolved once per (hashing algorithm, key algorithm) and cached
+ * - EdDSA keys sign with pure EdDSA (eg: Ed25519), the hashing algorithm does not apply to them
+ */
+public class SignatureAlgorithmResolver {
+
+    /**
+     * The resolved names by hashing algorithm, then by key algorithm
+     * - Filled for every hashing algorithm up front and never written after, lookups allocate nothing
+     */
+    private static final Map<HashingAlgorithm, Map<String, String>> RESOLVED = new EnumMap<>(HashingAlgorithm.class);
+
+    static {
+        for (var hashingAlgorithm : HashingAlgorithm.values()) {
+            RESOLVED.put(hashingAlgorithm, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * The key algorithms that sign with pure EdDSA, their signature algorithm has the same name
+     */
+    private static final Set<String> EDDSA_KEY_ALGORITHMS = Set.of("Ed25519", "Ed448");
+
+    /**
+     * The key algorithms that can not sign at all
+     */
+    private static final Set<String> KEY_AGREEMENT_ALGORITHMS = Set.of("X25519", "X448", "XDH");
+
+    /**
+     * Resolves the signature algorithm for signing with the given key
+     *
+     * @param hashingAlgorithm The hashing algorithm used to digest the signed content
+     * @param key The signing (or verifying) key, its algorithm decides the second part of the name
+     * @return The JCA signature algorithm name, eg: SHA256withECDSA
+     */
+    public static String resolve(HashingAlgorithm hashingAlgorithm, Key key) {
+        if (key instanceof EdECKey edECKey) {
+            return edECKey.getParams().getName(); // SunEC names every Edwards key 'EdDSA', the curve is in the parameters
+        }
+        return resolve(hashingAlgorithm, key.getAlgorithm());
+    }
+
+    /**
+     * Resolves the signature algorithm for a key algorithm
+     * - Keys generated as 'EC' and 'ECDSA' sign with the same 'ECDSA' signature algorithm
+     * - Ed25519 and Ed448 keys sign with Ed25519 and Ed448
+     *
+     * @param hashingAlgorithm The hashing algorithm used to digest the signed content, ignored for EdDSA
+     * @param keyAlgorithm The algorithm of the signing key, as returned by {@link Key#getAlgorithm()}
+     * @return The JCA signature algorithm name, eg: SHA256withECDSA
+     * @throws IllegalArgumentException If keys of that algorithm can not sign, eg: X25519
+     */
+    public static String resolve(HashingAlgorithm hashingAlgorithm, String keyAlgorithm) {
+        if (EDDSA_KEY_ALGORITHMS.contains(keyAlgorithm)) {
+            return keyAlgorithm;
+        }
+        if (KEY_AGREEMENT_ALGORITHMS.contains(keyAlgorithm)) {
+            throw new IllegalArgumentException(keyAlgorithm + " keys are for key agreement, they can not sign");
+        }
+        var resolved = RESOLVED.get(hashingAlgorithm);
+        var signatureAlgorithm = resolved.get(keyAlgorithm); // the name is only built (and the map locked) the first time a key algorithm is seen
+        if (signatureAlgorithm == null) {
+            signatureAlgorithm = resolved.computeIfAbsent(keyAlgorithm, (ignored) -> {
+                var signatureKeyAlgorithm = keyAlgorithm.equals("EC") ? "ECDSA" : keyAlgorithm;
+                return hashingAlgorithm.getAlgorithmIdentifier().replace("-", "") + "with" + signatureKeyAlgorithm;
+            });
+        }
+        return signatureAlgorithm;
+    }
+}
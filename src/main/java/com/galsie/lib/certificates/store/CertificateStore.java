@@ -0,0 +1,652 @@
+package com.galsie.lib.certificates.store;
+
+import com.galsie.lib.certificates.asn1.object.GalsieASN1ObjectIdentifier;
+import com.galsie.lib.certificates.asn1.object.MatterASN1ObjectIdentifier;
+import com.galsie.lib.certificates.certificate.LazyCertificateView;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.dn.RDNIndex;
+import com.galsie.lib.utils.lang.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32C;
+
+/**
+ * A local, append-only store of issued certificates
+ * - Certificates are appended as DER records to memory-mapped segment files: [length (4)][CRC32C (4)][DER]
+ * - Each record gets a fixed-size entry in a memory-mapped index file, holding its serial number, its (matter-fabric-id, matter-node-id), its galsie home id and its location
+ * - Lookups by serial number, by (fabric id, node id) and by home id go through primitive hash chains over the entries, they return {@link LazyCertificateView}s over the mapped segments: no bytes are copied until {@link LazyCertificateView#toCertificateHolder()}
+ * - Durability follows the {@link SyncPolicy}, with {@link SyncPolicy#GROUP_COMMIT} concurrent appends share one fsync
+ * - Safe to use from many threads
+ *
+ * Recovery, when opened:
+ * - The index header holds a checkpoint: the number of entries that were durable at the last sync, those are trusted as is
+ * - Only the index tail is checked: the entries after the checkpoint are kept while their CRC (and their record's) is valid
+ * - The hash chains are rebuilt from the mapped entries, without parsing any certificate
+ * - Records appended after the last valid entry (whose entry was lost) are parsed and indexed again, a torn record ends the store
+ *
+ * Usage:
+ *  try (var store = CertificateStore.builder(directory).open()) {
+ *      store.append(noc);
+ *      var nocs = store.findByNode(fabricId, nodeId);
+ *  }
+ *
+ * Note:
+ * - The mapped files stay mapped until the views over them are garbage collected, even once the store is closed
+ * - One store per directory, the files are not locked against other processes
+ */
+public class CertificateStore implements Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    private static final int SEGMENT_MAGIC = 0x47435347; // GCSG
+    private static final int INDEX_MAGIC = 0x47435349; // GCSI
+    private static final int VERSION = 1;
+
+    /*
+    Segment layout: magic (4), version (4), segment number (4), reserved (4), then the records
+     */
+    private static final int SEGMENT_HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int DROP_TAIL_BUFFER_SIZE = 16 << 10; // the zeros a torn tail is cleared with, a chunk at a time
+
+    /*
+    Index layout: magic (4), version (4), entry size (4), reserved (4), checkpoint (8), reserved up to 64, then the entries
+     */
+    private static final int INDEX_HEADER_SIZE = 64;
+    private static final int CHECKPOINT = 16;
+    private static final int ENTRY_SIZE = 64;
+    private static final int CHUNK_ENTRIES = 16384;
+    private static final int CHUNK_SIZE = CHUNK_ENTRIES * ENTRY_SIZE;
+
+    /*
+    Entry layout
+     */
+    private static final int SERIAL_LOW = 0;
+    private static final int SERIAL_MIDDLE = 8;
+    private static final int SERIAL_HIGH = 16;
+    private static final int FLAGS = 20;
+    private static final int FABRIC_ID = 24;
+    private static final int NODE_ID = 32;
+    private static final int HOME_ID = 40;
+    private static final int SEGMENT = 48;
+    private static final int OFFSET = 52;
+    private static final int LENGTH = 56;
+    private static final int ENTRY_CRC = 60;
+
+    private static final int FLAG_HAS_NODE = 1;
+    private static final int FLAG_HAS_HOME = 2;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final SyncPolicy syncPolicy;
+
+    /**
+     * Appends hold the write lock while writing, lookups the read lock
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final FileChannel indexChannel;
+    private final MappedByteBuffer indexHeader;
+    private final List<MappedByteBuffer> indexChunks = new ArrayList<>();
+
+    private final RecordChainIndex bySerialNumber;
+    private final RecordChainIndex byNode;
+    private final RecordChainIndex byHome;
+
+    private int count;
+    private int writeSegment;
+    private int writeOffset;
+    private boolean closed;
+
+    /*
+    Guarded by syncMonitor: what is durable
+     */
+    private final Object syncMonitor = new Object();
+    private int durableCount;
+    private int durableSegment;
+    private int durableOffset;
+
+    private CertificateStore(Builder builder) throws IOException {
+        this.directory = builder.directory;
+        this.segmentSize = builder.segmentSize;
+        this.syncPolicy = builder.syncPolicy;
+        this.bySerialNumber = new RecordChainIndex(builder.expectedRecords);
+        this.byNode = new RecordChainIndex(builder.expectedRecords);
+        this.byHome = new RecordChainIndex(builder.expectedRecords);
+
+        Files.createDirectories(directory);
+        this.indexChannel = FileChannel.open(directory.resolve("index.dat"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean created = indexChannel.size() == 0;
+        this.indexHeader = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_SIZE);
+        if (created) {
+            indexHeader.putInt(0, INDEX_MAGIC).putInt(4, VERSION).putInt(8, ENTRY_SIZE);
+        } else if (indexHeader.getInt(0) != INDEX_MAGIC || indexHeader.getInt(4) != VERSION || indexHeader.getInt(8) != ENTRY_SIZE) {
+            indexChannel.close();
+            throw new IOException("Not a certificate store index: " + directory.resolve("index.dat"));
+        }
+        try {
+            this.recover();
+        } catch (IOException | RuntimeException ex) {
+            indexChannel.close();
+            throw ex;
+        }
+    }
+
+    public static Builder builder(Path directory) {
+        return new Builder(directory);
+    }
+
+    /**
+     * Appends a certificate
+     *
+     * @return The record number of the certificate, see {@link CertificateStore#get(int)}
+     */
+    public int append(SomeX509v3CertificateHolder certificateHolder) throws IOException {
+        return this.append(certificateHolder.getDEREncoded(), certificateHolder.getSerialNumber(), certificateHolder.getSubjectRDNs());
+    }
+
+    /**
+     * Appends a DER encoded certificate, its serial number and subject are parsed to index it
+     *
+     * @return The record number of the certificate, see {@link CertificateStore#get(int)}
+     */
+    public int append(byte[] derEncoded) throws IOException {
+        var view = LazyCertificateView.of(derEncoded);
+        return this.append(derEncoded, view.getSerialNumber(), RDNIndex.of(view.getSubject()));
+    }
+
+    private int append(byte[] derEncoded, BigInteger serialNumber, RDNIndex subjectRDNs) throws IOException {
+        if (RECORD_HEADER_SIZE + derEncoded.length > segmentSize - SEGMENT_HEADER_SIZE) {
+            throw new IllegalArgumentException("The certificate (" + derEncoded.length + " bytes) does not fit in a segment of " + segmentSize + " bytes");
+        }
+        int record;
+        lock.writeLock().lock();
+        try {
+            this.checkOpen();
+            if (writeOffset + RECORD_HEADER_SIZE + derEncoded.length > segments.get(writeSegment).capacity()) {
+                this.addSegment();
+                writeSegment++;
+                writeOffset = SEGMENT_HEADER_SIZE;
+            }
+            var segment = segments.get(writeSegment);
+            segment.put(writeOffset + RECORD_HEADER_SIZE, derEncoded);
+            segment.putInt(writeOffset + 4, crc(ByteBuffer.wrap(derEncoded)));
+            segment.putInt(writeOffset, derEncoded.length);
+
+            record = count;
+            this.writeEntry(record, serialNumber, subjectRDNs, writeSegment, writeOffset, derEncoded.length);
+            this.indexEntry(record);
+            writeOffset += RECORD_HEADER_SIZE + derEncoded.length;
+            count++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (syncPolicy == SyncPolicy.GROUP_COMMIT) {
+            this.sync(record + 1);
+        }
+        return record;
+    }
+
+    /**
+     * Finds a certificate by serial number
+     * - Serial numbers are unique per issuer, if certificates of many issuers are stored the newest one is returned
+     *
+     * @return A view over the stored DER, or null if no certificate has that serial number
+     */
+    @Nullable
+    public LazyCertificateView findBySerialNumber(BigInteger serialNumber) {
+        long low = serialNumber.longValue();
+        var upper = serialNumber.shiftRight(64);
+        long middle = upper.longValue();
+        int high = upper.shiftRight(64).intValue();
+        lock.readLock().lock();
+        try {
+            for (int record = bySerialNumber.first(serialNumberKey(low, middle, high)); record >= 0; record = bySerialNumber.next(record)) {
+                var chunk = this.mappedChunkOf(record);
+                int position = positionOf(record);
+                if (chunk.getLong(position + SERIAL_LOW) == low && chunk.getLong(position + SERIAL_MIDDLE) == middle && chunk.getInt(position + SERIAL_HIGH) == high) {
+                    return this.viewOf(chunk, position);
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the certificates of a node, eg: its NOCs
+     *
+     * @return Views over the stored DER, newest first
+     */
+    public List<LazyCertificateView> findByNode(long fabricId, long nodeId) {
+        var views = new ArrayList<LazyCertificateView>();
+        lock.readLock().lock();
+        try {
+            for (int record = byNode.first(nodeKey(fabricId, nodeId)); record >= 0; record = byNode.next(record)) {
+                var chunk = this.mappedChunkOf(record);
+                int position = positionOf(record);
+                if (chunk.getLong(position + FABRIC_ID) == fabricId && chunk.getLong(position + NODE_ID) == nodeId) {
+                    views.add(this.viewOf(chunk, position));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return views;
+    }
+
+    /**
+     * Finds the certificates whose subject holds a galsie home id
+     *
+     * @return Views over the stored DER, newest first
+     */
+    public List<LazyCertificateView> findByHomeId(long homeId) {
+        var views = new ArrayList<LazyCertificateView>();
+        lock.readLock().lock();
+        try {
+            for (int record = byHome.first(homeId); record >= 0; record = byHome.next(record)) {
+                views.add(this.viewOf(this.mappedChunkOf(record), positionOf(record)));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return views;
+    }
+
+    /**
+     * @param record A record number, less than {@link CertificateStore#size()}
+     * @return A view over the stored DER
+     */
+    public LazyCertificateView get(int record) {
+        lock.readLock().lock();
+        try {
+            if (record < 0 || record >= count) {
+                throw new IndexOutOfBoundsException("No record " + record + ", the store holds " + count);
+            }
+            return this.viewOf(this.mappedChunkOf(record), positionOf(record));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of stored certificates
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Makes every append so far durable
+     */
+    public void flush() throws IOException {
+        this.sync(this.size());
+    }
+
+    /**
+     * Makes every append durable and closes the store
+     */
+    @Override
+    public void close() throws IOException {
+        int finalCount;
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            finalCount = count;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        this.sync(finalCount); // outside of the lock, sync takes the read lock
+        indexChannel.close();
+    }
+
+    /**
+     * Makes the appends up to a record count durable
+     * - The caller that takes the monitor syncs everything appended so far, the callers waiting on the monitor then find their appends durable and return without syncing
+     */
+    private void sync(int targetCount) throws IOException {
+        synchronized (syncMonitor) {
+            if (durableCount >= targetCount) {
+                return;
+            }
+            int syncCount;
+            int syncSegment;
+            int syncOffset;
+            MappedByteBuffer[] syncSegments;
+            MappedByteBuffer[] syncChunks;
+            lock.readLock().lock();
+            try {
+                syncCount = count;
+                syncSegment = writeSegment;
+                syncOffset = writeOffset;
+                syncSegments = segments.subList(durableSegment, syncSegment + 1).toArray(new MappedByteBuffer[0]);
+                syncChunks = indexChunks.subList(durableCount / CHUNK_ENTRIES, (syncCount - 1) / CHUNK_ENTRIES + 1).toArray(new MappedByteBuffer[0]);
+            } finally {
+                lock.readLock().unlock();
+            }
+            // records, then their entries, then the checkpoint: a durable checkpoint implies durable entries and records
+            for (int i = 0; i < syncSegments.length; i++) {
+                int from = i == 0 ? durableOffset : 0;
+                int to = i == syncSegments.length - 1 ? syncOffset : syncSegments[i].capacity();
+                syncSegments[i].force(from, to - from);
+            }
+            for (int record = durableCount; record < syncCount; ) {
+                int chunkEnd = Math.min(syncCount, (record / CHUNK_ENTRIES + 1) * CHUNK_ENTRIES);
+                syncChunks[record / CHUNK_ENTRIES - durableCount / CHUNK_ENTRIES].force(positionOf(record), (chunkEnd - record) * ENTRY_SIZE);
+                record = chunkEnd;
+            }
+            indexHeader.putLong(CHECKPOINT, syncCount);
+            indexHeader.force();
+            durableCount = syncCount;
+            durableSegment = syncSegment;
+            durableOffset = syncOffset;
+        }
+    }
+
+    /*
+    Recovery
+     */
+
+    private void recover() throws IOException {
+        for (int number = 0; Files.exists(this.segmentPath(number)); number++) {
+            try (var channel = FileChannel.open(this.segmentPath(number), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                var segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                if (segment.capacity() < SEGMENT_HEADER_SIZE || segment.getInt(0) != SEGMENT_MAGIC || segment.getInt(8) != number) {
+                    throw new IOException("Not a certificate store segment: " + this.segmentPath(number));
+                }
+                segments.add(segment);
+            }
+        }
+        if (segments.isEmpty()) {
+            this.addSegment();
+        }
+
+        // the index tail: entries after the checkpoint are kept while they (and their records) are intact
+        count = (int) indexHeader.getLong(CHECKPOINT);
+        while (this.isEntryIntact(count)) {
+            count++;
+        }
+        for (int record = count; this.isEntryWritten(record); record++) {
+            this.chunkOf(record).put(positionOf(record), new byte[ENTRY_SIZE]);
+        }
+        for (int record = 0; record < count; record++) {
+            this.indexEntry(record);
+        }
+
+        writeSegment = 0;
+        writeOffset = SEGMENT_HEADER_SIZE;
+        if (count > 0) {
+            var chunk = this.chunkOf(count - 1);
+            int position = positionOf(count - 1);
+            writeSegment = chunk.getInt(position + SEGMENT);
+            writeOffset = chunk.getInt(position + OFFSET) + RECORD_HEADER_SIZE + chunk.getInt(position + LENGTH);
+        }
+        this.recoverUnindexedRecords();
+
+        indexHeader.putLong(CHECKPOINT, count);
+        for (var segment : segments) {
+            segment.force();
+        }
+        for (var chunk : indexChunks) {
+            chunk.force();
+        }
+        indexHeader.force();
+        durableCount = count;
+        durableSegment = writeSegment;
+        durableOffset = writeOffset;
+    }
+
+    /**
+     * Indexes the records that follow the last indexed record, their entries were lost
+     */
+    private void recoverUnindexedRecords() throws IOException {
+        while (true) {
+            var segment = segments.get(writeSegment);
+            int length = writeOffset + RECORD_HEADER_SIZE <= segment.capacity() ? segment.getInt(writeOffset) : 0;
+            if (length == 0) {
+                if (writeSegment + 1 < segments.size()) {
+                    writeSegment++;
+                    writeOffset = SEGMENT_HEADER_SIZE;
+                    continue;
+                }
+                return;
+            }
+            if (!this.isRecordIntact(segment, writeOffset, length)) {
+                this.dropTail(segment);
+                return;
+            }
+            var der = segment.slice(writeOffset + RECORD_HEADER_SIZE, length);
+            var view = LazyCertificateView.of(der);
+            this.writeEntry(count, view.getSerialNumber(), RDNIndex.of(view.getSubject()), writeSegment, writeOffset, length);
+            this.indexEntry(count);
+            count++;
+            writeOffset += RECORD_HEADER_SIZE + length;
+        }
+    }
+
+    /**
+     * Clears a torn record and whatever follows it, including later segments
+     */
+    private void dropTail(MappedByteBuffer segment) throws IOException {
+        var zeros = new byte[Math.min(DROP_TAIL_BUFFER_SIZE, segment.capacity() - writeOffset)];
+        for (int offset = writeOffset; offset < segment.capacity(); offset += zeros.length) {
+            segment.put(offset, zeros, 0, Math.min(zeros.length, segment.capacity() - offset));
+        }
+        while (segments.size() > writeSegment + 1) {
+            segments.remove(segments.size() - 1);
+            Files.delete(this.segmentPath(segments.size()));
+        }
+    }
+
+    private boolean isEntryIntact(int record) {
+        var chunk = this.chunkOf(record);
+        int position = positionOf(record);
+        if (!this.isEntryWritten(record) || chunk.getInt(position + ENTRY_CRC) != crc(chunk.slice(position, ENTRY_CRC))) {
+            return false;
+        }
+        int segmentNumber = chunk.getInt(position + SEGMENT);
+        return segmentNumber >= 0 && segmentNumber < segments.size()
+                && this.isRecordIntact(segments.get(segmentNumber), chunk.getInt(position + OFFSET), chunk.getInt(position + LENGTH));
+    }
+
+    private boolean isEntryWritten(int record) {
+        var chunk = this.chunkOf(record);
+        int position = positionOf(record);
+        return chunk.getInt(position + LENGTH) != 0;
+    }
+
+    private boolean isRecordIntact(MappedByteBuffer segment, int offset, int length) {
+        return offset >= SEGMENT_HEADER_SIZE && length > 0 && (long) offset + RECORD_HEADER_SIZE + length <= segment.capacity()
+                && segment.getInt(offset) == length
+                && segment.getInt(offset + 4) == crc(segment.slice(offset + RECORD_HEADER_SIZE, length));
+    }
+
+    /*
+    Entries
+     */
+
+    private void writeEntry(int record, BigInteger serialNumber, RDNIndex subjectRDNs, int segment, int offset, int length) {
+        var chunk = this.chunkOf(record);
+        int position = positionOf(record);
+        var upper = serialNumber.shiftRight(64);
+        chunk.putLong(position + SERIAL_LOW, serialNumber.longValue());
+        chunk.putLong(position + SERIAL_MIDDLE, upper.longValue());
+        chunk.putInt(position + SERIAL_HIGH, upper.shiftRight(64).intValue());
+        int flags = 0;
+        long fabricId = 0;
+        long nodeId = 0;
+        long homeId = 0;
+        try {
+            if (subjectRDNs.contains(MatterASN1ObjectIdentifier.MATTER_FABRIC_ID) && subjectRDNs.contains(MatterASN1ObjectIdentifier.MATTER_NODE_ID)) {
+                fabricId = subjectRDNs.getFabricId();
+                nodeId = subjectRDNs.getNodeId();
+                flags |= FLAG_HAS_NODE;
+            }
+        } catch (NumberFormatException ignored) { // not a valid matter id, not indexed
+        }
+        try {
+            if (subjectRDNs.contains(GalsieASN1ObjectIdentifier.GALSIE_HOME_ID)) {
+                homeId = subjectRDNs.getHomeId();
+                flags |= FLAG_HAS_HOME;
+            }
+        } catch (NumberFormatException ignored) { // not a valid home id, not indexed
+        }
+        chunk.putInt(position + FLAGS, flags);
+        chunk.putLong(position + FABRIC_ID, fabricId);
+        chunk.putLong(position + NODE_ID, nodeId);
+        chunk.putLong(position + HOME_ID, homeId);
+        chunk.putInt(position + SEGMENT, segment);
+        chunk.putInt(position + OFFSET, offset);
+        chunk.putInt(position + LENGTH, length);
+        chunk.putInt(position + ENTRY_CRC, crc(chunk.slice(position, ENTRY_CRC)));
+    }
+
+    /**
+     * Adds an entry to the hash chains
+     */
+    private void indexEntry(int record) {
+        var chunk = this.chunkOf(record);
+        int position = positionOf(record);
+        bySerialNumber.add(serialNumberKey(chunk.getLong(position + SERIAL_LOW), chunk.getLong(position + SERIAL_MIDDLE), chunk.getInt(position + SERIAL_HIGH)), record);
+        int flags = chunk.getInt(position + FLAGS);
+        if ((flags & FLAG_HAS_NODE) != 0) {
+            byNode.add(nodeKey(chunk.getLong(position + FABRIC_ID), chunk.getLong(position + NODE_ID)), record);
+        }
+        if ((flags & FLAG_HAS_HOME) != 0) {
+            byHome.add(chunk.getLong(position + HOME_ID), record);
+        }
+    }
+
+    private LazyCertificateView viewOf(MappedByteBuffer chunk, int position) {
+        var segment = segments.get(chunk.getInt(position + SEGMENT));
+        return LazyCertificateView.of(segment.slice(chunk.getInt(position + OFFSET) + RECORD_HEADER_SIZE, chunk.getInt(position + LENGTH)));
+    }
+
+    /**
+     * Maps the chunks of the index file up to the record's, the file grows as they are mapped
+     * - Called with the write lock held, or while recovering, since it may add to the chunks
+     */
+    private MappedByteBuffer chunkOf(int record) {
+        int chunkNumber = record / CHUNK_ENTRIES;
+        while (indexChunks.size() <= chunkNumber) {
+            try {
+                indexChunks.add(indexChannel.map(FileChannel.MapMode.READ_WRITE, INDEX_HEADER_SIZE + (long) indexChunks.size() * CHUNK_SIZE, CHUNK_SIZE));
+            } catch (IOException ex) {
+                throw new UncheckedIOException("The index could not be mapped", ex);
+            }
+        }
+        return indexChunks.get(chunkNumber);
+    }
+
+    /**
+     * The chunk of a record below {@link CertificateStore#count}, already mapped by its append, for the lookups under the read lock
+     */
+    private MappedByteBuffer mappedChunkOf(int record) {
+        return indexChunks.get(record / CHUNK_ENTRIES);
+    }
+
+    private static int positionOf(int record) {
+        return (record % CHUNK_ENTRIES) * ENTRY_SIZE;
+    }
+
+    private void addSegment() throws IOException {
+        int number = segments.size();
+        try (var channel = FileChannel.open(this.segmentPath(number), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            segment.putInt(0, SEGMENT_MAGIC).putInt(4, VERSION).putInt(8, number);
+            segments.add(segment);
+        }
+    }
+
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("segment-%06d.dat", number));
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The certificate store is closed");
+        }
+    }
+
+    private static long serialNumberKey(long low, long middle, int high) {
+        return low ^ RecordChainIndex.mix(middle ^ RecordChainIndex.mix(high));
+    }
+
+    private static long nodeKey(long fabricId, long nodeId) {
+        return nodeId ^ RecordChainIndex.mix(fabricId);
+    }
+
+    private static int crc(ByteBuffer buffer) {
+        var crc = new CRC32C();
+        crc.update(buffer);
+        return (int) crc.getValue();
+    }
+
+    public static class Builder {
+        private final Path directory;
+        private int segmentSize = DEFAULT_SEGMENT_SIZE;
+        private SyncPolicy syncPolicy = SyncPolicy.GROUP_COMMIT;
+        private int expectedRecords = 1024;
+
+        private Builder(Path directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * @param segmentSize The size of the segment files, a certificate must fit in one. Applies to the segments created from now on
+         */
+        public Builder setSegmentSize(int segmentSize) {
+            if (segmentSize < 4096) {
+                throw new IllegalArgumentException("A segment must be at least 4096 bytes, got " + segmentSize);
+            }
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        public Builder setSyncPolicy(SyncPolicy syncPolicy) {
+            this.syncPolicy = syncPolicy;
+            return this;
+        }
+
+        /**
+         * @param expectedRecords The expected number of certificates, the hash chains are sized for it up front
+         */
+        public Builder setExpectedRecords(int expectedRecords) {
+            this.expectedRecords = expectedRecords;
+            return this;
+        }
+
+        /**
+         * Opens the store, creating the directory and the files if needed, and recovers it
+         */
+        public CertificateStore open() throws IOException {
+            return new CertificateStore(this);
+        }
+    }
+}
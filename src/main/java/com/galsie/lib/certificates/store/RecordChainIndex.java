@@ -0,0 +1,105 @@
+package com.galsie.lib.certificates.store;
+
+import java.util.Arrays;
+
+/**
+ * A primitive hash index from a long key to the records holding it, newest first
+ * - Open addressing over the keys, each slot holds the newest record of its key, and each record links to the previous record of the same key
+ * - The key may be a hash of a wider value, the caller compares the records it walks through
+ * - Not thread safe, {@link CertificateStore} guards it with its lock
+ */
+class RecordChainIndex {
+
+    private static final int NO_RECORD = -1;
+
+    private long[] keys;
+    /**
+     * The newest record of the key in the same slot, NO_RECORD for an empty slot
+     */
+    private int[] heads;
+    private int keyCount;
+
+    /**
+     * By record: the previous record with the same key, NO_RECORD if none
+     */
+    private int[] previous;
+
+    RecordChainIndex(int expectedRecords) {
+        int capacity = Integer.highestOneBit(Math.max(expectedRecords, 512) * 2 - 1) * 2;
+        this.keys = new long[capacity];
+        this.heads = new int[capacity];
+        Arrays.fill(heads, NO_RECORD);
+        this.previous = new int[Math.max(expectedRecords, 512)];
+    }
+
+    /**
+     * Links a record to a key, records must be added in increasing order
+     */
+    void add(long key, int record) {
+        if (record >= previous.length) {
+            int oldLength = previous.length;
+            previous = Arrays.copyOf(previous, Math.max(record + 1, oldLength * 2));
+            Arrays.fill(previous, oldLength, previous.length, NO_RECORD);
+        }
+        if ((keyCount + 1) * 4 > keys.length * 3) {
+            this.rehash(keys.length * 2);
+        }
+        int slot = this.slotOf(key);
+        if (heads[slot] == NO_RECORD) {
+            keys[slot] = key;
+            keyCount++;
+        }
+        previous[record] = heads[slot];
+        heads[slot] = record;
+    }
+
+    /**
+     * @return The newest record of the key, or -1
+     */
+    int first(long key) {
+        return heads[this.slotOf(key)];
+    }
+
+    /**
+     * @return The record before this one with the same key, or -1
+     */
+    int next(int record) {
+        return previous[record];
+    }
+
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) mix(key) & mask;
+        while (heads[slot] != NO_RECORD && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        var oldKeys = keys;
+        var oldHeads = heads;
+        keys = new long[capacity];
+        heads = new int[capacity];
+        Arrays.fill(heads, NO_RECORD);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldHeads[i] != NO_RECORD) {
+                int slot = this.slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                heads[slot] = oldHeads[i];
+            }
+        }
+    }
+
+    /**
+     * The murmur3 64-bit finalizer, spreads sequential ids over the slots
+     */
+    static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
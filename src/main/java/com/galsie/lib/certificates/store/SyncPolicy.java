@@ -0,0 +1,19 @@
+package com.galsie.lib.certificates.store;
+
+/**
+ * When the appends to a {@link CertificateStore} are made durable (fsync-ed)
+ */
+public enum SyncPolicy {
+
+    /**
+     * Every append returns once it is durable
+     * - Appends that arrive while a sync is running wait for it, then share the next sync: one fsync covers a group of appends
+     */
+    GROUP_COMMIT,
+
+    /**
+     * Appends return once written to the mapped files, which survive a crash of the process but not of the machine
+     * - They are made durable by {@link CertificateStore#flush()} or {@link CertificateStore#close()}
+     */
+    ON_FLUSH
+}
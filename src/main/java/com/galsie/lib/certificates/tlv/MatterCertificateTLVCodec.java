@@ -0,0 +1,847 @@
+package com.galsie.lib.certificates.tlv;
+
+import com.galsie.lib.certificates.asn1.der.DERReader;
+import com.galsie.lib.certificates.asn1.der.DERTags;
+import com.galsie.lib.certificates.asn1.der.DERWriter;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.exception.MatterTLVCodecException;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Converts Matter operational certificates (RCAC, ICAC, NOC) between X.509 DER and the Matter TLV certificate format
+ * - From Matter Core Specification, 6.5. Operational Certificate Encoding
+ * - The TLV form is about half the size of the DER form, it is what Matter devices store and send
+ * - Both directions stream between {@link ByteBuffer}s, no bouncy castle object tree is built
+ *
+ * The TLV form does not hold the DER encoding, it is re-created when converting back. For the signature to stay valid, the X.509 certificate must be in
+ * the Matter canonical form, which this codec checks when encoding:
+ * - ecdsa-with-SHA256 signatures over a prime256v1 EC public key
+ * - One attribute per RDN, Matter identifiers as fixed-width uppercase hex UTF8Strings (see {@link MatterTLVDNAttribute})
+ * - Validity times as UTCTime until 2049 and GeneralizedTime after, 99991231235959Z for no expiry
+ * - Extensions that are not in their canonical Matter encoding are carried as-is in the TLV 'future-extension' field, so they always round trip
+ */
+public class MatterCertificateTLVCodec {
+
+    /*
+    TLV tags of the certificate structure
+     */
+    private static final int TAG_SERIAL_NUMBER = 1;
+    private static final int TAG_SIGNATURE_ALGORITHM = 2;
+    private static final int TAG_ISSUER = 3;
+    private static final int TAG_NOT_BEFORE = 4;
+    private static final int TAG_NOT_AFTER = 5;
+    private static final int TAG_SUBJECT = 6;
+    private static final int TAG_PUBLIC_KEY_ALGORITHM = 7;
+    private static final int TAG_EC_CURVE_ID = 8;
+    private static final int TAG_EC_PUBLIC_KEY = 9;
+    private static final int TAG_EXTENSIONS = 10;
+    private static final int TAG_SIGNATURE = 11;
+
+    /*
+    TLV tags of the extensions list
+     */
+    private static final int TAG_BASIC_CONSTRAINTS = 1;
+    private static final int TAG_KEY_USAGE = 2;
+    private static final int TAG_EXTENDED_KEY_USAGE = 3;
+    private static final int TAG_SUBJECT_KEY_IDENTIFIER = 4;
+    private static final int TAG_AUTHORITY_KEY_IDENTIFIER = 5;
+    private static final int TAG_FUTURE_EXTENSION = 6;
+
+    private static final int TAG_BASIC_CONSTRAINTS_IS_CA = 1;
+    private static final int TAG_BASIC_CONSTRAINTS_PATH_LENGTH = 2;
+
+    /*
+    Enumerated values
+     */
+    private static final int SIGNATURE_ALGORITHM_ECDSA_WITH_SHA256 = 1;
+    private static final int PUBLIC_KEY_ALGORITHM_EC = 1;
+    private static final int EC_CURVE_PRIME256V1 = 1;
+
+    /**
+     * The Matter epoch, 2000-01-01T00:00:00Z, in unix seconds. TLV validity times are in seconds since the Matter epoch.
+     */
+    private static final long MATTER_EPOCH_SECONDS = 946684800L;
+
+    /**
+     * The X.509 'no well-defined expiration' time, 99991231235959Z, in unix seconds. It is a 0 not-after in TLV.
+     */
+    private static final long NO_EXPIRY_SECONDS = 253402300799L;
+
+    /**
+     * The size of each of the r and s values of a P-256 ECDSA signature
+     */
+    private static final int EC_SIGNATURE_VALUE_LENGTH = 32;
+
+    /*
+    OBJECT IDENTIFIER contents
+     */
+    private static final byte[] OID_ECDSA_WITH_SHA256 = encodedOID("1.2.840.10045.4.3.2");
+    private static final byte[] OID_EC_PUBLIC_KEY = encodedOID("1.2.840.10045.2.1");
+    private static final byte[] OID_PRIME256V1 = encodedOID("1.2.840.10045.3.1.7");
+    private static final byte[] OID_BASIC_CONSTRAINTS = encodedOID("2.5.29.19");
+    private static final byte[] OID_KEY_USAGE = encodedOID("2.5.29.15");
+    private static final byte[] OID_EXTENDED_KEY_USAGE = encodedOID("2.5.29.37");
+    private static final byte[] OID_SUBJECT_KEY_IDENTIFIER = encodedOID("2.5.29.14");
+    private static final byte[] OID_AUTHORITY_KEY_IDENTIFIER = encodedOID("2.5.29.35");
+
+    /**
+     * The key purposes of the extended key usage extension, indexed by their Matter TLV value
+     */
+    private static final byte[][] KEY_PURPOSES = {
+            null,
+            encodedOID("1.3.6.1.5.5.7.3.1"), // 1: serverAuth
+            encodedOID("1.3.6.1.5.5.7.3.2"), // 2: clientAuth
+            encodedOID("1.3.6.1.5.5.7.3.3"), // 3: codeSigning
+            encodedOID("1.3.6.1.5.5.7.3.4"), // 4: emailProtection
+            encodedOID("1.3.6.1.5.5.7.3.8"), // 5: timeStamping
+            encodedOID("1.3.6.1.5.5.7.3.9"), // 6: OCSPSigning
+    };
+
+    /**
+     * The highest key usage bit Matter defines, decipherOnly
+     */
+    private static final int MAX_KEY_USAGE_BIT = 8;
+
+    /*
+    X.509 -> TLV
+     */
+
+    /**
+     * Encodes a certificate to the Matter TLV certificate format
+     *
+     * @param certificateHolder The certificate, in the Matter canonical form
+     * @return The TLV encoded certificate
+     * @throws MatterTLVCodecException If the certificate can not be represented in TLV
+     */
+    public static byte[] encode(SomeX509v3CertificateHolder certificateHolder) throws MatterTLVCodecException, IOException {
+        var der = certificateHolder.getDEREncoded();
+        var tlv = ByteBuffer.allocate(der.length); // TLV is always smaller than DER
+        encode(ByteBuffer.wrap(der), tlv);
+        return Arrays.copyOf(tlv.array(), tlv.position());
+    }
+
+    /**
+     * Encodes a DER certificate to the Matter TLV certificate format
+     * - The DER buffer is read from its position to its limit, it is not modified
+     * - The TLV is written at the position of the output buffer, which is moved past it. A buffer the size of the DER is always big enough.
+     *
+     * @param der The DER encoded certificate, in the Matter canonical form
+     * @param tlvOut The buffer the TLV is written to
+     * @return The number of bytes written
+     * @throws MatterTLVCodecException If the certificate is malformed or can not be represented in TLV, or the output buffer is too small
+     */
+    public static int encode(ByteBuffer der, ByteBuffer tlvOut) throws MatterTLVCodecException {
+        try {
+            var tlv = new MatterTLVWriter(tlvOut);
+            var reader = new DERReader(der);
+            var scratch = new DERWriter(128);
+
+            reader.expect(DERTags.SEQUENCE); // Certificate
+            reader.expect(DERTags.SEQUENCE); // TBSCertificate
+            int tbsEnd = reader.getContentEnd();
+
+            reader.expect(DERTags.contextConstructed(0));
+            reader.expect(DERTags.INTEGER);
+            if (reader.getContentAsUnsignedLong() != 2) {
+                throw new MatterTLVCodecException("Only X.509 v3 certificates are supported");
+            }
+            reader.skip();
+
+            tlv.startStructure(MatterTLVWriter.ANONYMOUS);
+
+            reader.expect(DERTags.INTEGER);
+            tlv.putBytes(TAG_SERIAL_NUMBER, reader.getContentSlice()); // the DER INTEGER content octets, as is
+            reader.skip();
+
+            readECDSAWithSHA256AlgorithmIdentifier(reader);
+            tlv.putUnsigned(TAG_SIGNATURE_ALGORITHM, SIGNATURE_ALGORITHM_ECDSA_WITH_SHA256);
+
+            encodeName(reader, tlv, TAG_ISSUER);
+
+            reader.expect(DERTags.SEQUENCE); // Validity
+            long notBefore = readTime(reader, scratch);
+            long notAfter = readTime(reader, scratch);
+            tlv.putUnsigned(TAG_NOT_BEFORE, toMatterEpochSeconds(notBefore));
+            tlv.putUnsigned(TAG_NOT_AFTER, notAfter == NO_EXPIRY_SECONDS ? 0 : toMatterEpochSeconds(notAfter));
+
+            encodeName(reader, tlv, TAG_SUBJECT);
+
+            reader.expect(DERTags.SEQUENCE); // SubjectPublicKeyInfo
+            reader.expect(DERTags.SEQUENCE);
+            int algorithmEnd = reader.getContentEnd();
+            reader.expect(DERTags.OBJECT_IDENTIFIER);
+            if (!reader.contentEquals(OID_EC_PUBLIC_KEY)) {
+                throw new MatterTLVCodecException("Only EC public keys are supported");
+            }
+            reader.skip();
+            reader.expect(DERTags.OBJECT_IDENTIFIER);
+            if (!reader.contentEquals(OID_PRIME256V1) || reader.getContentEnd() != algorithmEnd) {
+                throw new MatterTLVCodecException("Only prime256v1 EC public keys are supported");
+            }
+            reader.skip();
+            reader.expect(DERTags.BIT_STRING);
+            if (reader.getContentLength() < 1 || reader.getContentByte(0) != 0) {
+                throw new MatterTLVCodecException("Malformed public key BIT STRING");
+            }
+            tlv.putUnsigned(TAG_PUBLIC_KEY_ALGORITHM, PUBLIC_KEY_ALGORITHM_EC);
+            tlv.putUnsigned(TAG_EC_CURVE_ID, EC_CURVE_PRIME256V1);
+            tlv.putBytes(TAG_EC_PUBLIC_KEY, reader.getContentSlice().position(1));
+            reader.skip();
+
+            tlv.startList(TAG_EXTENSIONS);
+            if (reader.hasNext(tbsEnd)) {
+                reader.expect(DERTags.contextConstructed(3));
+                reader.expect(DERTags.SEQUENCE);
+                int extensionsEnd = reader.getContentEnd();
+                while (reader.hasNext(extensionsEnd)) {
+                    encodeExtension(reader, tlv, scratch);
+                }
+            }
+            tlv.endContainer();
+            if (reader.getPosition() != tbsEnd) {
+                throw new MatterTLVCodecException("Unsupported fields (issuer or subject unique identifiers) in the certificate");
+            }
+
+            readECDSAWithSHA256AlgorithmIdentifier(reader);
+            reader.expect(DERTags.BIT_STRING);
+            if (reader.getContentLength() < 1 || reader.getContentByte(0) != 0) {
+                throw new MatterTLVCodecException("Malformed signature BIT STRING");
+            }
+            var signature = new byte[2 * EC_SIGNATURE_VALUE_LENGTH];
+            var signatureReader = new DERReader(reader.getContentSlice().position(1));
+            signatureReader.expect(DERTags.SEQUENCE);
+            signatureReader.expect(DERTags.INTEGER);
+            copySignatureValue(signatureReader, signature, 0);
+            signatureReader.skip();
+            signatureReader.expect(DERTags.INTEGER);
+            copySignatureValue(signatureReader, signature, EC_SIGNATURE_VALUE_LENGTH);
+            tlv.putBytes(TAG_SIGNATURE, signature, 0, signature.length);
+
+            tlv.endContainer();
+
+            int written = tlv.getPosition() - tlvOut.position();
+            tlvOut.position(tlv.getPosition());
+            return written;
+        } catch (IOException ex) {
+            throw new MatterTLVCodecException("Malformed DER certificate: " + ex.getMessage(), ex);
+        } catch (BufferOverflowException ex) {
+            throw new MatterTLVCodecException("The output buffer is too small for the TLV certificate", ex);
+        }
+    }
+
+    private static void readECDSAWithSHA256AlgorithmIdentifier(DERReader reader) throws IOException, MatterTLVCodecException {
+        reader.expect(DERTags.SEQUENCE);
+        int end = reader.getContentEnd();
+        reader.expect(DERTags.OBJECT_IDENTIFIER);
+        if (!reader.contentEquals(OID_ECDSA_WITH_SHA256) || reader.getContentEnd() != end) {
+            throw new MatterTLVCodecException("Only the ecdsa-with-SHA256 signature algorithm is supported");
+        }
+        reader.skip();
+    }
+
+    private static void encodeName(DERReader reader, MatterTLVWriter tlv, int tag) throws IOException, MatterTLVCodecException {
+        reader.expect(DERTags.SEQUENCE);
+        int nameEnd = reader.getContentEnd();
+        tlv.startList(tag);
+        while (reader.hasNext(nameEnd)) {
+            reader.expect(DERTags.SET);
+            int rdnEnd = reader.getContentEnd();
+            reader.expect(DERTags.SEQUENCE);
+            reader.expect(DERTags.OBJECT_IDENTIFIER);
+            var attribute = findDNAttribute(reader);
+            reader.skip();
+            var valueTag = reader.next();
+            switch (attribute.getValueKind()) {
+                case MATTER_64_BIT_ID, MATTER_32_BIT_ID -> {
+                    if (valueTag != DERTags.UTF8_STRING) {
+                        throw new MatterTLVCodecException(attribute + " must be a UTF8String");
+                    }
+                    tlv.putUnsigned(attribute.getTLVTag(), parseUpperHex(reader, attribute));
+                }
+                case IA5_STRING -> {
+                    if (valueTag != DERTags.IA5_STRING) {
+                        throw new MatterTLVCodecException(attribute + " must be an IA5String");
+                    }
+                    tlv.putUTF8String(attribute.getTLVTag(), reader.getContentSlice());
+                }
+                case STRING -> {
+                    if (valueTag == DERTags.UTF8_STRING) {
+                        tlv.putUTF8String(attribute.getTLVTag(), reader.getContentSlice());
+                    } else if (valueTag == DERTags.PRINTABLE_STRING) {
+                        tlv.putUTF8String(attribute.getTLVTag() | MatterTLVDNAttribute.PRINTABLE_STRING_TAG_FLAG, reader.getContentSlice());
+                    } else {
+                        throw new MatterTLVCodecException(attribute + " must be a UTF8String or a PrintableString");
+                    }
+                }
+            }
+            reader.skip();
+            if (reader.getPosition() != rdnEnd) {
+                throw new MatterTLVCodecException("Multi-valued RDNs are not supported in Matter certificates");
+            }
+        }
+        tlv.endContainer();
+    }
+
+    private static MatterTLVDNAttribute findDNAttribute(DERReader reader) throws MatterTLVCodecException {
+        for (var attribute : MatterTLVDNAttribute.values()) {
+            if (reader.contentEquals(attribute.getEncodedOID())) {
+                return attribute;
+            }
+        }
+        throw new MatterTLVCodecException("The DN attribute " + ASN1ObjectIdentifier.fromContents(reader.getContent()).getId() + " can not be represented in a Matter TLV certificate");
+    }
+
+    private static long parseUpperHex(DERReader reader, MatterTLVDNAttribute attribute) throws MatterTLVCodecException {
+        if (reader.getContentLength() != attribute.getHexDigitCount()) {
+            throw new MatterTLVCodecException(attribute + " must be " + attribute.getHexDigitCount() + " uppercase hex digits");
+        }
+        long value = 0;
+        for (int i = 0; i < reader.getContentLength(); i++) {
+            int c = reader.getContentByte(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'A' && c <= 'F') {
+                digit = c - 'A' + 10;
+            } else {
+                throw new MatterTLVCodecException(attribute + " must be " + attribute.getHexDigitCount() + " uppercase hex digits");
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    /**
+     * Reads a UTCTime or GeneralizedTime, and checks it is in the form RFC 5280 requires (and DER re-creates)
+     *
+     * @return The time in unix seconds
+     */
+    private static long readTime(DERReader reader, DERWriter scratch) throws IOException, MatterTLVCodecException {
+        var tag = reader.next();
+        var length = reader.getContentLength();
+        int year;
+        int offset;
+        if (tag == DERTags.UTC_TIME && length == 13) {
+            int shortYear = readDigits(reader, 0, 2);
+            year = shortYear >= 50 ? 1900 + shortYear : 2000 + shortYear;
+            offset = 2;
+        } else if (tag == DERTags.GENERALIZED_TIME && length == 15) {
+            year = readDigits(reader, 0, 4);
+            offset = 4;
+        } else {
+            throw new MatterTLVCodecException("Unsupported certificate time encoding");
+        }
+        if (reader.getContentByte(length - 1) != 'Z') {
+            throw new MatterTLVCodecException("Certificate times must be in UTC");
+        }
+        long seconds = toEpochSeconds(year, readDigits(reader, offset, 2), readDigits(reader, offset + 2, 2),
+                readDigits(reader, offset + 4, 2), readDigits(reader, offset + 6, 2), readDigits(reader, offset + 8, 2));
+        // The time type must be the one re-created when decoding
+        scratch.reset();
+        scratch.writeTime(seconds);
+        if (scratch.size() != reader.getContentEnd() - reader.getElementStart()) {
+            throw new MatterTLVCodecException("Certificate times must be UTCTime until 2049 and GeneralizedTime from 2050");
+        }
+        reader.skip();
+        return seconds;
+    }
+
+    private static int readDigits(DERReader reader, int offset, int count) throws MatterTLVCodecException {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int c = reader.getContentByte(i);
+            if (c < '0' || c > '9') {
+                throw new MatterTLVCodecException("Malformed certificate time");
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static long toMatterEpochSeconds(long unixSeconds) throws MatterTLVCodecException {
+        long matterSeconds = unixSeconds - MATTER_EPOCH_SECONDS;
+        if (matterSeconds < 0 || matterSeconds > 0xFFFFFFFFL) {
+            throw new MatterTLVCodecException("Certificate times must be between 2000-01-01 and 2136-02-07, or have no expiry");
+        }
+        return matterSeconds;
+    }
+
+    private static void copySignatureValue(DERReader reader, byte[] signature, int offset) throws MatterTLVCodecException {
+        int length = reader.getContentLength();
+        int start = 0;
+        while (length - start > EC_SIGNATURE_VALUE_LENGTH && reader.getContentByte(start) == 0) {
+            start++;
+        }
+        if (length - start > EC_SIGNATURE_VALUE_LENGTH) {
+            throw new MatterTLVCodecException("Malformed ECDSA signature value");
+        }
+        int padding = EC_SIGNATURE_VALUE_LENGTH - (length - start);
+        for (int i = start; i < length; i++) {
+            signature[offset + padding + (i - start)] = (byte) reader.getContentByte(i);
+        }
+    }
+
+    /**
+     * Encodes an extension in its Matter TLV form if it is in the canonical Matter encoding, or as a 'future-extension' otherwise
+     */
+    private static void encodeExtension(DERReader reader, MatterTLVWriter tlv, DERWriter scratch) throws IOException {
+        reader.expect(DERTags.SEQUENCE);
+        var extension = reader.getElementSlice();
+        int extensionEnd = reader.getContentEnd();
+        reader.expect(DERTags.OBJECT_IDENTIFIER);
+        int tlvTag = findExtensionTLVTag(reader);
+        reader.skip();
+
+        var fields = new ExtensionFields();
+        fields.tlvTag = tlvTag;
+        if (tlvTag != TAG_FUTURE_EXTENSION && parseExtensionValue(reader, fields)) {
+            // Only kept in TLV form if decoding re-creates the exact same DER
+            scratch.reset();
+            writeExtension(scratch, fields);
+            if (extension.equals(ByteBuffer.wrap(scratch.toByteArray()))) {
+                writeExtensionTLV(tlv, fields);
+                reader.setPosition(extensionEnd);
+                return;
+            }
+        }
+        tlv.putBytes(TAG_FUTURE_EXTENSION, extension);
+        reader.setPosition(extensionEnd);
+    }
+
+    private static int findExtensionTLVTag(DERReader reader) {
+        if (reader.contentEquals(OID_BASIC_CONSTRAINTS)) {
+            return TAG_BASIC_CONSTRAINTS;
+        } else if (reader.contentEquals(OID_KEY_USAGE)) {
+            return TAG_KEY_USAGE;
+        } else if (reader.contentEquals(OID_EXTENDED_KEY_USAGE)) {
+            return TAG_EXTENDED_KEY_USAGE;
+        } else if (reader.contentEquals(OID_SUBJECT_KEY_IDENTIFIER)) {
+            return TAG_SUBJECT_KEY_IDENTIFIER;
+        } else if (reader.contentEquals(OID_AUTHORITY_KEY_IDENTIFIER)) {
+            return TAG_AUTHORITY_KEY_IDENTIFIER;
+        }
+        return TAG_FUTURE_EXTENSION;
+    }
+
+    /**
+     * Parses the value of an extension Matter has a TLV form for
+     *
+     * @param reader A reader positioned after the extension's OBJECT IDENTIFIER
+     * @return false if the value could not be parsed in its Matter form
+     */
+    private static boolean parseExtensionValue(DERReader reader, ExtensionFields fields) {
+        try {
+            if (reader.next() == DERTags.BOOLEAN) { // critical
+                reader.skip();
+                reader.expect(DERTags.OCTET_STRING);
+            } else if (reader.getTag() != DERTags.OCTET_STRING) {
+                return false;
+            }
+            var value = new DERReader(reader.getContentSlice());
+            switch (fields.tlvTag) {
+                case TAG_BASIC_CONSTRAINTS -> {
+                    value.expect(DERTags.SEQUENCE);
+                    int end = value.getContentEnd();
+                    if (value.hasNext(end) && value.next() == DERTags.BOOLEAN) {
+                        fields.isCA = value.getContentLength() == 1 && value.getContentByte(0) != 0;
+                        value.skip();
+                        if (value.hasNext(end)) {
+                            value.next();
+                        }
+                    }
+                    if (value.getTag() == DERTags.INTEGER) {
+                        fields.pathLength = value.getContentAsUnsignedLong();
+                    }
+                }
+                case TAG_KEY_USAGE -> {
+                    value.expect(DERTags.BIT_STRING);
+                    for (int bit = 0; bit <= MAX_KEY_USAGE_BIT; bit++) {
+                        int octet = 1 + bit / 8;
+                        if (octet < value.getContentLength() && (value.getContentByte(octet) & (0x80 >>> (bit % 8))) != 0) {
+                            fields.keyUsage |= 1 << bit;
+                        }
+                    }
+                }
+                case TAG_EXTENDED_KEY_USAGE -> {
+                    value.expect(DERTags.SEQUENCE);
+                    int end = value.getContentEnd();
+                    fields.keyPurposes = new int[value.getContentLength() / 2];
+                    while (value.hasNext(end)) {
+                        value.expect(DERTags.OBJECT_IDENTIFIER);
+                        int keyPurpose = 0;
+                        for (int i = 1; i < KEY_PURPOSES.length && keyPurpose == 0; i++) {
+                            if (value.contentEquals(KEY_PURPOSES[i])) {
+                                keyPurpose = i;
+                            }
+                        }
+                        if (keyPurpose == 0) {
+                            return false;
+                        }
+                        fields.keyPurposes[fields.keyPurposeCount++] = keyPurpose;
+                        value.skip();
+                    }
+                }
+                case TAG_SUBJECT_KEY_IDENTIFIER -> {
+                    value.expect(DERTags.OCTET_STRING);
+                    fields.keyIdentifier = value.getContentSlice();
+                }
+                case TAG_AUTHORITY_KEY_IDENTIFIER -> {
+                    value.expect(DERTags.SEQUENCE);
+                    value.expect(DERTags.contextPrimitive(0));
+                    fields.keyIdentifier = value.getContentSlice();
+                }
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException | IndexOutOfBoundsException ex) {
+            return false; // kept as a future-extension
+        }
+    }
+
+    private static void writeExtensionTLV(MatterTLVWriter tlv, ExtensionFields fields) {
+        switch (fields.tlvTag) {
+            case TAG_BASIC_CONSTRAINTS -> {
+                tlv.startStructure(TAG_BASIC_CONSTRAINTS);
+                tlv.putBoolean(TAG_BASIC_CONSTRAINTS_IS_CA, fields.isCA);
+                if (fields.pathLength >= 0) {
+                    tlv.putUnsigned(TAG_BASIC_CONSTRAINTS_PATH_LENGTH, fields.pathLength);
+                }
+                tlv.endContainer();
+            }
+            case TAG_KEY_USAGE -> tlv.putUnsigned(TAG_KEY_USAGE, fields.keyUsage);
+            case TAG_EXTENDED_KEY_USAGE -> {
+                tlv.startArray(TAG_EXTENDED_KEY_USAGE);
+                for (int i = 0; i < fields.keyPurposeCount; i++) {
+                    tlv.putUnsigned(MatterTLVWriter.ANONYMOUS, fields.keyPurposes[i]);
+                }
+                tlv.endContainer();
+            }
+            case TAG_SUBJECT_KEY_IDENTIFIER, TAG_AUTHORITY_KEY_IDENTIFIER -> tlv.putBytes(fields.tlvTag, fields.keyIdentifier);
+        }
+    }
+
+    /*
+    TLV -> X.509
+     */
+
+    /**
+     * Decodes a Matter TLV certificate
+     *
+     * @param tlv The TLV encoded certificate, read from its position to its limit. It is not modified
+     * @return The certificate
+     * @throws MatterTLVCodecException If the TLV is malformed
+     */
+    public static SomeX509v3CertificateHolder decode(ByteBuffer tlv) throws MatterTLVCodecException, IOException {
+        return SomeX509v3CertificateHolder.fromDERData(decodeToDER(tlv));
+    }
+
+    /**
+     * Decodes a Matter TLV certificate to its X.509 DER encoding
+     *
+     * @param tlv The TLV encoded certificate, read from its position to its limit. It is not modified
+     * @return The DER encoded certificate
+     * @throws MatterTLVCodecException If the TLV is malformed
+     */
+    public static byte[] decodeToDER(ByteBuffer tlv) throws MatterTLVCodecException {
+        return decodeToWriter(tlv).toByteArray();
+    }
+
+    /**
+     * Decodes a Matter TLV certificate to its X.509 DER encoding
+     * - The DER is written at the position of the output buffer, which is moved past it
+     *
+     * @param tlv The TLV encoded certificate, read from its position to its limit. It is not modified
+     * @param derOut The buffer the DER is written to
+     * @return The number of bytes written
+     * @throws MatterTLVCodecException If the TLV is malformed, or the output buffer is too small
+     */
+    public static int decode(ByteBuffer tlv, ByteBuffer derOut) throws MatterTLVCodecException {
+        var der = decodeToWriter(tlv);
+        try {
+            der.writeTo(derOut);
+        } catch (BufferOverflowException ex) {
+            throw new MatterTLVCodecException("The output buffer is too small for the DER certificate", ex);
+        }
+        return der.size();
+    }
+
+    private static DERWriter decodeToWriter(ByteBuffer tlvIn) throws MatterTLVCodecException {
+        var tlv = new MatterTLVReader(tlvIn);
+        var der = new DERWriter(2 * tlvIn.remaining());
+
+        tlv.expect(MatterTLVElementType.STRUCTURE, MatterTLVWriter.ANONYMOUS);
+        der.begin(DERTags.SEQUENCE); // Certificate
+        der.begin(DERTags.SEQUENCE); // TBSCertificate
+        der.begin(DERTags.contextConstructed(0)).writeInteger(2).end();
+
+        der.write(DERTags.INTEGER, tlv.expectBytes(TAG_SERIAL_NUMBER));
+
+        if (tlv.expectUnsigned(TAG_SIGNATURE_ALGORITHM) != SIGNATURE_ALGORITHM_ECDSA_WITH_SHA256) {
+            throw new MatterTLVCodecException("Only the ecdsa-with-SHA256 signature algorithm is supported");
+        }
+        writeECDSAWithSHA256AlgorithmIdentifier(der);
+
+        decodeName(tlv, der, TAG_ISSUER);
+
+        long notBefore = tlv.expectUnsigned(TAG_NOT_BEFORE);
+        long notAfter = tlv.expectUnsigned(TAG_NOT_AFTER);
+        der.begin(DERTags.SEQUENCE);
+        der.writeTime(MATTER_EPOCH_SECONDS + notBefore);
+        der.writeTime(notAfter == 0 ? NO_EXPIRY_SECONDS : MATTER_EPOCH_SECONDS + notAfter);
+        der.end();
+
+        decodeName(tlv, der, TAG_SUBJECT);
+
+        if (tlv.expectUnsigned(TAG_PUBLIC_KEY_ALGORITHM) != PUBLIC_KEY_ALGORITHM_EC) {
+            throw new MatterTLVCodecException("Only EC public keys are supported");
+        }
+        if (tlv.expectUnsigned(TAG_EC_CURVE_ID) != EC_CURVE_PRIME256V1) {
+            throw new MatterTLVCodecException("Only prime256v1 EC public keys are supported");
+        }
+        der.begin(DERTags.SEQUENCE);
+        der.begin(DERTags.SEQUENCE).write(DERTags.OBJECT_IDENTIFIER, OID_EC_PUBLIC_KEY).write(DERTags.OBJECT_IDENTIFIER, OID_PRIME256V1).end();
+        der.write(DERTags.BIT_STRING, 0, tlv.expectBytes(TAG_EC_PUBLIC_KEY));
+        der.end();
+
+        tlv.expect(MatterTLVElementType.LIST, TAG_EXTENSIONS);
+        tlv.next();
+        if (!tlv.isEndOfContainer()) {
+            der.begin(DERTags.contextConstructed(3)).begin(DERTags.SEQUENCE);
+            while (!tlv.isEndOfContainer()) {
+                decodeExtension(tlv, der);
+                tlv.next();
+            }
+            der.end().end();
+        }
+        der.end(); // TBSCertificate
+
+        writeECDSAWithSHA256AlgorithmIdentifier(der);
+        var signature = tlv.expectBytes(TAG_SIGNATURE);
+        if (signature.remaining() != 2 * EC_SIGNATURE_VALUE_LENGTH) {
+            throw new MatterTLVCodecException("Malformed ECDSA signature, expected " + 2 * EC_SIGNATURE_VALUE_LENGTH + " bytes");
+        }
+        var signatureBytes = new byte[2 * EC_SIGNATURE_VALUE_LENGTH];
+        signature.get(signature.position(), signatureBytes);
+        der.begin(DERTags.BIT_STRING);
+        der.writeEncoded(new byte[]{0}); // no unused bits
+        der.begin(DERTags.SEQUENCE)
+                .writeUnsignedInteger(signatureBytes, 0, EC_SIGNATURE_VALUE_LENGTH)
+                .writeUnsignedInteger(signatureBytes, EC_SIGNATURE_VALUE_LENGTH, EC_SIGNATURE_VALUE_LENGTH)
+                .end();
+        der.end();
+
+        tlv.next();
+        if (!tlv.isEndOfContainer()) {
+            throw new MatterTLVCodecException("Unexpected TLV element with tag " + tlv.getTag() + " in the certificate");
+        }
+        der.end(); // Certificate
+        return der;
+    }
+
+    private static void writeECDSAWithSHA256AlgorithmIdentifier(DERWriter der) {
+        der.begin(DERTags.SEQUENCE).write(DERTags.OBJECT_IDENTIFIER, OID_ECDSA_WITH_SHA256).end();
+    }
+
+    private static void decodeName(MatterTLVReader tlv, DERWriter der, int tag) throws MatterTLVCodecException {
+        tlv.expect(MatterTLVElementType.LIST, tag);
+        der.begin(DERTags.SEQUENCE);
+        while (true) {
+            tlv.next();
+            if (tlv.isEndOfContainer()) {
+                break;
+            }
+            boolean printableString = (tlv.getTag() & MatterTLVDNAttribute.PRINTABLE_STRING_TAG_FLAG) != 0;
+            var attribute = MatterTLVDNAttribute.fromTLVTag(tlv.getTag() & ~MatterTLVDNAttribute.PRINTABLE_STRING_TAG_FLAG);
+            if (attribute == null || (printableString && attribute.getValueKind() != MatterTLVDNAttribute.ValueKind.STRING)) {
+                throw new MatterTLVCodecException("Unknown DN attribute TLV tag " + tlv.getTag());
+            }
+            der.begin(DERTags.SET).begin(DERTags.SEQUENCE);
+            der.write(DERTags.OBJECT_IDENTIFIER, attribute.getEncodedOID());
+            if (attribute.isMatterId()) {
+                if (!tlv.isUnsigned()) {
+                    throw new MatterTLVCodecException(attribute + " must be an unsigned integer");
+                }
+                der.writeUpperHex(DERTags.UTF8_STRING, tlv.getUnsigned(), attribute.getHexDigitCount());
+            } else {
+                if (!tlv.isUTF8String()) {
+                    throw new MatterTLVCodecException(attribute + " must be a UTF-8 string");
+                }
+                int stringTag = attribute.getValueKind() == MatterTLVDNAttribute.ValueKind.IA5_STRING ? DERTags.IA5_STRING
+                        : printableString ? DERTags.PRINTABLE_STRING : DERTags.UTF8_STRING;
+                der.write(stringTag, tlv.getValueSlice());
+            }
+            der.end().end();
+        }
+        der.end();
+    }
+
+    private static void decodeExtension(MatterTLVReader tlv, DERWriter der) throws MatterTLVCodecException {
+        var fields = new ExtensionFields();
+        fields.tlvTag = tlv.getTag();
+        switch (tlv.getTag()) {
+            case TAG_BASIC_CONSTRAINTS -> {
+                if (tlv.getElementType() != MatterTLVElementType.STRUCTURE) {
+                    throw new MatterTLVCodecException("basic-constraints must be a structure");
+                }
+                tlv.next();
+                if (!tlv.isBoolean() || tlv.getTag() != TAG_BASIC_CONSTRAINTS_IS_CA) {
+                    throw new MatterTLVCodecException("basic-constraints must start with is-ca");
+                }
+                fields.isCA = tlv.getBoolean();
+                tlv.next();
+                if (tlv.isUnsigned() && tlv.getTag() == TAG_BASIC_CONSTRAINTS_PATH_LENGTH) {
+                    fields.pathLength = tlv.getUnsigned();
+                    tlv.next();
+                }
+                if (!tlv.isEndOfContainer()) {
+                    throw new MatterTLVCodecException("Unexpected element in basic-constraints");
+                }
+            }
+            case TAG_KEY_USAGE -> {
+                if (!tlv.isUnsigned()) {
+                    throw new MatterTLVCodecException("key-usage must be an unsigned integer");
+                }
+                fields.keyUsage = (int) tlv.getUnsigned();
+            }
+            case TAG_EXTENDED_KEY_USAGE -> {
+                if (tlv.getElementType() != MatterTLVElementType.ARRAY) {
+                    throw new MatterTLVCodecException("extended-key-usage must be an array");
+                }
+                fields.keyPurposes = new int[KEY_PURPOSES.length];
+                while (true) {
+                    tlv.next();
+                    if (tlv.isEndOfContainer()) {
+                        break;
+                    }
+                    if (!tlv.isUnsigned() || tlv.getUnsigned() < 1 || tlv.getUnsigned() >= KEY_PURPOSES.length) {
+                        throw new MatterTLVCodecException("Unknown extended-key-usage key purpose");
+                    }
+                    if (fields.keyPurposeCount == fields.keyPurposes.length) {
+                        fields.keyPurposes = Arrays.copyOf(fields.keyPurposes, 2 * fields.keyPurposeCount);
+                    }
+                    fields.keyPurposes[fields.keyPurposeCount++] = (int) tlv.getUnsigned();
+                }
+            }
+            case TAG_SUBJECT_KEY_IDENTIFIER, TAG_AUTHORITY_KEY_IDENTIFIER -> {
+                if (!tlv.isByteString()) {
+                    throw new MatterTLVCodecException("Key identifiers must be byte strings");
+                }
+                fields.keyIdentifier = tlv.getValueSlice();
+            }
+            case TAG_FUTURE_EXTENSION -> {
+                if (!tlv.isByteString()) {
+                    throw new MatterTLVCodecException("future-extension must be a byte string");
+                }
+                der.writeEncoded(tlv.getValueSlice()); // the whole DER Extension, as is
+                return;
+            }
+            default -> throw new MatterTLVCodecException("Unknown extension TLV tag " + tlv.getTag());
+        }
+        writeExtension(der, fields);
+    }
+
+    /**
+     * Writes an extension in its canonical Matter DER encoding
+     * - basic-constraints, key-usage and extended-key-usage are critical, key identifiers are not
+     */
+    private static void writeExtension(DERWriter der, ExtensionFields fields) {
+        der.begin(DERTags.SEQUENCE);
+        switch (fields.tlvTag) {
+            case TAG_BASIC_CONSTRAINTS -> {
+                der.write(DERTags.OBJECT_IDENTIFIER, OID_BASIC_CONSTRAINTS).writeBoolean(true);
+                der.begin(DERTags.OCTET_STRING).begin(DERTags.SEQUENCE);
+                if (fields.isCA) { // cA is DEFAULT FALSE, so it is omitted when false
+                    der.writeBoolean(true);
+                }
+                if (fields.pathLength >= 0) {
+                    der.writeInteger(fields.pathLength);
+                }
+                der.end().end();
+            }
+            case TAG_KEY_USAGE -> {
+                der.write(DERTags.OBJECT_IDENTIFIER, OID_KEY_USAGE).writeBoolean(true);
+                der.begin(DERTags.OCTET_STRING);
+                int highestBit = 31 - Integer.numberOfLeadingZeros(fields.keyUsage);
+                if (highestBit < 0) {
+                    der.write(DERTags.BIT_STRING, new byte[]{0});
+                } else {
+                    var bitString = new byte[1 + highestBit / 8 + 1];
+                    bitString[0] = (byte) (7 - highestBit % 8); // unused bits, trailing zero bits are not encoded
+                    for (int bit = 0; bit <= highestBit; bit++) {
+                        if ((fields.keyUsage & (1 << bit)) != 0) {
+                            bitString[1 + bit / 8] |= (byte) (0x80 >>> (bit % 8));
+                        }
+                    }
+                    der.write(DERTags.BIT_STRING, bitString);
+                }
+                der.end();
+            }
+            case TAG_EXTENDED_KEY_USAGE -> {
+                der.write(DERTags.OBJECT_IDENTIFIER, OID_EXTENDED_KEY_USAGE).writeBoolean(true);
+                der.begin(DERTags.OCTET_STRING).begin(DERTags.SEQUENCE);
+                for (int i = 0; i < fields.keyPurposeCount; i++) {
+                    der.write(DERTags.OBJECT_IDENTIFIER, KEY_PURPOSES[fields.keyPurposes[i]]);
+                }
+                der.end().end();
+            }
+            case TAG_SUBJECT_KEY_IDENTIFIER -> {
+                der.write(DERTags.OBJECT_IDENTIFIER, OID_SUBJECT_KEY_IDENTIFIER);
+                der.begin(DERTags.OCTET_STRING).write(DERTags.OCTET_STRING, fields.keyIdentifier).end();
+            }
+            case TAG_AUTHORITY_KEY_IDENTIFIER -> {
+                der.write(DERTags.OBJECT_IDENTIFIER, OID_AUTHORITY_KEY_IDENTIFIER);
+                der.begin(DERTags.OCTET_STRING).begin(DERTags.SEQUENCE).write(DERTags.contextPrimitive(0), fields.keyIdentifier).end().end();
+            }
+        }
+        der.end();
+    }
+
+    /*
+    Time
+     */
+
+    private static long toEpochSeconds(int year, int month, int day, int hour, int minute, int second) {
+        // days-from-civil, see http://howardhinnant.github.io/date_algorithms.html
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        long days = era * 146097 + dayOfEra - 719468;
+        return days * 86400 + hour * 3600L + minute * 60L + second;
+    }
+
+    /*
+    Aux
+     */
+
+    private static byte[] encodedOID(String oid) {
+        try {
+            var encoded = new ASN1ObjectIdentifier(oid).getEncoded();
+            return Arrays.copyOfRange(encoded, 2, encoded.length); // strip the (short form) header
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The parsed fields of an extension Matter has a TLV form for
+     */
+    private static class ExtensionFields {
+        int tlvTag;
+        boolean isCA;
+        long pathLength = -1;
+        int keyUsage;
+        int[] keyPurposes;
+        int keyPurposeCount;
+        ByteBuffer keyIdentifier;
+    }
+}
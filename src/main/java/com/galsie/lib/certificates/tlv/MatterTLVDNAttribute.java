@@ -0,0 +1,123 @@
+package com.galsie.lib.certificates.tlv;
+
+import com.galsie.lib.certificates.asn1.object.MatterASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * The Distinguished Name attributes a Matter TLV certificate can hold, with their TLV tag and X.509 attribute type
+ * - From Matter Core Specification, 6.5.6. Distinguished Name (DN) Encoding
+ * - Standard attributes are UTF8String in X.509, their PrintableString variant is marked in TLV by setting the tag's high bit (tag + 0x80)
+ * - Matter-specific identifiers are unsigned integers in TLV, and fixed-width uppercase hex UTF8Strings in X.509
+ */
+public enum MatterTLVDNAttribute {
+    COMMON_NAME(1, "2.5.4.3", ValueKind.STRING),
+    SURNAME(2, "2.5.4.4", ValueKind.STRING),
+    SERIAL_NUMBER(3, "2.5.4.5", ValueKind.STRING),
+    COUNTRY_NAME(4, "2.5.4.6", ValueKind.STRING),
+    LOCALITY_NAME(5, "2.5.4.7", ValueKind.STRING),
+    STATE_OR_PROVINCE_NAME(6, "2.5.4.8", ValueKind.STRING),
+    ORGANIZATION_NAME(7, "2.5.4.10", ValueKind.STRING),
+    ORGANIZATIONAL_UNIT_NAME(8, "2.5.4.11", ValueKind.STRING),
+    TITLE(9, "2.5.4.12", ValueKind.STRING),
+    NAME(10, "2.5.4.41", ValueKind.STRING),
+    GIVEN_NAME(11, "2.5.4.42", ValueKind.STRING),
+    INITIALS(12, "2.5.4.43", ValueKind.STRING),
+    GENERATION_QUALIFIER(13, "2.5.4.44", ValueKind.STRING),
+    DN_QUALIFIER(14, "2.5.4.46", ValueKind.STRING),
+    PSEUDONYM(15, "2.5.4.65", ValueKind.STRING),
+    DOMAIN_COMPONENT(16, "0.9.2342.19200300.100.1.25", ValueKind.IA5_STRING),
+    MATTER_NODE_ID(17, MatterASN1ObjectIdentifier.MATTER_NODE_ID.getASN1OID(), ValueKind.MATTER_64_BIT_ID),
+    MATTER_FIRMWARE_SIGNING_ID(18, MatterASN1ObjectIdentifier.MATTER_FIRMWARE_SIGNING_ID.getASN1OID(), ValueKind.MATTER_64_BIT_ID),
+    MATTER_ICAC_ID(19, MatterASN1ObjectIdentifier.MATTER_ICAC_ID.getASN1OID(), ValueKind.MATTER_64_BIT_ID),
+    MATTER_RCAC_ID(20, MatterASN1ObjectIdentifier.MATTER_RCAC_ID.getASN1OID(), ValueKind.MATTER_64_BIT_ID),
+    MATTER_FABRIC_ID(21, MatterASN1ObjectIdentifier.MATTER_FABRIC_ID.getASN1OID(), ValueKind.MATTER_64_BIT_ID),
+    MATTER_NOC_CAT(22, MatterASN1ObjectIdentifier.MATTER_NOC_CAT.getASN1OID(), ValueKind.MATTER_32_BIT_ID);
+
+    /**
+     * Set on the TLV tag of a standard attribute whose X.509 value is a PrintableString
+     */
+    public static final int PRINTABLE_STRING_TAG_FLAG = 0x80;
+
+    private static final MatterTLVDNAttribute[] BY_TAG = new MatterTLVDNAttribute[MATTER_NOC_CAT.tlvTag + 1];
+
+    static {
+        for (var attribute : values()) {
+            BY_TAG[attribute.tlvTag] = attribute;
+        }
+    }
+
+    enum ValueKind {
+        /**
+         * UTF8String, or PrintableString
+         */
+        STRING,
+        IA5_STRING,
+        /**
+         * 16 uppercase hex digits
+         */
+        MATTER_64_BIT_ID,
+        /**
+         * 8 uppercase hex digits
+         */
+        MATTER_32_BIT_ID
+    }
+
+    private final int tlvTag;
+    private final String oid;
+    private final ValueKind valueKind;
+    /**
+     * The content octets of the attribute type's OBJECT IDENTIFIER, compared against certificates without decoding them
+     */
+    private final byte[] encodedOID;
+
+    MatterTLVDNAttribute(int tlvTag, String oid, ValueKind valueKind) {
+        this.tlvTag = tlvTag;
+        this.oid = oid;
+        this.valueKind = valueKind;
+        try {
+            var encoded = new ASN1ObjectIdentifier(oid).getEncoded();
+            this.encodedOID = Arrays.copyOfRange(encoded, 2, encoded.length); // strip the (short form) header
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int getTLVTag() {
+        return tlvTag;
+    }
+
+    public String getOID() {
+        return oid;
+    }
+
+    ValueKind getValueKind() {
+        return valueKind;
+    }
+
+    byte[] getEncodedOID() {
+        return encodedOID;
+    }
+
+    /**
+     * @return The number of hex digits of a Matter-specific identifier in X.509
+     */
+    int getHexDigitCount() {
+        return valueKind == ValueKind.MATTER_32_BIT_ID ? 8 : 16;
+    }
+
+    boolean isMatterId() {
+        return valueKind == ValueKind.MATTER_64_BIT_ID || valueKind == ValueKind.MATTER_32_BIT_ID;
+    }
+
+    /**
+     * @param tlvTag The TLV tag, without the PrintableString flag
+     * @return The attribute, or null if the tag is not a DN attribute tag
+     */
+    static MatterTLVDNAttribute fromTLVTag(int tlvTag) {
+        return tlvTag > 0 && tlvTag < BY_TAG.length ? BY_TAG[tlvTag] : null;
+    }
+}
@@ -0,0 +1,38 @@
+package com.galsie.lib.certificates.tlv;
+
+/**
+ * The Matter TLV control octet values used by Matter certificates
+ * - From Matter Core Specification, Appendix A: Tag-length-value (TLV) Encoding Format
+ * - The control octet is the tag control (upper 3 bits) OR-ed with the element type (lower 5 bits)
+ */
+public class MatterTLVElementType {
+
+    /*
+    Element types
+     */
+    public static final int UNSIGNED_INT_1 = 0x04;
+    public static final int UNSIGNED_INT_2 = 0x05;
+    public static final int UNSIGNED_INT_4 = 0x06;
+    public static final int UNSIGNED_INT_8 = 0x07;
+    public static final int BOOLEAN_FALSE = 0x08;
+    public static final int BOOLEAN_TRUE = 0x09;
+    public static final int UTF8_STRING_1 = 0x0C;
+    public static final int UTF8_STRING_2 = 0x0D;
+    public static final int UTF8_STRING_4 = 0x0E;
+    public static final int BYTE_STRING_1 = 0x10;
+    public static final int BYTE_STRING_2 = 0x11;
+    public static final int BYTE_STRING_4 = 0x12;
+    public static final int STRUCTURE = 0x15;
+    public static final int ARRAY = 0x16;
+    public static final int LIST = 0x17;
+    public static final int END_OF_CONTAINER = 0x18;
+
+    /*
+    Tag controls
+     */
+    public static final int TAG_CONTROL_ANONYMOUS = 0x00;
+    public static final int TAG_CONTROL_CONTEXT_SPECIFIC = 0x20;
+
+    public static final int ELEMENT_TYPE_MASK = 0x1F;
+    public static final int TAG_CONTROL_MASK = 0xE0;
+}
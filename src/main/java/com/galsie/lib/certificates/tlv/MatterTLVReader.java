@@ -0,0 +1,190 @@
+package com.galsie.lib.certificates.tlv;
+
+import com.galsie.lib.certificates.exception.MatterTLVCodecException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A forward-only cursor over Matter TLV elements in a {@link ByteBuffer}
+ * - {@link MatterTLVReader#next()} reads the next element, its type, tag and value are then available through the getters
+ * - String values are exposed as views of the buffer, they are never copied
+ */
+public class MatterTLVReader {
+
+    private final ByteBuffer buffer;
+
+    private int elementType = -1;
+    private int tag = MatterTLVWriter.ANONYMOUS;
+    private long unsignedValue;
+    private int valueStart;
+    private int valueLength;
+
+    /**
+     * @param buffer The TLV data, read from its position up to its limit. The buffer itself is not modified
+     */
+    public MatterTLVReader(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.position(buffer.position());
+    }
+
+    /**
+     * Reads the next element
+     *
+     * @return The element type, see {@link MatterTLVElementType}
+     * @throws MatterTLVCodecException If the element is malformed or of an unsupported type
+     */
+    public int next() throws MatterTLVCodecException {
+        try {
+            int control = buffer.get() & 0xFF;
+            int tagControl = control & MatterTLVElementType.TAG_CONTROL_MASK;
+            this.elementType = control & MatterTLVElementType.ELEMENT_TYPE_MASK;
+            if (tagControl == MatterTLVElementType.TAG_CONTROL_ANONYMOUS) {
+                this.tag = MatterTLVWriter.ANONYMOUS;
+            } else if (tagControl == MatterTLVElementType.TAG_CONTROL_CONTEXT_SPECIFIC) {
+                this.tag = buffer.get() & 0xFF;
+            } else {
+                throw new MatterTLVCodecException("Unsupported TLV tag control 0x" + Integer.toHexString(tagControl));
+            }
+            switch (elementType) {
+                case MatterTLVElementType.UNSIGNED_INT_1 -> unsignedValue = buffer.get() & 0xFFL;
+                case MatterTLVElementType.UNSIGNED_INT_2 -> unsignedValue = buffer.getShort() & 0xFFFFL;
+                case MatterTLVElementType.UNSIGNED_INT_4 -> unsignedValue = buffer.getInt() & 0xFFFFFFFFL;
+                case MatterTLVElementType.UNSIGNED_INT_8 -> unsignedValue = buffer.getLong();
+                case MatterTLVElementType.UTF8_STRING_1, MatterTLVElementType.BYTE_STRING_1 -> this.readString(buffer.get() & 0xFF);
+                case MatterTLVElementType.UTF8_STRING_2, MatterTLVElementType.BYTE_STRING_2 -> this.readString(buffer.getShort() & 0xFFFF);
+                case MatterTLVElementType.UTF8_STRING_4, MatterTLVElementType.BYTE_STRING_4 -> this.readString(buffer.getInt());
+                case MatterTLVElementType.BOOLEAN_FALSE, MatterTLVElementType.BOOLEAN_TRUE,
+                        MatterTLVElementType.STRUCTURE, MatterTLVElementType.ARRAY, MatterTLVElementType.LIST,
+                        MatterTLVElementType.END_OF_CONTAINER -> {
+                }
+                default -> throw new MatterTLVCodecException("Unsupported TLV element type 0x" + Integer.toHexString(elementType));
+            }
+            return elementType;
+        } catch (java.nio.BufferUnderflowException ex) {
+            throw new MatterTLVCodecException("Unexpected end of TLV data");
+        }
+    }
+
+    /**
+     * Reads the next element and checks its type and tag
+     */
+    public MatterTLVReader expect(int expectedElementType, int expectedTag) throws MatterTLVCodecException {
+        this.next();
+        if (!this.is(expectedElementType, expectedTag)) {
+            throw new MatterTLVCodecException("Expected TLV element type 0x" + Integer.toHexString(expectedElementType) + " with tag " + expectedTag
+                    + " but found type 0x" + Integer.toHexString(elementType) + " with tag " + tag);
+        }
+        return this;
+    }
+
+    /**
+     * Reads the next element, which must be an unsigned integer with the given tag
+     */
+    public long expectUnsigned(int expectedTag) throws MatterTLVCodecException {
+        this.next();
+        if (!this.isUnsigned() || tag != expectedTag) {
+            throw new MatterTLVCodecException("Expected an unsigned integer with tag " + expectedTag + " but found type 0x" + Integer.toHexString(elementType) + " with tag " + tag);
+        }
+        return unsignedValue;
+    }
+
+    /**
+     * Reads the next element, which must be a byte string with the given tag
+     *
+     * @return A view of the bytes
+     */
+    public ByteBuffer expectBytes(int expectedTag) throws MatterTLVCodecException {
+        this.next();
+        if (!this.isByteString() || tag != expectedTag) {
+            throw new MatterTLVCodecException("Expected a byte string with tag " + expectedTag + " but found type 0x" + Integer.toHexString(elementType) + " with tag " + tag);
+        }
+        return this.getValueSlice();
+    }
+
+    /**
+     * Skips the rest of the container whose start element was just read
+     */
+    public void skipContainer() throws MatterTLVCodecException {
+        int depth = 1;
+        while (depth > 0) {
+            var type = this.next();
+            if (this.isContainerStart()) {
+                depth++;
+            } else if (type == MatterTLVElementType.END_OF_CONTAINER) {
+                depth--;
+            }
+        }
+    }
+
+    public boolean is(int elementType, int tag) {
+        return this.elementType == elementType && this.tag == tag;
+    }
+
+    public boolean isUnsigned() {
+        return elementType >= MatterTLVElementType.UNSIGNED_INT_1 && elementType <= MatterTLVElementType.UNSIGNED_INT_8;
+    }
+
+    public boolean isUTF8String() {
+        return elementType >= MatterTLVElementType.UTF8_STRING_1 && elementType <= MatterTLVElementType.UTF8_STRING_4;
+    }
+
+    public boolean isByteString() {
+        return elementType >= MatterTLVElementType.BYTE_STRING_1 && elementType <= MatterTLVElementType.BYTE_STRING_4;
+    }
+
+    public boolean isBoolean() {
+        return elementType == MatterTLVElementType.BOOLEAN_FALSE || elementType == MatterTLVElementType.BOOLEAN_TRUE;
+    }
+
+    public boolean isContainerStart() {
+        return elementType == MatterTLVElementType.STRUCTURE || elementType == MatterTLVElementType.ARRAY || elementType == MatterTLVElementType.LIST;
+    }
+
+    public boolean isEndOfContainer() {
+        return elementType == MatterTLVElementType.END_OF_CONTAINER;
+    }
+
+    public int getElementType() {
+        return elementType;
+    }
+
+    public int getTag() {
+        return tag;
+    }
+
+    public long getUnsigned() {
+        return unsignedValue;
+    }
+
+    public boolean getBoolean() {
+        return elementType == MatterTLVElementType.BOOLEAN_TRUE;
+    }
+
+    /**
+     * @return A view of the value of the last string element, no bytes are copied
+     */
+    public ByteBuffer getValueSlice() {
+        return buffer.slice(valueStart, valueLength);
+    }
+
+    public int getValueLength() {
+        return valueLength;
+    }
+
+    /**
+     * @return The position of the buffer after the last read element
+     */
+    public int getPosition() {
+        return buffer.position();
+    }
+
+    private void readString(int length) throws MatterTLVCodecException {
+        if (length < 0 || length > buffer.remaining()) {
+            throw new MatterTLVCodecException("TLV string of length " + length + " runs past the end of the data");
+        }
+        this.valueStart = buffer.position();
+        this.valueLength = length;
+        buffer.position(valueStart + length);
+    }
+}
@@ -0,0 +1,136 @@
+package com.galsie.lib.certificates.tlv;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Writes Matter TLV elements into a {@link ByteBuffer}
+ * - Only the element types used by Matter certificates are supported
+ * - Tags are either anonymous ({@link MatterTLVWriter#ANONYMOUS}) or context-specific (0 - 255)
+ * - Unsigned integers are written with the smallest width that holds them, as the Matter TLV canonical form requires
+ */
+public class MatterTLVWriter {
+
+    /**
+     * Passed as a tag for anonymous elements
+     */
+    public static final int ANONYMOUS = -1;
+
+    private final ByteBuffer buffer;
+
+    /**
+     * @param buffer The target buffer, written from its position. Its byte order is not modified, multi-byte values are written little-endian
+     */
+    public MatterTLVWriter(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.position(buffer.position());
+    }
+
+    public MatterTLVWriter startStructure(int tag) {
+        return this.writeControlAndTag(MatterTLVElementType.STRUCTURE, tag);
+    }
+
+    public MatterTLVWriter startArray(int tag) {
+        return this.writeControlAndTag(MatterTLVElementType.ARRAY, tag);
+    }
+
+    public MatterTLVWriter startList(int tag) {
+        return this.writeControlAndTag(MatterTLVElementType.LIST, tag);
+    }
+
+    public MatterTLVWriter endContainer() {
+        buffer.put((byte) MatterTLVElementType.END_OF_CONTAINER);
+        return this;
+    }
+
+    public MatterTLVWriter putBoolean(int tag, boolean value) {
+        return this.writeControlAndTag(value ? MatterTLVElementType.BOOLEAN_TRUE : MatterTLVElementType.BOOLEAN_FALSE, tag);
+    }
+
+    /**
+     * Writes an unsigned integer with the smallest width that holds it
+     *
+     * @param value The value, considered unsigned
+     */
+    public MatterTLVWriter putUnsigned(int tag, long value) {
+        if ((value & ~0xFFL) == 0) {
+            this.writeControlAndTag(MatterTLVElementType.UNSIGNED_INT_1, tag);
+            buffer.put((byte) value);
+        } else if ((value & ~0xFFFFL) == 0) {
+            this.writeControlAndTag(MatterTLVElementType.UNSIGNED_INT_2, tag);
+            buffer.putShort((short) value);
+        } else if ((value & ~0xFFFFFFFFL) == 0) {
+            this.writeControlAndTag(MatterTLVElementType.UNSIGNED_INT_4, tag);
+            buffer.putInt((int) value);
+        } else {
+            this.writeControlAndTag(MatterTLVElementType.UNSIGNED_INT_8, tag);
+            buffer.putLong(value);
+        }
+        return this;
+    }
+
+    /**
+     * Writes a byte string from the remaining bytes of the source, the source's position is not modified
+     */
+    public MatterTLVWriter putBytes(int tag, ByteBuffer value) {
+        return this.putString(MatterTLVElementType.BYTE_STRING_1, tag, value);
+    }
+
+    public MatterTLVWriter putBytes(int tag, byte[] value, int offset, int length) {
+        this.writeStringHeader(MatterTLVElementType.BYTE_STRING_1, tag, length);
+        buffer.put(value, offset, length);
+        return this;
+    }
+
+    /**
+     * Writes a UTF-8 string from the remaining (already UTF-8 encoded) bytes of the source, the source's position is not modified
+     */
+    public MatterTLVWriter putUTF8String(int tag, ByteBuffer value) {
+        return this.putString(MatterTLVElementType.UTF8_STRING_1, tag, value);
+    }
+
+    /**
+     * @return The position of the target buffer after the written elements
+     */
+    public int getPosition() {
+        return buffer.position();
+    }
+
+    private MatterTLVWriter putString(int oneOctetLengthType, int tag, ByteBuffer value) {
+        var length = value.remaining();
+        this.writeStringHeader(oneOctetLengthType, tag, length);
+        if (buffer.remaining() < length) {
+            throw new BufferOverflowException(); // as the relative puts do, the absolute put below would throw IndexOutOfBoundsException
+        }
+        buffer.put(buffer.position(), value, value.position(), length);
+        buffer.position(buffer.position() + length);
+        return this;
+    }
+
+    private void writeStringHeader(int oneOctetLengthType, int tag, int length) {
+        if (length <= 0xFF) {
+            this.writeControlAndTag(oneOctetLengthType, tag);
+            buffer.put((byte) length);
+        } else if (length <= 0xFFFF) {
+            this.writeControlAndTag(oneOctetLengthType + 1, tag);
+            buffer.putShort((short) length);
+        } else {
+            this.writeControlAndTag(oneOctetLengthType + 2, tag);
+            buffer.putInt(length);
+        }
+    }
+
+    private MatterTLVWriter writeControlAndTag(int elementType, int tag) {
+        if (tag == ANONYMOUS) {
+            buffer.put((byte) (MatterTLVElementType.TAG_CONTROL_ANONYMOUS | elementType));
+            return this;
+        }
+        if (tag < 0 || tag > 0xFF) {
+            throw new IllegalArgumentException("Context-specific tags must be between 0 and 255, got " + tag);
+        }
+        buffer.put((byte) (MatterTLVElementType.TAG_CONTROL_CONTEXT_SPECIFIC | elementType));
+        buffer.put((byte) tag);
+        return this;
+    }
+}
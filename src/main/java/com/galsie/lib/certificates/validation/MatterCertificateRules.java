@@ -0,0 +1,264 @@
+package com.galsie.lib.certificates.validation;
+
+import com.galsie.lib.certificates.asn1.object.MatterASN1ObjectIdentifier;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.exception.MatterChainValidationException;
+import com.galsie.lib.certificates.exception.MatterChainValidationException.Reason;
+import org.bouncycastle.asn1.ASN1BitString;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1UTF8String;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.asn1.x509.SubjectKeyIdentifier;
+import org.bouncycastle.asn1.x9.X9ObjectIdentifiers;
+
+import java.util.Set;
+
+/**
+ * The per-certificate Matter rules, from 6.5. Operational Certificate Encoding
+ * - DN: at most 5 RDNs, single-valued, Matter identifiers as 16 (or 8 for CATs) uppercase hex digits
+ * - Subject: the identifiers each {@link MatterCertificateType} must (and must not) hold
+ * - Extensions: basic-constraints and key-usage are present and critical, the NOC extended-key-usage is present and critical, key identifiers are present,
+ *   and no other extension is critical
+ * - Algorithms: ecdsa-with-SHA256 over a prime256v1 key
+ */
+class MatterCertificateRules {
+
+    /**
+     * From 6.5.6.3. Matter DN Encoding Rule
+     */
+    static final int MAX_RDN_COUNT = 5;
+    /**
+     * From 6.6.1. CASE Authenticated Tags, a NOC holds at most 3 CATs
+     */
+    private static final int MAX_CAT_COUNT = 3;
+    /**
+     * From 2.5.5.1. Operational Node ID, the upper end of the operational node id range
+     */
+    private static final long MAX_OPERATIONAL_NODE_ID = 0xFFFFFFEFFFFFFFFFL;
+
+    private static final ASN1ObjectIdentifier NODE_ID = new ASN1ObjectIdentifier(MatterASN1ObjectIdentifier.MATTER_NODE_ID.getASN1OID());
+    private static final ASN1ObjectIdentifier ICAC_ID = new ASN1ObjectIdentifier(MatterASN1ObjectIdentifier.MATTER_ICAC_ID.getASN1OID());
+    private static final ASN1ObjectIdentifier RCAC_ID = new ASN1ObjectIdentifier(MatterASN1ObjectIdentifier.MATTER_RCAC_ID.getASN1OID());
+    private static final ASN1ObjectIdentifier FABRIC_ID = new ASN1ObjectIdentifier(MatterASN1ObjectIdentifier.MATTER_FABRIC_ID.getASN1OID());
+    private static final ASN1ObjectIdentifier NOC_CAT = new ASN1ObjectIdentifier(MatterASN1ObjectIdentifier.MATTER_NOC_CAT.getASN1OID());
+
+    private static final ASN1ObjectIdentifier PRIME256V1 = X9ObjectIdentifiers.prime256v1;
+
+    /**
+     * The extensions that may (and, where required, must) be marked critical
+     */
+    private static final Set<ASN1ObjectIdentifier> CRITICAL_EXTENSIONS = Set.of(Extension.basicConstraints, Extension.keyUsage, Extension.extendedKeyUsage);
+
+    /**
+     * Checks a certificate against the rules of its type
+     *
+     * @return The Matter fields of the certificate that chain validation needs
+     * @throws MatterChainValidationException If a rule is violated
+     */
+    static MatterCertificateFields check(SomeX509v3CertificateHolder certificate, MatterCertificateType type) throws MatterChainValidationException {
+        var fields = new MatterCertificateFields(type);
+        checkAlgorithms(certificate, type);
+        checkDN(certificate.getIssuer(), type, "issuer", null);
+        checkDN(certificate.getSubject(), type, "subject", fields);
+        checkSubject(fields, type);
+        checkExtensions(certificate, type, fields);
+        return fields;
+    }
+
+    private static void checkAlgorithms(SomeX509v3CertificateHolder certificate, MatterCertificateType type) throws MatterChainValidationException {
+        if (certificate.getVersionNumber() != 3) {
+            throw new MatterChainValidationException(Reason.UNSUPPORTED_ALGORITHM, type + " is not an X.509 v3 certificate");
+        }
+        if (!X9ObjectIdentifiers.ecdsa_with_SHA256.equals(certificate.getSignatureAlgorithm().getAlgorithm())) {
+            throw new MatterChainValidationException(Reason.UNSUPPORTED_ALGORITHM, type + " is not signed with ecdsa-with-SHA256");
+        }
+        var keyAlgorithm = certificate.getSubjectPublicKeyInfo().getAlgorithm();
+        if (!X9ObjectIdentifiers.id_ecPublicKey.equals(keyAlgorithm.getAlgorithm()) || !PRIME256V1.equals(keyAlgorithm.getParameters())) {
+            throw new MatterChainValidationException(Reason.UNSUPPORTED_ALGORITHM, type + " public key is not a prime256v1 EC key");
+        }
+    }
+
+    /**
+     * Checks the DN encoding rules, and collects the Matter identifiers of the subject
+     *
+     * @param fields Where the identifiers are collected, or null to only check the encoding
+     */
+    private static void checkDN(X500Name name, MatterCertificateType type, String which, MatterCertificateFields fields) throws MatterChainValidationException {
+        var rdns = name.getRDNs();
+        if (rdns.length > MAX_RDN_COUNT) {
+            throw new MatterChainValidationException(Reason.INVALID_DN, type + " " + which + " has " + rdns.length + " RDNs, at most " + MAX_RDN_COUNT + " are allowed");
+        }
+        for (var rdn : rdns) {
+            if (rdn.isMultiValued()) {
+                throw new MatterChainValidationException(Reason.INVALID_DN, type + " " + which + " has a multi-valued RDN");
+            }
+            var typeAndValue = rdn.getFirst();
+            var attribute = typeAndValue.getType();
+            boolean isCAT = NOC_CAT.equals(attribute);
+            if (!isCAT && !NODE_ID.equals(attribute) && !ICAC_ID.equals(attribute) && !RCAC_ID.equals(attribute) && !FABRIC_ID.equals(attribute)) {
+                continue; // other attributes (eg: common name) are allowed as is
+            }
+            if (!(typeAndValue.getValue() instanceof ASN1UTF8String utf8String)) {
+                throw new MatterChainValidationException(Reason.INVALID_DN, type + " " + which + " Matter attribute " + attribute + " is not a UTF8String");
+            }
+            long value = parseUpperHex(utf8String.getString(), isCAT ? 8 : 16, type, which, attribute);
+            if (fields == null) {
+                continue;
+            }
+            if (isCAT) {
+                fields.catCount++;
+                if ((value & 0xFFFF) == 0) {
+                    throw new MatterChainValidationException(Reason.INVALID_DN, type + " " + which + " has a CAT with version 0");
+                }
+            } else if (NODE_ID.equals(attribute)) {
+                fields.nodeIdCount++;
+                fields.nodeId = value;
+            } else if (ICAC_ID.equals(attribute)) {
+                fields.icacIdCount++;
+            } else if (RCAC_ID.equals(attribute)) {
+                fields.rcacIdCount++;
+            } else {
+                fields.fabricIdCount++;
+                fields.fabricId = value;
+            }
+        }
+    }
+
+    private static long parseUpperHex(String value, int digitCount, MatterCertificateType type, String which, ASN1ObjectIdentifier attribute) throws MatterChainValidationException {
+        if (value.length() != digitCount) {
+            throw new MatterChainValidationException(Reason.INVALID_DN, type + " " + which + " Matter attribute " + attribute + " must be " + digitCount + " uppercase hex digits");
+        }
+        for (int i = 0; i < digitCount; i++) {
+            var c = value.charAt(i);
+            if (!(c >= '0' && c <= '9') && !(c >= 'A' && c <= 'F')) {
+                throw new MatterChainValidationException(Reason.INVALID_DN, type + " " + which + " Matter attribute " + attribute + " must be " + digitCount + " uppercase hex digits");
+            }
+        }
+        return Long.parseUnsignedLong(value, 16);
+    }
+
+    private static void checkSubject(MatterCertificateFields fields, MatterCertificateType type) throws MatterChainValidationException {
+        if (fields.fabricIdCount > 1) {
+            throw new MatterChainValidationException(Reason.INVALID_DN, type + " subject has more than one fabric id");
+        }
+        if (fields.fabricIdCount == 1 && fields.fabricId == 0) {
+            throw new MatterChainValidationException(Reason.INVALID_DN, type + " subject has the reserved fabric id 0");
+        }
+        switch (type) {
+            case NOC -> {
+                if (fields.nodeIdCount != 1 || fields.fabricIdCount != 1 || fields.icacIdCount != 0 || fields.rcacIdCount != 0) {
+                    throw new MatterChainValidationException(Reason.INVALID_DN, "NOC subject must hold exactly one node id and one fabric id, and no CA ids");
+                }
+                if (fields.nodeId == 0 || Long.compareUnsigned(fields.nodeId, MAX_OPERATIONAL_NODE_ID) > 0) {
+                    throw new MatterChainValidationException(Reason.INVALID_DN, "NOC node id " + Long.toHexString(fields.nodeId) + " is not an operational node id");
+                }
+                if (fields.catCount > MAX_CAT_COUNT) {
+                    throw new MatterChainValidationException(Reason.INVALID_DN, "NOC subject holds more than " + MAX_CAT_COUNT + " CATs");
+                }
+            }
+            case ICAC -> {
+                if (fields.icacIdCount != 1 || fields.nodeIdCount != 0 || fields.rcacIdCount != 0 || fields.catCount != 0) {
+                    throw new MatterChainValidationException(Reason.INVALID_DN, "ICAC subject must hold exactly one icac id, and no node id, rcac id or CATs");
+                }
+            }
+            case RCAC -> {
+                if (fields.rcacIdCount != 1 || fields.nodeIdCount != 0 || fields.icacIdCount != 0 || fields.catCount != 0) {
+                    throw new MatterChainValidationException(Reason.INVALID_DN, "RCAC subject must hold exactly one rcac id, and no node id, icac id or CATs");
+                }
+            }
+        }
+    }
+
+    private static void checkExtensions(SomeX509v3CertificateHolder certificate, MatterCertificateType type, MatterCertificateFields fields) throws MatterChainValidationException {
+        var extensions = certificate.getExtensions();
+        if (extensions == null) {
+            throw new MatterChainValidationException(Reason.INVALID_EXTENSIONS, type + " has no extensions");
+        }
+        for (var oid : extensions.getExtensionOIDs()) {
+            var extension = extensions.getExtension(oid);
+            if (extension.isCritical() && !CRITICAL_EXTENSIONS.contains(oid)) {
+                throw new MatterChainValidationException(Reason.INVALID_EXTENSIONS, type + " has the unsupported critical extension " + oid);
+            }
+        }
+        try {
+            var basicConstraints = BasicConstraints.getInstance(requireCritical(extensions.getExtension(Extension.basicConstraints), type, "basic-constraints").getParsedValue());
+            boolean isCA = type != MatterCertificateType.NOC;
+            if (basicConstraints.isCA() != isCA || (!isCA && basicConstraints.getPathLenConstraint() != null)) {
+                throw new MatterChainValidationException(Reason.INVALID_EXTENSIONS, type + " basic-constraints cA must be " + isCA);
+            }
+            if (basicConstraints.getPathLenConstraint() != null) {
+                fields.pathLength = basicConstraints.getPathLenConstraint().intValue();
+            }
+
+            var keyUsage = ASN1BitString.getInstance(requireCritical(extensions.getExtension(Extension.keyUsage), type, "key-usage").getParsedValue()).intValue();
+            int expectedKeyUsage = isCA ? KeyUsage.keyCertSign | KeyUsage.cRLSign : KeyUsage.digitalSignature;
+            if (keyUsage != expectedKeyUsage) {
+                throw new MatterChainValidationException(Reason.INVALID_EXTENSIONS, type + " key-usage must be " + (isCA ? "keyCertSign and cRLSign" : "digitalSignature"));
+            }
+
+            var extendedKeyUsageExtension = extensions.getExtension(Extension.extendedKeyUsage);
+            if (type == MatterCertificateType.NOC) {
+                var extendedKeyUsage = ExtendedKeyUsage.getInstance(requireCritical(extendedKeyUsageExtension, type, "extended-key-usage").getParsedValue());
+                if (!extendedKeyUsage.hasKeyPurposeId(KeyPurposeId.id_kp_clientAuth) || !extendedKeyUsage.hasKeyPurposeId(KeyPurposeId.id_kp_serverAuth)) {
+                    throw new MatterChainValidationException(Reason.INVALID_EXTENSIONS, "NOC extended-key-usage must hold clientAuth and serverAuth");
+                }
+            } else if (extendedKeyUsageExtension != null) {
+                throw new MatterChainValidationException(Reason.INVALID_EXTENSIONS, type + " must not hold extended-key-usage");
+            }
+
+            var subjectKeyIdentifier = extensions.getExtension(Extension.subjectKeyIdentifier);
+            var authorityKeyIdentifier = extensions.getExtension(Extension.authorityKeyIdentifier);
+            if (subjectKeyIdentifier == null || authorityKeyIdentifier == null) {
+                throw new MatterChainValidationException(Reason.INVALID_EXTENSIONS, type + " must hold the subject and authority key identifiers");
+            }
+            fields.subjectKeyIdentifier = SubjectKeyIdentifier.getInstance(subjectKeyIdentifier.getParsedValue()).getKeyIdentifier();
+            fields.authorityKeyIdentifier = AuthorityKeyIdentifier.getInstance(authorityKeyIdentifier.getParsedValue()).getKeyIdentifier();
+            if (fields.authorityKeyIdentifier == null) {
+                throw new MatterChainValidationException(Reason.INVALID_EXTENSIONS, type + " authority key identifier must hold a key identifier");
+            }
+        } catch (IllegalArgumentException ex) { // thrown by getInstance on malformed values
+            throw new MatterChainValidationException(Reason.INVALID_EXTENSIONS, type + " has a malformed extension", ex);
+        }
+    }
+
+    private static Extension requireCritical(Extension extension, MatterCertificateType type, String name) throws MatterChainValidationException {
+        if (extension == null || !extension.isCritical()) {
+            throw new MatterChainValidationException(Reason.INVALID_EXTENSIONS, type + " must hold a critical " + name + " extension");
+        }
+        return extension;
+    }
+
+    /**
+     * The Matter fields of a certificate, collected while checking it
+     */
+    static class MatterCertificateFields {
+        final MatterCertificateType type;
+        int nodeIdCount;
+        int icacIdCount;
+        int rcacIdCount;
+        int fabricIdCount;
+        int catCount;
+        long nodeId;
+        long fabricId;
+        /**
+         * The basic-constraints path length, or -1 if not constrained
+         */
+        int pathLength = -1;
+        byte[] subjectKeyIdentifier;
+        byte[] authorityKeyIdentifier;
+
+        MatterCertificateFields(MatterCertificateType type) {
+            this.type = type;
+        }
+
+        boolean hasFabricId() {
+            return fabricIdCount == 1;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.galsie.lib.certificates.validation;
+
+/**
+ * From 6.5.6.2. Matter Certificate Types
+ */
+public enum MatterCertificateType {
+    /**
+     * Root Certificate Authority Certificate, self-signed, identified by a matter-rcac-id
+     */
+    RCAC,
+    /**
+     * Intermediate Certificate Authority Certificate, signed by an RCAC, identified by a matter-icac-id
+     */
+    ICAC,
+    /**
+     * Node Operational Certificate, signed by an ICAC or an RCAC, identified by a matter-node-id and a matter-fabric-id
+     */
+    NOC
+}
@@ -0,0 +1,333 @@
+package com.galsie.lib.certificates.validation;
+
+import com.galsie.lib.certificates.CryptoOperation;
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.exception.MatterChainValidationException;
+import com.galsie.lib.certificates.exception.MatterChainValidationException.Reason;
+import com.galsie.lib.certificates.validation.MatterCertificateRules.MatterCertificateFields;
+import com.galsie.lib.utils.crypto.hasher.HashingAlgorithm;
+import com.galsie.lib.utils.lang.Nullable;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.CertException;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Validates Matter certificate chains (NOC, optional ICAC) up to a set of trusted RCACs
+ * - From 6.5. Operational Certificate Encoding, and 6.6. Operational Certificate Chain Validation
+ *
+ * Each validation checks:
+ * - The Matter rules of each certificate, see {@link MatterCertificateRules}: algorithms, DN encoding (at most 5 RDNs), identifiers, critical extensions
+ * - The chain links: each issuer DN and authority key identifier match the subject DN and subject key identifier of the next certificate
+ * - Fabric id consistency: an ICAC or RCAC that holds a fabric id must hold the NOC's
+ * - The validity periods at the validation time (unless validating without a clock, as devices without a time source do)
+ * - The signatures, up to a trusted RCAC
+ *
+ * Verified signatures are cached in a bounded LRU keyed by (issuer SPKI, certificate hash):
+ * - Re-validating the same chain (eg: the same ICAC on every CASE session) only redoes the cheap structural checks and a hash, not the ECDSA verification
+ * - Only successful verifications are cached
+ *
+ * NOTE: The validator is thread safe, trusted RCACs may be added and removed while validating.
+ */
+public class MatterChainValidator {
+
+    public static final int DEFAULT_CACHE_CAPACITY = 4096;
+
+    private static final ThreadLocal<MessageDigest> CERTIFICATE_DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance(HashingAlgorithm.SHA256.getAlgorithmIdentifier());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    /**
+     * The trusted RCACs by subject DN. A DN may have several RCACs (eg: while rotating keys), told apart by their subject key identifier.
+     */
+    private final Map<X500Name, List<TrustedRCAC>> trustedRCACs = new ConcurrentHashMap<>();
+    private final VerifiedSignatureCache verifiedSignatureCache;
+    /**
+     * The clock of the validation time, or null to skip the validity period checks
+     */
+    private final Clock clock;
+
+    private MatterChainValidator(int cacheCapacity, Clock clock) {
+        this.verifiedSignatureCache = new VerifiedSignatureCache(cacheCapacity);
+        this.clock = clock;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Adds a trusted RCAC
+     *
+     * @param rcac The RCAC, which must follow the Matter RCAC rules and be validly self-signed
+     * @throws MatterChainValidationException If the RCAC does not follow the rules
+     */
+    public MatterChainValidator addTrustedRCAC(SomeX509v3CertificateHolder rcac) throws MatterChainValidationException {
+        var fields = MatterCertificateRules.check(rcac, MatterCertificateType.RCAC);
+        if (!rcac.getIssuer().equals(rcac.getSubject()) || !Arrays.equals(fields.authorityKeyIdentifier, fields.subjectKeyIdentifier)) {
+            throw new MatterChainValidationException(Reason.ISSUER_MISMATCH, "RCAC is not self-issued");
+        }
+        var trusted = new TrustedRCAC(rcac, fields, encodeSPKI(rcac), encodeCertificate(rcac));
+        this.verifySignature(rcac, trusted.spki, rcac, MatterCertificateType.RCAC);
+        trustedRCACs.compute(rcac.getSubject(), (subject, current) -> {
+            var updated = current == null ? new ArrayList<TrustedRCAC>() : new ArrayList<>(current);
+            updated.removeIf(other -> Arrays.equals(other.encoded, trusted.encoded));
+            updated.add(trusted);
+            return List.copyOf(updated);
+        });
+        return this;
+    }
+
+    /**
+     * Removes a trusted RCAC, chains that end at it are no longer valid
+     * - Cached verifications are dropped, so they do not outlive the trust
+     */
+    public MatterChainValidator removeTrustedRCAC(SomeX509v3CertificateHolder rcac) throws IOException {
+        var encoded = rcac.getDEREncoded();
+        trustedRCACs.computeIfPresent(rcac.getSubject(), (subject, current) -> {
+            var updated = new ArrayList<>(current);
+            updated.removeIf(other -> Arrays.equals(other.encoded, encoded));
+            return updated.isEmpty() ? null : List.copyOf(updated);
+        });
+        verifiedSignatureCache.clear();
+        return this;
+    }
+
+    /**
+     * Validates a NOC, signed either by an ICAC or directly by a trusted RCAC
+     *
+     * @param noc The Node Operational Certificate
+     * @param icac The Intermediate CA Certificate that signed the NOC, or null if the NOC was signed by the RCAC
+     * @return The trusted RCAC the chain ends at
+     * @throws MatterChainValidationException If the chain is not valid
+     */
+    public SomeX509v3CertificateHolder validate(SomeX509v3CertificateHolder noc, @Nullable SomeX509v3CertificateHolder icac) throws MatterChainValidationException {
+        return icac == null ? this.validate(List.of(noc)) : this.validate(List.of(noc, icac));
+    }
+
+    /**
+     * Validates a chain
+     *
+     * @param chain The NOC first, then optionally the ICAC, then optionally the RCAC (which must then be one of the trusted RCACs)
+     * @return The trusted RCAC the chain ends at
+     * @throws MatterChainValidationException If the chain is not valid
+     */
+    public SomeX509v3CertificateHolder validate(List<SomeX509v3CertificateHolder> chain) throws MatterChainValidationException {
+        if (chain.isEmpty() || chain.size() > 3) {
+            throw new MatterChainValidationException(Reason.INVALID_CHAIN_LENGTH, "A chain holds a NOC, an optional ICAC and an optional RCAC, got " + chain.size() + " certificates");
+        }
+        var last = chain.get(chain.size() - 1);
+        boolean endsWithRCAC = chain.size() == 3 || (chain.size() == 2 && last.getIssuer().equals(last.getSubject()));
+        var certificates = endsWithRCAC ? chain.subList(0, chain.size() - 1) : chain;
+
+        var fields = new MatterCertificateFields[certificates.size()];
+        for (int i = 0; i < certificates.size(); i++) {
+            fields[i] = MatterCertificateRules.check(certificates.get(i), i == 0 ? MatterCertificateType.NOC : MatterCertificateType.ICAC);
+        }
+
+        var rcac = endsWithRCAC ? this.findTrustedRCAC(last) : this.findTrustedRCAC(certificates.get(certificates.size() - 1), fields[fields.length - 1]);
+
+        // chain links, leaf to root
+        for (int i = 0; i < certificates.size(); i++) {
+            var certificate = certificates.get(i);
+            var issuer = i + 1 < certificates.size() ? certificates.get(i + 1) : rcac.certificate;
+            var issuerFields = i + 1 < certificates.size() ? fields[i + 1] : rcac.fields;
+            if (!certificate.getIssuer().equals(issuer.getSubject()) || !Arrays.equals(fields[i].authorityKeyIdentifier, issuerFields.subjectKeyIdentifier)) {
+                throw new MatterChainValidationException(Reason.ISSUER_MISMATCH, fields[i].type + " was not issued by the " + issuerFields.type);
+            }
+        }
+        if (certificates.size() == 2 && rcac.fields.pathLength == 0) {
+            throw new MatterChainValidationException(Reason.INVALID_EXTENSIONS, "RCAC path length does not allow an ICAC");
+        }
+
+        this.checkFabricIds(fields, rcac.fields);
+        this.checkValidityPeriods(certificates, rcac);
+
+        for (int i = 0; i < certificates.size(); i++) {
+            var issuer = i + 1 < certificates.size() ? certificates.get(i + 1) : rcac.certificate;
+            this.verifySignature(certificates.get(i), encodeSPKI(issuer), issuer, fields[i].type);
+        }
+        return rcac.certificate;
+    }
+
+    private TrustedRCAC findTrustedRCAC(SomeX509v3CertificateHolder rcac) throws MatterChainValidationException {
+        var encoded = encodeCertificate(rcac);
+        for (var trusted : trustedRCACs.getOrDefault(rcac.getSubject(), List.of())) {
+            if (Arrays.equals(trusted.encoded, encoded)) {
+                return trusted;
+            }
+        }
+        throw new MatterChainValidationException(Reason.UNTRUSTED_ROOT, "The RCAC of the chain is not trusted");
+    }
+
+    private TrustedRCAC findTrustedRCAC(SomeX509v3CertificateHolder issued, MatterCertificateFields issuedFields) throws MatterChainValidationException {
+        for (var trusted : trustedRCACs.getOrDefault(issued.getIssuer(), List.of())) {
+            if (Arrays.equals(trusted.fields.subjectKeyIdentifier, issuedFields.authorityKeyIdentifier)) {
+                return trusted;
+            }
+        }
+        throw new MatterChainValidationException(Reason.UNTRUSTED_ROOT, "No trusted RCAC issued the " + issuedFields.type);
+    }
+
+    /**
+     * From 6.5.6.2: an ICAC or RCAC that holds a fabric id must hold the fabric id of the NOCs it issues
+     */
+    private void checkFabricIds(MatterCertificateFields[] fields, MatterCertificateFields rcacFields) throws MatterChainValidationException {
+        var nocFabricId = fields[0].fabricId;
+        for (int i = 1; i <= fields.length; i++) {
+            var issuerFields = i < fields.length ? fields[i] : rcacFields;
+            if (issuerFields.hasFabricId() && issuerFields.fabricId != nocFabricId) {
+                throw new MatterChainValidationException(Reason.FABRIC_ID_MISMATCH, issuerFields.type + " fabric id " + Long.toHexString(issuerFields.fabricId)
+                        + " does not match the NOC fabric id " + Long.toHexString(nocFabricId));
+            }
+        }
+    }
+
+    private void checkValidityPeriods(List<SomeX509v3CertificateHolder> certificates, TrustedRCAC rcac) throws MatterChainValidationException {
+        if (clock == null) {
+            return;
+        }
+        var now = new Date(clock.millis());
+        for (int i = 0; i <= certificates.size(); i++) {
+            var certificate = i < certificates.size() ? certificates.get(i) : rcac.certificate;
+            if (!certificate.isValidOn(now)) {
+                var type = i == 0 ? MatterCertificateType.NOC : i < certificates.size() ? MatterCertificateType.ICAC : MatterCertificateType.RCAC;
+                throw new MatterChainValidationException(Reason.INVALID_TIME, type + " is not valid at " + now.toInstant());
+            }
+        }
+    }
+
+    private void verifySignature(SomeX509v3CertificateHolder certificate, byte[] issuerSPKI, SomeX509v3CertificateHolder issuer, MatterCertificateType type) throws MatterChainValidationException {
+        var certificateHash = CERTIFICATE_DIGEST.get().digest(encodeCertificate(certificate));
+        if (verifiedSignatureCache.contains(issuerSPKI, certificateHash)) {
+            return;
+        }
+        boolean valid;
+        try {
+            var securityProvider = SecurityProvider.forOperation(CryptoOperation.VERIFICATION);
+            var verifierProvider = new JcaContentVerifierProviderBuilder()
+                    .setProvider(securityProvider.getProvider())
+                    .build(securityProvider.toProviderKey(issuer.getPublicKey()));
+            valid = certificate.isSignatureValid(verifierProvider);
+        } catch (OperatorCreationException | CertException | GeneralSecurityException ex) {
+            throw new MatterChainValidationException(Reason.INVALID_SIGNATURE, type + " signature could not be verified", ex);
+        }
+        if (!valid) {
+            throw new MatterChainValidationException(Reason.INVALID_SIGNATURE, type + " signature is not valid");
+        }
+        verifiedSignatureCache.add(issuerSPKI, certificateHash);
+    }
+
+    /*
+    Observability
+     */
+
+    public long getCacheHits() {
+        return verifiedSignatureCache.getHits();
+    }
+
+    public long getCacheMisses() {
+        return verifiedSignatureCache.getMisses();
+    }
+
+    public int getCacheSize() {
+        return verifiedSignatureCache.size();
+    }
+
+    private static byte[] encodeSPKI(SomeX509v3CertificateHolder certificate) throws MatterChainValidationException {
+        try {
+            return certificate.getSubjectPublicKeyInfo().getEncoded();
+        } catch (IOException ex) {
+            throw new MatterChainValidationException(Reason.UNSUPPORTED_ALGORITHM, "The public key could not be encoded", ex);
+        }
+    }
+
+    private static byte[] encodeCertificate(SomeX509v3CertificateHolder certificate) throws MatterChainValidationException {
+        try {
+            return certificate.getDEREncoded();
+        } catch (IOException ex) {
+            throw new MatterChainValidationException(Reason.UNSUPPORTED_ALGORITHM, "The certificate could not be encoded", ex);
+        }
+    }
+
+    private static class TrustedRCAC {
+        final SomeX509v3CertificateHolder certificate;
+        final MatterCertificateFields fields;
+        final byte[] spki;
+        final byte[] encoded;
+
+        TrustedRCAC(SomeX509v3CertificateHolder certificate, MatterCertificateFields fields, byte[] spki, byte[] encoded) {
+            this.certificate = certificate;
+            this.fields = fields;
+            this.spki = spki;
+            this.encoded = encoded;
+        }
+    }
+
+    public static class Builder {
+        private final List<SomeX509v3CertificateHolder> trustedRCACs = new ArrayList<>();
+        private int cacheCapacity = DEFAULT_CACHE_CAPACITY;
+        private Clock clock = Clock.systemUTC();
+
+        private Builder() {
+        }
+
+        public Builder addTrustedRCAC(SomeX509v3CertificateHolder rcac) {
+            this.trustedRCACs.add(rcac);
+            return this;
+        }
+
+        public Builder addTrustedRCACs(Collection<SomeX509v3CertificateHolder> rcacs) {
+            this.trustedRCACs.addAll(rcacs);
+            return this;
+        }
+
+        /**
+         * @param cacheCapacity The maximum number of verified signatures kept, 0 disables the cache
+         */
+        public Builder setCacheCapacity(int cacheCapacity) {
+            if (cacheCapacity < 0) {
+                throw new IllegalArgumentException("The cache capacity can not be negative, got " + cacheCapacity);
+            }
+            this.cacheCapacity = cacheCapacity;
+            return this;
+        }
+
+        /**
+         * @param clock The clock the validity periods are checked against, or null to not check them (eg: on a device without a time source)
+         */
+        public Builder setClock(@Nullable Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * @throws MatterChainValidationException If a trusted RCAC does not follow the Matter RCAC rules
+         */
+        public MatterChainValidator build() throws MatterChainValidationException {
+            var validator = new MatterChainValidator(cacheCapacity, clock);
+            for (var rcac : trustedRCACs) {
+                validator.addTrustedRCAC(rcac);
+            }
+            return validator;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.galsie.lib.certificates.validation;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded LRU set of the signatures that were verified successfully, keyed by (issuer SPKI, certificate hash)
+ * - Keying on the issuer's SPKI (not its DN) means a different key under the same name never hits
+ * - Keying on the hash of the whole certificate means any change to the certificate (including its signature) never hits
+ * - Failed verifications are not cached, so a bad chain can not evict the good ones by being retried
+ */
+class VerifiedSignatureCache {
+
+    private final int capacity;
+    private final LinkedHashMap<Key, Boolean> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    VerifiedSignatureCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) { // access order, for LRU
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Boolean> eldest) {
+                return size() > VerifiedSignatureCache.this.capacity;
+            }
+        };
+    }
+
+    boolean contains(byte[] issuerSPKI, byte[] certificateHash) {
+        if (capacity == 0) {
+            misses.increment();
+            return false;
+        }
+        boolean found;
+        synchronized (entries) {
+            found = entries.get(new Key(issuerSPKI, certificateHash)) != null;
+        }
+        (found ? hits : misses).increment();
+        return found;
+    }
+
+    void add(byte[] issuerSPKI, byte[] certificateHash) {
+        if (capacity == 0) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(new Key(issuerSPKI, certificateHash), Boolean.TRUE);
+        }
+    }
+
+    void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    private static class Key {
+        private final byte[] issuerSPKI;
+        private final byte[] certificateHash;
+        private final int hashCode;
+
+        Key(byte[] issuerSPKI, byte[] certificateHash) {
+            this.issuerSPKI = issuerSPKI;
+            this.certificateHash = certificateHash;
+            this.hashCode = 31 * Arrays.hashCode(issuerSPKI) + Arrays.hashCode(certificateHash);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && hashCode == other.hashCode
+                    && Arrays.equals(certificateHash, other.certificateHash) && Arrays.equals(issuerSPKI, other.issuerSPKI);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
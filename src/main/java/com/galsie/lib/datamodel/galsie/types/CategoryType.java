@@ -19,7 +19,7 @@ public class CategoryType extends SomeTypedModelObject {
     }
 
     public boolean doesExtend(CategoryType categoryType){
-        return extendsCategory.equals(categoryType);
+        return extendsCategory != null && extendsCategory.equals(categoryType);
     }
 
 }
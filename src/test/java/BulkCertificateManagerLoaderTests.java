@@ -0,0 +1,79 @@
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.certificate.EncodedCertificateManager;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
+import com.galsie.lib.certificates.keypair.KeyUtils;
+import com.galsie.lib.utils.crypto.hasher.HashingAlgorithm;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+
+public class BulkCertificateManagerLoaderTests {
+
+    @BeforeClass
+    public static void setupProviders() throws Exception {
+        for (SecurityProvider securityProvider : SecurityProvider.values()) {
+            securityProvider.registerProvider();
+        }
+    }
+
+    @Test
+    public void testBulkLoad() throws Exception {
+        var originals = new ArrayList<SomeX509v3CertificateManager>();
+        var encodedManagers = new ArrayList<EncodedCertificateManager>();
+        for (int i = 1; i <= 24; i++) {
+            var manager = TestCertificates.buildRCAC(i);
+            originals.add(manager);
+            encodedManagers.add(EncodedCertificateManager.of(manager.getPrivateKey().getEncoded(), manager.getEncodedCertificate()));
+        }
+        var executor = Executors.newFixedThreadPool(3);
+        try {
+            var managers = SomeX509v3CertificateManager.bulkLoader()
+                    .setExecutor(executor)
+                    .setParallelism(4)
+                    .setWarmUpSigners(HashingAlgorithm.SHA256)
+                    .load(encodedManagers);
+            assert managers.size() == 24;
+            for (int i = 0; i < managers.size(); i++) {
+                assert managers.get(i).getX509CertificateHolder().equals(originals.get(i).getX509CertificateHolder());
+                assert managers.get(i).getPrivateKey().equals(originals.get(i).getPrivateKey());
+                assert managers.get(i).getContentSignerPool(HashingAlgorithm.SHA256).getIdleCount() == 1;
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testBulkLoadReportsFailures() throws Exception {
+        var manager = TestCertificates.buildRCAC(1);
+        var encodedManagers = new ArrayList<EncodedCertificateManager>();
+        encodedManagers.add(EncodedCertificateManager.of(manager.getPrivateKey().getEncoded(), manager.getEncodedCertificate()));
+        encodedManagers.add(EncodedCertificateManager.of(manager.getPrivateKey().getEncoded(), new byte[]{0x30, 0x00}));
+        encodedManagers.add(EncodedCertificateManager.of(new byte[]{0x30, 0x00}, manager.getEncodedCertificate()));
+        try {
+            SomeX509v3CertificateManager.bulkLoader().load(encodedManagers);
+            assert false;
+        } catch (Exception ex) {
+            assert ex.getMessage().contains("at 1");
+            assert ex.getSuppressed().length == 1;
+        }
+    }
+
+    @Test
+    public void testKeyFactoriesAreCachedPerThread() throws Exception {
+        assert KeyUtils.getKeyFactory("EC") == KeyUtils.getKeyFactory("EC");
+        var other = new Object[1];
+        var thread = new Thread(() -> {
+            try {
+                other[0] = KeyUtils.getKeyFactory("EC");
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+        thread.start();
+        thread.join();
+        assert other[0] != null && other[0] != KeyUtils.getKeyFactory("EC");
+    }
+}
@@ -0,0 +1,100 @@
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.crl.CRLIssuer;
+import com.galsie.lib.certificates.crl.RevocationReason;
+import com.galsie.lib.certificates.crl.RevokedSerialIndex;
+import com.galsie.lib.certificates.serial.SerialNumberAllocator;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+
+public class CRLIssuerTests {
+
+    @BeforeClass
+    public static void setupProviders() throws Exception {
+        for (SecurityProvider securityProvider : SecurityProvider.values()) {
+            securityProvider.registerProvider();
+        }
+    }
+
+    @Test
+    public void testFullAndDeltaCRLs() throws Exception {
+        var rcac = TestCertificates.buildRCAC();
+        var crlIssuer = CRLIssuer.issuedBy(rcac);
+        var verifierProvider = new JcaContentVerifierProviderBuilder().setProvider("BC").build(rcac.getPublicKey());
+        var now = new Date(System.currentTimeMillis() / 1000 * 1000);
+        var nextUpdate = new Date(now.getTime() + 86_400_000L);
+
+        var empty = crlIssuer.issueCRL(now, nextUpdate).toX509CRLHolder();
+        assert empty.isSignatureValid(verifierProvider);
+        assert empty.getRevokedCertificates().isEmpty();
+
+        var revoked = new ArrayList<BigInteger>();
+        for (int i = 0; i < 100; i++) {
+            var serial = SerialNumberAllocator.getDefault().allocate();
+            revoked.add(serial);
+            assert crlIssuer.revoke(serial, now, i % 2 == 0 ? RevocationReason.CESSATION_OF_OPERATION : null);
+        }
+        assert !crlIssuer.revoke(revoked.get(0), now, null);
+        var fullCRL = crlIssuer.issueCRL(now, nextUpdate);
+        var full = fullCRL.toX509CRLHolder();
+        assert full.isSignatureValid(verifierProvider);
+        assert full.getIssuer().equals(rcac.getX509CertificateHolder().getSubject());
+        assert full.getThisUpdate().equals(now) && full.getNextUpdate().equals(nextUpdate);
+        assert ASN1Integer.getInstance(full.getExtension(Extension.cRLNumber).getParsedValue()).longValueExact() == 2;
+        assert full.getExtension(Extension.authorityKeyIdentifier) != null;
+        assert full.getRevokedCertificates().size() == 100;
+        var entry = full.getRevokedCertificate(revoked.get(0));
+        assert entry.getRevocationDate().equals(now);
+        assert CRLReason.getInstance(entry.getExtensions().getExtensionParsedValue(Extension.reasonCode)).getValue().intValue() == CRLReason.cessationOfOperation;
+        assert full.getRevokedCertificate(revoked.get(1)).getExtensions() == null;
+
+        var late = SerialNumberAllocator.getDefault().allocate();
+        crlIssuer.revoke(late, now, RevocationReason.KEY_COMPROMISE);
+        var deltaCRL = crlIssuer.issueDeltaCRL(now, nextUpdate);
+        var delta = deltaCRL.toX509CRLHolder();
+        assert deltaCRL.isDelta() && deltaCRL.getBaseCRLNumber() == fullCRL.getCrlNumber() && deltaCRL.getCrlNumber() == 3;
+        assert delta.isSignatureValid(verifierProvider);
+        assert delta.getExtension(Extension.deltaCRLIndicator).isCritical();
+        assert ASN1Integer.getInstance(delta.getExtension(Extension.deltaCRLIndicator).getParsedValue()).longValueExact() == 2;
+        assert delta.getRevokedCertificates().size() == 1 && delta.getRevokedCertificate(late) != null;
+
+        for (var serial : revoked) {
+            assert crlIssuer.isRevoked(serial);
+        }
+        assert !crlIssuer.isRevoked(SerialNumberAllocator.getDefault().allocate());
+        assert fullCRL.getPEMEncoded().startsWith("-----BEGIN X509 CRL-----\n");
+    }
+
+    @Test
+    public void testRevokedSerialIndexAcrossMerges() {
+        var index = new RevokedSerialIndex();
+        var added = new HashSet<BigInteger>();
+        var allocator = SerialNumberAllocator.secureRandom(10_000);
+        for (int i = 0; i < 5_000; i++) {
+            var serial = i % 3 == 0 ? BigInteger.valueOf(i + 1) : allocator.allocate();
+            assert index.add(serial);
+            added.add(serial);
+        }
+        // same low 64 bits, different high bits
+        var shared = BigInteger.ONE.shiftLeft(100).add(BigInteger.valueOf(1));
+        assert index.add(shared);
+        assert !index.add(BigInteger.ONE);
+        assert index.size() == added.size() + 1;
+        for (var serial : added) {
+            assert index.contains(serial);
+            var encoded = serial.toByteArray();
+            assert index.contains(encoded, 0, encoded.length);
+        }
+        assert index.contains(shared);
+        assert !index.contains(BigInteger.ONE.shiftLeft(101).add(BigInteger.valueOf(1)));
+        assert !index.contains(BigInteger.valueOf(5_002));
+    }
+}
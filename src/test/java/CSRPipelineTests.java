@@ -0,0 +1,213 @@
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.asn1.object.GalsieASN1ObjectIdentifier;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
+import com.galsie.lib.certificates.csr.CertificateSigningRequestBuilder;
+import com.galsie.lib.certificates.metrics.HistogramIssuanceMetrics;
+import com.galsie.lib.certificates.metrics.IssuanceMetrics;
+import com.galsie.lib.certificates.metrics.IssuanceStage;
+import com.galsie.lib.certificates.pipeline.CSRPipeline;
+import com.galsie.lib.certificates.pipeline.CSRPipelineResult;
+import com.galsie.lib.certificates.pipeline.CSRPipelineStage;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CSRPipelineTests {
+
+    private static SomeX509v3CertificateManager rootCA;
+    private static final AtomicLong SERIAL_NUMBERS = new AtomicLong();
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        for (SecurityProvider securityProvider : SecurityProvider.values()) {
+            securityProvider.registerProvider();
+        }
+        rootCA = TestCertificates.buildRCAC();
+    }
+
+    private static String csr(String homeId) throws Exception {
+        return CertificateSigningRequestBuilder.start().subjectDN().addRDN(GalsieASN1ObjectIdentifier.GALSIE_HOME_ID, homeId).done().build().getCsrHolder().getPEMEncoded();
+    }
+
+    /**
+     * Collects the results, completing once the pipeline completes its subscribers
+     */
+    private static class Collector implements Flow.Subscriber<CSRPipelineResult> {
+        private final List<CSRPipelineResult> results = new ArrayList<>();
+        private final CompletableFuture<List<CSRPipelineResult>> done = new CompletableFuture<>();
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(CSRPipelineResult item) {
+            results.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(results);
+        }
+    }
+
+    private static CSRPipeline.Builder pipeline() {
+        return CSRPipeline.builder(rootCA)
+                .setTemplate(builder -> builder.setValidFrom(new Date()).setSerialNumber(String.valueOf(SERIAL_NUMBERS.incrementAndGet())));
+    }
+
+    @Test
+    public void testIssuesFromPublisher() throws Exception {
+        var persisted = new ConcurrentLinkedQueue<SomeX509v3CertificateHolder>();
+        var metrics = new HistogramIssuanceMetrics();
+        IssuanceMetrics.set(metrics);
+        try (var pipeline = pipeline().setBufferCapacity(4).setSigningBatchSize(8)
+                .setParallelism(CSRPipelineStage.SIGN, 2)
+                .setPersister(result -> persisted.add(result.getCertificateHolder()))
+                .build();
+             var csrs = new SubmissionPublisher<String>()) {
+            var collector = new Collector();
+            pipeline.subscribe(collector);
+            csrs.subscribe(pipeline);
+            for (int i = 0; i < 40; i++) {
+                csrs.submit(csr(String.valueOf(i)));
+            }
+            csrs.close();
+            var results = collector.done.get(30, TimeUnit.SECONDS);
+            assert results.size() == 40 && persisted.size() == 40;
+            for (var result : results) {
+                assert result.isSuccess();
+                assert result.getCertificateHolder().getIssuer().equals(rootCA.getX509CertificateHolder().getSubject());
+                assert result.getCertificateHolder().getSubject().equals(result.getCsrHolder().getPkcs10CertificationRequest().getSubject());
+                assert SomeX509v3CertificateHolder.fromPEMEncoded(result.getPemEncodedCertificate()).equals(result.getCertificateHolder());
+            }
+
+            var statistics = pipeline.getStatistics();
+            assert statistics.size() == 5 && statistics.get(4).getStage() == CSRPipelineStage.PERSIST;
+            for (var stageStatistics : statistics) {
+                assert stageStatistics.getProcessedCount() == 40 && stageStatistics.getFailedCount() == 0;
+                assert stageStatistics.getQueueDepth() == 0 && stageStatistics.getQueueCapacity() == 4;
+            }
+            var signing = statistics.get(2);
+            assert signing.getStage() == CSRPipelineStage.SIGN && signing.getWorkerCount() == 2;
+            assert signing.getBatchCount() <= 40 && signing.getAverageBatchSize() >= 1;
+            // the batches are signed through the issuer, so each certificate is recorded like a single signing
+            assert metrics.snapshot().getLatency(IssuanceStage.SIGNING).getCount() == 80; // 40 CSRs and 40 certificates
+        } finally {
+            IssuanceMetrics.set(IssuanceMetrics.NO_OP);
+        }
+    }
+
+    @Test
+    public void testFailuresSkipTheLaterStages() throws Exception {
+        try (var pipeline = pipeline()
+                .setSubjectPolicy(csrHolder -> {
+                    if (csrHolder.getPkcs10CertificationRequest().getSubject().toString().contains("rejected")) {
+                        throw new Exception("Subject not allowed");
+                    }
+                })
+                .build()) {
+            var collector = new Collector();
+            pipeline.subscribe(collector);
+            pipeline.submit(csr("accepted"));
+            pipeline.submit(csr("rejected"));
+            pipeline.submit("-----BEGIN CERTIFICATE REQUEST-----\nAAAA\n-----END CERTIFICATE REQUEST-----\n");
+            pipeline.complete();
+            var results = collector.done.get(30, TimeUnit.SECONDS);
+            assert results.size() == 3;
+            results.sort((a, b) -> Long.compare(a.getSequenceNumber(), b.getSequenceNumber()));
+            assert results.get(0).isSuccess();
+            assert results.get(1).getFailedStage() == CSRPipelineStage.POLICY && results.get(1).getCertificateHolder() == null;
+            assert results.get(2).getFailedStage() == CSRPipelineStage.DECODE && results.get(2).getCsrHolder() == null;
+
+            var statistics = pipeline.getStatistics();
+            assert statistics.get(0).getFailedCount() == 1 && statistics.get(2).getFailedCount() == 1;
+            assert statistics.get(3).getProcessedCount() == 1; // only the accepted CSR was signed
+            try {
+                pipeline.submit(csr("late"));
+                assert false;
+            } catch (IllegalStateException ex) {
+                // completed
+            }
+        }
+    }
+
+    @Test
+    public void testTemplateFailureFailsOnlyItsCSR() throws Exception {
+        try (var pipeline = CSRPipeline.builder(rootCA).setParallelism(CSRPipelineStage.SIGN, 1)
+                .setTemplate(builder -> {
+                    throw new Exception("No validity");
+                })
+                .build()) {
+            var collector = new Collector();
+            pipeline.subscribe(collector);
+            pipeline.submit(csr("1"));
+            pipeline.complete();
+            var results = collector.done.get(30, TimeUnit.SECONDS);
+            assert results.size() == 1;
+            assert !results.get(0).isSuccess() && results.get(0).getFailedStage() == CSRPipelineStage.SIGN;
+        }
+    }
+
+    @Test
+    public void testErrorFailsItsBatchAndTheWorkerGoesOn() throws Exception {
+        var thrown = new AtomicBoolean();
+        try (var pipeline = pipeline().setParallelism(CSRPipelineStage.SIGN, 1).setSigningBatchSize(1)
+                .setTemplate(builder -> {
+                    if (thrown.compareAndSet(false, true)) {
+                        throw new LinkageError("failed mid-signature");
+                    }
+                    builder.setValidFrom(new Date()).setSerialNumber(String.valueOf(SERIAL_NUMBERS.incrementAndGet()));
+                })
+                .build()) {
+            var collector = new Collector();
+            pipeline.subscribe(collector);
+            for (int i = 0; i < 3; i++) {
+                pipeline.submit(csr(String.valueOf(i)));
+            }
+            pipeline.complete();
+            var results = collector.done.get(30, TimeUnit.SECONDS);
+            assert results.size() == 3;
+            var failed = results.stream().filter(result -> !result.isSuccess()).toList();
+            assert failed.size() == 1;
+            assert failed.get(0).getFailedStage() == CSRPipelineStage.SIGN && failed.get(0).getFailure() instanceof LinkageError;
+            assert pipeline.getStatistics().get(2).getFailedCount() == 1;
+        }
+    }
+
+    @Test
+    public void testInterruptedSubmitIsNotInFlight() throws Exception {
+        try (var pipeline = pipeline().build()) {
+            var collector = new Collector();
+            pipeline.subscribe(collector);
+            pipeline.submit(csr("1"));
+            Thread.currentThread().interrupt();
+            try {
+                pipeline.submit(csr("2"));
+                assert false;
+            } catch (InterruptedException ex) {
+                // the CSR never entered the pipeline
+            }
+            pipeline.complete();
+            var results = collector.done.get(30, TimeUnit.SECONDS);
+            assert results.size() == 1 && results.get(0).isSuccess();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.asn1.object.MatterASN1ObjectIdentifier;
+import com.galsie.lib.certificates.bundle.PKCS12BundleEntry;
+import com.galsie.lib.certificates.bundle.PKCS12BundleReader;
+import com.galsie.lib.certificates.bundle.PKCS12BundleWriter;
+import com.galsie.lib.certificates.bundle.PKCS7BundleReader;
+import com.galsie.lib.certificates.bundle.PKCS7BundleWriter;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
+import com.galsie.lib.certificates.certificate.builder.AnyManagedCertificateBuilder;
+import com.galsie.lib.certificates.keypair.algo.ECDSA;
+import com.galsie.lib.certificates.keypair.algo.EdDSA;
+import org.bouncycastle.cms.CMSSignedData;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class CertificateBundleTests {
+
+    private static final char[] PASSWORD = "fabric-backup".toCharArray();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static SomeX509v3CertificateManager rootCA;
+    private static final List<SomeX509v3CertificateManager> managers = new ArrayList<>();
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        for (SecurityProvider securityProvider : SecurityProvider.values()) {
+            securityProvider.registerProvider();
+        }
+        rootCA = TestCertificates.buildRCAC();
+        for (int i = 0; i < 12; i++) {
+            managers.add(AnyManagedCertificateBuilder.start().keypair().setGenerationAlgorithm(i % 4 == 0 ? EdDSA.ED_25519 : ECDSA.SECP_256_R1).done()
+                    .setValidFrom(new Date())
+                    .subjectDN().addRDN(MatterASN1ObjectIdentifier.MATTER_NODE_ID, String.valueOf(i + 1)).done()
+                    .setSerialNumber(String.valueOf(i + 2))
+                    .buildSignedBy(rootCA));
+        }
+    }
+
+    @Test
+    public void testPKCS7RoundTrip() throws Exception {
+        var out = new ByteArrayOutputStream();
+        try (var writer = PKCS7BundleWriter.of(out)) {
+            writer.write(rootCA.getX509CertificateHolder());
+            writer.writeManagers(managers.iterator());
+            assert writer.getCertificateCount() == 13;
+            writer.finish();
+        }
+        var bundle = out.toByteArray();
+        assert new CMSSignedData(bundle).getCertificates().getMatches(null).size() == 13;
+
+        try (var reader = PKCS7BundleReader.of(new ByteArrayInputStream(bundle))) {
+            var certificates = reader.stream().toList();
+            assert certificates.size() == 13;
+            assert certificates.get(0).equals(rootCA.getX509CertificateHolder());
+            for (int i = 0; i < managers.size(); i++) {
+                assert certificates.get(i + 1).equals(managers.get(i).getX509CertificateHolder());
+            }
+        }
+        // a DER encoded bundle, as written by other tools
+        try (var reader = PKCS7BundleReader.of(new ByteArrayInputStream(new CMSSignedData(bundle).getEncoded("DER")))) {
+            assert reader.stream().count() == 13;
+        }
+    }
+
+    @Test
+    public void testPKCS12RoundTrip() throws Exception {
+        var path = folder.getRoot().toPath().resolve("fabric.p12");
+        try (var writer = PKCS12BundleWriter.of(new BufferedOutputStream(Files.newOutputStream(path)), PASSWORD, 1000)) {
+            writer.write(rootCA.getX509CertificateHolder());
+            writer.writeManagers(managers.iterator());
+            assert writer.getEntryCount() == 13;
+            writer.finish();
+        }
+
+        List<PKCS12BundleEntry> entries;
+        try (var reader = PKCS12BundleReader.open(path, PASSWORD)) {
+            entries = reader.stream().toList();
+        }
+        assert entries.size() == 13;
+        assert !entries.get(0).hasPrivateKey() && entries.get(0).getCertificateHolder().equals(rootCA.getX509CertificateHolder());
+        for (int i = 0; i < managers.size(); i++) {
+            var manager = entries.get(i + 1).toCertificateManager();
+            assert manager.getX509CertificateHolder().equals(managers.get(i).getX509CertificateHolder());
+            assert manager.getPrivateKey().getAlgorithm().equals(managers.get(i).getPrivateKey().getAlgorithm());
+            assert java.util.Arrays.equals(manager.getPrivateKey().getEncoded(), managers.get(i).getPrivateKey().getEncoded());
+            assert entries.get(i + 1).getFriendlyName().equals(managers.get(i).getX509CertificateHolder().getSubject().toString());
+        }
+        try (var reader = PKCS12BundleReader.open(path, PASSWORD)) {
+            assert reader.managers().count() == 12;
+        }
+
+        var keyStore = KeyStore.getInstance("PKCS12", SecurityProvider.BOUNCY_CASTLE.getProvider());
+        try (var in = Files.newInputStream(path)) {
+            keyStore.load(in, PASSWORD);
+        }
+        assert keyStore.size() == 13;
+
+        // the MAC of a bundle written by the keystore, with definite lengths
+        var storedPath = folder.getRoot().toPath().resolve("keystore.p12");
+        try (var out = Files.newOutputStream(storedPath)) {
+            keyStore.store(out, PASSWORD);
+        }
+        try (var reader = PKCS12BundleReader.open(storedPath, PASSWORD)) {
+            reader.verify();
+        }
+        try (var reader = PKCS12BundleReader.open(storedPath, "wrong".toCharArray())) {
+            reader.verify();
+            assert false;
+        } catch (IOException ex) {
+            assert ex.getMessage().contains("MAC");
+        }
+    }
+
+    @Test
+    public void testPKCS12RejectsWrongPasswordAndCorruption() throws Exception {
+        var out = new ByteArrayOutputStream();
+        try (var writer = PKCS12BundleWriter.of(out, PASSWORD, 1000)) {
+            writer.writeManagers(managers.subList(0, 2).iterator());
+            writer.finish();
+        }
+        var bundle = out.toByteArray();
+        try (var reader = PKCS12BundleReader.of(() -> new ByteArrayInputStream(bundle), "wrong".toCharArray())) {
+            reader.stream().count();
+            assert false;
+        } catch (UncheckedIOException ex) {
+            assert ex.getCause().getMessage().contains("MAC");
+        }
+
+        var corrupted = bundle.clone();
+        corrupted[corrupted.length / 2] ^= 0x01;
+        try (var reader = PKCS12BundleReader.of(() -> new ByteArrayInputStream(corrupted), PASSWORD)) {
+            reader.stream().count();
+            assert false;
+        } catch (UncheckedIOException ex) {
+            // the MAC does not match, or the structure is malformed
+        }
+        try (var reader = PKCS12BundleReader.of(() -> new ByteArrayInputStream(bundle), PASSWORD)) {
+            assert reader.certificates().map(SomeX509v3CertificateHolder::getSubject).count() == 2;
+        }
+
+        // closed without being finished, eg: an export that failed half way
+        var unfinished = new ByteArrayOutputStream();
+        try (var writer = PKCS12BundleWriter.of(unfinished, PASSWORD, 1000)) {
+            writer.writeManagers(managers.subList(0, 2).iterator());
+        }
+        try (var reader = PKCS12BundleReader.of(() -> new ByteArrayInputStream(unfinished.toByteArray()), PASSWORD)) {
+            reader.stream().count();
+            assert false;
+        } catch (UncheckedIOException ex) {
+            // truncated, without a MAC
+        }
+    }
+}
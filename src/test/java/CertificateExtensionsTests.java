@@ -0,0 +1,54 @@
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.asn1.object.GalsieASN1ObjectIdentifier;
+import com.galsie.lib.certificates.asn1.object.MatterASN1ObjectIdentifier;
+import com.galsie.lib.certificates.certificate.builder.AnyManagedCertificateBuilder;
+import com.galsie.lib.certificates.certificate.builder.AnyUnmanagedCertificateBuilder;
+import com.galsie.lib.certificates.csr.CertificateSigningRequestBuilder;
+import com.galsie.lib.certificates.keypair.algo.ECDSA;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.SubjectKeyIdentifier;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+
+public class CertificateExtensionsTests {
+
+    @BeforeClass
+    public static void setupProviders() throws Exception {
+        for (SecurityProvider securityProvider : SecurityProvider.values()) {
+            securityProvider.registerProvider();
+        }
+    }
+
+    @Test
+    public void testKeyIdentifiersReachTheCertificate() throws Exception {
+        var extensionUtils = new JcaX509ExtensionUtils();
+        var rootCA = AnyManagedCertificateBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done().setValidFrom(new Date())
+                .subjectDN().addRDN(MatterASN1ObjectIdentifier.MATTER_RCAC_ID, "1").done()
+                .extensions().withSubjectKeyIdentifier().withAuthorityKeyIdentifier().done()
+                .setSerialNumber("01")
+                .buildAsSelfSigned();
+        var rootExtensions = rootCA.getX509CertificateHolder().getExtensions();
+        var rootSKI = SubjectKeyIdentifier.fromExtensions(rootExtensions);
+        assert rootSKI != null && Arrays.equals(rootSKI.getKeyIdentifier(), extensionUtils.createSubjectKeyIdentifier(rootCA.getPublicKey()).getKeyIdentifier());
+        var rootAKI = AuthorityKeyIdentifier.fromExtensions(rootExtensions);
+        assert rootAKI != null && Arrays.equals(rootAKI.getKeyIdentifier(), rootSKI.getKeyIdentifier()); // self-signed: its own key
+
+        var csrManager = CertificateSigningRequestBuilder.start().subjectDN().addRDN(GalsieASN1ObjectIdentifier.GALSIE_HOME_ID, "1").done().build();
+        var certificateHolder = AnyUnmanagedCertificateBuilder.start().forCertificateSigningRequest(csrManager.getCsrHolder(), true)
+                .setValidFrom(new Date())
+                .setSerialNumber("02")
+                .extensions().withSubjectKeyIdentifier().withAuthorityKeyIdentifier().done()
+                .buildSignedBy(rootCA);
+        var extensions = certificateHolder.getExtensions();
+        var subjectKeyIdentifier = SubjectKeyIdentifier.fromExtensions(extensions);
+        assert subjectKeyIdentifier != null && Arrays.equals(subjectKeyIdentifier.getKeyIdentifier(), extensionUtils.createSubjectKeyIdentifier(csrManager.getKeyPair().getPublic()).getKeyIdentifier());
+        var authorityKeyIdentifier = AuthorityKeyIdentifier.fromExtensions(extensions);
+        assert authorityKeyIdentifier != null && Arrays.equals(authorityKeyIdentifier.getKeyIdentifier(), rootSKI.getKeyIdentifier());
+        assert !extensions.getExtension(Extension.subjectKeyIdentifier).isCritical() && !extensions.getExtension(Extension.authorityKeyIdentifier).isCritical();
+    }
+}
@@ -0,0 +1,157 @@
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.asn1.object.GalsieASN1ObjectIdentifier;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
+import com.galsie.lib.certificates.csr.CertificateSigningRequestBuilder;
+import com.galsie.lib.certificates.exception.CertificateIssuanceRejectedException;
+import com.galsie.lib.certificates.service.CertificateIssuanceService;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CertificateIssuanceServiceTests {
+
+    private static SomeX509v3CertificateManager rootCA;
+    private static final AtomicLong SERIAL_NUMBERS = new AtomicLong();
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        for (SecurityProvider securityProvider : SecurityProvider.values()) {
+            securityProvider.registerProvider();
+        }
+        rootCA = TestCertificates.buildRCAC();
+    }
+
+    private static CertificateIssuanceRejectedException.Reason rejectionOf(CompletableFuture<?> future) throws InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof CertificateIssuanceRejectedException rejection) {
+                return rejection.getReason();
+            }
+        }
+        return null;
+    }
+
+    private static CompletableFuture<SomeX509v3CertificateHolder> issueBlocked(CertificateIssuanceService service, CountDownLatch started, CountDownLatch release) throws Exception {
+        var csrHolder = CertificateSigningRequestBuilder.start().subjectDN().addRDN(GalsieASN1ObjectIdentifier.GALSIE_HOME_ID, "1").done().build().getCsrHolder();
+        return service.issue(csrHolder, builder -> {
+            started.countDown();
+            release.await();
+            builder.setValidFrom(new Date()).setSerialNumber(String.valueOf(SERIAL_NUMBERS.incrementAndGet()));
+        });
+    }
+
+    @Test
+    public void testIssuesCSRs() throws Exception {
+        try (var service = CertificateIssuanceService.builder(rootCA).setMaxConcurrentSignings(2).build()) {
+            var futures = new ArrayList<CompletableFuture<SomeX509v3CertificateHolder>>();
+            for (int i = 0; i < 16; i++) {
+                var csrHolder = CertificateSigningRequestBuilder.start().subjectDN().addRDN(GalsieASN1ObjectIdentifier.GALSIE_HOME_ID, String.valueOf(i)).done().build().getCsrHolder();
+                futures.add(service.issue(csrHolder, builder -> builder.setValidFrom(new Date()).setSerialNumber(String.valueOf(SERIAL_NUMBERS.incrementAndGet()))));
+            }
+            for (var future : futures) {
+                assert future.get().getIssuer().equals(rootCA.getX509CertificateHolder().getSubject());
+            }
+            assert service.getIssuedCount() == 16 && service.getAdmittedCount() == 0;
+
+            var failed = service.issue(builder -> builder.setValidFrom(new Date())); // no subject key
+            try {
+                failed.get();
+                assert false;
+            } catch (ExecutionException ex) {
+                assert !(ex.getCause() instanceof CertificateIssuanceRejectedException);
+            }
+            assert service.getFailedCount() == 1;
+        }
+    }
+
+    @Test
+    public void testRefusesWhenSaturated() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        try (var service = CertificateIssuanceService.builder(rootCA).setMaxConcurrentSignings(1).setQueueCapacity(1).build()) {
+            var signing = issueBlocked(service, started, release);
+            started.await();
+            var queued = issueBlocked(service, new CountDownLatch(1), release);
+            var refused = issueBlocked(service, new CountDownLatch(1), release);
+            assert rejectionOf(refused) == CertificateIssuanceRejectedException.Reason.SATURATED;
+            assert service.getRefusedCount() == 1 && service.getAdmittedCount() == 2;
+            release.countDown();
+            assert signing.get() != null && queued.get() != null;
+        }
+    }
+
+    @Test
+    public void testShedsAfterTheMaxQueueTime() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        try (var service = CertificateIssuanceService.builder(rootCA).setMaxConcurrentSignings(1).setMaxQueueTime(Duration.ofMillis(50)).build()) {
+            var signing = issueBlocked(service, started, release);
+            started.await();
+            var shed = issueBlocked(service, new CountDownLatch(1), release);
+            assert rejectionOf(shed) == CertificateIssuanceRejectedException.Reason.QUEUE_TIMEOUT;
+            assert service.getShedCount() == 1;
+            release.countDown();
+            assert signing.get() != null;
+        }
+    }
+
+    @Test
+    public void testRefusesOnceClosed() throws Exception {
+        var service = CertificateIssuanceService.builder(rootCA).build();
+        service.close();
+        var csrHolder = CertificateSigningRequestBuilder.start().build().getCsrHolder();
+        assert rejectionOf(service.issue(csrHolder, builder -> {})) == CertificateIssuanceRejectedException.Reason.CLOSED;
+    }
+
+    @Test
+    public void testFailsOnAnError() throws Exception {
+        try (var service = CertificateIssuanceService.builder(rootCA).setMaxConcurrentSignings(1).build()) {
+            var failed = service.submit(() -> {
+                throw new LinkageError("failed mid-signature");
+            });
+            try {
+                failed.get(10, TimeUnit.SECONDS);
+                assert false;
+            } catch (ExecutionException ex) {
+                assert ex.getCause() instanceof LinkageError;
+            }
+            assert service.getFailedCount() == 1 && service.getAdmittedCount() == 0 && service.getSigningCount() == 0;
+
+            // the slot was released: the next issuance is signed
+            var csrHolder = CertificateSigningRequestBuilder.start().subjectDN().addRDN(GalsieASN1ObjectIdentifier.GALSIE_HOME_ID, "1").done().build().getCsrHolder();
+            assert service.issue(csrHolder, builder -> builder.setValidFrom(new Date()).setSerialNumber(String.valueOf(SERIAL_NUMBERS.incrementAndGet()))).get(10, TimeUnit.SECONDS) != null;
+        }
+    }
+
+    @Test
+    public void testReleasesTheSlotWhenTheSigningExecutorRefuses() throws Exception {
+        var refusedOnce = new AtomicBoolean();
+        try (var service = CertificateIssuanceService.builder(rootCA).setMaxConcurrentSignings(1).setSigningExecutor(task -> {
+            if (refusedOnce.compareAndSet(false, true)) {
+                throw new RejectedExecutionException("refused");
+            }
+            task.run();
+        }).build()) {
+            var csrHolder = CertificateSigningRequestBuilder.start().subjectDN().addRDN(GalsieASN1ObjectIdentifier.GALSIE_HOME_ID, "1").done().build().getCsrHolder();
+            var refused = service.issue(csrHolder, builder -> builder.setValidFrom(new Date()).setSerialNumber(String.valueOf(SERIAL_NUMBERS.incrementAndGet())));
+            assert rejectionOf(refused) == CertificateIssuanceRejectedException.Reason.CLOSED;
+            assert service.getAdmittedCount() == 0 && service.getFailedCount() == 0;
+
+            var signed = service.issue(csrHolder, builder -> builder.setValidFrom(new Date()).setSerialNumber(String.valueOf(SERIAL_NUMBERS.incrementAndGet())));
+            assert signed.get(10, TimeUnit.SECONDS) != null;
+            assert service.getIssuedCount() == 1;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.certificate.builder.AnyManagedCertificateBuilder;
+import com.galsie.lib.certificates.certificate.builder.AnyUnmanagedCertificateBuilder;
+import com.galsie.lib.certificates.csr.CertificateSigningRequestBuilder;
+import com.galsie.lib.certificates.keypair.algo.ECDSA;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class CertificateJFREventsTests {
+
+    @BeforeClass
+    public static void setupProviders() throws Exception {
+        for (SecurityProvider securityProvider : SecurityProvider.values()) {
+            securityProvider.registerProvider();
+        }
+    }
+
+    @Test
+    public void testEventsAreRecordedWithTheConfiguration() throws Exception {
+        Configuration configuration;
+        try (var reader = new InputStreamReader(CertificateJFREventsTests.class.getResourceAsStream("/jfr/galsie-certificates.jfc"), StandardCharsets.UTF_8)) {
+            configuration = Configuration.create(reader);
+        }
+        var file = Files.createTempFile("certificates", ".jfr");
+        try (var recording = new Recording(configuration)) {
+            recording.start();
+            var rcac = AnyManagedCertificateBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done()
+                    .setValidFrom(new Date())
+                    .setRCACIdRDN(1L)
+                    .setSerialNumber("rcac")
+                    .buildAsSelfSigned();
+            var csrHolder = CertificateSigningRequestBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done().build().getCsrHolder();
+            var noc = AnyUnmanagedCertificateBuilder.start().forCertificateSigningRequest(csrHolder, true)
+                    .setValidFrom(new Date())
+                    .buildSignedBy(rcac);
+            SomeX509v3CertificateHolder.fromPEMEncoded(noc.getPEMEncoded());
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            var names = events.stream().map((event) -> event.getEventType().getName()).collect(Collectors.toSet());
+            assert names.contains("com.galsie.certificates.KeypairGeneration");
+            assert names.contains("com.galsie.certificates.CSRVerification");
+            assert names.contains("com.galsie.certificates.CertificateTBSBuild");
+            assert names.contains("com.galsie.certificates.CertificateSigning");
+            assert names.contains("com.galsie.certificates.CertificateCodec");
+
+            var signingEvents = events.stream().filter((event) -> event.getEventType().getName().equals("com.galsie.certificates.CertificateSigning")).toList();
+            assert signingEvents.size() == 2;
+            var nocSigning = signingEvents.get(1);
+            assert nocSigning.getString("serialNumber").equals(noc.getSerialNumber().toString(16));
+            assert nocSigning.getInt("issuerSubjectHash") == rcac.getX509CertificateHolder().getSubject().hashCode();
+            assert nocSigning.getInt("size") == noc.getDEREncoded().length;
+            assert events.stream().anyMatch((event) -> event.getEventType().getName().equals("com.galsie.certificates.KeypairGeneration") && "secp256r1".equals(event.getString("parameters")));
+
+            // the codec event carries its stage's metrics timer in transient fields, they are not part of the event
+            var pemDecode = events.stream().filter((event) -> event.getEventType().getName().equals("com.galsie.certificates.CertificateCodec") && "PEM decode".equals(event.getString("operation"))).findFirst().orElseThrow();
+            assert !pemDecode.hasField("metrics") && !pemDecode.hasField("metricsStarted");
+            assert pemDecode.getInt("derSize") == noc.getDEREncoded().length;
+            assert pemDecode.getInt("pemSize") == noc.getPEMEncoded().length();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.asn1.object.MatterASN1ObjectIdentifier;
+import com.galsie.lib.certificates.certificate.builder.AnyManagedCertificateBuilder;
+import com.galsie.lib.certificates.certificate.builder.AnyUnmanagedCertificateBuilder;
+import com.galsie.lib.certificates.certificate.profile.CertificateProfile;
+import com.galsie.lib.certificates.csr.CertificateSigningRequestBuilder;
+import com.galsie.lib.certificates.csr.SomeCSRHolder;
+import com.galsie.lib.certificates.keypair.algo.ECDSA;
+import com.galsie.lib.certificates.validation.MatterChainValidator;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.x509.Extension;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CertificateProfileTests {
+
+    @BeforeClass
+    public static void setupProviders() throws Exception {
+        for (SecurityProvider securityProvider : SecurityProvider.values()) {
+            securityProvider.registerProvider();
+        }
+    }
+
+    @Test
+    public void testMatterProfilesBuildValidChains() throws Exception {
+        var rcac = TestCertificates.buildRCAC();
+        var icac = AnyManagedCertificateBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done()
+                .applyMatterConstraints()
+                .applyProfile(CertificateProfile.matterICAC())
+                .setValidFrom(new Date())
+                .setIcacIdRDN(0xCACACACA00000002L)
+                .setSerialNumber("icac")
+                .buildSignedBy(rcac);
+        var validator = MatterChainValidator.builder().addTrustedRCAC(rcac.getX509CertificateHolder()).build();
+
+        var nocIssuer = CertificateProfile.matterNOC().issuedBy(icac);
+        for (int i = 1; i <= 3; i++) {
+            var csrHolder = CertificateSigningRequestBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done().build().getCsrHolder();
+            var noc = nocIssuer.issueNOC(BigInteger.valueOf(i), new Date(), null, 0xDEDEDEDE00000000L + i, 0xFAB000000000001DL, csrHolder.getPublicKey(), 0xABCD0001);
+            assert noc.getSubjectRDNs().getNodeId() == 0xDEDEDEDE00000000L + i;
+            assert noc.getSubjectRDNs().getNOCCAT(0) == 0xABCD0001L;
+            assert noc.getExtension(Extension.subjectKeyIdentifier) != null && noc.getExtension(Extension.authorityKeyIdentifier) != null;
+            assert validator.validate(noc, icac.getX509CertificateHolder()).equals(rcac.getX509CertificateHolder());
+        }
+    }
+
+    @Test
+    public void testBatchIssuanceWithProfile() throws Exception {
+        var rcac = TestCertificates.buildRCAC();
+        var csrHolders = new ArrayList<SomeCSRHolder>();
+        for (int i = 1; i <= 8; i++) {
+            csrHolders.add(CertificateSigningRequestBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done()
+                    .subjectDN().addMatterIdRDN(MatterASN1ObjectIdentifier.MATTER_NODE_ID, i)
+                    .addMatterIdRDN(MatterASN1ObjectIdentifier.MATTER_FABRIC_ID, 0xFAB000000000001DL).done()
+                    .build().getCsrHolder());
+        }
+        var serials = new AtomicLong();
+        var results = AnyUnmanagedCertificateBuilder.batchSignedBy(rcac)
+                .setProfile(CertificateProfile.matterNOC(), new Date(), null)
+                .setSerialNumberSupplier(() -> String.valueOf(serials.incrementAndGet()).getBytes())
+                .issue(csrHolders);
+
+        var validator = MatterChainValidator.builder().addTrustedRCAC(rcac.getX509CertificateHolder()).build();
+        for (var result : results) {
+            assert result.isSuccess();
+            validator.validate(result.getCertificateHolder(), null);
+        }
+    }
+
+    @Test
+    public void testCustomProfileRejectsKeyIdentifiers() {
+        try {
+            CertificateProfile.builder("custom").addExtension(Extension.subjectKeyIdentifier, false, new DEROctetString(new byte[20]));
+            assert false;
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+}
@@ -0,0 +1,164 @@
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.asn1.object.GalsieASN1ObjectIdentifier;
+import com.galsie.lib.certificates.asn1.object.MatterASN1ObjectIdentifier;
+import com.galsie.lib.certificates.certificate.LazyCertificateView;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.certificate.profile.CertificateProfile;
+import com.galsie.lib.certificates.certificate.profile.ProfiledCertificateIssuer;
+import com.galsie.lib.certificates.dn.DistinguishedNameBuilder;
+import com.galsie.lib.certificates.keypair.KeypairBuilder;
+import com.galsie.lib.certificates.keypair.algo.ECDSA;
+import com.galsie.lib.certificates.store.CertificateStore;
+import com.galsie.lib.certificates.store.SyncPolicy;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class CertificateStoreTests {
+
+    private static final long FABRIC_ID = 0xFAB000000000001DL;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ProfiledCertificateIssuer nocIssuer;
+    private static PublicKey subjectKey;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        for (SecurityProvider securityProvider : SecurityProvider.values()) {
+            securityProvider.registerProvider();
+        }
+        var rcac = TestCertificates.buildRCAC();
+        nocIssuer = CertificateProfile.matterNOC().issuedBy(rcac);
+        subjectKey = KeypairBuilder.builder().setGenerationAlgorithm(ECDSA.SECP_256_R1).build().getPublic();
+    }
+
+    private static SomeX509v3CertificateHolder issue(int serialNumber, long nodeId, long homeId) throws Exception {
+        var subject = new DistinguishedNameBuilder(5)
+                .addMatterIdRDN(MatterASN1ObjectIdentifier.MATTER_NODE_ID, nodeId)
+                .addMatterIdRDN(MatterASN1ObjectIdentifier.MATTER_FABRIC_ID, FABRIC_ID)
+                .addRDN(GalsieASN1ObjectIdentifier.GALSIE_HOME_ID, String.valueOf(homeId))
+                .build();
+        return nocIssuer.issue(BigInteger.valueOf(serialNumber), new Date(), null, subject, subjectKey);
+    }
+
+    private static List<Integer> serialNumbersOf(List<LazyCertificateView> views) throws Exception {
+        var serialNumbers = new ArrayList<Integer>();
+        for (var view : views) {
+            serialNumbers.add(view.getSerialNumber().intValueExact());
+        }
+        return serialNumbers;
+    }
+
+    @Test
+    public void testLookupsAndReopen() throws Exception {
+        var directory = folder.getRoot().toPath().resolve("store");
+        var certificates = new ArrayList<SomeX509v3CertificateHolder>();
+        try (var store = CertificateStore.builder(directory).setSegmentSize(4096).open()) {
+            for (int i = 1; i <= 30; i++) {
+                var certificate = issue(i, 100 + i % 5, 7000 + i % 3);
+                certificates.add(certificate);
+                assert store.append(certificate) == i - 1;
+            }
+            var view = store.findBySerialNumber(BigInteger.valueOf(17));
+            assert view != null && Arrays.equals(view.toCertificateHolder().getEncoded(), certificates.get(16).getEncoded());
+            assert store.findBySerialNumber(BigInteger.valueOf(31)) == null;
+            assert serialNumbersOf(store.findByNode(FABRIC_ID, 102)).equals(List.of(27, 22, 17, 12, 7, 2));
+            assert store.findByNode(FABRIC_ID + 1, 102).isEmpty();
+            assert store.findByHomeId(7001).size() == 10;
+        }
+        assert directory.resolve("segment-000001.dat").toFile().exists(); // 30 certificates do not fit in one 4096 bytes segment
+
+        try (var store = CertificateStore.builder(directory).setSegmentSize(4096).open()) {
+            assert store.size() == 30;
+            assert serialNumbersOf(store.findByNode(FABRIC_ID, 102)).equals(List.of(27, 22, 17, 12, 7, 2));
+            assert store.get(29).getSubject().equals(certificates.get(29).getSubject());
+            store.append(issue(31, 102, 7001).getEncoded());
+            assert serialNumbersOf(store.findByNode(FABRIC_ID, 102)).get(0) == 31;
+        }
+    }
+
+    @Test
+    public void testRecoversRecordsWithLostIndexEntries() throws Exception {
+        var directory = folder.getRoot().toPath().resolve("store");
+        try (var store = CertificateStore.builder(directory).setSyncPolicy(SyncPolicy.ON_FLUSH).open()) {
+            for (int i = 1; i <= 10; i++) {
+                store.append(issue(i, 100 + i, 1));
+            }
+        }
+        // lose the checkpoint and the last 4 entries, and tear a record appended after them
+        try (var index = FileChannel.open(directory.resolve("index.dat"), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            index.write(ByteBuffer.allocate(8), 16);
+            index.write(ByteBuffer.allocate(4 * 64), 64 + 6 * 64);
+        }
+        var torn = issue(11, 111, 1).getEncoded();
+        try (var segment = FileChannel.open(directory.resolve("segment-000000.dat"), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var header = ByteBuffer.allocate(8 + torn.length / 2).putInt(torn.length).putInt(0x12345678).put(torn, 0, torn.length / 2).flip();
+            long end = 16;
+            var length = ByteBuffer.allocate(4);
+            while (segment.read(length.clear(), end) == 4 && length.flip().getInt() != 0) {
+                end += 8 + length.getInt(0);
+            }
+            segment.write(header, end);
+        }
+
+        try (var store = CertificateStore.builder(directory).open()) {
+            assert store.size() == 10;
+            for (int i = 1; i <= 10; i++) {
+                assert store.findByNode(FABRIC_ID, 100 + i).size() == 1;
+                assert store.findBySerialNumber(BigInteger.valueOf(i)) != null;
+            }
+            assert store.findBySerialNumber(BigInteger.valueOf(11)) == null;
+            store.append(issue(12, 112, 1));
+        }
+        try (var store = CertificateStore.builder(directory).open()) {
+            assert store.size() == 11 && store.findByHomeId(1).size() == 11;
+        }
+    }
+
+    @Test
+    public void testConcurrentGroupCommit() throws Exception {
+        var certificates = new ConcurrentLinkedQueue<SomeX509v3CertificateHolder>();
+        for (int i = 1; i <= 64; i++) {
+            certificates.add(issue(i, i, 2));
+        }
+        var directory = folder.getRoot().toPath().resolve("store");
+        try (var store = CertificateStore.builder(directory).open()) {
+            var threads = new ArrayList<Thread>();
+            for (int t = 0; t < 8; t++) {
+                var thread = new Thread(() -> {
+                    SomeX509v3CertificateHolder certificate;
+                    while ((certificate = certificates.poll()) != null) {
+                        try {
+                            store.append(certificate);
+                        } catch (Exception ex) {
+                            throw new RuntimeException(ex);
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (var thread : threads) {
+                thread.join();
+            }
+            assert store.size() == 64;
+        }
+        try (var store = CertificateStore.builder(directory).open()) {
+            assert store.findByHomeId(2).size() == 64;
+        }
+    }
+}
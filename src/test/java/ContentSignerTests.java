@@ -0,0 +1,105 @@
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.signer.ContentSignerCache;
+import com.galsie.lib.certificates.signer.SignatureAlgorithmResolver;
+import com.galsie.lib.utils.crypto.hasher.HashingAlgorithm;
+import org.bouncycastle.operator.ContentSigner;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+
+public class ContentSignerTests {
+
+    private static KeyPair ecKeyPair;
+
+    @BeforeClass
+    public static void setupProviders() throws Exception {
+        for (SecurityProvider securityProvider : SecurityProvider.values()) {
+            securityProvider.registerProvider();
+        }
+        var generator = KeyPairGenerator.getInstance("EC", SecurityProvider.BOUNCY_CASTLE.getProviderIdentifier());
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        ecKeyPair = generator.generateKeyPair();
+    }
+
+    private static byte[] sign(ContentSigner signer, byte[] content) throws Exception {
+        signer.getOutputStream().write(content);
+        return signer.getSignature();
+    }
+
+    @Test
+    public void testPoolReusesSigners() throws Exception {
+        var cache = new ContentSignerCache(ecKeyPair.getPrivate(), 1);
+        var pool = cache.getPool(HashingAlgorithm.SHA256, SecurityProvider.BOUNCY_CASTLE.getProviderIdentifier());
+        assert pool.getIdleCount() == 0;
+
+        var first = pool.withSigner((signer) -> {
+            sign(signer, new byte[]{1, 2, 3});
+            return signer;
+        });
+        assert pool.getIdleCount() == 1;
+        var second = pool.withSigner((signer) -> signer);
+        assert first == second; // the idle signer is handed out again, not rebuilt
+
+        // two signers in use at once: the second is built, and only one fits back into the pool
+        var nested = pool.withSigner((outer) -> pool.withSigner((inner) -> {
+            assert inner != outer;
+            return inner;
+        }));
+        assert nested != first;
+        assert pool.getIdleCount() == 1;
+    }
+
+    @Test
+    public void testFailedSignerIsDropped() throws Exception {
+        var pool = new ContentSignerCache(ecKeyPair.getPrivate(), 1).getPool(HashingAlgorithm.SHA256, SecurityProvider.BOUNCY_CASTLE.getProviderIdentifier());
+        try {
+            pool.withSigner((signer) -> {
+                throw new IllegalStateException("failed mid-signature");
+            });
+            assert false;
+        } catch (IllegalStateException ex) {
+            assert ex.getMessage().equals("failed mid-signature");
+        }
+        assert pool.getIdleCount() == 0;
+    }
+
+    @Test
+    public void testPoolsAreSplitPerProvider() throws Exception {
+        var cache = new ContentSignerCache(ecKeyPair.getPrivate());
+        var bcPool = cache.getPool(HashingAlgorithm.SHA256, SecurityProvider.BOUNCY_CASTLE.getProviderIdentifier());
+        var sunECPool = cache.getPool(HashingAlgorithm.SHA256, SecurityProvider.SUN_EC.getProviderIdentifier());
+        assert bcPool != sunECPool;
+        assert bcPool == cache.getPool(HashingAlgorithm.SHA256, SecurityProvider.BOUNCY_CASTLE.getProviderIdentifier());
+        assert sunECPool == cache.getPool(HashingAlgorithm.SHA256, SecurityProvider.SUN_EC.getProviderIdentifier());
+
+        // the bouncy castle key is converted for SunEC, both sign with the same key
+        bcPool.withSigner((signer) -> sign(signer, new byte[]{1}));
+        sunECPool.withSigner((signer) -> sign(signer, new byte[]{1}));
+        assert bcPool.getIdleCount() == 1 && sunECPool.getIdleCount() == 1;
+    }
+
+    @Test
+    public void testResolvesSignatureAlgorithms() throws Exception {
+        assert SignatureAlgorithmResolver.resolve(HashingAlgorithm.SHA256, "EC").equals("SHA256withECDSA");
+        assert SignatureAlgorithmResolver.resolve(HashingAlgorithm.SHA256, "ECDSA").equals("SHA256withECDSA");
+        assert SignatureAlgorithmResolver.resolve(HashingAlgorithm.SHA256, "RSA").equals("SHA256withRSA");
+        assert SignatureAlgorithmResolver.resolve(HashingAlgorithm.SHA256, "Ed25519").equals("Ed25519");
+        assert SignatureAlgorithmResolver.resolve(HashingAlgorithm.SHA256, "Ed448").equals("Ed448");
+        assert SignatureAlgorithmResolver.resolve(HashingAlgorithm.SHA256, ecKeyPair.getPrivate()).equals("SHA256withECDSA");
+
+        // SunEC names its Edwards keys 'EdDSA', the curve decides the name
+        var sunEdDSA = KeyPairGenerator.getInstance("Ed25519", SecurityProvider.SUN_EC.getProviderIdentifier()).generateKeyPair();
+        assert sunEdDSA.getPrivate().getAlgorithm().equals("EdDSA");
+        assert SignatureAlgorithmResolver.resolve(HashingAlgorithm.SHA256, sunEdDSA.getPrivate()).equals("Ed25519");
+
+        try {
+            SignatureAlgorithmResolver.resolve(HashingAlgorithm.SHA256, "X25519");
+            assert false;
+        } catch (IllegalArgumentException ex) {
+            assert ex.getMessage().contains("X25519");
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import com.galsie.lib.certificates.CryptoOperation;
+import com.galsie.lib.certificates.ProviderSelection;
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.asn1.object.GalsieASN1ObjectIdentifier;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
+import com.galsie.lib.certificates.certificate.builder.AnyManagedCertificateBuilder;
+import com.galsie.lib.certificates.certificate.builder.AnyUnmanagedCertificateBuilder;
+import com.galsie.lib.certificates.csr.CertificateSigningRequestBuilder;
+import com.galsie.lib.certificates.csr.SomeCSRHolder;
+import com.galsie.lib.certificates.keypair.algo.EdDSA;
+import com.galsie.lib.certificates.keypair.algo.XDH;
+import com.galsie.lib.utils.crypto.hasher.HashingAlgorithm;
+import org.bouncycastle.asn1.edec.EdECObjectIdentifiers;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Date;
+
+public class EdDSACertificateTests {
+
+    @BeforeClass
+    public static void setupProviders() throws Exception {
+        for (SecurityProvider securityProvider : SecurityProvider.values()) {
+            securityProvider.registerProvider();
+        }
+    }
+
+    @After
+    public void resetSelection() {
+        ProviderSelection.set(ProviderSelection.DEFAULT);
+    }
+
+    private static boolean isSignedBy(SomeX509v3CertificateHolder certificate, SomeX509v3CertificateManager issuer) throws Exception {
+        return certificate.isSignatureValid(new JcaContentVerifierProviderBuilder().build(issuer.getPublicKey()));
+    }
+
+    @Test
+    public void testIssuesThroughCSR() throws Exception {
+        for (var edDSA : new EdDSA[]{EdDSA.ED_25519, EdDSA.ED_448}) {
+            var serviceCA = TestCertificates.buildCA(edDSA);
+            var signatureAlgorithm = serviceCA.getX509CertificateHolder().getSignatureAlgorithm().getAlgorithm();
+            assert signatureAlgorithm.equals(edDSA == EdDSA.ED_25519 ? EdECObjectIdentifiers.id_Ed25519 : EdECObjectIdentifiers.id_Ed448);
+            assert isSignedBy(serviceCA.getX509CertificateHolder(), serviceCA);
+            // pure EdDSA: no hashing algorithm in the name
+            assert serviceCA.getContentSignerPool(HashingAlgorithm.SHA256).getSignatureAlgorithm().equals(edDSA.getAlgorithmIdentifier());
+
+            var csr = CertificateSigningRequestBuilder.start().keypair().setGenerationAlgorithm(edDSA).done()
+                    .subjectDN().addRDN(GalsieASN1ObjectIdentifier.GALSIE_HOME_ID, "service").done().build();
+            var csrHolder = SomeCSRHolder.fromPEMEncoded(csr.getPEMEncoded());
+            assert csrHolder.isSignatureValid();
+
+            var certificate = AnyUnmanagedCertificateBuilder.start().forCertificateSigningRequest(csrHolder, true)
+                    .setValidFrom(new Date()).setSerialNumber("02").buildSignedBy(serviceCA);
+            var decoded = SomeX509v3CertificateHolder.fromPEMEncoded(certificate.getPEMEncoded());
+            assert decoded.equals(certificate) && isSignedBy(decoded, serviceCA);
+
+            var loaded = SomeX509v3CertificateManager.fromPrivateKeyAndDERData(serviceCA.getPrivateKey().getEncoded(), serviceCA.getEncodedCertificate());
+            assert loaded.getPrivateKey().equals(serviceCA.getPrivateKey());
+            var reissued = AnyUnmanagedCertificateBuilder.start().forCertificateSigningRequest(csrHolder, true)
+                    .setValidFrom(new Date()).setSerialNumber("03").buildSignedBy(loaded);
+            assert isSignedBy(reissued, serviceCA);
+        }
+    }
+
+    @Test
+    public void testSunEC() throws Exception {
+        ProviderSelection.set(ProviderSelection.of(SecurityProvider.SUN_EC));
+        var serviceCA = TestCertificates.buildCA(EdDSA.ED_25519);
+        assert serviceCA.getPublicKey().getAlgorithm().equals("EdDSA");
+        assert isSignedBy(serviceCA.getX509CertificateHolder(), serviceCA);
+
+        // a bouncy castle key signed by SunEC
+        ProviderSelection.set(ProviderSelection.DEFAULT.with(CryptoOperation.SIGNING, SecurityProvider.SUN_EC));
+        serviceCA = TestCertificates.buildCA(EdDSA.ED_25519);
+        assert serviceCA.getPublicKey().getAlgorithm().equals("Ed25519");
+        assert isSignedBy(serviceCA.getX509CertificateHolder(), serviceCA);
+    }
+
+    @Test
+    public void testX25519SubjectKey() throws Exception {
+        var serviceCA = TestCertificates.buildCA(EdDSA.ED_25519);
+        var certificate = AnyManagedCertificateBuilder.start().keypair().setGenerationAlgorithm(XDH.X_25519).done()
+                .setValidFrom(new Date())
+                .subjectDN().addRDN(GalsieASN1ObjectIdentifier.GALSIE_HOME_ID, "key-agreement").done()
+                .setSerialNumber("04")
+                .buildSignedBy(serviceCA);
+        assert certificate.getPublicKey().getAlgorithm().equals("X25519");
+        assert isSignedBy(certificate.getX509CertificateHolder(), serviceCA);
+        try {
+            certificate.getContentSignerPool(HashingAlgorithm.SHA256);
+            assert false;
+        } catch (IllegalArgumentException ex) {
+            assert ex.getMessage().contains("can not sign");
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.asn1.object.GalsieASN1ObjectIdentifier;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
+import com.galsie.lib.certificates.csr.CertificateSigningRequestBuilder;
+import com.galsie.lib.certificates.keypair.EntropySource;
+import com.galsie.lib.certificates.keypair.KeypairBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Date;
+
+public class EntropySourceTests {
+
+    private static final Date VALID_FROM = new Date(1700000000000L);
+
+    @BeforeClass
+    public static void setupProviders() throws Exception {
+        for (SecurityProvider securityProvider : SecurityProvider.values()) {
+            securityProvider.registerProvider();
+        }
+    }
+
+    private static SomeX509v3CertificateManager buildRCAC(EntropySource entropySource) throws Exception {
+        return TestCertificates.rcacBuilder(1L).keypair().setEntropySource(entropySource).done()
+                .setValidFrom(VALID_FROM)
+                .setSerialNumber("01")
+                .buildAsSelfSigned();
+    }
+
+    @Test
+    public void testSeededIsReproducible() throws Exception {
+        var first = KeypairBuilder.builder().setEntropySource(EntropySource.seeded(42)).build();
+        var second = KeypairBuilder.builder().setEntropySource(EntropySource.seeded(42)).build();
+        var other = KeypairBuilder.builder().setEntropySource(EntropySource.seeded(43)).build();
+        assert Arrays.equals(first.getPrivate().getEncoded(), second.getPrivate().getEncoded());
+        assert !Arrays.equals(first.getPrivate().getEncoded(), other.getPrivate().getEncoded());
+
+        // the keypair and the signature both come from the source
+        assert Arrays.equals(buildRCAC(EntropySource.seeded(7)).getEncodedCertificate(), buildRCAC(EntropySource.seeded(7)).getEncodedCertificate());
+        var firstCSR = CertificateSigningRequestBuilder.start().keypair().setEntropySource(EntropySource.seeded(7)).done()
+                .subjectDN().addRDN(GalsieASN1ObjectIdentifier.GALSIE_HOME_ID, "1").done().build();
+        var secondCSR = CertificateSigningRequestBuilder.start().keypair().setEntropySource(EntropySource.seeded(7)).done()
+                .subjectDN().addRDN(GalsieASN1ObjectIdentifier.GALSIE_HOME_ID, "1").done().build();
+        assert firstCSR.getPEMEncoded().equals(secondCSR.getPEMEncoded());
+    }
+
+    @Test
+    public void testThreadLocalDRBG() throws Exception {
+        var entropySource = EntropySource.threadLocalDRBG(2);
+        var secureRandom = entropySource.getSecureRandom();
+        assert secureRandom.getAlgorithm().equals("DRBG");
+        assert entropySource.getSecureRandom() == secureRandom; // reseeded, not replaced
+        var other = new SecureRandom[1];
+        var thread = new Thread(() -> other[0] = entropySource.getSecureRandom());
+        thread.start();
+        thread.join();
+        assert other[0] != null && other[0] != secureRandom;
+
+        var predictionResistant = EntropySource.threadLocalDRBG(1);
+        var manager = buildRCAC(predictionResistant);
+        assert manager.getX509CertificateHolder().isSignatureValid(new JcaContentVerifierProviderBuilder().build(manager.getPublicKey()));
+    }
+
+    @Test
+    public void testAsSecureRandomDelegatesToTheSource() throws Exception {
+        var seeded = EntropySource.seeded(1);
+        var view = EntropySource.seeded(1).asSecureRandom();
+        var expected = new byte[32];
+        var actual = new byte[32];
+        seeded.getSecureRandom().nextBytes(expected);
+        view.nextBytes(actual);
+        assert Arrays.equals(expected, actual);
+    }
+}
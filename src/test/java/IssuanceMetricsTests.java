@@ -0,0 +1,84 @@
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.certificate.builder.AnyManagedCertificateBuilder;
+import com.galsie.lib.certificates.certificate.builder.AnyUnmanagedCertificateBuilder;
+import com.galsie.lib.certificates.csr.CertificateSigningRequestBuilder;
+import com.galsie.lib.certificates.keypair.algo.ECDSA;
+import com.galsie.lib.certificates.metrics.HistogramIssuanceMetrics;
+import com.galsie.lib.certificates.metrics.IssuanceMetrics;
+import com.galsie.lib.certificates.metrics.IssuanceStage;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Date;
+
+public class IssuanceMetricsTests {
+
+    @BeforeClass
+    public static void setupProviders() throws Exception {
+        for (SecurityProvider securityProvider : SecurityProvider.values()) {
+            securityProvider.registerProvider();
+        }
+    }
+
+    @After
+    public void uninstallMetrics() {
+        IssuanceMetrics.set(IssuanceMetrics.NO_OP);
+    }
+
+    @Test
+    public void testStagesAreRecorded() throws Exception {
+        var metrics = new HistogramIssuanceMetrics();
+        IssuanceMetrics.set(metrics);
+
+        var rcac = AnyManagedCertificateBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done()
+                .setValidFrom(new Date())
+                .setRCACIdRDN(1L)
+                .buildAsSelfSigned();
+        var csrHolder = CertificateSigningRequestBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done().build().getCsrHolder();
+        var noc = AnyUnmanagedCertificateBuilder.start().forCertificateSigningRequest(csrHolder, true)
+                .setValidFrom(new Date())
+                .buildSignedBy(rcac);
+        SomeX509v3CertificateHolder.fromPEMEncoded(noc.getPEMEncoded());
+        try {
+            SomeX509v3CertificateHolder.fromDERData(new byte[]{0x30, 0x03, 0x02, 0x01});
+            assert false;
+        } catch (IOException | RuntimeException ignored) {
+        }
+
+        var snapshot = metrics.snapshot();
+        assert snapshot.getLatency(IssuanceStage.KEYPAIR_GENERATION).getCount() == 2;
+        assert snapshot.getLatency(IssuanceStage.CERTIFICATE_BUILD).getCount() == 2;
+        assert snapshot.getLatency(IssuanceStage.CSR_BUILD).getCount() == 1;
+        assert snapshot.getLatency(IssuanceStage.SIGNING).getCount() == 3; // 2 certificates and a CSR
+        assert snapshot.getLatency(IssuanceStage.DN_BUILD).getCount() == 3;
+        assert snapshot.getLatency(IssuanceStage.EXTENSION_ENCODING).getCount() == 2;
+        assert snapshot.getLatency(IssuanceStage.PEM_ENCODE).getCount() == 1;
+        assert snapshot.getLatency(IssuanceStage.PEM_DECODE).getCount() == 1;
+        assert snapshot.getErrorCount(IssuanceStage.DER_DECODE) == 1;
+
+        var certificateBuild = snapshot.getLatency(IssuanceStage.CERTIFICATE_BUILD);
+        assert certificateBuild.getPercentileNanos(50) > 0 && certificateBuild.getPercentileNanos(100) == certificateBuild.getMaxNanos();
+
+        metrics.reset();
+        assert metrics.snapshot().getLatency(IssuanceStage.CERTIFICATE_BUILD).getCount() == 0;
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        var metrics = new HistogramIssuanceMetrics(1);
+        for (long nanos = 1; nanos <= 1000; nanos++) {
+            metrics.recordLatency(IssuanceStage.SIGNING, nanos * 1000);
+        }
+        var latency = metrics.snapshot().getLatency(IssuanceStage.SIGNING);
+        assert latency.getCount() == 1000;
+        assert latency.getMaxNanos() == 1_000_000;
+        assert Math.abs(latency.getMeanNanos() - 500_500) < 1;
+        // Buckets are at most 12.5% wide
+        long p50 = latency.getPercentileNanos(50), p99 = latency.getPercentileNanos(99);
+        assert p50 >= 500_000 && p50 <= 500_000 * 1.125;
+        assert p99 >= 990_000 && p99 <= 1_000_000;
+    }
+}
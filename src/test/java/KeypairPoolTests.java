@@ -0,0 +1,41 @@
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.keypair.KeypairBuilder;
+import com.galsie.lib.certificates.keypair.KeypairPool;
+import com.galsie.lib.certificates.keypair.algo.ECDSA;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class KeypairPoolTests {
+
+    @BeforeClass
+    public static void setupProviders() throws Exception {
+        for (SecurityProvider securityProvider: SecurityProvider.values()){
+            securityProvider.registerProvider();
+        }
+    }
+
+    @Test
+    public void testBuilderTakesFromPool() throws Exception {
+        var pool = KeypairPool.start(ECDSA.SECP_256_R1, 2, 8, 2);
+        try {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (pool.getStatistics().getRefills() < 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(8, pool.getPooledCount());
+            var first = KeypairBuilder.builder().setGenerationAlgorithm(ECDSA.SECP_256_R1).build();
+            var second = KeypairBuilder.builder().setGenerationAlgorithm(ECDSA.SECP_256_R1).build();
+            assertNotEquals(first.getPublic(), second.getPublic());
+
+            var statistics = pool.getStatistics();
+            assertEquals(2, statistics.getHits());
+            assertEquals(0, statistics.getMisses());
+            assertEquals(1, statistics.getRefills());
+        } finally {
+            pool.stop();
+        }
+        assertTrue(KeypairPool.forAlgorithm(ECDSA.SECP_256_R1).isEmpty());
+    }
+}
@@ -0,0 +1,84 @@
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.asn1.object.MatterASN1ObjectIdentifier;
+import com.galsie.lib.certificates.certificate.LazyCertificateView;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.certificate.builder.AnyManagedCertificateBuilder;
+import com.galsie.lib.certificates.keypair.algo.ECDSA;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+
+public class LazyCertificateViewTests {
+
+    private static SomeX509v3CertificateHolder certificate;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        for (SecurityProvider securityProvider : SecurityProvider.values()) {
+            securityProvider.registerProvider();
+        }
+        var builder = AnyManagedCertificateBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done()
+                .applyMatterConstraints()
+                .setValidFrom(new Date(System.currentTimeMillis() - 60_000))
+                .setValidTo(new Date(System.currentTimeMillis() + 3_600_000))
+                .setRCACIdRDN(0xCACACACA00000001L)
+                .setSerialNumber("view-serial");
+        builder.extensions().setAsCertificateAuthority().setKeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign).withSubjectKeyIdentifier(false).done();
+        certificate = builder.buildAsSelfSigned().getX509CertificateHolder();
+    }
+
+    @Test
+    public void testFieldsMatchTheParsedCertificate() throws Exception {
+        var der = certificate.getDEREncoded();
+        // The view is made over a slice in the middle of a larger buffer, as it would be in a store
+        var store = ByteBuffer.allocate(der.length + 32);
+        store.position(16);
+        store.put(der);
+        store.position(16).limit(16 + der.length);
+        var view = LazyCertificateView.of(store);
+
+        assert view.getEncodedLength() == der.length;
+        assert view.getSerialNumber().equals(certificate.getSerialNumber());
+        assert view.serialNumberEquals(certificate.getSerialNumber());
+        assert !view.serialNumberEquals(certificate.getSerialNumber().add(BigInteger.ONE));
+        assert view.getSubject().equals(certificate.getSubject());
+        assert view.getIssuer().equals(certificate.getIssuer());
+        assert view.subjectEquals(certificate.getSubject().getEncoded());
+        assert view.issuerEquals(certificate.getIssuer().getEncoded());
+        assert view.getNotBefore().equals(certificate.getNotBefore());
+        assert view.getNotAfter().equals(certificate.getNotAfter());
+        assert view.isValidOn(new Date());
+        assert view.getPublicKey().equals(certificate.getPublicKey());
+        assert view.getSubjectPublicKeyInfo().equals(certificate.getSubjectPublicKeyInfo());
+
+        var keyUsage = view.getExtensionValue(Extension.keyUsage);
+        assert keyUsage != null && keyUsage.equals(ByteBuffer.wrap(certificate.getExtension(Extension.keyUsage).getExtnValue().getOctets()));
+        assert view.getExtensionValue(Extension.subjectKeyIdentifier) != null;
+        assert view.getExtensionValue(Extension.extendedKeyUsage) == null;
+
+        assert view.toCertificateHolder().equals(certificate);
+        var out = new ByteArrayOutputStream();
+        view.writeDER(out);
+        assert Arrays.equals(out.toByteArray(), der);
+        assert store.position() == 16;
+    }
+
+    @Test
+    public void testMalformedCertificateFailsOnFirstRead() throws Exception {
+        var der = certificate.getDEREncoded();
+        var view = LazyCertificateView.of(Arrays.copyOf(der, der.length / 2)); // nothing is read yet
+        try {
+            view.getSerialNumber();
+            assert false;
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,109 @@
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.asn1.object.MatterASN1ObjectIdentifier;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
+import com.galsie.lib.certificates.certificate.builder.AnyManagedCertificateBuilder;
+import com.galsie.lib.certificates.exception.MatterChainValidationException;
+import com.galsie.lib.certificates.keypair.algo.ECDSA;
+import com.galsie.lib.certificates.validation.MatterChainValidator;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.List;
+
+public class MatterChainValidatorTests {
+
+    private static final long FABRIC_ID = 0xFAB000000000001DL;
+
+    @BeforeClass
+    public static void setupProviders() throws Exception {
+        for (SecurityProvider securityProvider : SecurityProvider.values()) {
+            securityProvider.registerProvider();
+        }
+    }
+
+    private static SomeX509v3CertificateManager buildICAC(SomeX509v3CertificateManager rcac) throws Exception {
+        var builder = AnyManagedCertificateBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done()
+                .applyMatterConstraints()
+                .setValidFrom(new Date())
+                .setIcacIdRDN(0xCACACACA00000003L)
+                .setFabricIdRDN(FABRIC_ID)
+                .setSerialNumber("icac-serial");
+        builder.extensions().setAsCertificateAuthority().setKeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign)
+                .withSubjectKeyIdentifier(false).withAuthorityKeyIdentifier(false).done();
+        return builder.buildSignedBy(rcac);
+    }
+
+    private static SomeX509v3CertificateManager buildNOC(SomeX509v3CertificateManager issuer, long fabricId) throws Exception {
+        var builder = AnyManagedCertificateBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done()
+                .applyMatterConstraints()
+                .setValidFrom(new Date())
+                .setFabricIdRDN(fabricId)
+                .subjectDN().addRDN(MatterASN1ObjectIdentifier.MATTER_NODE_ID, "DEDEDEDE00010001").done()
+                .setSerialNumber("noc-serial");
+        builder.extensions()
+                .addExtension(Extension.basicConstraints, true, new BasicConstraints(false))
+                .setKeyUsage(KeyUsage.digitalSignature)
+                .addExtension(Extension.extendedKeyUsage, true, new ExtendedKeyUsage(new KeyPurposeId[]{KeyPurposeId.id_kp_clientAuth, KeyPurposeId.id_kp_serverAuth}))
+                .withSubjectKeyIdentifier(false).withAuthorityKeyIdentifier(false)
+                .done();
+        return builder.buildSignedBy(issuer);
+    }
+
+    private static MatterChainValidationException.Reason validationFailure(MatterChainValidator validator, List<SomeX509v3CertificateHolder> chain) {
+        try {
+            validator.validate(chain);
+        } catch (MatterChainValidationException ex) {
+            return ex.getReason();
+        }
+        throw new AssertionError("The chain was expected to be rejected");
+    }
+
+    @Test
+    public void testValidChainIsAcceptedAndCached() throws Exception {
+        var rcac = TestCertificates.buildRCAC(0xCACACACA00000001L);
+        var icac = buildICAC(rcac);
+        var noc = buildNOC(icac, FABRIC_ID);
+        var validator = MatterChainValidator.builder().addTrustedRCAC(rcac.getX509CertificateHolder()).build();
+
+        var trustedRoot = validator.validate(noc.getX509CertificateHolder(), icac.getX509CertificateHolder());
+        assert trustedRoot.equals(rcac.getX509CertificateHolder());
+        assert validator.getCacheHits() == 0;
+
+        // Same chain again, both signatures come from the cache
+        validator.validate(noc.getX509CertificateHolder(), icac.getX509CertificateHolder());
+        assert validator.getCacheHits() == 2;
+
+        // NOC signed directly by the RCAC
+        var rootSignedNOC = buildNOC(rcac, FABRIC_ID);
+        assert validator.validate(rootSignedNOC.getX509CertificateHolder(), null).equals(rcac.getX509CertificateHolder());
+    }
+
+    @Test
+    public void testInvalidChainsAreRejected() throws Exception {
+        var rcac = TestCertificates.buildRCAC(0xCACACACA00000001L);
+        var otherRCAC = TestCertificates.buildRCAC(0xCACACACA00000002L);
+        var icac = buildICAC(rcac);
+        var validator = MatterChainValidator.builder().addTrustedRCAC(rcac.getX509CertificateHolder()).build();
+
+        var otherFabricNOC = buildNOC(icac, FABRIC_ID + 1);
+        assert validationFailure(validator, List.of(otherFabricNOC.getX509CertificateHolder(), icac.getX509CertificateHolder()))
+                == MatterChainValidationException.Reason.FABRIC_ID_MISMATCH;
+
+        var untrustedNOC = buildNOC(otherRCAC, FABRIC_ID);
+        assert validationFailure(validator, List.of(untrustedNOC.getX509CertificateHolder()))
+                == MatterChainValidationException.Reason.UNTRUSTED_ROOT;
+
+        // A NOC handed in as its own issuer is neither a CA nor the issuer
+        var noc = buildNOC(icac, FABRIC_ID);
+        assert validationFailure(validator, List.of(noc.getX509CertificateHolder(), noc.getX509CertificateHolder())) != null;
+
+        assert validationFailure(validator, List.of()) == MatterChainValidationException.Reason.INVALID_CHAIN_LENGTH;
+    }
+}
@@ -0,0 +1,199 @@
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.asn1.object.GalsieASN1ObjectIdentifier;
+import com.galsie.lib.certificates.asn1.object.MatterASN1ObjectIdentifier;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
+import com.galsie.lib.certificates.certificate.builder.AnyManagedCertificateBuilder;
+import com.galsie.lib.certificates.exception.MatterTLVCodecException;
+import com.galsie.lib.certificates.keypair.algo.ECDSA;
+import com.galsie.lib.certificates.tlv.MatterCertificateTLVCodec;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1GeneralizedTime;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1UTCTime;
+import org.bouncycastle.asn1.DERBitString;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.DERUTF8String;
+import org.bouncycastle.asn1.sec.SECObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500NameBuilder;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.asn1.x509.SubjectKeyIdentifier;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.asn1.x509.Time;
+import org.bouncycastle.asn1.x509.V3TBSCertificateGenerator;
+import org.bouncycastle.asn1.x9.X9ObjectIdentifiers;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+
+public class MatterTLVCodecTests {
+
+    @BeforeClass
+    public static void setupProviders() throws Exception {
+        for (SecurityProvider securityProvider : SecurityProvider.values()) {
+            securityProvider.registerProvider();
+        }
+    }
+
+    private static void assertSignedBy(SomeX509v3CertificateHolder certificateHolder, SomeX509v3CertificateManager issuer) throws Exception {
+        assert certificateHolder.isSignatureValid(new JcaContentVerifierProviderBuilder().setProvider(SecurityProvider.BOUNCY_CASTLE.getProviderIdentifier()).build(issuer.getPublicKey()));
+    }
+
+    /**
+     * The P-256 base point, a valid public key that every reader can check
+     */
+    private static final byte[] P256_GENERATOR = Hex.decode("04"
+            + "6B17D1F2E12C4247F8BCE6E563A440F277037D812DEB33A0F4A13945D898C296"
+            + "4FE342E2FE1A7F9B8EE7EB4A7C0F9E162BCE33576B315ECECBB6406837BF51F5");
+    private static final byte[] KEY_IDENTIFIER = Hex.decode("A0A1A2A3A4A5A6A7A8A9AAABACADAEAFB0B1B2B3");
+    /**
+     * r has a leading zero octet that DER drops, s has its high bit set so DER prepends a zero octet: both are 32 octets in TLV
+     */
+    private static final byte[] SIGNATURE_R = Hex.decode("0011111111111111111111111111111111111111111111111111111111111111");
+    private static final byte[] SIGNATURE_S = Hex.decode("8022222222222222222222222222222222222222222222222222222222222222");
+
+    /**
+     * An RCAC with fixed fields, in DER
+     * - rcac-id CACACACA00000001, not before 2020-10-15 14:23:43 UTC, no well defined expiration (99991231235959Z)
+     * - The signature is not valid, the codec only moves its r and s
+     */
+    private static byte[] buildVectorRCAC() throws Exception {
+        var name = new X500NameBuilder().addRDN(new ASN1ObjectIdentifier(MatterASN1ObjectIdentifier.MATTER_RCAC_ID.getASN1OID()), new DERUTF8String("CACACACA00000001")).build();
+        var signatureAlgorithm = new AlgorithmIdentifier(X9ObjectIdentifiers.ecdsa_with_SHA256);
+        var tbs = new V3TBSCertificateGenerator();
+        tbs.setSerialNumber(new ASN1Integer(new BigInteger("0102030405060708", 16)));
+        tbs.setSignature(signatureAlgorithm);
+        tbs.setIssuer(name);
+        tbs.setStartDate(new Time(new ASN1UTCTime("201015142343Z")));
+        tbs.setEndDate(new Time(new ASN1GeneralizedTime("99991231235959Z")));
+        tbs.setSubject(name);
+        tbs.setSubjectPublicKeyInfo(new SubjectPublicKeyInfo(new AlgorithmIdentifier(X9ObjectIdentifiers.id_ecPublicKey, SECObjectIdentifiers.secp256r1), P256_GENERATOR));
+        tbs.setExtensions(new Extensions(new Extension[]{
+                new Extension(Extension.basicConstraints, true, new BasicConstraints(true).getEncoded()),
+                new Extension(Extension.keyUsage, true, new KeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign).getEncoded()),
+                new Extension(Extension.subjectKeyIdentifier, false, new SubjectKeyIdentifier(KEY_IDENTIFIER).getEncoded()),
+                new Extension(Extension.authorityKeyIdentifier, false, new AuthorityKeyIdentifier(KEY_IDENTIFIER).getEncoded())
+        }));
+        var signature = new DERSequence(new ASN1Integer[]{new ASN1Integer(new BigInteger(1, SIGNATURE_R)), new ASN1Integer(new BigInteger(1, SIGNATURE_S))});
+        return new DERSequence(new ASN1Encodable[]{tbs.generateTBSCertificate(), signatureAlgorithm, new DERBitString(signature.getEncoded())}).getEncoded();
+    }
+
+    /**
+     * The expected TLV of {@link MatterTLVCodecTests#buildVectorRCAC()}, assembled by hand from the Matter certificate TLV schema (Matter Core, 6.5.2)
+     * - Control octets: 0x15 anonymous structure, 0x37 list, 0x35 structure, 0x24/0x26/0x27 unsigned 8/32/64 bits, 0x29 true, 0x30 octet string, 0x18 end of container
+     */
+    private static final byte[] VECTOR_RCAC_TLV = Hex.decode(
+            "15"
+            + "3001080102030405060708"          // serial-num [1]
+            + "240201"                          // sig-algo [2]: ecdsa-with-sha256
+            + "3703" + "271401000000CACACACA" + "18" // issuer [3]: rcac-id [20], little-endian
+            + "2604EF171B27"                    // not-before [4]: 656087023 seconds since 2000-01-01
+            + "240500"                          // not-after [5]: 0, no well defined expiration
+            + "3706" + "271401000000CACACACA" + "18" // subject [6]
+            + "240701"                          // pub-key-algo [7]: ec-pub-key
+            + "240801"                          // ec-curve-id [8]: prime256v1
+            + "300941" + Hex.toHexString(P256_GENERATOR) // ec-pub-key [9]
+            + "370A"                            // extensions [10]
+            + "3501" + "290118"                 //   basic-cnstr [1]: is-ca true
+            + "240260"                          //   key-usage [2]: keyCertSign (0x20) | cRLSign (0x40)
+            + "300414" + Hex.toHexString(KEY_IDENTIFIER) //   subject-key-id [4]
+            + "300514" + Hex.toHexString(KEY_IDENTIFIER) //   authority-key-id [5]
+            + "18"
+            + "300B40" + Hex.toHexString(SIGNATURE_R) + Hex.toHexString(SIGNATURE_S) // signature [11]: r || s
+            + "18");
+
+    @Test
+    public void testEncodesVectorByteForByte() throws Exception {
+        var der = buildVectorRCAC();
+        var tlv = ByteBuffer.allocate(der.length);
+        var tlvLength = MatterCertificateTLVCodec.encode(ByteBuffer.wrap(der), tlv);
+        assert Arrays.equals(Arrays.copyOf(tlv.array(), tlvLength), VECTOR_RCAC_TLV);
+
+        var derOut = ByteBuffer.allocate(2 * der.length);
+        var derLength = MatterCertificateTLVCodec.decode(ByteBuffer.wrap(VECTOR_RCAC_TLV), derOut);
+        assert Arrays.equals(Arrays.copyOf(derOut.array(), derLength), der);
+    }
+
+    @Test
+    public void testOutputBufferTooSmall() throws Exception {
+        var der = buildVectorRCAC();
+        // the public key header ends at 59, its 65 octets are the first string that does not fit
+        var tlv = ByteBuffer.allocate(80);
+        try {
+            MatterCertificateTLVCodec.encode(ByteBuffer.wrap(der), tlv);
+            assert false;
+        } catch (MatterTLVCodecException ex) {
+            assert ex.getCause() instanceof BufferOverflowException;
+        }
+    }
+
+    @Test
+    public void testRCACRoundTrip() throws Exception {
+        var rcac = TestCertificates.buildRCAC();
+        var der = rcac.getEncodedCertificate();
+        var tlv = rcac.getX509CertificateHolder().getMatterTLVEncoded();
+        assert tlv.length < der.length;
+
+        var decoded = SomeX509v3CertificateHolder.fromMatterTLV(ByteBuffer.wrap(tlv));
+        assert Arrays.equals(decoded.getEncoded(), der);
+        assertSignedBy(decoded, rcac);
+    }
+
+    @Test
+    public void testNOCRoundTripWithFutureExtension() throws Exception {
+        var rcac = TestCertificates.buildRCAC();
+        var builder = AnyManagedCertificateBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done()
+                .applyMatterConstraints()
+                .setValidFrom(new Date())
+                .setValidTo(null)
+                .setFabricIdRDN(0xFAB000000000001DL)
+                .subjectDN().addRDN(MatterASN1ObjectIdentifier.MATTER_NODE_ID, "DEDEDEDE00010001").done()
+                .setSerialNumber("noc-serial");
+        builder.extensions()
+                .setKeyUsage(KeyUsage.digitalSignature)
+                .addExtension(Extension.extendedKeyUsage, true, new ExtendedKeyUsage(new KeyPurposeId[]{KeyPurposeId.id_kp_clientAuth, KeyPurposeId.id_kp_serverAuth}))
+                .addExtension(Extension.subjectKeyIdentifier, false, new JcaX509ExtensionUtils().createSubjectKeyIdentifier(rcac.getPublicKey()))
+                .addExtension(new ASN1ObjectIdentifier("1.3.6.1.4.1.37244.99"), false, new DERUTF8String("not a matter extension"))
+                .done();
+        var noc = builder.buildSignedBy(rcac);
+        var der = noc.getEncodedCertificate();
+
+        // Encode straight from the DER bytes into a buffer, and back
+        var tlv = ByteBuffer.allocate(der.length);
+        var tlvLength = MatterCertificateTLVCodec.encode(ByteBuffer.wrap(der), tlv);
+        assert tlv.position() == tlvLength;
+        var derOut = ByteBuffer.allocate(2 * der.length);
+        var derLength = MatterCertificateTLVCodec.decode(tlv.flip(), derOut);
+        assert derLength == der.length;
+        assert Arrays.equals(Arrays.copyOf(derOut.array(), derLength), der);
+        assertSignedBy(SomeX509v3CertificateHolder.fromDERData(der), rcac);
+    }
+
+    @Test
+    public void testNonMatterAttributeIsRejected() throws Exception {
+        var certificate = AnyManagedCertificateBuilder.start().setValidFrom(new Date())
+                .subjectDN().addRDN(GalsieASN1ObjectIdentifier.GALSIE_HOME_ID, "200").done()
+                .setSerialNumber("1").buildAsSelfSigned();
+        try {
+            certificate.getX509CertificateHolder().getMatterTLVEncoded();
+            assert false;
+        } catch (MatterTLVCodecException ignored) {
+        }
+    }
+}
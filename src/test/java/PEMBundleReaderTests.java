@@ -0,0 +1,164 @@
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.asn1.object.MatterASN1ObjectIdentifier;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
+import com.galsie.lib.certificates.certificate.builder.AnyManagedCertificateBuilder;
+import com.galsie.lib.certificates.csr.CertificateSigningRequestBuilder;
+import com.galsie.lib.certificates.pem.PEMBlock;
+import com.galsie.lib.certificates.pem.PEMBundleReader;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+public class PEMBundleReaderTests {
+
+    /**
+     * Enough certificates for the bundle to be split in chunks, and to span several channel windows
+     */
+    private static final int CERTIFICATE_COUNT = 600;
+
+    private static final List<SomeX509v3CertificateHolder> certificates = new ArrayList<>();
+    private static byte[] csrEncoded;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        for (SecurityProvider securityProvider : SecurityProvider.values()) {
+            securityProvider.registerProvider();
+        }
+        for (int i = 0; i < 4; i++) {
+            certificates.add(AnyManagedCertificateBuilder.start().setValidFrom(new Date())
+                    .subjectDN().addRDN(MatterASN1ObjectIdentifier.MATTER_RCAC_ID, String.valueOf(i)).done()
+                    .setSerialNumber(String.valueOf(i)).buildAsSelfSigned().getX509CertificateHolder());
+        }
+        csrEncoded = CertificateSigningRequestBuilder.start().build().getCsrHolder().getPkcs10CertificationRequest().getEncoded();
+    }
+
+    private static byte[] pemBundle() throws Exception {
+        var out = new ByteArrayOutputStream();
+        out.write("Trust bundle, text before and between blocks is ignored\n".getBytes(StandardCharsets.US_ASCII));
+        for (int i = 0; i < CERTIFICATE_COUNT; i++) {
+            out.write(certificates.get(i % certificates.size()).getPEMEncoded().getBytes(StandardCharsets.US_ASCII));
+            out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+            if (i == CERTIFICATE_COUNT / 2) {
+                out.write("-----BEGIN CERTIFICATE REQUEST-----\n".getBytes(StandardCharsets.US_ASCII));
+                var base64 = java.util.Base64.getMimeEncoder(64, "\n".getBytes()).encode(csrEncoded);
+                out.write(base64);
+                out.write("\n-----END CERTIFICATE REQUEST-----\n".getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] derBundle() throws Exception {
+        var out = new ByteArrayOutputStream();
+        for (int i = 0; i < CERTIFICATE_COUNT; i++) {
+            out.write(certificates.get(i % certificates.size()).getEncoded());
+        }
+        out.write(csrEncoded);
+        return out.toByteArray();
+    }
+
+    private static void assertBundle(List<PEMBlock> blocks) throws Exception {
+        assert blocks.size() == CERTIFICATE_COUNT + 1;
+        int certificateIndex = 0;
+        for (var block : blocks) {
+            if (block.isCertificateSigningRequest()) {
+                assert Arrays.equals(block.getDerEncoded(), csrEncoded);
+                continue;
+            }
+            assert block.isCertificate();
+            assert block.toCertificateHolder().equals(certificates.get(certificateIndex++ % certificates.size()));
+        }
+    }
+
+    @Test
+    public void testMemoryMappedPEMBundle() throws Exception {
+        var file = Files.createTempFile("bundle", ".pem");
+        try {
+            Files.write(file, pemBundle());
+            try (var reader = PEMBundleReader.open(file)) {
+                assertBundle(reader.stream().toList());
+            }
+            try (var reader = PEMBundleReader.open(file)) {
+                assertBundle(reader.parallelStream().toList());
+            }
+            try (var reader = PEMBundleReader.open(file)) {
+                assert reader.parallelCertificateSigningRequests().count() == 1;
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testChannelPEMBundle() throws Exception {
+        try (var reader = PEMBundleReader.of(Channels.newChannel(new ByteArrayInputStream(pemBundle())))) {
+            assertBundle(reader.stream().toList());
+        }
+        try (var reader = PEMBundleReader.of(Channels.newChannel(new ByteArrayInputStream(pemBundle())))) {
+            assert reader.parallelCertificates().count() == CERTIFICATE_COUNT;
+        }
+    }
+
+    @Test
+    public void testDERBundle() throws Exception {
+        var bundle = derBundle();
+        assertBundle(PEMBundleReader.of(ByteBuffer.wrap(bundle)).parallelStream().toList());
+        try (var reader = PEMBundleReader.of(Channels.newChannel(new ByteArrayInputStream(bundle)))) {
+            assertBundle(reader.stream().toList());
+        }
+    }
+
+    @Test
+    public void testTruncatedBundle() throws Exception {
+        var bundle = pemBundle();
+        var truncated = Arrays.copyOf(bundle, bundle.length - 40);
+        try (var reader = PEMBundleReader.of(Channels.newChannel(new ByteArrayInputStream(truncated)))) {
+            reader.stream().count();
+            assert false;
+        } catch (UncheckedIOException ignored) {
+        }
+    }
+
+    @Test
+    public void testPEMWriterWrapsAndRoundTrips() throws Exception {
+        var certificate = certificates.get(0);
+        var pem = certificate.getPEMEncoded();
+        for (var line : pem.split("\n")) {
+            assert line.length() <= 64 || line.startsWith("-----");
+        }
+        assert SomeX509v3CertificateHolder.fromPEMEncoded(pem).equals(certificate);
+
+        var streamed = new ByteArrayOutputStream();
+        certificate.writePEM(streamed);
+        assert Arrays.equals(streamed.toByteArray(), pem.getBytes(StandardCharsets.US_ASCII));
+
+        var heap = ByteBuffer.allocate(certificate.getPEMLength() + 3).position(3);
+        certificate.writePEM(heap);
+        var direct = ByteBuffer.allocateDirect(certificate.getPEMLength());
+        certificate.writePEM(direct);
+        assert !heap.hasRemaining() && !direct.hasRemaining();
+        assert heap.flip().position(3).equals(direct.flip());
+
+        var der = ByteBuffer.allocate(certificate.getDEREncoded().length);
+        certificate.writeDER(der);
+        assert Arrays.equals(der.array(), certificate.getEncoded());
+
+        // Many blocks written back to back are read back as a bundle
+        var bundle = new ByteArrayOutputStream();
+        for (var holder : certificates) {
+            holder.writePEM(bundle);
+        }
+        assert PEMBundleReader.of(ByteBuffer.wrap(bundle.toByteArray())).certificates().toList().equals(certificates);
+    }
+}
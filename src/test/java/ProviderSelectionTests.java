@@ -0,0 +1,92 @@
+import com.galsie.lib.certificates.CryptoOperation;
+import com.galsie.lib.certificates.ProviderSelection;
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.asn1.object.GalsieASN1ObjectIdentifier;
+import com.galsie.lib.certificates.csr.CertificateSigningRequestBuilder;
+import com.galsie.lib.certificates.csr.SomeCSRHolder;
+import com.galsie.lib.certificates.keypair.KeyUtils;
+import com.galsie.lib.certificates.keypair.KeypairBuilder;
+import com.galsie.lib.certificates.keypair.algo.ECDSA;
+import com.galsie.lib.certificates.validation.MatterChainValidator;
+import com.galsie.lib.utils.crypto.hasher.HashingAlgorithm;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+public class ProviderSelectionTests {
+
+    @BeforeClass
+    public static void setupProviders() throws Exception {
+        for (SecurityProvider securityProvider : SecurityProvider.values()) {
+            securityProvider.registerProvider();
+        }
+    }
+
+    @After
+    public void resetSelection() {
+        ProviderSelection.set(ProviderSelection.DEFAULT);
+    }
+
+    @Test
+    public void testDefaultsToBouncyCastle() {
+        for (CryptoOperation cryptoOperation : CryptoOperation.values()) {
+            assert SecurityProvider.forOperation(cryptoOperation) == SecurityProvider.BOUNCY_CASTLE;
+        }
+        var selection = ProviderSelection.DEFAULT.with(CryptoOperation.SIGNING, SecurityProvider.SUN_EC);
+        assert selection.getProvider(CryptoOperation.SIGNING) == SecurityProvider.SUN_EC;
+        assert selection.getProvider(CryptoOperation.VERIFICATION) == SecurityProvider.BOUNCY_CASTLE;
+        assert ProviderSelection.DEFAULT.getProvider(CryptoOperation.SIGNING) == SecurityProvider.BOUNCY_CASTLE;
+    }
+
+    @Test
+    public void testIssuesAndValidatesWithSunEC() throws Exception {
+        ProviderSelection.set(ProviderSelection.of(SecurityProvider.SUN_EC));
+        var keyPair = KeypairBuilder.builder().setGenerationAlgorithm(ECDSA.SECP_256_R1).build();
+        assert keyPair.getPublic().getAlgorithm().equals("EC");
+        assert KeyUtils.getKeyFactory("ECDSA").getProvider().getName().equals("SunEC");
+
+        var rcac = TestCertificates.buildRCAC();
+        assert rcac.getContentSignerPool(HashingAlgorithm.SHA256).getSignatureAlgorithm().equals("SHA256withECDSA");
+        MatterChainValidator.builder().addTrustedRCAC(rcac.getX509CertificateHolder()).build(); // verifies the self-signature
+
+        var pemEncodedCSR = CertificateSigningRequestBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done()
+                .subjectDN().addRDN(GalsieASN1ObjectIdentifier.GALSIE_HOME_ID, "1").done()
+                .build().getPEMEncoded();
+        assert SomeCSRHolder.fromPEMEncoded(pemEncodedCSR).isSignatureValid();
+    }
+
+    @Test
+    public void testMixedProviders() throws Exception {
+        ProviderSelection.set(ProviderSelection.DEFAULT
+                .with(CryptoOperation.KEY_GENERATION, SecurityProvider.SUN_EC)
+                .with(CryptoOperation.VERIFICATION, SecurityProvider.SUN_EC));
+        var rcac = TestCertificates.buildRCAC(); // SunEC key, signed by bouncy castle, verified by SunEC
+        assert rcac.getPublicKey().getAlgorithm().equals("EC");
+        MatterChainValidator.builder().addTrustedRCAC(rcac.getX509CertificateHolder()).build();
+
+        ProviderSelection.set(ProviderSelection.DEFAULT.with(CryptoOperation.SIGNING, SecurityProvider.SUN_EC));
+        rcac = TestCertificates.buildRCAC(); // bouncy castle key, signed by SunEC
+        assert rcac.getPublicKey().getAlgorithm().equals("ECDSA");
+        MatterChainValidator.builder().addTrustedRCAC(rcac.getX509CertificateHolder()).build();
+
+        // converting a key goes through the thread's cached factory of the target provider
+        var sunECKey = SecurityProvider.SUN_EC.toProviderKey(rcac.getPublicKey());
+        assert sunECKey.getAlgorithm().equals("EC") && Arrays.equals(sunECKey.getEncoded(), rcac.getPublicKey().getEncoded());
+        var sunECFactory = KeyUtils.getKeyFactory(SecurityProvider.SUN_EC, "ECDSA");
+        assert sunECFactory.getProvider().getName().equals("SunEC") && sunECFactory.getAlgorithm().equals("EC");
+        assert KeyUtils.getKeyFactory(SecurityProvider.SUN_EC, "ECDSA") == sunECFactory;
+        assert KeyUtils.getKeyFactory(SecurityProvider.BOUNCY_CASTLE, "ECDSA") != sunECFactory;
+        assert SecurityProvider.BOUNCY_CASTLE.toProviderKey(rcac.getPublicKey()) == rcac.getPublicKey(); // nothing to convert
+    }
+
+    @Test
+    public void testBenchmarkPicksARegisteredProvider() {
+        var selection = ProviderSelection.byBenchmark(Duration.ofMillis(5));
+        for (CryptoOperation cryptoOperation : CryptoOperation.values()) {
+            assert selection.getProvider(cryptoOperation).isRegistered();
+        }
+    }
+}
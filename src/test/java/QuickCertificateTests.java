@@ -1,17 +1,33 @@
 import com.galsie.lib.certificates.SecurityProvider;
 import com.galsie.lib.certificates.asn1.object.GalsieASN1ObjectIdentifier;
 import com.galsie.lib.certificates.asn1.object.MatterASN1ObjectIdentifier;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateHolder;
 import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
 import com.galsie.lib.certificates.certificate.builder.AnyManagedCertificateBuilder;
 import com.galsie.lib.certificates.certificate.builder.AnyUnmanagedCertificateBuilder;
+import com.galsie.lib.certificates.csr.CSRVerifierCache;
 import com.galsie.lib.certificates.csr.CertificateSigningRequestBuilder;
 import com.galsie.lib.certificates.csr.SomeCSRHolder;
 import com.galsie.lib.certificates.exception.MaxSupportedRDNCountExceededException;
 import com.galsie.lib.certificates.keypair.algo.ECDSA;
+import com.galsie.lib.certificates.dn.DistinguishedNameBuilder;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DERPrintableString;
+import org.bouncycastle.asn1.DERUTF8String;
+import org.bouncycastle.asn1.x500.AttributeTypeAndValue;
+import org.bouncycastle.asn1.x500.RDN;
+import org.bouncycastle.asn1.x500.X500Name;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * TODO: write better tests, this was written in 5 minutes.
@@ -53,5 +69,132 @@ public class QuickCertificateTests {
         System.out.println("SIGNED CERT\n" + signedCertificateForCSR);
     }
 
+    @Test
+    public void testBatchSigningCSRs() throws Exception {
+        var rootCA = AnyManagedCertificateBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done().setValidFrom(new Date()).subjectDN().addRDN(MatterASN1ObjectIdentifier.MATTER_RCAC_ID, "1").done().setSerialNumber("019123123123").buildAsSelfSigned();
+        var csrHolders = new ArrayList<SomeCSRHolder>();
+        for (int i = 0; i < 16; i++) {
+            csrHolders.add(CertificateSigningRequestBuilder.start().subjectDN().addRDN(GalsieASN1ObjectIdentifier.GALSIE_HOME_ID, String.valueOf(i)).done().build().getCsrHolder());
+        }
+        // A CSR whose signature does not match its key fails on its own without aborting the batch
+        var otherKeyCSR = CertificateSigningRequestBuilder.start().build();
+        var tamperedCSR = new SomeCSRHolder(new org.bouncycastle.pkcs.PKCS10CertificationRequest(new org.bouncycastle.asn1.pkcs.CertificationRequest(
+                csrHolders.get(0).getPkcs10CertificationRequest().toASN1Structure().getCertificationRequestInfo(),
+                otherKeyCSR.getCsrHolder().getPkcs10CertificationRequest().getSignatureAlgorithm(),
+                new org.bouncycastle.asn1.DERBitString(otherKeyCSR.getCsrHolder().getPkcs10CertificationRequest().getSignature()))));
+        csrHolders.add(tamperedCSR);
+
+        var serials = new AtomicLong();
+        var results = AnyUnmanagedCertificateBuilder.batchSignedBy(rootCA)
+                .setTemplate(builder -> builder.setValidFrom(new Date()))
+                .setSerialNumberSupplier(() -> String.valueOf(serials.incrementAndGet()).getBytes())
+                .issue(csrHolders);
+
+        assert results.size() == csrHolders.size();
+        for (int i = 0; i < 16; i++) {
+            assert results.get(i).isSuccess();
+            assert results.get(i).getCertificateHolder().getSubject().equals(csrHolders.get(i).getPkcs10CertificationRequest().getSubject());
+        }
+        assert !results.get(16).isSuccess();
+
+        // An executor that refuses the items fails them, the future still completes normally
+        var shutDown = java.util.concurrent.Executors.newSingleThreadExecutor();
+        shutDown.shutdown();
+        var refused = AnyUnmanagedCertificateBuilder.batchSignedBy(rootCA).setExecutor(shutDown).issueAsync(csrHolders.subList(0, 2)).join();
+        assert refused.size() == 2 && refused.get(0).getException() instanceof java.util.concurrent.RejectedExecutionException;
+    }
+
+    @Test
+    public void testCSRVerifierCache() throws Exception {
+        var verifierCache = new CSRVerifierCache(8);
+        var csrHolder = CertificateSigningRequestBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done().build().getCsrHolder();
+        assert csrHolder.isSignatureValid(verifierCache);
+        // A retry of the same CSR (same key) reuses the provider
+        var retriedCSR = SomeCSRHolder.fromPEMEncoded(csrHolder.getPEMEncoded());
+        assert retriedCSR.isSignatureValid(verifierCache);
+        assert verifierCache.getMisses() == 1 && verifierCache.getHits() == 1 && verifierCache.size() == 1;
+
+        // The provider is keyed on the key, not on the CSR, a wrong signature under a cached key still fails
+        var otherKeyCSR = CertificateSigningRequestBuilder.start().build().getCsrHolder();
+        var tamperedCSR = new SomeCSRHolder(new org.bouncycastle.pkcs.PKCS10CertificationRequest(new org.bouncycastle.asn1.pkcs.CertificationRequest(
+                csrHolder.getPkcs10CertificationRequest().toASN1Structure().getCertificationRequestInfo(),
+                otherKeyCSR.getPkcs10CertificationRequest().getSignatureAlgorithm(),
+                new org.bouncycastle.asn1.DERBitString(otherKeyCSR.getPkcs10CertificationRequest().getSignature()))));
+        assert !tamperedCSR.isSignatureValid(verifierCache);
+        assert verifierCache.getHits() == 2;
+    }
+
+    @Test
+    public void testRDNIndex() throws Exception {
+        var rootCA = AnyManagedCertificateBuilder.start().setValidFrom(new Date()).applyMatterConstraints().setRCACIdRDN(0xCACACACA00000001L).setSerialNumber("1").buildAsSelfSigned();
+        var noc = AnyManagedCertificateBuilder.start().setValidFrom(new Date()).applyMatterConstraints()
+                .setFabricIdRDN(0xFAB000000000001DL)
+                .subjectDN().addRDN(MatterASN1ObjectIdentifier.MATTER_NODE_ID, "DEDEDEDE00010001")
+                .addRDN(MatterASN1ObjectIdentifier.MATTER_NOC_CAT, "ABCD0001")
+                .addRDN(MatterASN1ObjectIdentifier.MATTER_NOC_CAT, "ABCE0002").done()
+                .setSerialNumber("2").buildSignedBy(rootCA).getX509CertificateHolder();
+
+        var subject = noc.getSubjectRDNs();
+        assert subject.getNodeId() == 0xDEDEDEDE00010001L;
+        assert subject.getFabricId() == 0xFAB000000000001DL;
+        assert subject.getNOCCATCount() == 2 && subject.getNOCCAT(0) == 0xABCD0001L && subject.getNOCCAT(1) == 0xABCE0002L;
+        assert !subject.contains(GalsieASN1ObjectIdentifier.GALSIE_HOME_ID);
+        assert subject.getLongOrDefault(MatterASN1ObjectIdentifier.MATTER_ICAC_ID, -1) == -1;
+        assert noc.getSubjectRDNs() == subject;
+        assert noc.getIssuerRDNs().getRCACId() == 0xCACACACA00000001L;
+        assert noc.getIssuerRDNValueFor(MatterASN1ObjectIdentifier.MATTER_RCAC_ID).get().equals("CACACACA00000001");
+
+        var csrHolder = CertificateSigningRequestBuilder.start().subjectDN().addRDN(GalsieASN1ObjectIdentifier.GALSIE_HOME_ID, "200").done().build().getCsrHolder();
+        assert csrHolder.getSubjectRDNs().getHomeId() == 200;
+    }
+
+    @Test
+    public void testHolderSerializesAfterIndexing() throws Exception {
+        var rootCA = AnyManagedCertificateBuilder.start().setValidFrom(new Date()).applyMatterConstraints().setRCACIdRDN(0xCACACACA00000001L).setSerialNumber("1").buildAsSelfSigned();
+        var holder = rootCA.getX509CertificateHolder();
+        assert holder.getSubjectRDNs().getRCACId() == 0xCACACACA00000001L;
+        assert holder.getIssuerRDNs().getRCACId() == 0xCACACACA00000001L;
+        var pem = holder.getPEMEncoded(); // fills the DER cache too
+
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new ObjectOutputStream(bytes)) {
+            out.writeObject(holder);
+        }
+        SomeX509v3CertificateHolder deserialized;
+        try (var in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            deserialized = (SomeX509v3CertificateHolder) in.readObject();
+        }
+        assert deserialized.equals(holder);
+        assert deserialized.getPublicKey().equals(holder.getPublicKey());
+        // the caches are rebuilt on first use
+        assert deserialized.getSubjectRDNs().getRCACId() == 0xCACACACA00000001L;
+        assert deserialized.getIssuerRDNs().getRCACId() == 0xCACACACA00000001L;
+        assert deserialized.getPEMEncoded().equals(pem);
+    }
+
+    @Test
+    public void testDistinguishedNameBuilder() throws Exception {
+        var name = new DistinguishedNameBuilder()
+                .addRDN("2.5.4.3", "Kitchen, Lights + Blinds")
+                .addRDN("2.5.4.6", "US")
+                .addMatterIdRDN(MatterASN1ObjectIdentifier.MATTER_NODE_ID, 1)
+                .addNOCCATRDN(0xABCD0001)
+                .addPrintableRDN(MatterASN1ObjectIdentifier.MATTER_OID_VID, "FFF1")
+                .build();
+        var rdns = name.getRDNs();
+        assert rdns.length == 5;
+        assert rdns[0].getFirst().getValue() instanceof DERUTF8String cn && cn.getString().equals("Kitchen, Lights + Blinds");
+        assert rdns[1].getFirst().getValue() instanceof DERPrintableString; // as BCStyle encodes countries
+        assert rdns[2].getFirst().getValue() instanceof DERUTF8String nodeId && nodeId.getString().equals("0000000000000001");
+        assert rdns[3].getFirst().getValue().toString().equals("ABCD0001");
+        assert rdns[4].getFirst().getValue() instanceof DERPrintableString;
+
+        // A CSR subject is copied as it is, multi-valued RDNs and encodings included
+        var csrSubject = new X500Name(new RDN[]{new RDN(new AttributeTypeAndValue[]{
+                new AttributeTypeAndValue(new ASN1ObjectIdentifier("2.5.4.3"), new DERPrintableString("device")),
+                new AttributeTypeAndValue(new ASN1ObjectIdentifier("2.5.4.10"), new DERUTF8String("Galsie"))})});
+        var copied = new DistinguishedNameBuilder(5).addContentsOfX500Name(csrSubject).build();
+        assert Arrays.equals(copied.getEncoded(), csrSubject.getEncoded());
+    }
 
 }
@@ -0,0 +1,101 @@
+import com.galsie.lib.certificates.SecurityProvider;
+import com.galsie.lib.certificates.certificate.builder.AnyManagedCertificateBuilder;
+import com.galsie.lib.certificates.keypair.algo.ECDSA;
+import com.galsie.lib.certificates.serial.NodePrefixedSerialNumberAllocator;
+import com.galsie.lib.certificates.serial.SerialNumberAllocator;
+import com.galsie.lib.certificates.serial.SerialNumberBloomFilter;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+public class SerialNumberAllocatorTests {
+
+    @BeforeClass
+    public static void setupProviders() throws Exception {
+        for (SecurityProvider securityProvider : SecurityProvider.values()) {
+            securityProvider.registerProvider();
+        }
+    }
+
+    private static void assertUniqueAndCompliant(SerialNumberAllocator allocator) throws Exception {
+        int threads = 16, perThread = 5_000;
+        Set<BigInteger> serials = ConcurrentHashMap.newKeySet();
+        var start = new CountDownLatch(1);
+        var workers = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++) {
+            var worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    var serial = allocator.allocate();
+                    assert serial.signum() > 0;
+                    assert serial.toByteArray().length <= SerialNumberAllocator.MAX_SERIAL_NUMBER_OCTETS;
+                    serials.add(serial);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (var worker : workers) {
+            worker.join();
+        }
+        assert serials.size() == threads * perThread;
+    }
+
+    @Test
+    public void testAllocatorsAreUniqueAcrossThreads() throws Exception {
+        assertUniqueAndCompliant(SerialNumberAllocator.nodePrefixed(7));
+        assertUniqueAndCompliant(SerialNumberAllocator.timeOrdered());
+        assertUniqueAndCompliant(SerialNumberAllocator.secureRandom(100_000));
+    }
+
+    @Test
+    public void testNodePrefixedAllocatorsDoNotOverlap() {
+        // Same node id twice in one JVM (eg: a restart), and another node
+        var first = new NodePrefixedSerialNumberAllocator(1, 4);
+        var second = new NodePrefixedSerialNumberAllocator(1, 4);
+        var other = new NodePrefixedSerialNumberAllocator(2, 4);
+        assert first.getStartMillis() != second.getStartMillis();
+        Set<BigInteger> serials = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 1000; i++) {
+            assert serials.add(first.allocate());
+            assert serials.add(second.allocate());
+            assert serials.add(other.allocate());
+        }
+    }
+
+    @Test
+    public void testBloomFilter() {
+        var bloomFilter = new SerialNumberBloomFilter(1000, 0.001);
+        byte[] serial = new BigInteger("0102030405060708090A0B0C0D0E0F1011", 16).toByteArray();
+        assert !bloomFilter.mightContain(serial);
+        assert bloomFilter.add(serial);
+        assert bloomFilter.mightContain(serial);
+        assert !bloomFilter.add(serial);
+    }
+
+    @Test
+    public void testBuilderAllocatesWhenNoSerialIsSet() throws Exception {
+        var allocator = new NodePrefixedSerialNumberAllocator(42, 1);
+        var first = AnyManagedCertificateBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done()
+                .setValidFrom(new Date())
+                .setSerialNumberAllocator(allocator)
+                .buildAsSelfSigned();
+        var second = AnyManagedCertificateBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done()
+                .setValidFrom(new Date())
+                .buildAsSelfSigned(); // The default allocator
+        var firstSerial = first.getX509CertificateHolder().getSerialNumber();
+        assert firstSerial.toByteArray()[4] == 42; // 0x01 then the 4 octet node id
+        assert !firstSerial.equals(second.getX509CertificateHolder().getSerialNumber());
+    }
+}
@@ -0,0 +1,46 @@
+import com.galsie.lib.certificates.asn1.object.GalsieASN1ObjectIdentifier;
+import com.galsie.lib.certificates.certificate.SomeX509v3CertificateManager;
+import com.galsie.lib.certificates.certificate.builder.AnyManagedCertificateBuilder;
+import com.galsie.lib.certificates.certificate.profile.CertificateProfile;
+import com.galsie.lib.certificates.keypair.algo.ECDSA;
+import com.galsie.lib.certificates.keypair.algo.KeypairGenerationAlgorithm;
+
+import java.util.Date;
+
+/**
+ * The certificate authorities the tests issue from
+ */
+public class TestCertificates {
+
+    /**
+     * A Matter RCAC, ready to build: a P-256 key, the Matter constraints and the {@link CertificateProfile#matterRCAC()} profile, valid from now
+     * - The serial number is allocated unless one is set
+     *
+     * @param rcacId The 'rcac-id' of the subject
+     */
+    public static AnyManagedCertificateBuilder rcacBuilder(long rcacId) throws Exception {
+        return AnyManagedCertificateBuilder.start().keypair().setGenerationAlgorithm(ECDSA.SECP_256_R1).done()
+                .applyMatterConstraints()
+                .applyProfile(CertificateProfile.matterRCAC())
+                .setValidFrom(new Date())
+                .setRCACIdRDN(rcacId);
+    }
+
+    public static SomeX509v3CertificateManager buildRCAC(long rcacId) throws Exception {
+        return rcacBuilder(rcacId).buildAsSelfSigned();
+    }
+
+    public static SomeX509v3CertificateManager buildRCAC() throws Exception {
+        return buildRCAC(1L);
+    }
+
+    /**
+     * A self-signed certificate authority with a key of any algorithm, for the tests that are not about Matter certificates
+     */
+    public static SomeX509v3CertificateManager buildCA(KeypairGenerationAlgorithm keypairGenerationAlgorithm) throws Exception {
+        return AnyManagedCertificateBuilder.start().keypair().setGenerationAlgorithm(keypairGenerationAlgorithm).done()
+                .setValidFrom(new Date())
+                .subjectDN().addRDN(GalsieASN1ObjectIdentifier.GALSIE_HOME_ID, "1").done()
+                .buildAsSelfSigned();
+    }
+}